@@ -22,6 +22,7 @@ import io.netty.util.concurrent.FastThreadLocalThread;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
 import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.ThreadNumaNode;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
@@ -455,8 +456,21 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator implements
                 return null;
             }
 
-            PoolArena<T> minArena = arenas[0];
-            for (int i = 1; i < arenas.length; i++) {
+            // If the NUMA node of the thread is known, only use the arenas of the node, so the memory of an arena is
+            // used by threads of the same node only.
+            int start = 0;
+            int step = 1;
+            int nodeCount = ThreadNumaNode.nodeCount();
+            if (nodeCount > 1 && arenas.length >= nodeCount) {
+                int node = ThreadNumaNode.node();
+                if (node >= 0) {
+                    start = node;
+                    step = nodeCount;
+                }
+            }
+
+            PoolArena<T> minArena = arenas[start];
+            for (int i = start + step; i < arenas.length; i += step) {
                 PoolArena<T> arena = arenas[i];
                 if (arena.numThreadCaches.get() < minArena.numThreadCaches.get()) {
                     minArena = arena;
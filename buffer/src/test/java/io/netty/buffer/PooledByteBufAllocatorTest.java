@@ -20,6 +20,7 @@ import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.concurrent.FastThreadLocalThread;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.ThreadNumaNode;
 import org.junit.Assume;
 import org.junit.Test;
 
@@ -364,6 +365,49 @@ public class PooledByteBufAllocatorTest extends AbstractByteBufAllocatorTest<Poo
         assertEquals(0, allocator.metric().directArenas().get(1).numThreadCaches());
     }
 
+    @Test(timeout = 3000)
+    public void testThreadCacheToArenaMappingsWithNumaNode() throws InterruptedException {
+        int numArenas = 4;
+        final PooledByteBufAllocator allocator =
+                new PooledByteBufAllocator(numArenas, numArenas, 8192, 1);
+        // The node count can only be initialized once, so this test is skipped if something else did it before.
+        ThreadNumaNode.initNodeCount(2);
+        Assume.assumeTrue(ThreadNumaNode.nodeCount() == 2);
+        final CountDownLatch allocated = new CountDownLatch(2);
+        final CountDownLatch done = new CountDownLatch(1);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                // Both threads are on the second of two nodes, so they must use the arenas 1 and 3.
+                ThreadNumaNode.set(1);
+                allocator.heapBuffer(1024).release();
+                allocator.directBuffer(1024).release();
+                allocated.countDown();
+                try {
+                    done.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        Thread t0 = new FastThreadLocalThread(task);
+        Thread t1 = new FastThreadLocalThread(task);
+        t0.start();
+        t1.start();
+        allocated.await();
+        try {
+            for (int i = 0; i < numArenas; i++) {
+                int expected = i % 2 == 1 ? 1 : 0;
+                assertEquals(expected, allocator.metric().heapArenas().get(i).numThreadCaches());
+                assertEquals(expected, allocator.metric().directArenas().get(i).numThreadCaches());
+            }
+        } finally {
+            done.countDown();
+            t0.join();
+            t1.join();
+        }
+    }
+
     private static ThreadCache createNewThreadCache(final PooledByteBufAllocator allocator)
             throws InterruptedException {
         final CountDownLatch latch = new CountDownLatch(1);
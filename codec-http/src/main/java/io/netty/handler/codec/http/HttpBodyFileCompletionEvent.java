@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.io.File;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * A user event which is triggered by the {@link HttpBodyFileHandler} once the body of a request was written to a
+ * file, or writing it failed.
+ */
+@UnstableApi
+public final class HttpBodyFileCompletionEvent {
+
+    private final HttpRequest request;
+    private final File file;
+    private final long size;
+    private final HttpHeaders trailingHeaders;
+    private final Throwable cause;
+
+    HttpBodyFileCompletionEvent(HttpRequest request, File file, long size, HttpHeaders trailingHeaders,
+                                Throwable cause) {
+        this.request = checkNotNull(request, "request");
+        this.file = file;
+        this.size = size;
+        this.trailingHeaders = checkNotNull(trailingHeaders, "trailingHeaders");
+        this.cause = cause;
+    }
+
+    /**
+     * Returns the {@link HttpRequest} whose body was written.
+     */
+    public HttpRequest request() {
+        return request;
+    }
+
+    /**
+     * Returns the file which contains the body, or {@code null} if it could not be created. If writing failed the
+     * file was deleted already.
+     */
+    public File file() {
+        return file;
+    }
+
+    /**
+     * Returns the number of bytes of the body.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the trailing headers of the request.
+     */
+    public HttpHeaders trailingHeaders() {
+        return trailingHeaders;
+    }
+
+    /**
+     * Returns {@code true} if the body was written completely.
+     */
+    public boolean isSuccess() {
+        return cause == null;
+    }
+
+    /**
+     * Returns the cause of the failure, or {@code null} if the body was written completely.
+     */
+    public Throwable cause() {
+        return cause;
+    }
+
+    @Override
+    public String toString() {
+        return StringUtil.simpleClassName(this) + (cause == null ?
+                "(file: " + file + ", size: " + size + ')' : "(FAILURE: " + cause + ')');
+    }
+}
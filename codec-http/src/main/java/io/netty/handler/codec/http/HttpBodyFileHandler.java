@@ -0,0 +1,358 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * Writes the bodies of {@link HttpRequest}s to files while they are received, without aggregating them. The
+ * {@link HttpRequest} is passed on, its {@link HttpContent}s are written to a file and once the body is complete a
+ * {@link HttpBodyFileCompletionEvent} is triggered, which carries the file and its size.
+ * <p>
+ * The content is written via {@link FileChannel#write(ByteBuffer[])} of the {@link ByteBuf#nioBuffers()} of the
+ * received buffers, so direct buffers are written without copying them to the heap first. If an {@link Executor} is
+ * given the file is written by it instead of the {@link io.netty.channel.EventLoop}, and if more than
+ * {@code maxPendingBytes} are waiting to be written, reading from the {@link io.netty.channel.Channel} is suspended
+ * via {@link io.netty.channel.ChannelConfig#setAutoRead(boolean)} until half of them are written. The
+ * {@link Executor} must run the tasks of one handler in order, like an {@link io.netty.util.concurrent.EventExecutor}
+ * does.
+ * <p>
+ * By default the bodies of all requests which have content are written to temporary files, which can be changed by
+ * overriding {@link #acceptRequest(HttpRequest)} and {@link #newFile(HttpRequest)}. This handler must be placed after
+ * the {@link HttpServerCodec} and is not sharable.
+ */
+@UnstableApi
+public class HttpBodyFileHandler extends ChannelInboundHandlerAdapter {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(HttpBodyFileHandler.class);
+
+    private static final int DEFAULT_MAX_PENDING_BYTES = 4 * 1024 * 1024;
+
+    private final File directory;
+    private final Executor fileExecutor;
+    private final int maxPendingBytes;
+    private final Queue<Object> queue = new ArrayDeque<Object>();
+
+    private BodyWriter writer;
+    private boolean completing;
+    private int pendingBytes;
+    private boolean suspended;
+
+    /**
+     * Creates a new instance which writes the files on the {@link io.netty.channel.EventLoop}.
+     *
+     * @param directory     the directory of the files, or {@code null} to use the default temporary directory.
+     */
+    public HttpBodyFileHandler(File directory) {
+        this(directory, null);
+    }
+
+    /**
+     * Creates a new instance which suspends reading if more than {@code 4 MiB} are waiting to be written.
+     *
+     * @param directory     the directory of the files, or {@code null} to use the default temporary directory.
+     * @param fileExecutor  the {@link Executor} which writes the files, or {@code null} to write them on the
+     *                      {@link io.netty.channel.EventLoop}.
+     */
+    public HttpBodyFileHandler(File directory, Executor fileExecutor) {
+        this(directory, fileExecutor, DEFAULT_MAX_PENDING_BYTES);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param directory         the directory of the files, or {@code null} to use the default temporary directory.
+     * @param fileExecutor      the {@link Executor} which writes the files, or {@code null} to write them on the
+     *                          {@link io.netty.channel.EventLoop}.
+     * @param maxPendingBytes   the number of bytes waiting to be written above which reading is suspended.
+     */
+    public HttpBodyFileHandler(File directory, Executor fileExecutor, int maxPendingBytes) {
+        this.directory = directory;
+        this.fileExecutor = fileExecutor;
+        this.maxPendingBytes = checkPositive(maxPendingBytes, "maxPendingBytes");
+    }
+
+    /**
+     * Returns {@code true} if the body of the given request should be written to a file, or {@code false} if the
+     * request should be passed on as it is. By default the bodies of all requests which have content are written.
+     */
+    protected boolean acceptRequest(HttpRequest request) {
+        return HttpUtil.getContentLength(request, 0L) > 0 || HttpUtil.isTransferEncodingChunked(request);
+    }
+
+    /**
+     * Returns the file to which the body of the given request is written. By default a temporary file is created.
+     */
+    protected File newFile(@SuppressWarnings("unused") HttpRequest request) throws IOException {
+        return File.createTempFile("netty-body-", ".tmp", directory);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (completing) {
+            // Keep the order of the messages and the completion event of the previous body.
+            queue.add(msg);
+            return;
+        }
+        if (msg instanceof HttpRequest) {
+            HttpRequest request = (HttpRequest) msg;
+            if (writer != null) {
+                queue.add(msg);
+                complete(ctx, EmptyHttpHeaders.INSTANCE, new IllegalStateException("Body was not terminated"));
+                return;
+            }
+            if (!request.decoderResult().isSuccess() || !acceptRequest(request)) {
+                ctx.fireChannelRead(msg);
+                return;
+            }
+            File file = null;
+            Throwable cause = null;
+            try {
+                file = newFile(request);
+            } catch (IOException e) {
+                cause = e;
+            }
+            if (msg instanceof FullHttpRequest) {
+                request = new DefaultHttpRequest(request.protocolVersion(), request.method(), request.uri(),
+                        request.headers());
+            }
+            writer = new BodyWriter(request, file, cause);
+            ctx.fireChannelRead(request);
+            if (!(msg instanceof HttpContent)) {
+                return;
+            }
+        } else if (writer == null || !(msg instanceof HttpContent)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        HttpContent content = (HttpContent) msg;
+        write(ctx, content.content());
+        if (content.decoderResult().isFailure()) {
+            complete(ctx, EmptyHttpHeaders.INSTANCE, content.decoderResult().cause());
+        } else if (msg instanceof LastHttpContent) {
+            complete(ctx, ((LastHttpContent) msg).trailingHeaders(), null);
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (writer != null && !completing) {
+            complete(ctx, EmptyHttpHeaders.INSTANCE, new ClosedChannelException());
+        }
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        final BodyWriter writer = this.writer;
+        this.writer = null;
+        if (writer != null && !completing) {
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    writer.close(new ClosedChannelException());
+                }
+            });
+        }
+        for (;;) {
+            Object msg = queue.poll();
+            if (msg == null) {
+                break;
+            }
+            ReferenceCountUtil.release(msg);
+        }
+        if (suspended) {
+            suspended = false;
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+
+    private void write(final ChannelHandlerContext ctx, final ByteBuf buf) {
+        final int length = buf.readableBytes();
+        if (length == 0) {
+            buf.release();
+            return;
+        }
+        final BodyWriter writer = this.writer;
+        pendingBytes += length;
+        if (!suspended && pendingBytes > maxPendingBytes && fileExecutor != null) {
+            suspended = true;
+            ctx.channel().config().setAutoRead(false);
+        }
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                writer.write(buf);
+                runOnEventLoop(ctx, new Runnable() {
+                    @Override
+                    public void run() {
+                        writeComplete(ctx, length);
+                    }
+                });
+            }
+        });
+    }
+
+    private void writeComplete(ChannelHandlerContext ctx, int length) {
+        pendingBytes -= length;
+        if (suspended && pendingBytes <= maxPendingBytes >>> 1) {
+            suspended = false;
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+
+    private void complete(final ChannelHandlerContext ctx, final HttpHeaders trailingHeaders, final Throwable cause) {
+        final BodyWriter writer = this.writer;
+        completing = true;
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                writer.close(cause);
+                runOnEventLoop(ctx, new Runnable() {
+                    @Override
+                    public void run() {
+                        completed(ctx, writer, trailingHeaders);
+                    }
+                });
+            }
+        });
+    }
+
+    private void completed(ChannelHandlerContext ctx, BodyWriter writer, HttpHeaders trailingHeaders) {
+        if (this.writer != writer) {
+            // The handler was removed in the meantime, so nobody takes care of the file.
+            if (writer.file != null && !writer.file.delete()) {
+                logger.warn("Failed to delete: {}", writer.file);
+            }
+            return;
+        }
+        this.writer = null;
+        completing = false;
+        ctx.fireUserEventTriggered(new HttpBodyFileCompletionEvent(
+                writer.request, writer.file, writer.size, trailingHeaders, writer.cause));
+        while (!completing) {
+            Object msg = queue.poll();
+            if (msg == null) {
+                break;
+            }
+            try {
+                channelRead(ctx, msg);
+            } catch (Throwable t) {
+                ctx.fireExceptionCaught(t);
+            }
+        }
+    }
+
+    private void execute(Runnable task) {
+        if (fileExecutor == null) {
+            task.run();
+        } else {
+            fileExecutor.execute(task);
+        }
+    }
+
+    private static void runOnEventLoop(ChannelHandlerContext ctx, Runnable task) {
+        if (ctx.executor().inEventLoop()) {
+            task.run();
+        } else {
+            ctx.executor().execute(task);
+        }
+    }
+
+    /**
+     * Writes the body of one request. Apart from the construction it is only accessed by the tasks which are run by
+     * the file {@link Executor}, in order.
+     */
+    private static final class BodyWriter {
+        final HttpRequest request;
+        final File file;
+        long size;
+        Throwable cause;
+        private FileChannel fileChannel;
+
+        BodyWriter(HttpRequest request, File file, Throwable cause) {
+            this.request = request;
+            this.file = file;
+            this.cause = cause;
+        }
+
+        void write(ByteBuf buf) {
+            try {
+                if (cause != null) {
+                    return;
+                }
+                if (fileChannel == null) {
+                    fileChannel = new FileOutputStream(file).getChannel();
+                }
+                int length = buf.readableBytes();
+                if (buf.nioBufferCount() == 1) {
+                    ByteBuffer buffer = buf.nioBuffer();
+                    while (buffer.hasRemaining()) {
+                        fileChannel.write(buffer);
+                    }
+                } else {
+                    ByteBuffer[] buffers = buf.nioBuffers();
+                    long written = 0;
+                    while (written < length) {
+                        written += fileChannel.write(buffers);
+                    }
+                }
+                size += length;
+            } catch (IOException e) {
+                cause = e;
+            } finally {
+                buf.release();
+            }
+        }
+
+        void close(Throwable failure) {
+            if (cause == null) {
+                cause = failure;
+            }
+            if (fileChannel != null) {
+                try {
+                    fileChannel.close();
+                } catch (IOException e) {
+                    if (cause == null) {
+                        cause = e;
+                    }
+                }
+                fileChannel = null;
+            }
+            if (cause != null && file != null && !file.delete()) {
+                logger.warn("Failed to delete: {}", file);
+            }
+        }
+    }
+}
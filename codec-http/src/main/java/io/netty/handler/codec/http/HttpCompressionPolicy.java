@@ -0,0 +1,305 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentMap;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
+
+/**
+ * Decides which response bodies are worth compressing, and collects statistics about the compression. It is
+ * thread-safe and may be shared by the {@link HttpContentEncoder}s and the {@code CompressorHttp2ConnectionEncoder}s
+ * of all channels.
+ * <p>
+ * A body is not compressed if it is smaller than the minimum content length, or if its content type is excluded,
+ * like most image, audio and video formats which are compressed already. If adaptive compression is enabled, the
+ * ratio of the compressed to the uncompressed size is observed per route, and compression is disabled for a route if
+ * the ratio exceeds the configured maximum. A disabled route is still compressed every now and then, so it is enabled
+ * again if its content changes. The route of a HTTP/1.x response is the path of its request, and the content type of
+ * a HTTP/2 response as the {@code CompressorHttp2ConnectionEncoder} does not see the request.
+ */
+@UnstableApi
+public final class HttpCompressionPolicy {
+
+    private static final String[] DEFAULT_EXCLUDED_CONTENT_TYPES = {
+            "image/gif", "image/jpeg", "image/png", "image/webp", "audio/*", "video/*", "font/woff", "font/woff2",
+            "application/gzip", "application/x-gzip", "application/zip", "application/zstd",
+            "application/x-7z-compressed", "application/x-rar-compressed"
+    };
+
+    private final long minContentLength;
+    private final String[] excludedContentTypes;
+    private final double maxRatio;
+    private final int sampleSize;
+    private final int probeInterval;
+    private final int maxRoutes;
+    private final ConcurrentMap<String, RouteStats> routes = PlatformDependent.newConcurrentHashMap();
+
+    private final LongCounter compressedResponses = PlatformDependent.newLongCounter();
+    private final LongCounter skippedResponses = PlatformDependent.newLongCounter();
+    private final LongCounter uncompressedBytes = PlatformDependent.newLongCounter();
+    private final LongCounter compressedBytes = PlatformDependent.newLongCounter();
+    private final LongCounter compressionNanos = PlatformDependent.newLongCounter();
+
+    private HttpCompressionPolicy(Builder builder) {
+        minContentLength = builder.minContentLength;
+        excludedContentTypes = builder.excludedContentTypes;
+        maxRatio = builder.maxRatio;
+        sampleSize = builder.sampleSize;
+        probeInterval = builder.probeInterval;
+        maxRoutes = builder.maxRoutes;
+    }
+
+    /**
+     * Returns a new {@link Builder}, which creates policies with a minimum content length of {@code 1024} bytes,
+     * excludes the content types of common compressed formats and does not disable compression adaptively.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns {@code true} if a body with the given properties should be compressed.
+     *
+     * @param route         the route of the response, or {@code null} if it is unknown.
+     * @param contentType   the value of the {@code "Content-Type"} header, or {@code null}.
+     * @param contentLength the length of the uncompressed body, or {@code -1} if it is unknown.
+     */
+    public boolean isCompressible(String route, CharSequence contentType, long contentLength) {
+        if (contentLength >= 0 && contentLength < minContentLength || isExcluded(contentType)) {
+            skippedResponses.increment();
+            return false;
+        }
+        if (route != null && maxRatio > 0) {
+            RouteStats stats = routes.get(route);
+            if (stats != null && !stats.isCompressible(probeInterval)) {
+                skippedResponses.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Records the compression of a body, which was allowed by {@link #isCompressible(String, CharSequence, long)}.
+     *
+     * @param route             the route of the response, or {@code null} if it is unknown.
+     * @param uncompressedBytes the length of the uncompressed body.
+     * @param compressedBytes   the length of the compressed body.
+     * @param compressionNanos  the time which was spent compressing the body.
+     */
+    public void record(String route, long uncompressedBytes, long compressedBytes, long compressionNanos) {
+        compressedResponses.increment();
+        this.uncompressedBytes.add(uncompressedBytes);
+        this.compressedBytes.add(compressedBytes);
+        this.compressionNanos.add(compressionNanos);
+        if (route != null && maxRatio > 0 && uncompressedBytes > 0) {
+            RouteStats stats = routes.get(route);
+            if (stats == null) {
+                if (routes.size() >= maxRoutes) {
+                    // Do not track more routes, so the memory stays bounded.
+                    return;
+                }
+                stats = new RouteStats();
+                RouteStats old = routes.putIfAbsent(route, stats);
+                if (old != null) {
+                    stats = old;
+                }
+            }
+            stats.record(uncompressedBytes, compressedBytes, sampleSize, maxRatio);
+        }
+    }
+
+    /**
+     * Returns {@code true} if compression was disabled for the given route, as its compression ratio is poor.
+     */
+    public boolean isDisabled(String route) {
+        RouteStats stats = routes.get(checkNotNull(route, "route"));
+        return stats != null && stats.disabled;
+    }
+
+    /**
+     * Returns the number of bodies which were compressed.
+     */
+    public long compressedResponses() {
+        return compressedResponses.value();
+    }
+
+    /**
+     * Returns the number of bodies which were not compressed due to this policy.
+     */
+    public long skippedResponses() {
+        return skippedResponses.value();
+    }
+
+    /**
+     * Returns the number of bytes of all compressed bodies before they were compressed.
+     */
+    public long uncompressedBytes() {
+        return uncompressedBytes.value();
+    }
+
+    /**
+     * Returns the number of bytes of all compressed bodies.
+     */
+    public long compressedBytes() {
+        return compressedBytes.value();
+    }
+
+    /**
+     * Returns the number of bytes which were saved by compressing bodies, which is negative if compression made them
+     * larger.
+     */
+    public long bytesSaved() {
+        return uncompressedBytes() - compressedBytes();
+    }
+
+    /**
+     * Returns the time in nanoseconds which was spent compressing bodies.
+     */
+    public long compressionNanos() {
+        return compressionNanos.value();
+    }
+
+    private boolean isExcluded(CharSequence contentType) {
+        CharSequence mimeType = contentType == null ? null : HttpUtil.getMimeType(contentType);
+        if (mimeType == null) {
+            return false;
+        }
+        String type = mimeType.toString().trim().toLowerCase(Locale.US);
+        for (String excluded : excludedContentTypes) {
+            if (excluded.endsWith("/*") ?
+                    type.regionMatches(0, excluded, 0, excluded.length() - 1) : type.equals(excluded)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class RouteStats {
+        // Guarded by this.
+        private long uncompressedBytes;
+        private long compressedBytes;
+        private int samples;
+        private int skipped;
+
+        volatile boolean disabled;
+
+        synchronized boolean isCompressible(int probeInterval) {
+            if (!disabled) {
+                return true;
+            }
+            // Probe the route from time to time, as its content may have changed.
+            if (++skipped < probeInterval) {
+                return false;
+            }
+            skipped = 0;
+            return true;
+        }
+
+        synchronized void record(long uncompressedBytes, long compressedBytes, int sampleSize, double maxRatio) {
+            if (disabled) {
+                // A probe decides on its own if the route is enabled again.
+                disabled = (double) compressedBytes / uncompressedBytes > maxRatio;
+                return;
+            }
+            this.uncompressedBytes += uncompressedBytes;
+            this.compressedBytes += compressedBytes;
+            if (++samples >= sampleSize) {
+                disabled = (double) this.compressedBytes / this.uncompressedBytes > maxRatio;
+                this.uncompressedBytes = 0;
+                this.compressedBytes = 0;
+                samples = 0;
+            }
+        }
+    }
+
+    /**
+     * Builds a {@link HttpCompressionPolicy}.
+     */
+    public static final class Builder {
+        private long minContentLength = 1024;
+        private String[] excludedContentTypes = DEFAULT_EXCLUDED_CONTENT_TYPES;
+        private double maxRatio;
+        private int sampleSize;
+        private int probeInterval;
+        private int maxRoutes = 1024;
+
+        private Builder() { }
+
+        /**
+         * Sets the minimum length of the bodies which are compressed, the default is {@code 1024}. Bodies whose
+         * length is unknown are always compressed.
+         */
+        public Builder minContentLength(long minContentLength) {
+            this.minContentLength = checkPositiveOrZero(minContentLength, "minContentLength");
+            return this;
+        }
+
+        /**
+         * Sets the content types which are not compressed, which replace the default ones. A content type which
+         * ends with {@code "/*"}, like {@code "video/*"}, matches all subtypes.
+         */
+        public Builder excludedContentTypes(String... excludedContentTypes) {
+            checkNotNull(excludedContentTypes, "excludedContentTypes");
+            String[] types = new String[excludedContentTypes.length];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = checkNotNull(excludedContentTypes[i], "excludedContentTypes[" + i + ']')
+                        .trim().toLowerCase(Locale.US);
+            }
+            this.excludedContentTypes = types;
+            return this;
+        }
+
+        /**
+         * Enables adaptive compression: compression is disabled for a route if the ratio of the compressed to the
+         * uncompressed size of its last {@code sampleSize} bodies exceeds {@code maxRatio}. A disabled route is
+         * still compressed once every {@code probeInterval} responses, and enabled again if the ratio of the probe
+         * does not exceed {@code maxRatio}.
+         */
+        public Builder adaptive(double maxRatio, int sampleSize, int probeInterval) {
+            if (!(maxRatio > 0)) {
+                throw new IllegalArgumentException("maxRatio: " + maxRatio + " (expected: > 0)");
+            }
+            this.maxRatio = maxRatio;
+            this.sampleSize = checkPositive(sampleSize, "sampleSize");
+            this.probeInterval = checkPositive(probeInterval, "probeInterval");
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of routes whose compression ratio is tracked, the default is {@code 1024}.
+         */
+        public Builder maxRoutes(int maxRoutes) {
+            this.maxRoutes = checkPositive(maxRoutes, "maxRoutes");
+            return this;
+        }
+
+        /**
+         * Creates a new {@link HttpCompressionPolicy}.
+         */
+        public HttpCompressionPolicy build() {
+            return new HttpCompressionPolicy(this);
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * Bounded cache of the compressed content of {@link FullHttpResponse}s, which can be shared by the
+ * {@link HttpContentCompressor}s of all {@link io.netty.channel.Channel}s. A response opts in by carrying an
+ * strong {@code "ETag"} header, which must identify its uncompressed content: a cache hit serves a retained slice of
+ * the compressed content stored for the request URI, the {@code "ETag"} and the negotiated encoding, so the content is
+ * not compressed again. Responses with a weak {@code "ETag"} are never cached. A cache must not be shared by servers
+ * which serve different content with the same URI and {@code "ETag"}, e.g. virtual hosts.
+ * <p>
+ * The compressed content is stored in direct buffers. Once the sum of their sizes exceeds the capacity, the least
+ * recently used entries are evicted. Content which is larger than the maximum entry size is never cached.
+ */
+@UnstableApi
+public final class HttpContentCompressionCache {
+
+    private final long maxCapacity;
+    private final int maxEntrySize;
+
+    // Guarded by this.
+    private final Map<Key, ByteBuf> entries = new LinkedHashMap<Key, ByteBuf>(16, 0.75f, true);
+    private long usedCapacity;
+    private long hits;
+    private long misses;
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxCapacity   the maximum number of bytes of all cached content.
+     * @param maxEntrySize  the maximum number of bytes of the compressed content of a single response.
+     */
+    public HttpContentCompressionCache(long maxCapacity, int maxEntrySize) {
+        this.maxCapacity = checkPositive(maxCapacity, "maxCapacity");
+        this.maxEntrySize = checkPositive(maxEntrySize, "maxEntrySize");
+        if (maxEntrySize > maxCapacity) {
+            throw new IllegalArgumentException(
+                    "maxEntrySize: " + maxEntrySize + " (expected: <= maxCapacity(" + maxCapacity + "))");
+        }
+    }
+
+    /**
+     * Returns the number of cached entries.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of bytes of all cached content.
+     */
+    public synchronized long usedCapacity() {
+        return usedCapacity;
+    }
+
+    /**
+     * Returns the number of responses whose content was served from this cache.
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of responses whose content was compressed, as it was not cached.
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * Removes the content of all URIs and encodings which was cached for the given {@code "ETag"}, which must be done
+     * when the content it identifies changes without a new {@code "ETag"}.
+     */
+    public void invalidate(CharSequence contentIdentity) {
+        String id = checkNotNull(contentIdentity, "contentIdentity").toString();
+        synchronized (this) {
+            Iterator<Map.Entry<Key, ByteBuf>> i = entries.entrySet().iterator();
+            while (i.hasNext()) {
+                Map.Entry<Key, ByteBuf> e = i.next();
+                if (e.getKey().contentIdentity.equals(id)) {
+                    i.remove();
+                    removed(e.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all cached content.
+     */
+    public synchronized void clear() {
+        for (ByteBuf content : entries.values()) {
+            removed(content);
+        }
+        entries.clear();
+    }
+
+    /**
+     * Returns a retained slice of the cached content, or {@code null} if there is none.
+     */
+    ByteBuf get(String uri, String contentIdentity, String contentEncoding) {
+        Key key = new Key(uri, contentIdentity, contentEncoding);
+        synchronized (this) {
+            ByteBuf content = entries.get(key);
+            if (content == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+            return content.retainedSlice();
+        }
+    }
+
+    /**
+     * Caches the given content, whose ownership is transferred to this cache.
+     */
+    void put(String uri, String contentIdentity, String contentEncoding, ByteBuf content) {
+        if (content.readableBytes() > maxEntrySize) {
+            content.release();
+            return;
+        }
+        Key key = new Key(uri, contentIdentity, contentEncoding);
+        synchronized (this) {
+            ByteBuf old = entries.put(key, content);
+            if (old != null) {
+                removed(old);
+            }
+            usedCapacity += content.readableBytes();
+            Iterator<ByteBuf> i = entries.values().iterator();
+            while (usedCapacity > maxCapacity) {
+                // Iterates in the order of access, so the least recently used entry comes first.
+                ByteBuf eldest = i.next();
+                i.remove();
+                removed(eldest);
+            }
+        }
+    }
+
+    private void removed(ByteBuf content) {
+        usedCapacity -= content.readableBytes();
+        // Slices which are still written hold their own reference.
+        content.release();
+    }
+
+    /**
+     * Returns a handler which replaces the content which is written by the cached content.
+     */
+    static ChannelHandler newCachedContentHandler(ByteBuf cachedContent) {
+        return new CachedContentHandler(cachedContent);
+    }
+
+    /**
+     * Returns a handler which must be placed before the encoder, and which caches the content it writes once it is
+     * closed.
+     */
+    ChannelHandler newRecordingHandler(String uri, String contentIdentity, String contentEncoding) {
+        return new RecordingHandler(uri, contentIdentity, contentEncoding);
+    }
+
+    private static final class Key {
+        final String uri;
+        final String contentIdentity;
+        final String contentEncoding;
+
+        Key(String uri, String contentIdentity, String contentEncoding) {
+            this.uri = uri;
+            this.contentIdentity = contentIdentity;
+            this.contentEncoding = contentEncoding;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return uri.equals(other.uri) && contentIdentity.equals(other.contentIdentity) &&
+                   contentEncoding.equals(other.contentEncoding);
+        }
+
+        @Override
+        public int hashCode() {
+            return (uri.hashCode() * 31 + contentIdentity.hashCode()) * 31 + contentEncoding.hashCode();
+        }
+    }
+
+    private static final class CachedContentHandler extends ChannelOutboundHandlerAdapter {
+        private ByteBuf content;
+
+        CachedContentHandler(ByteBuf content) {
+            this.content = content;
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            ReferenceCountUtil.release(msg);
+            ByteBuf content = this.content;
+            if (content == null) {
+                promise.setSuccess();
+            } else {
+                this.content = null;
+                ctx.write(content, promise);
+            }
+        }
+
+        @Override
+        public void handlerRemoved(ChannelHandlerContext ctx) {
+            if (content != null) {
+                content.release();
+                content = null;
+            }
+        }
+    }
+
+    private final class RecordingHandler extends ChannelOutboundHandlerAdapter {
+        private final String uri;
+        private final String contentIdentity;
+        private final String contentEncoding;
+        private ByteBuf recorded = Unpooled.directBuffer();
+
+        RecordingHandler(String uri, String contentIdentity, String contentEncoding) {
+            this.uri = uri;
+            this.contentIdentity = contentIdentity;
+            this.contentEncoding = contentEncoding;
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            if (recorded != null && msg instanceof ByteBuf) {
+                ByteBuf buf = (ByteBuf) msg;
+                if (recorded.readableBytes() + buf.readableBytes() > maxEntrySize) {
+                    // Too big to be cached.
+                    recorded.release();
+                    recorded = null;
+                } else {
+                    recorded.writeBytes(buf, buf.readerIndex(), buf.readableBytes());
+                }
+            }
+            ctx.write(msg, promise);
+        }
+
+        @Override
+        public void close(ChannelHandlerContext ctx, ChannelPromise promise) {
+            // The encoder wrote all of its output before it closes.
+            ByteBuf recorded = this.recorded;
+            if (recorded != null) {
+                this.recorded = null;
+                put(uri, contentIdentity, contentEncoding, recorded.capacity(recorded.readableBytes()));
+            }
+            ctx.close(promise);
+        }
+
+        @Override
+        public void handlerRemoved(ChannelHandlerContext ctx) {
+            if (recorded != null) {
+                recorded.release();
+                recorded = null;
+            }
+        }
+    }
+}
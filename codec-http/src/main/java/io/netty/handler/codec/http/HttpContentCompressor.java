@@ -15,10 +15,22 @@
  */
 package io.netty.handler.codec.http;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.Brotli;
+import io.netty.handler.codec.compression.BrotliOptions;
+import io.netty.handler.codec.compression.CompressionOptions;
+import io.netty.handler.codec.compression.DeflateOptions;
+import io.netty.handler.codec.compression.GzipOptions;
+import io.netty.handler.codec.compression.StandardCompressionOptions;
 import io.netty.handler.codec.compression.ZlibCodecFactory;
 import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.compression.Zstd;
+import io.netty.handler.codec.compression.ZstdOptions;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
 
 /**
  * Compresses an {@link HttpMessage} and an {@link HttpContent} in {@code gzip} or
@@ -26,12 +38,18 @@ import io.netty.handler.codec.compression.ZlibWrapper;
  * If there is no matching encoding, no compression is done.  For more
  * information on how this handler modifies the message, please refer to
  * {@link HttpContentEncoder}.
+ * <p>
+ * Via {@link #HttpContentCompressor(int, CompressionOptions...)} the {@code br} and {@code zstd} encodings can be
+ * enabled as well, which are preferred (in this order) if the client accepts them with at least the same quality as
+ * the other enabled encodings.
  */
 public class HttpContentCompressor extends HttpContentEncoder {
 
-    private final int compressionLevel;
-    private final int windowBits;
-    private final int memLevel;
+    private final GzipOptions gzipOptions;
+    private final DeflateOptions deflateOptions;
+    private final ZstdOptions zstdOptions;
+    private final BrotliOptions brotliOptions;
+    private final HttpContentCompressionCache cache;
     private final int contentSizeThreshold;
     private ChannelHandlerContext ctx;
 
@@ -103,26 +121,109 @@ public class HttpContentCompressor extends HttpContentEncoder {
      *        number. {@code 0} will enable compression for all responses.
      */
     public HttpContentCompressor(int compressionLevel, int windowBits, int memLevel, int contentSizeThreshold) {
-        if (compressionLevel < 0 || compressionLevel > 9) {
-            throw new IllegalArgumentException(
-                    "compressionLevel: " + compressionLevel +
-                    " (expected: 0-9)");
-        }
-        if (windowBits < 9 || windowBits > 15) {
-            throw new IllegalArgumentException(
-                    "windowBits: " + windowBits + " (expected: 9-15)");
-        }
-        if (memLevel < 1 || memLevel > 9) {
-            throw new IllegalArgumentException(
-                    "memLevel: " + memLevel + " (expected: 1-9)");
-        }
+        this(contentSizeThreshold,
+             StandardCompressionOptions.gzip(compressionLevel, windowBits, memLevel),
+             StandardCompressionOptions.deflate(compressionLevel, windowBits, memLevel));
+    }
+
+    /**
+     * Creates a new handler which only uses the encodings of the given {@link CompressionOptions}. If none are
+     * given, {@code gzip} and {@code deflate} are used with their default options, {@code br} if
+     * {@link Brotli#isAvailable()} and {@code zstd} if {@link Zstd#isAvailable()}.
+     *
+     * @param contentSizeThreshold
+     *        The response body is compressed when the size of the response
+     *        body exceeds the threshold. The value should be a non negative
+     *        number. {@code 0} will enable compression for all responses.
+     * @param compressionOptions
+     *        the {@link GzipOptions}, {@link DeflateOptions}, {@link BrotliOptions} and {@link ZstdOptions} of the
+     *        encodings to use.
+     */
+    public HttpContentCompressor(int contentSizeThreshold, CompressionOptions... compressionOptions) {
+        this(contentSizeThreshold, null, compressionOptions);
+    }
+
+    /**
+     * Creates a new handler which caches the compressed content of {@link FullHttpResponse}s with an
+     * {@code "ETag"} header in the given {@link HttpContentCompressionCache}, and otherwise behaves like
+     * {@link #HttpContentCompressor(int, CompressionOptions...)}.
+     *
+     * @param contentSizeThreshold
+     *        The response body is compressed when the size of the response
+     *        body exceeds the threshold. The value should be a non negative
+     *        number. {@code 0} will enable compression for all responses.
+     * @param cache
+     *        the cache, which may be shared by many handlers, or {@code null} to disable caching.
+     * @param compressionOptions
+     *        the {@link GzipOptions}, {@link DeflateOptions}, {@link BrotliOptions} and {@link ZstdOptions} of the
+     *        encodings to use.
+     */
+    public HttpContentCompressor(int contentSizeThreshold, HttpContentCompressionCache cache,
+                                 CompressionOptions... compressionOptions) {
+        this(null, contentSizeThreshold, cache, compressionOptions);
+    }
+
+    /**
+     * Creates a new handler which only compresses the content the given {@link HttpCompressionPolicy} considers
+     * compressible, and otherwise behaves like
+     * {@link #HttpContentCompressor(int, HttpContentCompressionCache, CompressionOptions...)}.
+     *
+     * @param policy
+     *        the policy, which may be shared by many handlers.
+     * @param cache
+     *        the cache, which may be shared by many handlers, or {@code null} to disable caching.
+     * @param compressionOptions
+     *        the {@link GzipOptions}, {@link DeflateOptions}, {@link BrotliOptions} and {@link ZstdOptions} of the
+     *        encodings to use.
+     */
+    public HttpContentCompressor(HttpCompressionPolicy policy, HttpContentCompressionCache cache,
+                                 CompressionOptions... compressionOptions) {
+        this(checkNotNull(policy, "policy"), 0, cache, compressionOptions);
+    }
+
+    private HttpContentCompressor(HttpCompressionPolicy policy, int contentSizeThreshold,
+                                  HttpContentCompressionCache cache, CompressionOptions[] compressionOptions) {
+        super(policy);
         if (contentSizeThreshold < 0) {
             throw new IllegalArgumentException(
                     "contentSizeThreshold: " + contentSizeThreshold + " (expected: non negative number)");
         }
-        this.compressionLevel = compressionLevel;
-        this.windowBits = windowBits;
-        this.memLevel = memLevel;
+        checkNotNull(compressionOptions, "compressionOptions");
+        GzipOptions gzipOptions = null;
+        DeflateOptions deflateOptions = null;
+        ZstdOptions zstdOptions = null;
+        BrotliOptions brotliOptions = null;
+        if (compressionOptions.length == 0) {
+            gzipOptions = StandardCompressionOptions.gzip();
+            deflateOptions = StandardCompressionOptions.deflate();
+            if (Brotli.isAvailable()) {
+                brotliOptions = StandardCompressionOptions.brotli();
+            }
+            if (Zstd.isAvailable()) {
+                zstdOptions = StandardCompressionOptions.zstd();
+            }
+        }
+        for (CompressionOptions options : compressionOptions) {
+            if (options instanceof GzipOptions) {
+                gzipOptions = (GzipOptions) options;
+            } else if (options instanceof DeflateOptions) {
+                deflateOptions = (DeflateOptions) options;
+            } else if (options instanceof ZstdOptions) {
+                Zstd.ensureAvailability();
+                zstdOptions = (ZstdOptions) options;
+            } else if (options instanceof BrotliOptions) {
+                Brotli.ensureAvailability();
+                brotliOptions = (BrotliOptions) options;
+            } else {
+                throw new IllegalArgumentException("unsupported " + CompressionOptions.class.getSimpleName() +
+                        ": " + options);
+            }
+        }
+        this.gzipOptions = gzipOptions;
+        this.deflateOptions = deflateOptions;
+        this.zstdOptions = zstdOptions;
+        this.brotliOptions = brotliOptions;
+        this.cache = cache;
         this.contentSizeThreshold = contentSizeThreshold;
     }
 
@@ -147,28 +248,141 @@ public class HttpContentCompressor extends HttpContentEncoder {
             return null;
         }
 
-        ZlibWrapper wrapper = determineWrapper(acceptEncoding);
-        if (wrapper == null) {
+        String targetContentEncoding;
+        ZlibWrapper wrapper = null;
+        if (brotliOptions != null && isPreferred(acceptEncoding, HttpHeaderValues.BR.toString())) {
+            targetContentEncoding = HttpHeaderValues.BR.toString();
+        } else if (zstdOptions != null && isPreferred(acceptEncoding, HttpHeaderValues.ZSTD.toString())) {
+            targetContentEncoding = HttpHeaderValues.ZSTD.toString();
+        } else {
+            wrapper = determineWrapper(acceptEncoding);
+            if (wrapper == null) {
+                return null;
+            }
+            switch (wrapper) {
+            case GZIP:
+                targetContentEncoding = "gzip";
+                break;
+            case ZLIB:
+                targetContentEncoding = "deflate";
+                break;
+            default:
+                throw new Error();
+            }
+        }
+
+        // Only the content of full responses can be cached, as it is encoded at once. As an ETag only identifies the
+        // content of a single resource, the URI is part of the key too. Weak ETags do not promise identical content.
+        String contentIdentity = null;
+        String requestUri = null;
+        if (cache != null && headers instanceof LastHttpContent) {
+            contentIdentity = headers.headers().get(HttpHeaderNames.ETAG);
+            requestUri = requestUri();
+            if (contentIdentity != null && (requestUri == null || contentIdentity.startsWith("W/"))) {
+                contentIdentity = null;
+            }
+        }
+        if (contentIdentity != null) {
+            ByteBuf cachedContent = cache.get(requestUri, contentIdentity, targetContentEncoding);
+            if (cachedContent != null) {
+                return newResult(targetContentEncoding,
+                        HttpContentCompressionCache.newCachedContentHandler(cachedContent));
+            }
+        }
+
+        ChannelHandler encoder = newEncoder(targetContentEncoding, wrapper);
+        if (encoder == null) {
             return null;
         }
+        if (contentIdentity != null) {
+            return newResult(targetContentEncoding,
+                    cache.newRecordingHandler(requestUri, contentIdentity, targetContentEncoding), encoder);
+        }
+        return newResult(targetContentEncoding, encoder);
+    }
 
-        String targetContentEncoding;
-        switch (wrapper) {
-        case GZIP:
-            targetContentEncoding = "gzip";
-            break;
-        case ZLIB:
-            targetContentEncoding = "deflate";
-            break;
-        default:
-            throw new Error();
+    /**
+     * Returns a new encoder for the given {@link ZlibWrapper}, or for the target encoding if it is {@code null}.
+     */
+    private ChannelHandler newEncoder(String targetContentEncoding, ZlibWrapper wrapper) {
+        if (wrapper == null) {
+            return HttpHeaderValues.BR.contentEquals(targetContentEncoding) ?
+                    brotliOptions.newEncoder() : zstdOptions.newEncoder();
+        }
+        DeflateOptions options = wrapper == ZlibWrapper.GZIP ? gzipOptions : deflateOptions;
+        if (options == null) {
+            // A sub-class returned a wrapper which is not enabled.
+            return null;
         }
+        return ZlibCodecFactory.newZlibEncoder(
+                wrapper, options.compressionLevel(), options.windowBits(), options.memLevel());
+    }
 
+    private Result newResult(String targetContentEncoding, ChannelHandler... handlers) {
         return new Result(
                 targetContentEncoding,
                 new EmbeddedChannel(ctx.channel().id(), ctx.channel().metadata().hasDisconnect(),
-                        ctx.channel().config(), ZlibCodecFactory.newZlibEncoder(
-                        wrapper, compressionLevel, windowBits, memLevel)));
+                        ctx.channel().config(), handlers));
+    }
+
+    /**
+     * Returns {@code true} if the given encoding is accepted with a positive quality, which is not lower than the
+     * one of any other enabled encoding.
+     */
+    private boolean isPreferred(String acceptEncoding, String contentEncoding) {
+        float q = -1.0f;
+        float otherQ = -1.0f;
+        for (String encoding : acceptEncoding.split(",")) {
+            String name = encodingName(encoding);
+            float encodingQ = encodingQuality(encoding);
+            if (name.equalsIgnoreCase(contentEncoding)) {
+                q = Math.max(q, encodingQ);
+            } else if (isEnabled(name)) {
+                otherQ = Math.max(otherQ, encodingQ);
+            }
+        }
+        return q > 0.0f && q >= otherQ;
+    }
+
+    /**
+     * Returns the name of an element of the {@code "Accept-Encoding"} header.
+     */
+    static String encodingName(String encoding) {
+        int paramsPos = encoding.indexOf(';');
+        return (paramsPos == -1 ? encoding : encoding.substring(0, paramsPos)).trim();
+    }
+
+    /**
+     * Returns the quality of an element of the {@code "Accept-Encoding"} header, which is {@code 0} if it can not be
+     * parsed.
+     */
+    static float encodingQuality(String encoding) {
+        int equalsPos = encoding.indexOf('=');
+        if (equalsPos == -1) {
+            return 1.0f;
+        }
+        try {
+            return Float.parseFloat(encoding.substring(equalsPos + 1));
+        } catch (NumberFormatException e) {
+            // Ignore encoding
+            return 0.0f;
+        }
+    }
+
+    private boolean isEnabled(String contentEncoding) {
+        if ("gzip".equalsIgnoreCase(contentEncoding)) {
+            return gzipOptions != null;
+        }
+        if ("deflate".equalsIgnoreCase(contentEncoding)) {
+            return deflateOptions != null;
+        }
+        if (HttpHeaderValues.ZSTD.contentEqualsIgnoreCase(contentEncoding)) {
+            return zstdOptions != null;
+        }
+        if (HttpHeaderValues.BR.contentEqualsIgnoreCase(contentEncoding)) {
+            return brotliOptions != null;
+        }
+        return false;
     }
 
     @SuppressWarnings("FloatingPointEquality")
@@ -189,9 +403,9 @@ public class HttpContentCompressor extends HttpContentEncoder {
             }
             if (encoding.contains("*")) {
                 starQ = q;
-            } else if (encoding.contains("gzip") && q > gzipQ) {
+            } else if (gzipOptions != null && encoding.contains("gzip") && q > gzipQ) {
                 gzipQ = q;
-            } else if (encoding.contains("deflate") && q > deflateQ) {
+            } else if (deflateOptions != null && encoding.contains("deflate") && q > deflateQ) {
                 deflateQ = q;
             }
         }
@@ -203,10 +417,10 @@ public class HttpContentCompressor extends HttpContentEncoder {
             }
         }
         if (starQ > 0.0f) {
-            if (gzipQ == -1.0f) {
+            if (gzipQ == -1.0f && gzipOptions != null) {
                 return ZlibWrapper.GZIP;
             }
-            if (deflateQ == -1.0f) {
+            if (deflateQ == -1.0f && deflateOptions != null) {
                 return ZlibWrapper.ZLIB;
             }
         }
@@ -47,6 +47,9 @@ import java.util.Queue;
  * This handler must be placed after {@link HttpObjectEncoder} in the pipeline
  * so that this handler can intercept HTTP responses before {@link HttpObjectEncoder}
  * converts them into {@link ByteBuf}s.
+ * <p>
+ * If a {@link HttpCompressionPolicy} is given, only the content it considers compressible is encoded, and the
+ * encoding is recorded by it. The route of a response is the path of its request.
  */
 public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpRequest, HttpObject> {
 
@@ -61,9 +64,37 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
     private static final int CONTINUE_CODE = HttpResponseStatus.CONTINUE.code();
 
     private final Queue<CharSequence> acceptEncodingQueue = new ArrayDeque<CharSequence>();
+    private final HttpCompressionPolicy policy;
+    private final Queue<String> uriQueue = new ArrayDeque<String>();
     private EmbeddedChannel encoder;
+    // The URI of the request of the response which is encoded right now.
+    private String requestUri;
     private State state = State.AWAIT_HEADERS;
 
+    // The statistics of the current response, only used if there is a policy.
+    private String route;
+    private long uncompressedBytes;
+    private long compressedBytes;
+    private long encodeNanos;
+
+    /**
+     * Creates a new instance which encodes the content whenever {@link #beginEncode(HttpResponse, String)} returns
+     * a {@link Result}.
+     */
+    protected HttpContentEncoder() {
+        this(null);
+    }
+
+    /**
+     * Creates a new instance which only encodes the content the given {@link HttpCompressionPolicy} considers
+     * compressible.
+     *
+     * @param policy    the policy, or {@code null} to encode all content.
+     */
+    protected HttpContentEncoder(HttpCompressionPolicy policy) {
+        this.policy = policy;
+    }
+
     @Override
     public boolean acceptOutboundMessage(Object msg) throws Exception {
         return msg instanceof HttpContent || msg instanceof HttpResponse;
@@ -85,6 +116,7 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
         }
 
         acceptEncodingQueue.add(acceptedEncoding);
+        uriQueue.add(msg.uri());
         out.add(ReferenceCountUtil.retain(msg));
     }
 
@@ -99,17 +131,21 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
                 final HttpResponse res = (HttpResponse) msg;
                 final int code = res.status().code();
                 final CharSequence acceptEncoding;
+                final String uri;
                 if (code == CONTINUE_CODE) {
                     // We need to not poll the encoding when response with CONTINUE as another response will follow
                     // for the issued request. See https://github.com/netty/netty/issues/4079
                     acceptEncoding = null;
+                    uri = null;
                 } else {
                     // Get the list of encodings accepted by the peer.
                     acceptEncoding = acceptEncodingQueue.poll();
                     if (acceptEncoding == null) {
                         throw new IllegalStateException("cannot send more responses than requests");
                     }
+                    uri = uriQueue.poll();
                 }
+                final String route = policy == null || uri == null ? null : route(uri);
 
                 /*
                  * per rfc2616 4.3 Message Body
@@ -124,7 +160,8 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
                  *
                  * See https://github.com/netty/netty/issues/5382
                  */
-                if (isPassthru(res.protocolVersion(), code, acceptEncoding)) {
+                if (isPassthru(res.protocolVersion(), code, acceptEncoding) ||
+                        res instanceof HttpPrecompressedFile.FileResponse) {
                     if (isFull) {
                         out.add(ReferenceCountUtil.retain(res));
                     } else {
@@ -143,8 +180,18 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
                     }
                 }
 
-                // Prepare to encode the content.
-                final Result result = beginEncode(res, acceptEncoding.toString());
+                // Prepare to encode the content, if the policy allows it.
+                final Result result;
+                if (isCompressible(route, res, isFull)) {
+                    requestUri = uri;
+                    try {
+                        result = beginEncode(res, acceptEncoding.toString());
+                    } finally {
+                        requestUri = null;
+                    }
+                } else {
+                    result = null;
+                }
 
                 // If unable to encode, pass through.
                 if (result == null) {
@@ -159,6 +206,10 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
                 }
 
                 encoder = result.contentEncoder();
+                this.route = route;
+                uncompressedBytes = 0;
+                compressedBytes = 0;
+                encodeNanos = 0;
 
                 // Encode the content and remove or replace the existing headers
                 // so that the message looks like a decoded message.
@@ -227,6 +278,28 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
         }
     }
 
+    private static String route(String uri) {
+        int queryPos = uri.indexOf('?');
+        return queryPos == -1 ? uri : uri.substring(0, queryPos);
+    }
+
+    /**
+     * Returns the URI of the request of the response which is passed to {@link #beginEncode(HttpResponse, String)}
+     * right now, or {@code null} if it is called outside of it.
+     */
+    String requestUri() {
+        return requestUri;
+    }
+
+    private boolean isCompressible(String route, HttpResponse res, boolean isFull) {
+        if (policy == null) {
+            return true;
+        }
+        long contentLength = isFull ? ((HttpContent) res).content().readableBytes() :
+                HttpUtil.getContentLength(res, -1L);
+        return policy.isCompressible(route, res.headers().get(HttpHeaderNames.CONTENT_TYPE), contentLength);
+    }
+
     private static boolean isPassthru(HttpVersion version, int code, CharSequence httpMethod) {
         return code < 200 || code == 204 || code == 304 ||
                (httpMethod == ZERO_LENGTH_HEAD || (httpMethod == ZERO_LENGTH_CONNECT && code == 200)) ||
@@ -318,16 +391,27 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
     }
 
     private void encode(ByteBuf in, List<Object> out) {
+        long start = policy == null ? 0 : System.nanoTime();
+        uncompressedBytes += in.readableBytes();
         // call retain here as it will call release after its written to the channel
         encoder.writeOutbound(in.retain());
         fetchEncoderOutput(out);
+        if (policy != null) {
+            encodeNanos += System.nanoTime() - start;
+        }
     }
 
     private void finishEncode(List<Object> out) {
+        long start = policy == null ? 0 : System.nanoTime();
         if (encoder.finish()) {
             fetchEncoderOutput(out);
         }
         encoder = null;
+        if (policy != null) {
+            encodeNanos += System.nanoTime() - start;
+            policy.record(route, uncompressedBytes, compressedBytes, encodeNanos);
+            route = null;
+        }
     }
 
     private void fetchEncoderOutput(List<Object> out) {
@@ -340,6 +424,7 @@ public abstract class HttpContentEncoder extends MessageToMessageCodec<HttpReque
                 buf.release();
                 continue;
             }
+            compressedBytes += buf.readableBytes();
             out.add(new DefaultHttpContent(buf));
         }
     }
@@ -52,6 +52,10 @@ public final class HttpHeaderValues {
      * {@code "boundary"}
      */
     public static final AsciiString BOUNDARY = AsciiString.cached("boundary");
+    /**
+     * {@code "br"}
+     */
+    public static final AsciiString BR = AsciiString.cached("br");
     /**
      * {@code "bytes"}
      */
@@ -208,6 +212,10 @@ public final class HttpHeaderValues {
      * {@code "websocket"}
      */
     public static final AsciiString WEBSOCKET = AsciiString.cached("websocket");
+    /**
+     * {@code "zstd"}
+     */
+    public static final AsciiString ZSTD = AsciiString.cached("zstd");
 
     private HttpHeaderValues() { }
 }
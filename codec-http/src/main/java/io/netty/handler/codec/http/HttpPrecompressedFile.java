@@ -0,0 +1,162 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.channel.DefaultFileRegion;
+import io.netty.handler.stream.ChunkedFile;
+import io.netty.util.internal.UnstableApi;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * Selects the file to serve for a request from a file and its precompressed sidecar files, which are stored next to
+ * it with the suffixes {@code ".br"}, {@code ".zst"} and {@code ".gz"}. A sidecar file is used if the client accepts
+ * its encoding and it is not older than the file, so static content can be compressed once at the highest level
+ * instead of for every response.
+ * <p>
+ * The content of the selected file can be written via {@link #newFileRegion()} or {@link #newChunkedFile(int)} after
+ * the response which is created by {@link #newResponse(HttpVersion, HttpResponseStatus)}. The
+ * {@link HttpContentCompressor} passes this response and its content through, so a sidecar file is not compressed
+ * again and the file itself can still be written without copying it.
+ */
+@UnstableApi
+public final class HttpPrecompressedFile {
+
+    private static final String[] ENCODINGS = {
+            HttpHeaderValues.BR.toString(), HttpHeaderValues.ZSTD.toString(), HttpHeaderValues.GZIP.toString() };
+    private static final String[] SUFFIXES = { ".br", ".zst", ".gz" };
+
+    private final File file;
+    private final String contentEncoding;
+    private final long length;
+
+    private HttpPrecompressedFile(File file, String contentEncoding) {
+        this.file = file;
+        this.contentEncoding = contentEncoding;
+        length = file.length();
+    }
+
+    /**
+     * Selects the sidecar file whose encoding the client accepts with the highest quality, preferring the encodings
+     * in the order {@code br}, {@code zstd} and {@code gzip} if they are accepted with the same quality. If there is
+     * none, the given file itself is selected.
+     *
+     * @param file              the uncompressed file.
+     * @param acceptEncoding    the value of the {@code "Accept-Encoding"} header of the request, or {@code null}.
+     */
+    public static HttpPrecompressedFile select(File file, CharSequence acceptEncoding) {
+        checkNotNull(file, "file");
+        if (acceptEncoding != null) {
+            float[] qualities = new float[ENCODINGS.length];
+            for (String encoding : acceptEncoding.toString().split(",")) {
+                String name = HttpContentCompressor.encodingName(encoding);
+                for (int i = 0; i < ENCODINGS.length; i++) {
+                    if (ENCODINGS[i].equalsIgnoreCase(name)) {
+                        qualities[i] = Math.max(qualities[i], HttpContentCompressor.encodingQuality(encoding));
+                    }
+                }
+            }
+            File selected = null;
+            int selectedIndex = -1;
+            for (int i = 0; i < ENCODINGS.length; i++) {
+                if (qualities[i] > 0.0f && (selectedIndex == -1 || qualities[i] > qualities[selectedIndex])) {
+                    File sidecar = new File(file.getPath() + SUFFIXES[i]);
+                    if (sidecar.isFile() && sidecar.canRead() && sidecar.lastModified() >= file.lastModified()) {
+                        selected = sidecar;
+                        selectedIndex = i;
+                    }
+                }
+            }
+            if (selected != null) {
+                return new HttpPrecompressedFile(selected, ENCODINGS[selectedIndex]);
+            }
+        }
+        return new HttpPrecompressedFile(file, null);
+    }
+
+    /**
+     * Returns the selected file.
+     */
+    public File file() {
+        return file;
+    }
+
+    /**
+     * Returns the encoding of the selected file, or {@code null} if it is not compressed.
+     */
+    public String contentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * Returns the length of the selected file when it was selected.
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Creates a response with the {@code "Content-Length"}, {@code "Content-Encoding"} and {@code "Vary"} headers of
+     * the selected file, which the {@link HttpContentCompressor} does not compress.
+     */
+    public HttpResponse newResponse(HttpVersion version, HttpResponseStatus status) {
+        HttpResponse response = new FileResponse(version, status);
+        HttpUtil.setContentLength(response, length);
+        if (contentEncoding != null) {
+            response.headers().set(HttpHeaderNames.CONTENT_ENCODING, contentEncoding);
+        }
+        response.headers().add(HttpHeaderNames.VARY, HttpHeaderNames.ACCEPT_ENCODING);
+        return response;
+    }
+
+    /**
+     * Opens the selected file as a {@link DefaultFileRegion}, which is written without copying it to user space if
+     * the transport supports it.
+     */
+    public DefaultFileRegion newFileRegion() throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        return new DefaultFileRegion(raf.getChannel(), 0, length);
+    }
+
+    /**
+     * Opens the selected file as a {@link ChunkedFile}, which needs to be wrapped in a {@link HttpChunkedInput} to
+     * be written via the {@link io.netty.handler.stream.ChunkedWriteHandler}.
+     */
+    public ChunkedFile newChunkedFile(int chunkSize) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return new ChunkedFile(raf, 0, length, chunkSize);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Marks the response, so the {@link HttpContentCompressor} passes it through without a
+     * {@code "Content-Encoding: identity"} header on the wire. Compressing the file itself would also prevent it from
+     * being written as a {@link DefaultFileRegion}.
+     */
+    static final class FileResponse extends DefaultHttpResponse {
+        FileResponse(HttpVersion version, HttpResponseStatus status) {
+            super(version, status);
+        }
+    }
+}
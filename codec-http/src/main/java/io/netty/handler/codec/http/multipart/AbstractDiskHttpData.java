@@ -128,12 +128,7 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
             FileOutputStream outputStream = new FileOutputStream(file);
             try {
                 FileChannel localfileChannel = outputStream.getChannel();
-                ByteBuffer byteBuffer = buffer.nioBuffer();
-                int written = 0;
-                while (written < size) {
-                    written += localfileChannel.write(byteBuffer);
-                }
-                buffer.readerIndex(buffer.readerIndex() + written);
+                write(localfileChannel, buffer);
                 localfileChannel.force(false);
             } finally {
                 outputStream.close();
@@ -157,8 +152,6 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
                     throw new IOException("Out of size: " + (size + localsize) +
                             " > " + definedSize);
                 }
-                ByteBuffer byteBuffer = buffer.nioBufferCount() == 1 ? buffer.nioBuffer() : buffer.copy().nioBuffer();
-                int written = 0;
                 if (file == null) {
                     file = tempFile();
                 }
@@ -166,11 +159,8 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
                     FileOutputStream outputStream = new FileOutputStream(file);
                     fileChannel = outputStream.getChannel();
                 }
-                while (written < localsize) {
-                    written += fileChannel.write(byteBuffer);
-                }
+                write(fileChannel, buffer);
                 size += localsize;
-                buffer.readerIndex(buffer.readerIndex() + written);
             } finally {
                 // Release the buffer as it was retained before and we not need a reference to it at all
                 // See https://github.com/netty/netty/issues/1516
@@ -196,6 +186,39 @@ public abstract class AbstractDiskHttpData extends AbstractHttpData {
         }
     }
 
+    /**
+     * Writes all readable bytes of the buffer to the {@link FileChannel}. A buffer which consists of several
+     * {@link ByteBuffer}s, like a {@link io.netty.buffer.CompositeByteBuf}, is written via a gathering write instead
+     * of being copied first.
+     */
+    private static void write(FileChannel fileChannel, ByteBuf buffer) throws IOException {
+        int length = buffer.readableBytes();
+        int count = buffer.nioBufferCount();
+        if (count == 1) {
+            ByteBuffer byteBuffer = buffer.nioBuffer();
+            while (byteBuffer.hasRemaining()) {
+                fileChannel.write(byteBuffer);
+            }
+        } else if (count > 1) {
+            ByteBuffer[] byteBuffers = buffer.nioBuffers();
+            long written = 0;
+            while (written < length) {
+                written += fileChannel.write(byteBuffers);
+            }
+        } else {
+            ByteBuf copy = buffer.copy();
+            try {
+                ByteBuffer byteBuffer = copy.nioBuffer();
+                while (byteBuffer.hasRemaining()) {
+                    fileChannel.write(byteBuffer);
+                }
+            } finally {
+                copy.release();
+            }
+        }
+        buffer.skipBytes(length);
+    }
+
     @Override
     public void setContent(File file) throws IOException {
         if (this.file != null) {
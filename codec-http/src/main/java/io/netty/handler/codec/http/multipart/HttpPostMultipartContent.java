@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.multipart;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DefaultByteBufHolder;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * A chunk of the content of a part of a multipart body, which is emitted by the
+ * {@link HttpPostMultipartStreamDecoder} after the {@link HttpPostMultipartPart} it belongs to. The content is a
+ * retained slice of the received buffers, or a composite of such slices if it spans several of them.
+ */
+@UnstableApi
+public final class HttpPostMultipartContent extends DefaultByteBufHolder {
+
+    private final boolean last;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param content   the content of the chunk.
+     * @param last      {@code true} if this is the last chunk of the part.
+     */
+    public HttpPostMultipartContent(ByteBuf content, boolean last) {
+        super(content);
+        this.last = last;
+    }
+
+    /**
+     * Returns {@code true} if this is the last chunk of the part.
+     */
+    public boolean isLast() {
+        return last;
+    }
+
+    @Override
+    public HttpPostMultipartContent copy() {
+        return (HttpPostMultipartContent) super.copy();
+    }
+
+    @Override
+    public HttpPostMultipartContent duplicate() {
+        return (HttpPostMultipartContent) super.duplicate();
+    }
+
+    @Override
+    public HttpPostMultipartContent retainedDuplicate() {
+        return (HttpPostMultipartContent) super.retainedDuplicate();
+    }
+
+    @Override
+    public HttpPostMultipartContent replace(ByteBuf content) {
+        return new HttpPostMultipartContent(content, last);
+    }
+
+    @Override
+    public HttpPostMultipartContent retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public HttpPostMultipartContent retain(int increment) {
+        super.retain(increment);
+        return this;
+    }
+
+    @Override
+    public HttpPostMultipartContent touch() {
+        super.touch();
+        return this;
+    }
+
+    @Override
+    public HttpPostMultipartContent touch(Object hint) {
+        super.touch(hint);
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return StringUtil.simpleClassName(this) + "(last: " + last + ", content: " + content() + ')';
+    }
+}
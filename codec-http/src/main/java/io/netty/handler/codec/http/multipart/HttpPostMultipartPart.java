@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.multipart;
+
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.util.internal.UnstableApi;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * The headers of a part of a multipart body, which are emitted by the {@link HttpPostMultipartStreamDecoder}
+ * before the {@link HttpPostMultipartContent}s of the part.
+ */
+@UnstableApi
+public final class HttpPostMultipartPart {
+
+    private final HttpHeaders headers;
+    private String name;
+    private String filename;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param headers   the headers of the part.
+     */
+    public HttpPostMultipartPart(HttpHeaders headers) {
+        this.headers = checkNotNull(headers, "headers");
+        String disposition = headers.get(HttpHeaderNames.CONTENT_DISPOSITION);
+        if (disposition != null) {
+            parseDisposition(disposition);
+        }
+    }
+
+    /**
+     * Returns the headers of the part.
+     */
+    public HttpHeaders headers() {
+        return headers;
+    }
+
+    /**
+     * Returns the {@code name} parameter of the {@code Content-Disposition} header, or {@code null} if it is not set.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the {@code filename} parameter of the {@code Content-Disposition} header, or {@code null} if it is not
+     * set.
+     */
+    public String filename() {
+        return filename;
+    }
+
+    /**
+     * Returns the {@code Content-Type} header, or {@code null} if it is not set.
+     */
+    public String contentType() {
+        return headers.get(HttpHeaderNames.CONTENT_TYPE);
+    }
+
+    /**
+     * Returns {@code true} if the part is a file upload, which is the case if it has a {@code filename}.
+     */
+    public boolean isFileUpload() {
+        return filename != null;
+    }
+
+    private void parseDisposition(String disposition) {
+        int i = disposition.indexOf(';');
+        while (i >= 0 && i < disposition.length()) {
+            int start = HttpPostBodyUtil.findNonWhitespace(disposition, i + 1);
+            int eq = disposition.indexOf('=', start);
+            if (eq < 0) {
+                return;
+            }
+            String key = disposition.substring(start, eq).trim();
+            StringBuilder value = new StringBuilder();
+            i = parseValue(disposition, eq + 1, value);
+            if ("name".equalsIgnoreCase(key)) {
+                name = value.toString();
+            } else if ("filename".equalsIgnoreCase(key)) {
+                filename = value.toString();
+            }
+        }
+    }
+
+    /**
+     * Parses a token or quoted string starting at the given index into {@code value}, and returns the index of the
+     * next {@code ';'} or {@code -1} if there is none.
+     */
+    private static int parseValue(String s, int index, StringBuilder value) {
+        int i = HttpPostBodyUtil.findNonWhitespace(s, index);
+        if (i < s.length() && s.charAt(i) == '"') {
+            for (i++; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"') {
+                    break;
+                }
+                value.append(c);
+            }
+            return s.indexOf(';', i);
+        }
+        int end = s.indexOf(';', i);
+        value.append(s.substring(i, end < 0 ? s.length() : end).trim());
+        return end;
+    }
+}
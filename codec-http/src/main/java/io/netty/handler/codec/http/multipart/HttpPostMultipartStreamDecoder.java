@@ -0,0 +1,465 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.multipart;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.MessageToMessageDecoder;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpConstants;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder.ErrorDataDecoderException;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * Decodes the body of {@code multipart/form-data} requests while it is received, without aggregating it. For every
+ * part a {@link HttpPostMultipartPart} is emitted, followed by one or more {@link HttpPostMultipartContent}s of which
+ * the last one returns {@code true} for {@link HttpPostMultipartContent#isLast()}. The {@link HttpRequest} is
+ * passed on before its parts, and the end of the request is signalled by a {@link LastHttpContent} without content.
+ * Requests which are not {@code multipart/form-data} are passed on as they are.
+ * <p>
+ * Contrary to the {@link HttpPostMultipartRequestDecoder} the content of the parts is not copied: it is emitted as
+ * retained slices of the received buffers, as soon as it is known that they do not belong to a boundary. The
+ * boundaries are found via the Boyer-Moore-Horspool algorithm, and only the bytes which may belong to a boundary are
+ * kept between two {@link HttpContent}s. So the memory which is used is bounded by the size of the headers of a part,
+ * see {@code maxHeaderSize}, and not by the size of the parts. The content of a part can be written to disk via
+ * {@link HttpData#addContent(ByteBuf, boolean)} of a {@link DiskFileUpload}, which uses gathering writes if the
+ * content spans several buffers.
+ * <p>
+ * This handler must be placed after a {@link io.netty.handler.codec.http.HttpServerCodec} and is not sharable.
+ * Nested {@code multipart/mixed} parts are emitted as a single part.
+ */
+@UnstableApi
+public class HttpPostMultipartStreamDecoder extends MessageToMessageDecoder<HttpObject> {
+
+    private static final int DEFAULT_MAX_HEADER_SIZE = 8192;
+    private static final byte[] CRLF = { HttpConstants.CR, HttpConstants.LF };
+    private static final byte[] HEADERS_END = {
+            HttpConstants.CR, HttpConstants.LF, HttpConstants.CR, HttpConstants.LF };
+    private static final int[] HEADERS_END_SHIFTS = shifts(HEADERS_END);
+
+    private enum State {
+        PASS_THROUGH, PREAMBLE, DELIMITER, HEADERS, CONTENT, EPILOGUE, BAD_MESSAGE
+    }
+
+    private final int maxHeaderSize;
+    private final ArrayDeque<ByteBuf> window = new ArrayDeque<ByteBuf>();
+    private int windowSize;
+
+    private State state = State.PASS_THROUGH;
+    private byte[] delimiter;
+    private int[] delimiterShifts;
+    private Charset charset;
+
+    /**
+     * Creates a new instance which allows part headers of up to {@code 8192} bytes.
+     */
+    public HttpPostMultipartStreamDecoder() {
+        this(DEFAULT_MAX_HEADER_SIZE);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxHeaderSize     the maximum size of the headers of a part, which bounds the bytes which are kept
+     *                          between two {@link HttpContent}s.
+     */
+    public HttpPostMultipartStreamDecoder(int maxHeaderSize) {
+        this.maxHeaderSize = checkPositive(maxHeaderSize, "maxHeaderSize");
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, HttpObject msg, List<Object> out) throws Exception {
+        if (msg instanceof HttpRequest) {
+            HttpRequest request = (HttpRequest) msg;
+            resetWindow();
+            boolean multipart;
+            try {
+                multipart = startRequest(request);
+            } catch (ErrorDataDecoderException e) {
+                state = msg instanceof LastHttpContent ? State.PASS_THROUGH : State.BAD_MESSAGE;
+                throw e;
+            }
+            if (!multipart) {
+                state = State.PASS_THROUGH;
+                out.add(ReferenceCountUtil.retain(msg));
+                return;
+            }
+            if (msg instanceof FullHttpRequest) {
+                out.add(new DefaultHttpRequest(request.protocolVersion(), request.method(), request.uri(),
+                        request.headers()));
+            } else {
+                out.add(msg);
+            }
+        } else if (state == State.PASS_THROUGH) {
+            out.add(ReferenceCountUtil.retain(msg));
+            return;
+        } else if (state == State.BAD_MESSAGE) {
+            // Discard the rest of the request which failed to decode.
+            if (msg instanceof LastHttpContent) {
+                state = State.PASS_THROUGH;
+            }
+            return;
+        }
+        if (msg instanceof HttpContent) {
+            try {
+                ByteBuf content = ((HttpContent) msg).content();
+                if (content.isReadable()) {
+                    addToWindow(content.retain());
+                }
+                decodeWindow(ctx.alloc(), out);
+                if (msg instanceof LastHttpContent) {
+                    finishRequest((LastHttpContent) msg, out);
+                }
+            } catch (ErrorDataDecoderException e) {
+                resetWindow();
+                state = msg instanceof LastHttpContent ? State.PASS_THROUGH : State.BAD_MESSAGE;
+                throw e;
+            }
+        }
+    }
+
+    private boolean startRequest(HttpRequest request) {
+        if (!request.decoderResult().isSuccess()) {
+            return false;
+        }
+        String contentType = request.headers().get(HttpHeaderNames.CONTENT_TYPE);
+        if (contentType == null) {
+            return false;
+        }
+        String[] boundary = HttpPostRequestDecoder.getMultipartDataBoundary(contentType);
+        if (boundary == null) {
+            return false;
+        }
+        Charset charset = HttpConstants.DEFAULT_CHARSET;
+        if (boundary.length > 1 && boundary[1] != null) {
+            try {
+                charset = Charset.forName(boundary[1]);
+            } catch (IllegalCharsetNameException e) {
+                throw new ErrorDataDecoderException(e);
+            } catch (UnsupportedCharsetException e) {
+                throw new ErrorDataDecoderException(e);
+            }
+        }
+        this.charset = charset;
+        delimiter = ("\r\n" + boundary[0]).getBytes(CharsetUtil.US_ASCII);
+        delimiterShifts = shifts(delimiter);
+        state = State.PREAMBLE;
+        // The first boundary is not preceded by a CRLF, so pretend it is.
+        addToWindow(Unpooled.wrappedBuffer(CRLF));
+        return true;
+    }
+
+    private void finishRequest(LastHttpContent last, List<Object> out) {
+        if (state != State.EPILOGUE) {
+            throw new ErrorDataDecoderException("Multipart body is not terminated by a close delimiter");
+        }
+        resetWindow();
+        state = State.PASS_THROUGH;
+        if (last.trailingHeaders().isEmpty()) {
+            out.add(LastHttpContent.EMPTY_LAST_CONTENT);
+        } else {
+            LastHttpContent trailer = new DefaultLastHttpContent(Unpooled.EMPTY_BUFFER);
+            trailer.trailingHeaders().set(last.trailingHeaders());
+            out.add(trailer);
+        }
+    }
+
+    private void decodeWindow(ByteBufAllocator alloc, List<Object> out) {
+        for (;;) {
+            switch (state) {
+                case PREAMBLE: {
+                    int index = indexOf(delimiter, delimiterShifts);
+                    if (index < 0) {
+                        skip(Math.max(0, windowSize - delimiter.length + 1));
+                        return;
+                    }
+                    skip(index + delimiter.length);
+                    state = State.DELIMITER;
+                    break;
+                }
+                case DELIMITER: {
+                    if (!decodeDelimiter()) {
+                        return;
+                    }
+                    break;
+                }
+                case HEADERS: {
+                    HttpHeaders headers = decodeHeaders();
+                    if (headers == null) {
+                        return;
+                    }
+                    out.add(new HttpPostMultipartPart(headers));
+                    state = State.CONTENT;
+                    break;
+                }
+                case CONTENT: {
+                    int index = indexOf(delimiter, delimiterShifts);
+                    if (index < 0) {
+                        // Everything but the bytes which may be the start of a delimiter belongs to the part.
+                        int length = windowSize - delimiter.length + 1;
+                        if (length > 0) {
+                            out.add(new HttpPostMultipartContent(readRetained(alloc, length), false));
+                        }
+                        return;
+                    }
+                    out.add(new HttpPostMultipartContent(readRetained(alloc, index), true));
+                    skip(delimiter.length);
+                    state = State.DELIMITER;
+                    break;
+                }
+                case EPILOGUE:
+                    skip(windowSize);
+                    return;
+                default:
+                    throw new Error();
+            }
+        }
+    }
+
+    /**
+     * Decodes what follows a boundary, which is either {@code "--"} for the close delimiter, or optional whitespace
+     * and a CRLF before the headers of the next part.
+     */
+    private boolean decodeDelimiter() {
+        if (windowSize < 2) {
+            return false;
+        }
+        if (getByte(0) == '-' && getByte(1) == '-') {
+            state = State.EPILOGUE;
+            return true;
+        }
+        int index = indexOf(CRLF, null);
+        if (index < 0) {
+            checkHeaderSize(windowSize);
+            return false;
+        }
+        for (int i = 0; i < index; i++) {
+            byte b = getByte(i);
+            if (b != HttpConstants.SP && b != HttpConstants.HT) {
+                throw new ErrorDataDecoderException("Invalid character after boundary: " + (char) b);
+            }
+        }
+        skip(index + CRLF.length);
+        state = State.HEADERS;
+        return true;
+    }
+
+    private HttpHeaders decodeHeaders() {
+        if (windowSize < CRLF.length) {
+            return null;
+        }
+        HttpHeaders headers = new DefaultHttpHeaders();
+        if (getByte(0) == HttpConstants.CR && getByte(1) == HttpConstants.LF) {
+            // A part without headers.
+            skip(CRLF.length);
+            return headers;
+        }
+        int index = indexOf(HEADERS_END, HEADERS_END_SHIFTS);
+        if (index < 0) {
+            checkHeaderSize(windowSize);
+            return null;
+        }
+        checkHeaderSize(index);
+        byte[] bytes = new byte[index];
+        for (int i = 0; i < index; i++) {
+            bytes[i] = getByte(i);
+        }
+        skip(index + HEADERS_END.length);
+
+        String name = null;
+        String value = null;
+        for (String line : new String(bytes, charset).split("\r\n")) {
+            if (!line.isEmpty() && (line.charAt(0) == ' ' || line.charAt(0) == '\t')) {
+                if (name == null) {
+                    throw new ErrorDataDecoderException("Invalid part header: " + line);
+                }
+                // A folded header line.
+                value = value + ' ' + line.trim();
+                continue;
+            }
+            if (name != null) {
+                headers.add(name, value);
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw new ErrorDataDecoderException("Invalid part header: " + line);
+            }
+            name = line.substring(0, colon).trim();
+            value = line.substring(colon + 1).trim();
+        }
+        if (name != null) {
+            headers.add(name, value);
+        }
+        return headers;
+    }
+
+    private void checkHeaderSize(int size) {
+        if (size > maxHeaderSize) {
+            throw new ErrorDataDecoderException("Part headers are larger than " + maxHeaderSize + " bytes");
+        }
+    }
+
+    /**
+     * Builds the table of the Boyer-Moore-Horspool algorithm, which holds for every byte how far the pattern can be
+     * shifted if the byte is found at the last position of the pattern but does not match.
+     */
+    private static int[] shifts(byte[] pattern) {
+        int[] shifts = new int[256];
+        for (int i = 0; i < shifts.length; i++) {
+            shifts[i] = pattern.length;
+        }
+        for (int i = 0; i < pattern.length - 1; i++) {
+            shifts[pattern[i] & 0xFF] = pattern.length - 1 - i;
+        }
+        return shifts;
+    }
+
+    /**
+     * Returns the index of the pattern in the window, or {@code -1} if it is not found. If {@code shifts} is
+     * {@code null} the pattern is searched naively, which is faster for very short patterns.
+     */
+    private int indexOf(byte[] pattern, int[] shifts) {
+        int last = pattern.length - 1;
+        int end = windowSize - last;
+        for (int i = 0; i < end;) {
+            byte b = getByte(i + last);
+            if (b == pattern[last] && matches(pattern, i, last)) {
+                return i;
+            }
+            i += shifts == null ? 1 : shifts[b & 0xFF];
+        }
+        return -1;
+    }
+
+    private boolean matches(byte[] pattern, int index, int length) {
+        for (int i = 0; i < length; i++) {
+            if (getByte(index + i) != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void addToWindow(ByteBuf buf) {
+        window.add(buf);
+        windowSize += buf.readableBytes();
+    }
+
+    private byte getByte(int index) {
+        ByteBuf first = window.peekFirst();
+        if (index < first.readableBytes()) {
+            return first.getByte(first.readerIndex() + index);
+        }
+        Iterator<ByteBuf> i = window.iterator();
+        for (;;) {
+            ByteBuf buf = i.next();
+            if (index < buf.readableBytes()) {
+                return buf.getByte(buf.readerIndex() + index);
+            }
+            index -= buf.readableBytes();
+        }
+    }
+
+    private void skip(int length) {
+        windowSize -= length;
+        while (length > 0) {
+            ByteBuf buf = window.peekFirst();
+            int n = Math.min(length, buf.readableBytes());
+            buf.skipBytes(n);
+            length -= n;
+            if (!buf.isReadable()) {
+                window.removeFirst().release();
+            }
+        }
+    }
+
+    /**
+     * Returns the first {@code length} bytes of the window as a retained slice, or a composite of slices if they span
+     * several buffers.
+     */
+    private ByteBuf readRetained(ByteBufAllocator alloc, int length) {
+        if (length == 0) {
+            return Unpooled.EMPTY_BUFFER;
+        }
+        ByteBuf first = window.peekFirst();
+        if (length <= first.readableBytes()) {
+            ByteBuf slice = first.readRetainedSlice(length);
+            windowSize -= length;
+            if (!first.isReadable()) {
+                window.removeFirst().release();
+            }
+            return slice;
+        }
+        CompositeByteBuf composite = alloc.compositeBuffer(Integer.MAX_VALUE);
+        windowSize -= length;
+        while (length > 0) {
+            ByteBuf buf = window.peekFirst();
+            int n = Math.min(length, buf.readableBytes());
+            composite.addComponent(true, buf.readRetainedSlice(n));
+            length -= n;
+            if (!buf.isReadable()) {
+                window.removeFirst().release();
+            }
+        }
+        return composite;
+    }
+
+    private void resetWindow() {
+        for (;;) {
+            ByteBuf buf = window.poll();
+            if (buf == null) {
+                break;
+            }
+            buf.release();
+        }
+        windowSize = 0;
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        resetWindow();
+        super.handlerRemoved(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        resetWindow();
+        super.channelInactive(ctx);
+    }
+}
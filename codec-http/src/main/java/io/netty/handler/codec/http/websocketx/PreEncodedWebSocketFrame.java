@@ -0,0 +1,245 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.websocketx;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.compression.ZlibCodecFactory;
+import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtension;
+import io.netty.util.internal.UnstableApi;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * A {@link WebSocketFrame} which was encoded into the wire format of version 07 and later already, so it can be
+ * written to many {@link io.netty.channel.Channel}s, like all of a {@link io.netty.channel.group.ChannelGroup},
+ * while it is encoded only once. The {@link WebSocket08FrameEncoder} writes the encoded frame as a retained slice,
+ * and as clients have to mask their frames with a random mask it can only be written by servers.
+ * <p>
+ * A text or binary frame can be compressed for the permessage-deflate extension as well, without context takeover.
+ * The compressed frame is written instead of the uncompressed one to {@link io.netty.channel.Channel}s which
+ * negotiated the extension with {@code server_no_context_takeover} and a window which is at least as large, while
+ * all others get the uncompressed frame, which the extension allows. The {@link #content()} of this frame contains
+ * the encoded frames and not the payload.
+ */
+@UnstableApi
+public final class PreEncodedWebSocketFrame extends WebSocketFrame {
+
+    private static final int FRAME_TAIL_LENGTH = 4;
+
+    private final int encodedLength;
+    private final int deflateWindowBits;
+
+    private PreEncodedWebSocketFrame(boolean finalFragment, int rsv, ByteBuf content, int encodedLength,
+                                     int deflateWindowBits) {
+        super(finalFragment, rsv, content);
+        this.encodedLength = encodedLength;
+        this.deflateWindowBits = deflateWindowBits;
+    }
+
+    /**
+     * Encodes the given frame, which is released.
+     */
+    public static PreEncodedWebSocketFrame encode(ByteBufAllocator alloc, WebSocketFrame frame) {
+        return encode(alloc, frame, false, 0, 0);
+    }
+
+    /**
+     * Encodes the given frame, which is released. If it is a text or binary frame which is not fragmented and has
+     * content, it is compressed for the permessage-deflate extension as well.
+     *
+     * @param compressionLevel  the compression level between 0 and 9.
+     * @param windowBits        the size of the compression window between 8 and 15.
+     */
+    public static PreEncodedWebSocketFrame encode(ByteBufAllocator alloc, WebSocketFrame frame, int compressionLevel,
+                                                  int windowBits) {
+        checkDeflateParameters(compressionLevel, windowBits);
+        return encode(alloc, frame, true, compressionLevel, windowBits);
+    }
+
+    static void checkDeflateParameters(int compressionLevel, int windowBits) {
+        if (compressionLevel < 0 || compressionLevel > 9) {
+            throw new IllegalArgumentException("compressionLevel: " + compressionLevel + " (expected: 0-9)");
+        }
+        if (windowBits < 8 || windowBits > 15) {
+            throw new IllegalArgumentException("windowBits: " + windowBits + " (expected: 8-15)");
+        }
+    }
+
+    private static PreEncodedWebSocketFrame encode(ByteBufAllocator alloc, WebSocketFrame frame, boolean deflate,
+                                                   int compressionLevel, int windowBits) {
+        checkNotNull(alloc, "alloc");
+        checkNotNull(frame, "frame");
+        ByteBuf deflated = null;
+        try {
+            ByteBuf payload = frame.content();
+            int length = payload.readableBytes();
+            byte opcode = WebSocket08FrameEncoder.opcode(frame);
+            if ((opcode & 0x8) != 0 && length > 125) {
+                throw new TooLongFrameException("invalid payload for control frame (payload length must be <= 125, " +
+                        "was " + length);
+            }
+            int b0 = (frame.isFinalFragment() ? 0x80 : 0) | frame.rsv() % 8 << 4 | opcode;
+
+            if (deflate && frame.isFinalFragment() && frame.rsv() == 0 && payload.isReadable() &&
+                    (frame instanceof TextWebSocketFrame || frame instanceof BinaryWebSocketFrame)) {
+                if (!ZlibCodecFactory.isSupportingWindowSizeAndMemLevel()) {
+                    // The compressor always uses the largest window.
+                    windowBits = 15;
+                }
+                deflated = deflate(alloc, payload, compressionLevel, windowBits);
+            } else {
+                windowBits = 0;
+            }
+
+            int encodedLength = headerLength(length) + length;
+            int size = encodedLength;
+            if (deflated != null) {
+                size += headerLength(deflated.readableBytes()) + deflated.readableBytes();
+            }
+            ByteBuf buf = alloc.buffer(size);
+            writeHeader(buf, b0, length);
+            buf.writeBytes(payload, payload.readerIndex(), length);
+            if (deflated != null) {
+                writeHeader(buf, b0 | WebSocketExtension.RSV1 << 4, deflated.readableBytes());
+                buf.writeBytes(deflated);
+            }
+            return new PreEncodedWebSocketFrame(frame.isFinalFragment(), frame.rsv(), buf, encodedLength, windowBits);
+        } finally {
+            frame.release();
+            if (deflated != null) {
+                deflated.release();
+            }
+        }
+    }
+
+    private static ByteBuf deflate(ByteBufAllocator alloc, ByteBuf payload, int compressionLevel, int windowBits) {
+        EmbeddedChannel encoder = new EmbeddedChannel(ZlibCodecFactory.newZlibEncoder(
+                ZlibWrapper.NONE, compressionLevel, windowBits, 8));
+        CompositeByteBuf compressed = alloc.compositeBuffer();
+        try {
+            encoder.writeOutbound(payload.retainedDuplicate());
+            for (;;) {
+                ByteBuf part = encoder.readOutbound();
+                if (part == null) {
+                    break;
+                }
+                compressed.addComponent(true, part);
+            }
+        } finally {
+            encoder.finishAndReleaseAll();
+        }
+        // The tail of the flushed block is removed, as it is appended by the receiver.
+        return compressed.writerIndex(compressed.writerIndex() - FRAME_TAIL_LENGTH);
+    }
+
+    private static int headerLength(int length) {
+        return length <= 125 ? 2 : length <= 0xFFFF ? 4 : 10;
+    }
+
+    private static void writeHeader(ByteBuf buf, int b0, int length) {
+        buf.writeByte(b0);
+        if (length <= 125) {
+            buf.writeByte(length);
+        } else if (length <= 0xFFFF) {
+            buf.writeByte(126);
+            buf.writeShort(length);
+        } else {
+            buf.writeByte(127);
+            buf.writeLong(length);
+        }
+    }
+
+    /**
+     * Returns a retained slice of the encoded frame without compression.
+     */
+    ByteBuf encodedFrame() {
+        return content().retainedSlice(content().readerIndex(), encodedLength);
+    }
+
+    /**
+     * Returns the size of the window which was used to compress the frame for the permessage-deflate extension, or
+     * {@code 0} if it was not compressed.
+     */
+    public int deflateWindowBits() {
+        return deflateWindowBits;
+    }
+
+    /**
+     * Returns the frame compressed for the permessage-deflate extension, which shares the content of this frame and
+     * is retained.
+     *
+     * @throws IllegalStateException if the frame was not compressed.
+     */
+    public PreEncodedWebSocketFrame retainedDeflatedFrame() {
+        if (deflateWindowBits == 0) {
+            throw new IllegalStateException("frame was not compressed");
+        }
+        ByteBuf content = content();
+        int offset = content.readerIndex() + encodedLength;
+        int length = content.writerIndex() - offset;
+        return new PreEncodedWebSocketFrame(isFinalFragment(), rsv() | WebSocketExtension.RSV1,
+                content.retainedSlice(offset, length), length, 0);
+    }
+
+    @Override
+    public PreEncodedWebSocketFrame copy() {
+        return (PreEncodedWebSocketFrame) super.copy();
+    }
+
+    @Override
+    public PreEncodedWebSocketFrame duplicate() {
+        return (PreEncodedWebSocketFrame) super.duplicate();
+    }
+
+    @Override
+    public PreEncodedWebSocketFrame retainedDuplicate() {
+        return (PreEncodedWebSocketFrame) super.retainedDuplicate();
+    }
+
+    @Override
+    public PreEncodedWebSocketFrame replace(ByteBuf content) {
+        return new PreEncodedWebSocketFrame(isFinalFragment(), rsv(), content, encodedLength, deflateWindowBits);
+    }
+
+    @Override
+    public PreEncodedWebSocketFrame retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public PreEncodedWebSocketFrame retain(int increment) {
+        super.retain(increment);
+        return this;
+    }
+
+    @Override
+    public PreEncodedWebSocketFrame touch() {
+        super.touch();
+        return this;
+    }
+
+    @Override
+    public PreEncodedWebSocketFrame touch(Object hint) {
+        super.touch(hint);
+        return this;
+    }
+}
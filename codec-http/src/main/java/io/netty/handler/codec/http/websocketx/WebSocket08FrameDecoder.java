@@ -63,11 +63,8 @@ import io.netty.handler.codec.TooLongFrameException;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
-import java.nio.ByteOrder;
 import java.util.List;
 
-import static io.netty.buffer.ByteBufUtil.readBytes;
-
 /**
  * Decodes a web socket frame from wire protocol version 8 format. This code was forked from <a
  * href="https://github.com/joewalnes/webbit">webbit</a> and modified.
@@ -104,7 +101,7 @@ public class WebSocket08FrameDecoder extends ByteToMessageDecoder
     private int frameRsv;
     private int frameOpcode;
     private long framePayloadLength;
-    private byte[] maskingKey;
+    private int mask;
     private int framePayloadLen1;
     private boolean receivedClosingHandshake;
     private State state = State.READING_FIRST;
@@ -288,10 +285,7 @@ public class WebSocket08FrameDecoder extends ByteToMessageDecoder
                         if (in.readableBytes() < 4) {
                             return;
                         }
-                        if (maskingKey == null) {
-                            maskingKey = new byte[4];
-                        }
-                        in.readBytes(maskingKey);
+                        mask = in.readInt();
                     }
                     state = State.PAYLOAD;
                 case PAYLOAD:
@@ -301,17 +295,12 @@ public class WebSocket08FrameDecoder extends ByteToMessageDecoder
 
                     ByteBuf payloadBuffer = null;
                     try {
-                        payloadBuffer = readBytes(ctx.alloc(), in, toFrameLength(framePayloadLength));
+                        payloadBuffer = readPayload(ctx, in, toFrameLength(framePayloadLength));
 
                         // Now we have all the data, the next checkpoint must be the next
                         // frame
                         state = State.READING_FIRST;
 
-                        // Unmask data if needed
-                        if (frameMasked) {
-                            unmask(payloadBuffer);
-                        }
-
                         // Processing ping/pong/close frames because they cannot be
                         // fragmented
                         if (frameOpcode == OPCODE_PING) {
@@ -380,32 +369,24 @@ public class WebSocket08FrameDecoder extends ByteToMessageDecoder
             }
     }
 
-    private void unmask(ByteBuf frame) {
-        int i = frame.readerIndex();
-        int end = frame.writerIndex();
-
-        ByteOrder order = frame.order();
-
-        // Remark: & 0xFF is necessary because Java will do signed expansion from
-        // byte to int which we don't want.
-        int intMask = ((maskingKey[0] & 0xFF) << 24)
-                    | ((maskingKey[1] & 0xFF) << 16)
-                    | ((maskingKey[2] & 0xFF) << 8)
-                    | (maskingKey[3] & 0xFF);
-
-        // If the byte order of our buffers it little endian we have to bring our mask
-        // into the same format, because getInt() and writeInt() will use a reversed byte order
-        if (order == ByteOrder.LITTLE_ENDIAN) {
-            intMask = Integer.reverseBytes(intMask);
-        }
-
-        for (; i + 3 < end; i += 4) {
-            int unmasked = frame.getInt(i) ^ intMask;
-            frame.setInt(i, unmasked);
+    /**
+     * Reads the payload of the current frame as a retained slice of the cumulation, which is unmasked in place if
+     * needed. Only if the cumulation can not be modified the payload is unmasked into a new buffer.
+     */
+    private ByteBuf readPayload(ChannelHandlerContext ctx, ByteBuf in, int length) {
+        int index = in.readerIndex();
+        if (!frameMasked) {
+            return in.readRetainedSlice(length);
         }
-        for (; i < end; i++) {
-            frame.setByte(i, frame.getByte(i) ^ maskingKey[i % 4]);
+        if (!in.isReadOnly()) {
+            WebSocketUtil.mask(mask, in, index, in, index, length);
+            return in.readRetainedSlice(length);
         }
+        ByteBuf payload = ctx.alloc().buffer(length);
+        WebSocketUtil.mask(mask, in, index, payload, 0, length);
+        payload.writerIndex(length);
+        in.skipBytes(length);
+        return payload;
     }
 
     private void protocolViolation(ChannelHandlerContext ctx, String reason) {
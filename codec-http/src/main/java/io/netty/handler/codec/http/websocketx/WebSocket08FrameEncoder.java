@@ -57,11 +57,10 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageEncoder;
 import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.List;
 
 /**
@@ -82,9 +81,9 @@ public class WebSocket08FrameEncoder extends MessageToMessageEncoder<WebSocketFr
     private static final byte OPCODE_PONG = 0xA;
 
     /**
-     * The size threshold for gathering writes. Non-Masked messages bigger than this size will be be sent fragmented as
-     * a header and a content ByteBuf whereas messages smaller than the size will be merged into a single buffer and
-     * sent at once.<br>
+     * The size threshold for gathering writes. Non-Masked messages bigger than this size will be sent as a
+     * {@link io.netty.buffer.CompositeByteBuf} of a header and the retained content ByteBuf, whereas messages smaller
+     * than the size will be merged into a single buffer and sent at once.<br>
      * Masked messages will always be sent at once.
      */
     private static final int GATHERING_WRITE_THRESHOLD = 1024;
@@ -104,26 +103,18 @@ public class WebSocket08FrameEncoder extends MessageToMessageEncoder<WebSocketFr
 
     @Override
     protected void encode(ChannelHandlerContext ctx, WebSocketFrame msg, List<Object> out) throws Exception {
-        final ByteBuf data = msg.content();
-        byte[] mask;
-
-        byte opcode;
-        if (msg instanceof TextWebSocketFrame) {
-            opcode = OPCODE_TEXT;
-        } else if (msg instanceof PingWebSocketFrame) {
-            opcode = OPCODE_PING;
-        } else if (msg instanceof PongWebSocketFrame) {
-            opcode = OPCODE_PONG;
-        } else if (msg instanceof CloseWebSocketFrame) {
-            opcode = OPCODE_CLOSE;
-        } else if (msg instanceof BinaryWebSocketFrame) {
-            opcode = OPCODE_BINARY;
-        } else if (msg instanceof ContinuationWebSocketFrame) {
-            opcode = OPCODE_CONT;
-        } else {
-            throw new UnsupportedOperationException("Cannot encode frame of type: " + msg.getClass().getName());
+        if (msg instanceof PreEncodedWebSocketFrame) {
+            if (maskPayload) {
+                throw new UnsupportedOperationException("Cannot encode frame of type: " + msg.getClass().getName() +
+                        " with a masked payload");
+            }
+            // The frame was encoded already, which is shared by all channels it is written to.
+            out.add(((PreEncodedWebSocketFrame) msg).encodedFrame());
+            return;
         }
+        final ByteBuf data = msg.content();
 
+        byte opcode = opcode(msg);
         int length = data.readableBytes();
 
         if (logger.isDebugEnabled()) {
@@ -178,41 +169,11 @@ public class WebSocket08FrameEncoder extends MessageToMessageEncoder<WebSocketFr
 
             // Write payload
             if (maskPayload) {
-                int random = (int) (Math.random() * Integer.MAX_VALUE);
-                mask = ByteBuffer.allocate(4).putInt(random).array();
-                buf.writeBytes(mask);
-
-                ByteOrder srcOrder = data.order();
-                ByteOrder dstOrder = buf.order();
-
-                int counter = 0;
-                int i = data.readerIndex();
-                int end = data.writerIndex();
-
-                if (srcOrder == dstOrder) {
-                    // Use the optimized path only when byte orders match
-                    // Remark: & 0xFF is necessary because Java will do signed expansion from
-                    // byte to int which we don't want.
-                    int intMask = ((mask[0] & 0xFF) << 24)
-                                | ((mask[1] & 0xFF) << 16)
-                                | ((mask[2] & 0xFF) << 8)
-                                | (mask[3] & 0xFF);
-
-                    // If the byte order of our buffers it little endian we have to bring our mask
-                    // into the same format, because getInt() and writeInt() will use a reversed byte order
-                    if (srcOrder == ByteOrder.LITTLE_ENDIAN) {
-                        intMask = Integer.reverseBytes(intMask);
-                    }
-
-                    for (; i + 3 < end; i += 4) {
-                        int intData = data.getInt(i);
-                        buf.writeInt(intData ^ intMask);
-                    }
-                }
-                for (; i < end; i++) {
-                    byte byteData = data.getByte(i);
-                    buf.writeByte(byteData ^ mask[counter++ % 4]);
-                }
+                int mask = PlatformDependent.threadLocalRandom().nextInt();
+                buf.writeInt(mask);
+                buf.ensureWritable(length);
+                WebSocketUtil.mask(mask, data, data.readerIndex(), buf, buf.writerIndex(), length);
+                buf.writerIndex(buf.writerIndex() + length);
                 out.add(buf);
             } else {
                 if (buf.writableBytes() >= data.readableBytes()) {
@@ -220,8 +181,8 @@ public class WebSocket08FrameEncoder extends MessageToMessageEncoder<WebSocketFr
                     buf.writeBytes(data);
                     out.add(buf);
                 } else {
-                    out.add(buf);
-                    out.add(data.retain());
+                    // write the header and the payload as one message without copying the payload
+                    out.add(ctx.alloc().compositeBuffer(2).addComponents(true, buf, data.retain()));
                 }
             }
             release = false;
@@ -231,4 +192,22 @@ public class WebSocket08FrameEncoder extends MessageToMessageEncoder<WebSocketFr
             }
         }
     }
+
+    static byte opcode(WebSocketFrame msg) {
+        if (msg instanceof TextWebSocketFrame) {
+            return OPCODE_TEXT;
+        } else if (msg instanceof PingWebSocketFrame) {
+            return OPCODE_PING;
+        } else if (msg instanceof PongWebSocketFrame) {
+            return OPCODE_PONG;
+        } else if (msg instanceof CloseWebSocketFrame) {
+            return OPCODE_CLOSE;
+        } else if (msg instanceof BinaryWebSocketFrame) {
+            return OPCODE_BINARY;
+        } else if (msg instanceof ContinuationWebSocketFrame) {
+            return OPCODE_CONT;
+        } else {
+            throw new UnsupportedOperationException("Cannot encode frame of type: " + msg.getClass().getName());
+        }
+    }
 }
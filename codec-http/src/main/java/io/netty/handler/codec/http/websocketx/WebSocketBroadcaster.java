@@ -0,0 +1,88 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.websocketx;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.ChannelGroupFuture;
+import io.netty.channel.group.ChannelMatcher;
+import io.netty.channel.group.ChannelMatchers;
+import io.netty.util.internal.UnstableApi;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * Writes {@link WebSocketFrame}s to all server {@link io.netty.channel.Channel}s of a {@link ChannelGroup}, which
+ * encodes every frame only once via {@link PreEncodedWebSocketFrame}. So the cost of encoding, and of compressing if
+ * enabled, does not depend on the number of {@link io.netty.channel.Channel}s.
+ */
+@UnstableApi
+public final class WebSocketBroadcaster {
+
+    private final ChannelGroup group;
+    private final ByteBufAllocator alloc;
+    private final boolean deflate;
+    private final int compressionLevel;
+    private final int windowBits;
+
+    /**
+     * Creates a new instance which does not compress the frames.
+     */
+    public WebSocketBroadcaster(ChannelGroup group) {
+        this(group, ByteBufAllocator.DEFAULT, false, 0, 0);
+    }
+
+    /**
+     * Creates a new instance which compresses text and binary frames for the permessage-deflate extension, without
+     * context takeover.
+     *
+     * @param compressionLevel  the compression level between 0 and 9.
+     * @param windowBits        the size of the compression window between 8 and 15.
+     */
+    public WebSocketBroadcaster(ChannelGroup group, int compressionLevel, int windowBits) {
+        this(group, ByteBufAllocator.DEFAULT, true, compressionLevel, windowBits);
+    }
+
+    private WebSocketBroadcaster(ChannelGroup group, ByteBufAllocator alloc, boolean deflate, int compressionLevel,
+                                 int windowBits) {
+        this.group = checkNotNull(group, "group");
+        this.alloc = alloc;
+        this.deflate = deflate;
+        this.compressionLevel = compressionLevel;
+        this.windowBits = windowBits;
+        if (deflate) {
+            PreEncodedWebSocketFrame.checkDeflateParameters(compressionLevel, windowBits);
+        }
+    }
+
+    /**
+     * Writes and flushes the given frame, which is released, to all {@link io.netty.channel.Channel}s of the group.
+     */
+    public ChannelGroupFuture broadcast(WebSocketFrame frame) {
+        return broadcast(frame, ChannelMatchers.all());
+    }
+
+    /**
+     * Writes and flushes the given frame, which is released, to all {@link io.netty.channel.Channel}s of the group
+     * which are matched by the given {@link ChannelMatcher}.
+     */
+    public ChannelGroupFuture broadcast(WebSocketFrame frame, ChannelMatcher matcher) {
+        PreEncodedWebSocketFrame encoded = deflate ?
+                PreEncodedWebSocketFrame.encode(alloc, frame, compressionLevel, windowBits) :
+                PreEncodedWebSocketFrame.encode(alloc, frame);
+        return group.writeAndFlush(encoded, matcher);
+    }
+}
@@ -22,6 +22,7 @@ import io.netty.util.CharsetUtil;
 import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.internal.PlatformDependent;
 
+import java.nio.ByteOrder;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
@@ -143,6 +144,54 @@ final class WebSocketUtil {
         return (int) (minimum + fraction * (maximum - minimum));
     }
 
+    /**
+     * Masks {@code length} bytes of {@code src} into {@code dst}, starting at the given indexes, as described in
+     * <a href="https://tools.ietf.org/html/rfc6455#section-5.3">RFC 6455, section 5.3</a>. The indexes may be the
+     * same for the same buffer, in which case the bytes are masked in place. The bytes are masked 8 at a time, and
+     * directly on the memory or the array of the buffers if possible.
+     *
+     * @param mask the masking key, whose first byte is the most significant one
+     */
+    static void mask(int mask, ByteBuf src, int srcIndex, ByteBuf dst, int dstIndex, int length) {
+        int i = 0;
+        int longEnd = length & ~7;
+        if (longEnd > 0) {
+            long longMask = (long) mask << 32 | mask & 0xFFFFFFFFL;
+            if (PlatformDependent.hasUnsafe() && PlatformDependent.isUnaligned()) {
+                long nativeMask = PlatformDependent.BIG_ENDIAN_NATIVE_ORDER ? longMask : Long.reverseBytes(longMask);
+                if (src.hasMemoryAddress() && dst.hasMemoryAddress()) {
+                    long srcAddress = src.memoryAddress() + srcIndex;
+                    long dstAddress = dst.memoryAddress() + dstIndex;
+                    for (; i < longEnd; i += 8) {
+                        PlatformDependent.putLong(dstAddress + i,
+                                PlatformDependent.getLong(srcAddress + i) ^ nativeMask);
+                    }
+                } else if (src.hasArray() && dst.hasArray()) {
+                    byte[] srcArray = src.array();
+                    byte[] dstArray = dst.array();
+                    int srcOffset = src.arrayOffset() + srcIndex;
+                    int dstOffset = dst.arrayOffset() + dstIndex;
+                    for (; i < longEnd; i += 8) {
+                        PlatformDependent.putLong(dstArray, dstOffset + i,
+                                PlatformDependent.getLong(srcArray, srcOffset + i) ^ nativeMask);
+                    }
+                }
+            }
+            if (i == 0 && src.order() == dst.order()) {
+                // getLong() and setLong() use the byte order of the buffers.
+                if (src.order() == ByteOrder.LITTLE_ENDIAN) {
+                    longMask = Long.reverseBytes(longMask);
+                }
+                for (; i < longEnd; i += 8) {
+                    dst.setLong(dstIndex + i, src.getLong(srcIndex + i) ^ longMask);
+                }
+            }
+        }
+        for (; i < length; i++) {
+            dst.setByte(dstIndex + i, src.getByte(srcIndex + i) ^ mask >>> (24 - ((i & 3) << 3)));
+        }
+    }
+
     /**
      * A private constructor to ensure that instances of this class cannot be made
      */
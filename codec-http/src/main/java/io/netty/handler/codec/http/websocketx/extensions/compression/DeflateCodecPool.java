@@ -0,0 +1,393 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.websocketx.extensions.compression;
+
+import com.jcraft.jzlib.JZlib;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.compression.CompressionException;
+import io.netty.handler.codec.compression.DecompressionException;
+import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
+
+/**
+ * Pool of raw deflate compressors and decompressors for permessage-deflate without context takeover. They are only
+ * borrowed while a message is compressed or decompressed, so the memory used for their state scales with the number
+ * of messages in flight rather than with the number of connections.
+ * <p>
+ * The pooled codecs are shared by all instances: every thread, and so every {@link io.netty.channel.EventLoop}, has a
+ * single pool per compression level, which holds up to {@code maxPooled} idle compressors per window size, and one
+ * pool of decompressors. An instance only configures how codecs are borrowed and returned, so it can be created per
+ * {@link io.netty.channel.Channel}. The encoders and decoders of a {@link io.netty.channel.Channel} must borrow and
+ * return them from its {@link io.netty.channel.EventLoop}.
+ * <p>
+ * Compressors with a window size smaller than 15 are provided by JZlib, which must be on the classpath then.
+ */
+final class DeflateCodecPool {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(DeflateCodecPool.class);
+
+    private static final int MIN_WINDOW_BITS = PerMessageDeflateServerExtensionHandshaker.MIN_WINDOW_SIZE;
+    private static final int WINDOW_SIZES =
+            PerMessageDeflateServerExtensionHandshaker.MAX_WINDOW_SIZE - MIN_WINDOW_BITS + 1;
+    private static final int DEFAULT_JDK_WINDOW_SIZE = 15;
+    private static final int MEM_LEVEL = 8;
+    private static final boolean JDK_DEFLATER = PlatformDependent.javaVersion() >= 7 &&
+            !SystemPropertyUtil.getBoolean("io.netty.noJdkZlibEncoder", false);
+    private static final boolean JZLIB_AVAILABLE;
+
+    static {
+        boolean jzlibAvailable;
+        try {
+            Class.forName("com.jcraft.jzlib.JZlib", false, PlatformDependent.getClassLoader(DeflateCodecPool.class));
+            jzlibAvailable = true;
+        } catch (Throwable t) {
+            jzlibAvailable = false;
+            logger.debug("jzlib not in the classpath; only a window size of {} is supported.",
+                    DEFAULT_JDK_WINDOW_SIZE);
+        }
+        JZLIB_AVAILABLE = jzlibAvailable;
+    }
+
+    private static final FastThreadLocal<Pools> POOLS = new FastThreadLocal<Pools>() {
+        @Override
+        protected Pools initialValue() {
+            return new Pools();
+        }
+
+        @Override
+        protected void onRemoval(Pools pools) {
+            pools.end();
+        }
+    };
+
+    private final int compressionLevel;
+    private final int maxPooled;
+
+    /**
+     * @param compressionLevel compression level of the compressors.
+     * @param maxPooled maximum number of idle compressors per window size and decompressors per thread, which are
+     *                  returned via this instance.
+     */
+    DeflateCodecPool(int compressionLevel, int maxPooled) {
+        if (compressionLevel < 0 || compressionLevel > 9) {
+            throw new IllegalArgumentException(
+                    "compressionLevel: " + compressionLevel + " (expected: 0-9)");
+        }
+        this.compressionLevel = compressionLevel;
+        this.maxPooled = checkPositiveOrZero(maxPooled, "maxPooled");
+    }
+
+    /**
+     * Returns the smallest window size a compressor can be borrowed for, which is larger than
+     * {@link PerMessageDeflateServerExtensionHandshaker#MAX_WINDOW_SIZE} if there is none.
+     */
+    static int minWindowBits() {
+        if (JZLIB_AVAILABLE) {
+            return MIN_WINDOW_BITS;
+        }
+        return JDK_DEFLATER ? DEFAULT_JDK_WINDOW_SIZE : PerMessageDeflateServerExtensionHandshaker.MAX_WINDOW_SIZE + 1;
+    }
+
+    int compressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Borrows a compressor which uses a window of {@code 2^windowBits} bytes.
+     */
+    Compressor borrowCompressor(int windowBits) {
+        Compressor compressor = POOLS.get().compressors(compressionLevel)[windowBits - MIN_WINDOW_BITS].poll();
+        if (compressor != null) {
+            return compressor;
+        }
+        if (JDK_DEFLATER && windowBits == DEFAULT_JDK_WINDOW_SIZE) {
+            return new JdkCompressor(compressionLevel);
+        }
+        return new JZlibCompressor(compressionLevel, windowBits);
+    }
+
+    /**
+     * Returns a compressor which was borrowed via {@link #borrowCompressor(int)}, which resets it.
+     */
+    void release(Compressor compressor) {
+        ArrayDeque<Compressor> compressors =
+                POOLS.get().compressors(compressionLevel)[compressor.windowBits - MIN_WINDOW_BITS];
+        if (compressors.size() < maxPooled) {
+            compressor.reset();
+            compressors.offer(compressor);
+        } else {
+            compressor.end();
+        }
+    }
+
+    /**
+     * Borrows a decompressor, which can decompress data that was compressed with any window size.
+     */
+    Decompressor borrowDecompressor() {
+        Decompressor decompressor = POOLS.get().decompressors.poll();
+        return decompressor != null ? decompressor : new Decompressor();
+    }
+
+    /**
+     * Returns a decompressor which was borrowed via {@link #borrowDecompressor()}, which resets it.
+     */
+    void release(Decompressor decompressor) {
+        ArrayDeque<Decompressor> decompressors = POOLS.get().decompressors;
+        if (decompressors.size() < maxPooled) {
+            decompressor.reset();
+            decompressors.offer(decompressor);
+        } else {
+            decompressor.end();
+        }
+    }
+
+    private static final class Pools {
+        // The compressors per compression level and window size, created once a level is used.
+        @SuppressWarnings("unchecked")
+        private final ArrayDeque<Compressor>[][] compressors = new ArrayDeque[10][];
+        final ArrayDeque<Decompressor> decompressors = new ArrayDeque<Decompressor>();
+
+        @SuppressWarnings("unchecked")
+        ArrayDeque<Compressor>[] compressors(int compressionLevel) {
+            ArrayDeque<Compressor>[] pools = compressors[compressionLevel];
+            if (pools == null) {
+                pools = compressors[compressionLevel] = new ArrayDeque[WINDOW_SIZES];
+                for (int i = 0; i < pools.length; i++) {
+                    pools[i] = new ArrayDeque<Compressor>();
+                }
+            }
+            return pools;
+        }
+
+        void end() {
+            for (ArrayDeque<Compressor>[] pools : compressors) {
+                if (pools == null) {
+                    continue;
+                }
+                for (ArrayDeque<Compressor> pool : pools) {
+                    for (Compressor compressor : pool) {
+                        compressor.end();
+                    }
+                    pool.clear();
+                }
+            }
+            for (Decompressor decompressor : decompressors) {
+                decompressor.end();
+            }
+            decompressors.clear();
+        }
+    }
+
+    /**
+     * Compresses the messages of a single connection, one at a time.
+     */
+    abstract static class Compressor {
+        final int windowBits;
+
+        Compressor(int windowBits) {
+            this.windowBits = windowBits;
+        }
+
+        /**
+         * Compresses the readable bytes of {@code in}, without modifying its indexes, and writes them followed by a
+         * sync flush into {@code out}, which must have a backing array.
+         */
+        abstract void compress(ByteBuf in, ByteBuf out);
+
+        abstract void reset();
+
+        abstract void end();
+    }
+
+    private static final class JdkCompressor extends Compressor {
+        private final Deflater deflater;
+
+        JdkCompressor(int compressionLevel) {
+            super(DEFAULT_JDK_WINDOW_SIZE);
+            deflater = new Deflater(compressionLevel, true);
+        }
+
+        @Override
+        void compress(ByteBuf in, ByteBuf out) {
+            if (in.hasArray()) {
+                deflater.setInput(in.array(), in.arrayOffset() + in.readerIndex(), in.readableBytes());
+            } else {
+                byte[] array = new byte[in.readableBytes()];
+                in.getBytes(in.readerIndex(), array);
+                deflater.setInput(array);
+            }
+            out.ensureWritable(maxCompressedLength(in.readableBytes()));
+            for (;;) {
+                int writerIndex = out.writerIndex();
+                int numBytes = deflater.deflate(
+                        out.array(), out.arrayOffset() + writerIndex, out.writableBytes(), Deflater.SYNC_FLUSH);
+                out.writerIndex(writerIndex + numBytes);
+                if (out.isWritable()) {
+                    // The output was flushed completely.
+                    break;
+                }
+                out.ensureWritable(out.capacity());
+            }
+        }
+
+        @Override
+        void reset() {
+            deflater.reset();
+        }
+
+        @Override
+        void end() {
+            deflater.end();
+        }
+    }
+
+    private static final class JZlibCompressor extends Compressor {
+        private final int compressionLevel;
+        private com.jcraft.jzlib.Deflater z;
+
+        JZlibCompressor(int compressionLevel, int windowBits) {
+            super(windowBits);
+            this.compressionLevel = compressionLevel;
+            init();
+        }
+
+        private void init() {
+            z = new com.jcraft.jzlib.Deflater();
+            int resultCode = z.init(compressionLevel, windowBits, MEM_LEVEL, JZlib.W_NONE);
+            if (resultCode != JZlib.Z_OK) {
+                throw new CompressionException("initialization failure (" + resultCode + ')');
+            }
+        }
+
+        @Override
+        void compress(ByteBuf in, ByteBuf out) {
+            try {
+                z.avail_in = in.readableBytes();
+                if (in.hasArray()) {
+                    z.next_in = in.array();
+                    z.next_in_index = in.arrayOffset() + in.readerIndex();
+                } else {
+                    byte[] array = new byte[in.readableBytes()];
+                    in.getBytes(in.readerIndex(), array);
+                    z.next_in = array;
+                    z.next_in_index = 0;
+                }
+                out.ensureWritable(maxCompressedLength(in.readableBytes()));
+                for (;;) {
+                    z.avail_out = out.writableBytes();
+                    z.next_out = out.array();
+                    z.next_out_index = out.arrayOffset() + out.writerIndex();
+                    int oldNextOutIndex = z.next_out_index;
+                    int resultCode = z.deflate(JZlib.Z_SYNC_FLUSH);
+                    if (resultCode != JZlib.Z_OK) {
+                        throw new CompressionException("compression failure (" + resultCode + ')' +
+                                (z.msg != null ? ": " + z.msg : ""));
+                    }
+                    out.writerIndex(out.writerIndex() + z.next_out_index - oldNextOutIndex);
+                    if (z.avail_out > 0) {
+                        // The output was flushed completely.
+                        break;
+                    }
+                    out.ensureWritable(out.capacity());
+                }
+            } finally {
+                z.next_in = null;
+                z.next_out = null;
+            }
+        }
+
+        @Override
+        void reset() {
+            // JZlib does not expose deflateReset(), so start over with a new stream.
+            z.end();
+            init();
+        }
+
+        @Override
+        void end() {
+            z.end();
+        }
+    }
+
+    private static int maxCompressedLength(int length) {
+        // The worst case of deflate plus the sync flush.
+        return (int) Math.ceil(length * 1.001) + 12 + 5;
+    }
+
+    /**
+     * Decompresses the messages of a single connection, one at a time.
+     */
+    static final class Decompressor {
+        private final Inflater inflater = new Inflater(true);
+
+        /**
+         * Decompresses the readable bytes of {@code in}, without modifying its indexes, into {@code out}, which
+         * must have a backing array.
+         */
+        void decompress(ByteBuf in, ByteBuf out) {
+            int length = in.readableBytes();
+            if (length == 0) {
+                return;
+            }
+            if (in.hasArray()) {
+                inflater.setInput(in.array(), in.arrayOffset() + in.readerIndex(), length);
+            } else {
+                byte[] array = new byte[length];
+                in.getBytes(in.readerIndex(), array);
+                inflater.setInput(array);
+            }
+            out.ensureWritable(length << 1);
+            try {
+                for (;;) {
+                    int writerIndex = out.writerIndex();
+                    int numBytes = inflater.inflate(
+                            out.array(), out.arrayOffset() + writerIndex, out.writableBytes());
+                    out.writerIndex(writerIndex + numBytes);
+                    if (inflater.finished() || inflater.needsInput() && out.isWritable()) {
+                        break;
+                    }
+                    if (inflater.needsDictionary()) {
+                        throw new DecompressionException("decompression failure: dictionary needed");
+                    }
+                    if (out.isWritable() && numBytes == 0) {
+                        throw new DecompressionException("decompression failure: no progress");
+                    }
+                    out.ensureWritable(out.capacity());
+                }
+            } catch (DataFormatException e) {
+                throw new DecompressionException("decompression failure", e);
+            }
+        }
+
+        void reset() {
+            inflater.reset();
+        }
+
+        void end() {
+            inflater.end();
+        }
+    }
+}
@@ -40,8 +40,10 @@ abstract class DeflateDecoder extends WebSocketExtensionDecoder {
     static final byte[] FRAME_TAIL = new byte[] {0x00, 0x00, (byte) 0xff, (byte) 0xff};
 
     private final boolean noContext;
+    private final DeflateCodecPool pool;
 
     private EmbeddedChannel decoder;
+    private DeflateCodecPool.Decompressor decompressor;
 
     /**
      * Constructor
@@ -49,6 +51,23 @@ abstract class DeflateDecoder extends WebSocketExtensionDecoder {
      */
     public DeflateDecoder(boolean noContext) {
         this.noContext = noContext;
+        pool = null;
+    }
+
+    /**
+     * Constructor which disables context takeover and borrows a decompressor from the pool for every message.
+     * @param pool the pool of decompressors.
+     */
+    DeflateDecoder(DeflateCodecPool pool) {
+        noContext = true;
+        this.pool = pool;
+    }
+
+    /**
+     * @return true if context takeover is disabled.
+     */
+    boolean noContext() {
+        return noContext;
     }
 
     protected abstract boolean appendFrameTail(WebSocketFrame msg);
@@ -57,6 +76,23 @@ abstract class DeflateDecoder extends WebSocketExtensionDecoder {
 
     @Override
     protected void decode(ChannelHandlerContext ctx, WebSocketFrame msg, List<Object> out) throws Exception {
+        ByteBuf uncompressedContent = pool != null ? decompressPooled(ctx, msg) : decompress(ctx, msg);
+
+        WebSocketFrame outMsg;
+        if (msg instanceof TextWebSocketFrame) {
+            outMsg = new TextWebSocketFrame(msg.isFinalFragment(), newRsv(msg), uncompressedContent);
+        } else if (msg instanceof BinaryWebSocketFrame) {
+            outMsg = new BinaryWebSocketFrame(msg.isFinalFragment(), newRsv(msg), uncompressedContent);
+        } else if (msg instanceof ContinuationWebSocketFrame) {
+            outMsg = new ContinuationWebSocketFrame(msg.isFinalFragment(), newRsv(msg),
+                    uncompressedContent);
+        } else {
+            throw new CodecException("unexpected frame type: " + msg.getClass().getName());
+        }
+        out.add(outMsg);
+    }
+
+    private ByteBuf decompress(ChannelHandlerContext ctx, WebSocketFrame msg) {
         if (decoder == null) {
             if (!(msg instanceof TextWebSocketFrame) && !(msg instanceof BinaryWebSocketFrame)) {
                 throw new CodecException("unexpected initial frame type: " + msg.getClass().getName());
@@ -92,19 +128,35 @@ abstract class DeflateDecoder extends WebSocketExtensionDecoder {
         if (msg.isFinalFragment() && noContext) {
             cleanup();
         }
+        return compositeUncompressedContent;
+    }
 
-        WebSocketFrame outMsg;
-        if (msg instanceof TextWebSocketFrame) {
-            outMsg = new TextWebSocketFrame(msg.isFinalFragment(), newRsv(msg), compositeUncompressedContent);
-        } else if (msg instanceof BinaryWebSocketFrame) {
-            outMsg = new BinaryWebSocketFrame(msg.isFinalFragment(), newRsv(msg), compositeUncompressedContent);
-        } else if (msg instanceof ContinuationWebSocketFrame) {
-            outMsg = new ContinuationWebSocketFrame(msg.isFinalFragment(), newRsv(msg),
-                    compositeUncompressedContent);
-        } else {
-            throw new CodecException("unexpected frame type: " + msg.getClass().getName());
+    private ByteBuf decompressPooled(ChannelHandlerContext ctx, WebSocketFrame msg) {
+        if (decompressor == null) {
+            if (!(msg instanceof TextWebSocketFrame) && !(msg instanceof BinaryWebSocketFrame)) {
+                throw new CodecException("unexpected initial frame type: " + msg.getClass().getName());
+            }
+            decompressor = pool.borrowDecompressor();
         }
-        out.add(outMsg);
+
+        ByteBuf uncompressedContent = ctx.alloc().heapBuffer();
+        try {
+            decompressor.decompress(msg.content(), uncompressedContent);
+            if (appendFrameTail(msg)) {
+                decompressor.decompress(Unpooled.wrappedBuffer(FRAME_TAIL), uncompressedContent);
+            }
+        } catch (RuntimeException e) {
+            uncompressedContent.release();
+            // The state of the decompressor is unknown, so do not return it to the pool.
+            decompressor.end();
+            decompressor = null;
+            throw e;
+        }
+
+        if (msg.isFinalFragment()) {
+            cleanup();
+        }
+        return uncompressedContent;
     }
 
     @Override
@@ -120,6 +172,10 @@ abstract class DeflateDecoder extends WebSocketExtensionDecoder {
     }
 
     private void cleanup() {
+        if (decompressor != null) {
+            pool.release(decompressor);
+            decompressor = null;
+        }
         if (decoder != null) {
             // Clean-up the previous encoder if not cleaned up correctly.
             if (decoder.finish()) {
@@ -40,8 +40,10 @@ abstract class DeflateEncoder extends WebSocketExtensionEncoder {
     private final int compressionLevel;
     private final int windowSize;
     private final boolean noContext;
+    private final DeflateCodecPool pool;
 
     private EmbeddedChannel encoder;
+    private DeflateCodecPool.Compressor compressor;
 
     /**
      * Constructor
@@ -53,6 +55,33 @@ abstract class DeflateEncoder extends WebSocketExtensionEncoder {
         this.compressionLevel = compressionLevel;
         this.windowSize = windowSize;
         this.noContext = noContext;
+        pool = null;
+    }
+
+    /**
+     * Constructor which disables context takeover and borrows a compressor from the pool for every message.
+     * @param pool the pool of compressors.
+     * @param windowSize maximum size of the window compressor buffer.
+     */
+    DeflateEncoder(DeflateCodecPool pool, int windowSize) {
+        compressionLevel = pool.compressionLevel();
+        this.windowSize = windowSize;
+        noContext = true;
+        this.pool = pool;
+    }
+
+    /**
+     * @return the size of the window of the compressor.
+     */
+    int windowSize() {
+        return windowSize;
+    }
+
+    /**
+     * @return true if context takeover is disabled.
+     */
+    boolean noContext() {
+        return noContext;
     }
 
     /**
@@ -70,6 +99,30 @@ abstract class DeflateEncoder extends WebSocketExtensionEncoder {
     @Override
     protected void encode(ChannelHandlerContext ctx, WebSocketFrame msg,
             List<Object> out) throws Exception {
+        ByteBuf fullCompressedContent = pool != null ? compressPooled(ctx, msg) : compress(ctx, msg);
+
+        ByteBuf compressedContent;
+        if (removeFrameTail(msg)) {
+            int realLength = fullCompressedContent.readableBytes() - FRAME_TAIL.length;
+            compressedContent = fullCompressedContent.slice(0, realLength);
+        } else {
+            compressedContent = fullCompressedContent;
+        }
+
+        WebSocketFrame outMsg;
+        if (msg instanceof TextWebSocketFrame) {
+            outMsg = new TextWebSocketFrame(msg.isFinalFragment(), rsv(msg), compressedContent);
+        } else if (msg instanceof BinaryWebSocketFrame) {
+            outMsg = new BinaryWebSocketFrame(msg.isFinalFragment(), rsv(msg), compressedContent);
+        } else if (msg instanceof ContinuationWebSocketFrame) {
+            outMsg = new ContinuationWebSocketFrame(msg.isFinalFragment(), rsv(msg), compressedContent);
+        } else {
+            throw new CodecException("unexpected frame type: " + msg.getClass().getName());
+        }
+        out.add(outMsg);
+    }
+
+    private ByteBuf compress(ChannelHandlerContext ctx, WebSocketFrame msg) {
         if (encoder == null) {
             encoder = new EmbeddedChannel(ZlibCodecFactory.newZlibEncoder(
                     ZlibWrapper.NONE, compressionLevel, windowSize, 8));
@@ -97,26 +150,29 @@ abstract class DeflateEncoder extends WebSocketExtensionEncoder {
         if (msg.isFinalFragment() && noContext) {
             cleanup();
         }
+        return fullCompressedContent;
+    }
 
-        ByteBuf compressedContent;
-        if (removeFrameTail(msg)) {
-            int realLength = fullCompressedContent.readableBytes() - FRAME_TAIL.length;
-            compressedContent = fullCompressedContent.slice(0, realLength);
-        } else {
-            compressedContent = fullCompressedContent;
+    private ByteBuf compressPooled(ChannelHandlerContext ctx, WebSocketFrame msg) {
+        if (compressor == null) {
+            compressor = pool.borrowCompressor(windowSize);
         }
 
-        WebSocketFrame outMsg;
-        if (msg instanceof TextWebSocketFrame) {
-            outMsg = new TextWebSocketFrame(msg.isFinalFragment(), rsv(msg), compressedContent);
-        } else if (msg instanceof BinaryWebSocketFrame) {
-            outMsg = new BinaryWebSocketFrame(msg.isFinalFragment(), rsv(msg), compressedContent);
-        } else if (msg instanceof ContinuationWebSocketFrame) {
-            outMsg = new ContinuationWebSocketFrame(msg.isFinalFragment(), rsv(msg), compressedContent);
-        } else {
-            throw new CodecException("unexpected frame type: " + msg.getClass().getName());
+        ByteBuf fullCompressedContent = ctx.alloc().heapBuffer();
+        try {
+            compressor.compress(msg.content(), fullCompressedContent);
+        } catch (RuntimeException e) {
+            fullCompressedContent.release();
+            // The state of the compressor is unknown, so do not return it to the pool.
+            compressor.end();
+            compressor = null;
+            throw e;
         }
-        out.add(outMsg);
+
+        if (msg.isFinalFragment()) {
+            cleanup();
+        }
+        return fullCompressedContent;
     }
 
     @Override
@@ -126,6 +182,10 @@ abstract class DeflateEncoder extends WebSocketExtensionEncoder {
     }
 
     private void cleanup() {
+        if (compressor != null) {
+            pool.release(compressor);
+            compressor = null;
+        }
         if (encoder != null) {
             // Clean-up the previous encoder if not cleaned up correctly.
             if (encoder.finish()) {
@@ -186,12 +186,14 @@ public final class PerMessageDeflateClientExtensionHandshaker implements WebSock
 
         @Override
         public WebSocketExtensionEncoder newExtensionEncoder() {
-            return new PerMessageDeflateEncoder(compressionLevel, serverWindowSize, serverNoContext);
+            // The client compresses with its own window size and context takeover.
+            return new PerMessageDeflateEncoder(compressionLevel, clientWindowSize, clientNoContext);
         }
 
         @Override
         public WebSocketExtensionDecoder newExtensionDecoder() {
-            return new PerMessageDeflateDecoder(clientNoContext);
+            // The client decompresses with the context takeover of the server.
+            return new PerMessageDeflateDecoder(serverNoContext);
         }
     }
 
@@ -39,6 +39,14 @@ class PerMessageDeflateDecoder extends DeflateDecoder {
         super(noContext);
     }
 
+    /**
+     * Constructor which disables context takeover and borrows a decompressor from the pool for every message.
+     * @param pool the pool of decompressors.
+     */
+    PerMessageDeflateDecoder(DeflateCodecPool pool) {
+        super(pool);
+    }
+
     @Override
     public boolean acceptInboundMessage(Object msg) throws Exception {
         return ((msg instanceof TextWebSocketFrame ||
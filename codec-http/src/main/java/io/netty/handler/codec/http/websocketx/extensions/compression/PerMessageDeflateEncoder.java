@@ -18,6 +18,7 @@ package io.netty.handler.codec.http.websocketx.extensions.compression;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.PreEncodedWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.WebSocketFrame;
 import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtension;
@@ -41,12 +42,32 @@ class PerMessageDeflateEncoder extends DeflateEncoder {
         super(compressionLevel, windowSize, noContext);
     }
 
+    /**
+     * Constructor which disables context takeover and borrows a compressor from the pool for every message.
+     * @param pool the pool of compressors.
+     * @param windowSize maximum size of the window compressor buffer.
+     */
+    PerMessageDeflateEncoder(DeflateCodecPool pool, int windowSize) {
+        super(pool, windowSize);
+    }
+
     @Override
     public boolean acceptOutboundMessage(Object msg) throws Exception {
         return ((msg instanceof TextWebSocketFrame ||
                 msg instanceof BinaryWebSocketFrame) &&
                    (((WebSocketFrame) msg).rsv() & WebSocketExtension.RSV1) == 0) ||
-               (msg instanceof ContinuationWebSocketFrame && compressing);
+               (msg instanceof ContinuationWebSocketFrame && compressing) ||
+               (msg instanceof PreEncodedWebSocketFrame && acceptPreEncoded((PreEncodedWebSocketFrame) msg));
+    }
+
+    /**
+     * A pre-encoded frame which was compressed without context takeover can only be sent compressed if this encoder
+     * does not use context takeover either, as the receiver would otherwise use a different context than this encoder,
+     * and if the window of the receiver is large enough.
+     */
+    private boolean acceptPreEncoded(PreEncodedWebSocketFrame msg) {
+        int windowBits = msg.deflateWindowBits();
+        return windowBits != 0 && windowBits <= windowSize() && noContext() && !compressing;
     }
 
     @Override
@@ -63,6 +84,10 @@ class PerMessageDeflateEncoder extends DeflateEncoder {
     @Override
     protected void encode(ChannelHandlerContext ctx, WebSocketFrame msg,
             List<Object> out) throws Exception {
+        if (msg instanceof PreEncodedWebSocketFrame) {
+            out.add(((PreEncodedWebSocketFrame) msg).retainedDeflatedFrame());
+            return;
+        }
         super.encode(ctx, msg, out);
 
         if (msg.isFinalFragment()) {
@@ -46,6 +46,9 @@ public final class PerMessageDeflateServerExtensionHandshaker implements WebSock
     private final int preferredClientWindowSize;
     private final boolean allowServerNoContext;
     private final boolean preferredClientNoContext;
+    private final int maxServerWindowSize;
+    private final int minServerWindowSize;
+    private final DeflateCodecPool pool;
 
     /**
      * Constructor with default configuration.
@@ -87,6 +90,62 @@ public final class PerMessageDeflateServerExtensionHandshaker implements WebSock
         this.preferredClientWindowSize = preferredClientWindowSize;
         this.allowServerNoContext = allowServerNoContext;
         this.preferredClientNoContext = preferredClientNoContext;
+        maxServerWindowSize = MAX_WINDOW_SIZE;
+        minServerWindowSize = MIN_WINDOW_SIZE;
+        pool = null;
+    }
+
+    /**
+     * Constructor for a handshaker which always disables the context takeover of the server, and the one of the
+     * client if it offers to. The compressors and decompressors are then only borrowed from a pool while a message is
+     * processed, so mostly idle connections use a lot less memory, at the cost of a worse compression ratio as every
+     * message is compressed on its own. The pools are shared by all handshakers: every thread, and so every
+     * {@link io.netty.channel.EventLoop}, has one per compression level, so a handshaker may be created per
+     * {@link io.netty.channel.Channel}.
+     * <p>
+     * A window size smaller than 15 is only supported if JZlib is on the classpath. Without it, offers which request
+     * a smaller <tt>server_max_window_bits</tt> are declined.
+     *
+     * @param compressionLevel
+     *            Compression level between 0 and 9.
+     * @param maxServerWindowSize
+     *            the maximum window size the server compresses with, which is sent as
+     *            <tt>server_max_window_bits</tt> if it is smaller than 15. A smaller window reduces the memory
+     *            used by a compressor, but requires JZlib.
+     * @param preferredClientWindowSize
+     *            indicates the preferred client window size to use if client inflater is customizable.
+     * @param maxPooledCodecs
+     *            the maximum number of idle compressors, per window size, and decompressors which are kept by
+     *            every thread when they are returned by this handshaker.
+     */
+    public PerMessageDeflateServerExtensionHandshaker(int compressionLevel, int maxServerWindowSize,
+            int preferredClientWindowSize, int maxPooledCodecs) {
+        this(compressionLevel, maxServerWindowSize, preferredClientWindowSize, maxPooledCodecs,
+             DeflateCodecPool.minWindowBits());
+    }
+
+    PerMessageDeflateServerExtensionHandshaker(int compressionLevel, int maxServerWindowSize,
+            int preferredClientWindowSize, int maxPooledCodecs, int minServerWindowSize) {
+        if (maxServerWindowSize > MAX_WINDOW_SIZE || maxServerWindowSize < MIN_WINDOW_SIZE) {
+            throw new IllegalArgumentException(
+                    "maxServerWindowSize: " + maxServerWindowSize + " (expected: 8-15)");
+        }
+        if (maxServerWindowSize < minServerWindowSize) {
+            throw new IllegalArgumentException("maxServerWindowSize: " + maxServerWindowSize +
+                    " (expected: " + minServerWindowSize + "-15 as JZlib is unavailable)");
+        }
+        if (preferredClientWindowSize > MAX_WINDOW_SIZE || preferredClientWindowSize < MIN_WINDOW_SIZE) {
+            throw new IllegalArgumentException(
+                    "preferredClientWindowSize: " + preferredClientWindowSize + " (expected: 8-15)");
+        }
+        pool = new DeflateCodecPool(compressionLevel, maxPooledCodecs);
+        this.compressionLevel = compressionLevel;
+        this.maxServerWindowSize = maxServerWindowSize;
+        this.minServerWindowSize = minServerWindowSize;
+        this.preferredClientWindowSize = preferredClientWindowSize;
+        allowServerWindowSize = true;
+        allowServerNoContext = true;
+        preferredClientNoContext = true;
     }
 
     @Override
@@ -113,7 +172,7 @@ public final class PerMessageDeflateServerExtensionHandshaker implements WebSock
                 // use provided windowSize if it is allowed
                 if (allowServerWindowSize) {
                     serverWindowSize = Integer.parseInt(parameter.getValue());
-                    if (serverWindowSize > MAX_WINDOW_SIZE || serverWindowSize < MIN_WINDOW_SIZE) {
+                    if (serverWindowSize > MAX_WINDOW_SIZE || serverWindowSize < minServerWindowSize) {
                         deflateEnabled = false;
                     }
                 } else {
@@ -135,9 +194,15 @@ public final class PerMessageDeflateServerExtensionHandshaker implements WebSock
             }
         }
 
+        if (pool != null) {
+            // The server may always disable its context takeover and use a smaller window.
+            serverNoContext = true;
+            serverWindowSize = Math.min(serverWindowSize, maxServerWindowSize);
+        }
+
         if (deflateEnabled) {
             return new PermessageDeflateExtension(compressionLevel, serverNoContext,
-                    serverWindowSize, clientNoContext, clientWindowSize);
+                    serverWindowSize, clientNoContext, clientWindowSize, pool);
         } else {
             return null;
         }
@@ -150,14 +215,16 @@ public final class PerMessageDeflateServerExtensionHandshaker implements WebSock
         private final int serverWindowSize;
         private final boolean clientNoContext;
         private final int clientWindowSize;
+        private final DeflateCodecPool pool;
 
         public PermessageDeflateExtension(int compressionLevel, boolean serverNoContext,
-                int serverWindowSize, boolean clientNoContext, int clientWindowSize) {
+                int serverWindowSize, boolean clientNoContext, int clientWindowSize, DeflateCodecPool pool) {
             this.compressionLevel = compressionLevel;
             this.serverNoContext = serverNoContext;
             this.serverWindowSize = serverWindowSize;
             this.clientNoContext = clientNoContext;
             this.clientWindowSize = clientWindowSize;
+            this.pool = pool;
         }
 
         @Override
@@ -167,12 +234,20 @@ public final class PerMessageDeflateServerExtensionHandshaker implements WebSock
 
         @Override
         public WebSocketExtensionEncoder newExtensionEncoder() {
-            return new PerMessageDeflateEncoder(compressionLevel, clientWindowSize, clientNoContext);
+            // The server compresses with its own window size and context takeover.
+            if (pool != null) {
+                return new PerMessageDeflateEncoder(pool, serverWindowSize);
+            }
+            return new PerMessageDeflateEncoder(compressionLevel, serverWindowSize, serverNoContext);
         }
 
         @Override
         public WebSocketExtensionDecoder newExtensionDecoder() {
-            return new PerMessageDeflateDecoder(serverNoContext);
+            // The server decompresses with the context takeover of the client.
+            if (pool != null && clientNoContext) {
+                return new PerMessageDeflateDecoder(pool);
+            }
+            return new PerMessageDeflateDecoder(clientNoContext);
         }
 
         @Override
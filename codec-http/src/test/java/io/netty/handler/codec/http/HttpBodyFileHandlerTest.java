@@ -0,0 +1,209 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+public class HttpBodyFileHandlerTest {
+
+    private final List<HttpBodyFileCompletionEvent> events = new ArrayList<HttpBodyFileCompletionEvent>();
+    private final Queue<Runnable> tasks = new ArrayDeque<Runnable>();
+    private final Executor executor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+    };
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("netty-body-test-", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdir());
+    }
+
+    @After
+    public void tearDown() {
+        for (HttpBodyFileCompletionEvent event : events) {
+            if (event.file() != null) {
+                event.file().delete();
+            }
+        }
+        assertTrue(directory.delete());
+    }
+
+    @Test
+    public void testWriteBody() throws IOException {
+        EmbeddedChannel ch = newChannel(new HttpBodyFileHandler(directory));
+        HttpRequest request = newRequest();
+        CompositeByteBuf composite = Unpooled.compositeBuffer();
+        composite.addComponent(true, Unpooled.directBuffer().writeBytes(bytes("abc")));
+        composite.addComponent(true, Unpooled.wrappedBuffer(bytes("def")));
+        LastHttpContent last = new DefaultLastHttpContent(Unpooled.directBuffer().writeBytes(bytes("ghi")));
+        last.trailingHeaders().set("checksum", "42");
+
+        assertTrue(ch.writeInbound(request, new DefaultHttpContent(composite), last));
+        assertSame(request, ch.readInbound());
+        assertNull(ch.readInbound());
+        assertEquals(0, composite.refCnt());
+        assertEquals(0, last.refCnt());
+
+        assertEquals(1, events.size());
+        HttpBodyFileCompletionEvent event = events.get(0);
+        assertTrue(event.isSuccess());
+        assertSame(request, event.request());
+        assertEquals(9, event.size());
+        assertEquals("42", event.trailingHeaders().get("checksum"));
+        assertEquals("abcdefghi", read(event.file()));
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testWriteFullRequest() throws IOException {
+        EmbeddedChannel ch = newChannel(new HttpBodyFileHandler(directory));
+        FullHttpRequest request = new DefaultFullHttpRequest(
+                HttpVersion.HTTP_1_1, HttpMethod.PUT, "/artifact", Unpooled.wrappedBuffer(bytes("content")));
+        HttpUtil.setContentLength(request, 7);
+
+        assertTrue(ch.writeInbound(request));
+        HttpRequest forwarded = ch.readInbound();
+        assertFalse(forwarded instanceof FullHttpRequest);
+        assertEquals("/artifact", forwarded.uri());
+        assertEquals(1, events.size());
+        assertEquals("content", read(events.get(0).file()));
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testPassThroughRequestsWithoutBody() {
+        EmbeddedChannel ch = newChannel(new HttpBodyFileHandler(directory));
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
+        assertTrue(ch.writeInbound(request, LastHttpContent.EMPTY_LAST_CONTENT));
+        assertSame(request, ch.readInbound());
+        assertSame(LastHttpContent.EMPTY_LAST_CONTENT, ch.readInbound());
+        assertTrue(events.isEmpty());
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testBackpressureAndOrder() throws IOException {
+        EmbeddedChannel ch = newChannel(new HttpBodyFileHandler(directory, executor, 8));
+        HttpRequest first = newRequest();
+        HttpRequest second = newRequest();
+
+        ch.writeInbound(first, new DefaultHttpContent(Unpooled.wrappedBuffer(bytes("12345"))));
+        assertTrue(ch.config().isAutoRead());
+        ch.writeInbound(new DefaultHttpContent(Unpooled.wrappedBuffer(bytes("67890"))));
+        assertFalse(ch.config().isAutoRead());
+        runTasks();
+        assertTrue(ch.config().isAutoRead());
+
+        // The second request is held back until the body of the first one is complete.
+        ch.writeInbound(LastHttpContent.EMPTY_LAST_CONTENT, second);
+        assertSame(first, ch.readInbound());
+        assertNull(ch.readInbound());
+        assertTrue(events.isEmpty());
+        runTasks();
+        assertEquals(1, events.size());
+        assertEquals("1234567890", read(events.get(0).file()));
+        assertSame(second, ch.readInbound());
+
+        ch.writeInbound(new DefaultLastHttpContent(Unpooled.wrappedBuffer(bytes("x"))));
+        runTasks();
+        assertEquals(2, events.size());
+        assertEquals("x", read(events.get(1).file()));
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testChannelClosedBeforeBodyIsComplete() {
+        EmbeddedChannel ch = newChannel(new HttpBodyFileHandler(directory));
+        ch.writeInbound(newRequest(), new DefaultHttpContent(Unpooled.wrappedBuffer(bytes("abc"))));
+        ch.finishAndReleaseAll();
+
+        assertEquals(1, events.size());
+        HttpBodyFileCompletionEvent event = events.get(0);
+        assertFalse(event.isSuccess());
+        assertTrue(event.cause() instanceof ClosedChannelException);
+        assertFalse(event.file().exists());
+    }
+
+    private EmbeddedChannel newChannel(HttpBodyFileHandler handler) {
+        return new EmbeddedChannel(handler, new ChannelInboundHandlerAdapter() {
+            @Override
+            public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+                events.add((HttpBodyFileCompletionEvent) evt);
+            }
+        });
+    }
+
+    private void runTasks() {
+        for (;;) {
+            Runnable task = tasks.poll();
+            if (task == null) {
+                break;
+            }
+            task.run();
+        }
+    }
+
+    private static HttpRequest newRequest() {
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.PUT, "/artifact");
+        HttpUtil.setTransferEncodingChunked(request, true);
+        return request;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(CharsetUtil.US_ASCII);
+    }
+
+    private static String read(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            byte[] bytes = new byte[(int) file.length()];
+            int read = 0;
+            while (read < bytes.length) {
+                read += in.read(bytes, read, bytes.length - read);
+            }
+            return new String(bytes, CharsetUtil.US_ASCII);
+        } finally {
+            in.close();
+        }
+    }
+}
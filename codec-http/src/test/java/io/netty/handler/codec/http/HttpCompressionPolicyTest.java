@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HttpCompressionPolicyTest {
+
+    @Test
+    public void testMinContentLength() {
+        HttpCompressionPolicy policy = HttpCompressionPolicy.builder().minContentLength(100).build();
+        assertFalse(policy.isCompressible(null, "text/plain", 99));
+        assertTrue(policy.isCompressible(null, "text/plain", 100));
+        assertTrue(policy.isCompressible(null, "text/plain", -1));
+        assertEquals(1, policy.skippedResponses());
+    }
+
+    @Test
+    public void testExcludedContentTypes() {
+        HttpCompressionPolicy policy = HttpCompressionPolicy.builder().minContentLength(0).build();
+        assertFalse(policy.isCompressible(null, "image/png", -1));
+        assertFalse(policy.isCompressible(null, "Video/MP4; codecs=\"avc1\"", -1));
+        assertTrue(policy.isCompressible(null, "image/svg+xml", -1));
+        assertTrue(policy.isCompressible(null, "application/json; charset=utf-8", -1));
+        assertTrue(policy.isCompressible(null, null, -1));
+
+        policy = HttpCompressionPolicy.builder().excludedContentTypes("application/*").build();
+        assertFalse(policy.isCompressible(null, "application/json", -1));
+        assertTrue(policy.isCompressible(null, "image/png", -1));
+    }
+
+    @Test
+    public void testAdaptiveCompression() {
+        HttpCompressionPolicy policy = HttpCompressionPolicy.builder().adaptive(0.9, 2, 3).build();
+        policy.record("/good", 1000, 100, 10);
+        policy.record("/good", 1000, 100, 10);
+        policy.record("/bad", 1000, 990, 10);
+        assertTrue(policy.isCompressible("/bad", null, -1));
+        policy.record("/bad", 1000, 1010, 10);
+
+        assertFalse(policy.isDisabled("/good"));
+        assertTrue(policy.isCompressible("/good", null, -1));
+        assertTrue(policy.isDisabled("/bad"));
+        assertFalse(policy.isCompressible("/bad", null, -1));
+        assertFalse(policy.isCompressible("/bad", null, -1));
+        // Every third response probes the route.
+        assertTrue(policy.isCompressible("/bad", null, -1));
+        policy.record("/bad", 1000, 500, 10);
+        assertFalse(policy.isDisabled("/bad"));
+
+        assertEquals(5, policy.compressedResponses());
+        assertEquals(2, policy.skippedResponses());
+        assertEquals(5000, policy.uncompressedBytes());
+        assertEquals(2700, policy.compressedBytes());
+        assertEquals(2300, policy.bytesSaved());
+        assertEquals(50, policy.compressionNanos());
+    }
+
+    @Test
+    public void testMaxRoutes() {
+        HttpCompressionPolicy policy = HttpCompressionPolicy.builder().adaptive(0.5, 1, 10).maxRoutes(1).build();
+        policy.record("/a", 100, 100, 1);
+        policy.record("/b", 100, 100, 1);
+        assertTrue(policy.isDisabled("/a"));
+        assertFalse(policy.isDisabled("/b"));
+    }
+}
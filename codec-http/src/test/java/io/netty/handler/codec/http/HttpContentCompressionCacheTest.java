@@ -0,0 +1,74 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HttpContentCompressionCacheTest {
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() {
+        HttpContentCompressionCache cache = new HttpContentCompressionCache(300, 100);
+        ByteBuf a = Unpooled.directBuffer().writeZero(100);
+        ByteBuf b = Unpooled.directBuffer().writeZero(100);
+        ByteBuf c = Unpooled.directBuffer().writeZero(100);
+        cache.put("/", "a", "gzip", a);
+        cache.put("/", "b", "gzip", b);
+        cache.put("/", "c", "gzip", c);
+        assertEquals(300, cache.usedCapacity());
+
+        // Access a, so b is the least recently used entry.
+        cache.get("/", "a", "gzip").release();
+        ByteBuf d = Unpooled.directBuffer().writeZero(100);
+        cache.put("/", "d", "gzip", d);
+        assertEquals(3, cache.size());
+        assertEquals(300, cache.usedCapacity());
+        assertEquals(0, b.refCnt());
+        assertNull(cache.get("/", "b", "gzip"));
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.usedCapacity());
+        assertEquals(0, a.refCnt());
+        assertEquals(0, c.refCnt());
+        assertEquals(0, d.refCnt());
+    }
+
+    @Test
+    public void testSlicesOutliveEviction() {
+        HttpContentCompressionCache cache = new HttpContentCompressionCache(100, 100);
+        cache.put("/", "a", "br", Unpooled.directBuffer().writeLong(42));
+        ByteBuf slice = cache.get("/", "a", "br");
+        assertNull(cache.get("/", "a", "gzip"));
+        cache.invalidate("a");
+        assertEquals(0, cache.size());
+        assertEquals(42, slice.readLong());
+        assertTrue(slice.release());
+    }
+
+    @Test
+    public void testEntriesLargerThanMaxEntrySizeAreNotCached() {
+        HttpContentCompressionCache cache = new HttpContentCompressionCache(1000, 10);
+        ByteBuf content = Unpooled.directBuffer().writeZero(11);
+        cache.put("/", "a", "gzip", content);
+        assertEquals(0, content.refCnt());
+        assertEquals(0, cache.size());
+    }
+}
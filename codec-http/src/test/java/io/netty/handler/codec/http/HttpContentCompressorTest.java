@@ -19,7 +19,11 @@ import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.compression.Brotli;
+import io.netty.handler.codec.compression.CompressionOptions;
+import io.netty.handler.codec.compression.StandardCompressionOptions;
 import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.compression.Zstd;
 import io.netty.util.CharsetUtil;
 import io.netty.util.ReferenceCountUtil;
 import org.junit.Test;
@@ -30,6 +34,7 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
 
 public class HttpContentCompressorTest {
 
@@ -496,6 +501,246 @@ public class HttpContentCompressorTest {
         assertTrue(ch.finishAndReleaseAll());
     }
 
+    @Test
+    public void testZstdIsPreferred() throws Exception {
+        assumeTrue(Zstd.isAvailable());
+        String[] tests = {
+            // Accept-Encoding -> Content-Encoding
+            "zstd", "zstd",
+            "gzip, zstd", "zstd",
+            "gzip;q=0.8, zstd;q=0.5", "gzip",
+            "zstd;q=0, gzip", "gzip",
+            "br, zstd;q=0.1", "zstd",
+            "zstdx, deflate", "deflate",
+        };
+        for (int i = 0; i < tests.length; i += 2) {
+            EmbeddedChannel ch = new EmbeddedChannel(new HttpContentCompressor(0,
+                    StandardCompressionOptions.gzip(), StandardCompressionOptions.deflate(),
+                    StandardCompressionOptions.zstd()));
+            FullHttpRequest req = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
+            req.headers().set(HttpHeaderNames.ACCEPT_ENCODING, tests[i]);
+            assertTrue(ch.writeInbound(req));
+            ch.releaseInbound();
+            assertTrue(ch.writeOutbound(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                    Unpooled.copiedBuffer("Hello, World", CharsetUtil.US_ASCII))));
+            HttpResponse res = ch.readOutbound();
+            assertEquals(tests[i], tests[i + 1], res.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+            assertTrue(ch.finishAndReleaseAll());
+        }
+    }
+
+    @Test
+    public void testZstdRoundTrip() throws Exception {
+        assumeTrue(Zstd.isAvailable());
+        assertRoundTrip("zstd", StandardCompressionOptions.gzip(), StandardCompressionOptions.zstd());
+    }
+
+    @Test
+    public void testBrotliIsPreferredOverGzip() throws Exception {
+        assumeTrue("Brotli is unavailable: " + Brotli.unavailabilityCause(), Brotli.isAvailable());
+        String[] tests = {
+            // Accept-Encoding -> Content-Encoding
+            "br", "br",
+            "gzip, deflate, br", "br",
+            "gzip;q=1.0, br;q=0.9", "gzip",
+            "br;q=0, gzip", "gzip",
+            "deflate, br;q=0.5", "br",
+        };
+        for (int i = 0; i < tests.length; i += 2) {
+            EmbeddedChannel ch = new EmbeddedChannel(new HttpContentCompressor(0,
+                    StandardCompressionOptions.gzip(), StandardCompressionOptions.brotli()));
+            FullHttpRequest req = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
+            req.headers().set(HttpHeaderNames.ACCEPT_ENCODING, tests[i]);
+            assertTrue(ch.writeInbound(req));
+            ch.releaseInbound();
+            assertTrue(ch.writeOutbound(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                    Unpooled.copiedBuffer("Hello, World", CharsetUtil.US_ASCII))));
+            HttpResponse res = ch.readOutbound();
+            assertEquals(tests[i], tests[i + 1], res.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+            assertTrue(ch.finishAndReleaseAll());
+        }
+    }
+
+    @Test
+    public void testBrotliRoundTrip() throws Exception {
+        assumeTrue("Brotli is unavailable: " + Brotli.unavailabilityCause(), Brotli.isAvailable());
+        assertRoundTrip("br", StandardCompressionOptions.gzip(), StandardCompressionOptions.brotli(11, 16));
+    }
+
+    @Test
+    public void testCompressedContentIsCached() throws Exception {
+        HttpContentCompressionCache cache = new HttpContentCompressionCache(1024 * 1024, 64 * 1024);
+        byte[] content = new byte[4096];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) ('a' + i % 7);
+        }
+        String[] compressed = new String[3];
+        for (int i = 0; i < compressed.length; i++) {
+            EmbeddedChannel ch = new EmbeddedChannel(new HttpContentCompressor(0, cache));
+            assertTrue(ch.writeInbound(newRequest()));
+            ch.releaseInbound();
+            FullHttpResponse res = new DefaultFullHttpResponse(
+                    HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.wrappedBuffer(content));
+            res.headers().set(HttpHeaderNames.ETAG, "\"v1\"");
+            assertTrue(ch.writeOutbound(res));
+            HttpResponse encodedRes = ch.readOutbound();
+            assertEquals("gzip", encodedRes.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+            StringBuilder hex = new StringBuilder();
+            for (;;) {
+                HttpContent chunk = ch.readOutbound();
+                if (chunk == null) {
+                    break;
+                }
+                hex.append(ByteBufUtil.hexDump(chunk.content()));
+                chunk.release();
+            }
+            compressed[i] = hex.toString();
+            assertFalse(ch.finish());
+        }
+        assertEquals(compressed[0], compressed[1]);
+        assertEquals(compressed[0], compressed[2]);
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.misses());
+        assertEquals(2, cache.hits());
+
+        cache.invalidate("\"v1\"");
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.usedCapacity());
+    }
+
+    @Test
+    public void testCacheIsKeyedByUriAndIgnoresWeakETags() throws Exception {
+        HttpContentCompressionCache cache = new HttpContentCompressionCache(1024 * 1024, 64 * 1024);
+        String[][] requests = { { "/a", "\"v1\"" }, { "/b?q=1", "\"v1\"" }, { "/a", "W/\"v2\"" } };
+        for (String[] request : requests) {
+            EmbeddedChannel ch = new EmbeddedChannel(new HttpContentCompressor(0, cache));
+            FullHttpRequest req = newRequest();
+            req.setUri(request[0]);
+            assertTrue(ch.writeInbound(req));
+            ch.releaseInbound();
+            FullHttpResponse res = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK,
+                    Unpooled.copiedBuffer("Hello, World", CharsetUtil.US_ASCII));
+            res.headers().set(HttpHeaderNames.ETAG, request[1]);
+            assertTrue(ch.writeOutbound(res));
+            assertTrue(ch.finishAndReleaseAll());
+        }
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.misses());
+        assertEquals(0, cache.hits());
+        cache.clear();
+    }
+
+    @Test
+    public void testCompressionPolicy() throws Exception {
+        HttpCompressionPolicy policy = HttpCompressionPolicy.builder().minContentLength(100).build();
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpContentCompressor(policy, null));
+
+        assertTrue(ch.writeInbound(newRequest()));
+        FullHttpResponse small = new DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.wrappedBuffer(new byte[99]));
+        assertTrue(ch.writeOutbound(small));
+        HttpResponse res = ch.readOutbound();
+        assertFalse(res.headers().contains(HttpHeaderNames.CONTENT_ENCODING));
+        ReferenceCountUtil.release(res);
+
+        assertTrue(ch.writeInbound(newRequest()));
+        FullHttpResponse image = new DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.wrappedBuffer(new byte[1000]));
+        image.headers().set(HttpHeaderNames.CONTENT_TYPE, "image/png");
+        assertTrue(ch.writeOutbound(image));
+        res = ch.readOutbound();
+        assertFalse(res.headers().contains(HttpHeaderNames.CONTENT_ENCODING));
+        ReferenceCountUtil.release(res);
+
+        assertTrue(ch.writeInbound(newRequest()));
+        ch.writeOutbound(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+        ch.writeOutbound(new DefaultHttpContent(Unpooled.wrappedBuffer(new byte[500])));
+        ch.writeOutbound(new DefaultLastHttpContent(Unpooled.wrappedBuffer(new byte[500])));
+        res = ch.readOutbound();
+        assertEquals("gzip", res.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+        long compressedBytes = 0;
+        for (;;) {
+            HttpContent chunk = ch.readOutbound();
+            if (chunk == null) {
+                break;
+            }
+            compressedBytes += chunk.content().readableBytes();
+            chunk.release();
+        }
+        assertTrue(ch.finishAndReleaseAll());
+
+        assertEquals(2, policy.skippedResponses());
+        assertEquals(1, policy.compressedResponses());
+        assertEquals(1000, policy.uncompressedBytes());
+        assertEquals(compressedBytes, policy.compressedBytes());
+    }
+
+    @Test
+    public void testCompressionIsDisabledForRoutesWithPoorRatio() throws Exception {
+        HttpCompressionPolicy policy = HttpCompressionPolicy.builder()
+                .minContentLength(0).adaptive(0.9, 1, 100).build();
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpContentCompressor(policy, null));
+        byte[] random = new byte[1024];
+        new java.util.Random(42).nextBytes(random);
+        for (int i = 0; i < 2; i++) {
+            FullHttpRequest req = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/random?i=" + i);
+            req.headers().set(HttpHeaderNames.ACCEPT_ENCODING, "gzip");
+            assertTrue(ch.writeInbound(req));
+            assertTrue(ch.writeOutbound(new DefaultFullHttpResponse(
+                    HttpVersion.HTTP_1_1, HttpResponseStatus.OK, Unpooled.wrappedBuffer(random))));
+            HttpResponse res = ch.readOutbound();
+            assertEquals(i == 0 ? "gzip" : null, res.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+            ReferenceCountUtil.release(res);
+            ch.releaseOutbound();
+        }
+        assertTrue(policy.isDisabled("/random"));
+        assertTrue(ch.finishAndReleaseAll());
+    }
+
+    private static void assertRoundTrip(String contentEncoding, CompressionOptions... compressionOptions) {
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpContentCompressor(0, compressionOptions));
+        FullHttpRequest req = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
+        req.headers().set(HttpHeaderNames.ACCEPT_ENCODING, "gzip, " + contentEncoding);
+        assertTrue(ch.writeInbound(req));
+        ch.releaseInbound();
+
+        ch.writeOutbound(new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+        ch.writeOutbound(new DefaultHttpContent(Unpooled.copiedBuffer("Hello, ", CharsetUtil.US_ASCII)));
+        ch.writeOutbound(new DefaultLastHttpContent(Unpooled.copiedBuffer("World", CharsetUtil.US_ASCII)));
+
+        EmbeddedChannel decoder = new EmbeddedChannel(new HttpContentDecompressor());
+        for (;;) {
+            Object o = ch.readOutbound();
+            if (o == null) {
+                break;
+            }
+            if (o instanceof HttpResponse) {
+                HttpResponse res = (HttpResponse) o;
+                assertEquals(contentEncoding, res.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+                // The decompressor only handles messages which are decoded by an HttpObjectDecoder.
+                decoder.writeInbound(new DefaultHttpResponse(res.protocolVersion(), res.status(), res.headers()));
+                ReferenceCountUtil.release(o);
+            } else {
+                decoder.writeInbound(o);
+            }
+        }
+        assertFalse(ch.finish());
+
+        HttpResponse res = decoder.readInbound();
+        assertFalse(res.headers().contains(HttpHeaderNames.CONTENT_ENCODING));
+        StringBuilder content = new StringBuilder();
+        for (;;) {
+            HttpContent chunk = decoder.readInbound();
+            if (chunk == null) {
+                break;
+            }
+            content.append(chunk.content().toString(CharsetUtil.US_ASCII));
+            chunk.release();
+        }
+        assertEquals("Hello, World", content.toString());
+        assertFalse(decoder.finish());
+    }
+
     private static FullHttpRequest newRequest() {
         FullHttpRequest req = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
         req.headers().set(HttpHeaderNames.ACCEPT_ENCODING, "gzip");
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class HttpPrecompressedFileTest {
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("netty-", ".txt");
+        write(file, 100);
+    }
+
+    @After
+    public void tearDown() {
+        for (String suffix : new String[] { "", ".br", ".zst", ".gz" }) {
+            new File(file.getPath() + suffix).delete();
+        }
+    }
+
+    @Test
+    public void testSelectsSidecarFile() throws IOException {
+        write(new File(file.getPath() + ".gz"), 40);
+        write(new File(file.getPath() + ".br"), 30);
+
+        assertSelected("gzip, deflate, br", ".br", "br", 30);
+        assertSelected("gzip, br;q=0.5", ".gz", "gzip", 40);
+        assertSelected("gzip;q=0, br;q=0", "", null, 100);
+        assertSelected("zstd", "", null, 100);
+        assertSelected(null, "", null, 100);
+    }
+
+    @Test
+    public void testIgnoresStaleSidecarFile() throws IOException {
+        File gz = new File(file.getPath() + ".gz");
+        write(gz, 40);
+        assertTrue(gz.setLastModified(file.lastModified() - 60000));
+        assertSelected("gzip", "", null, 100);
+    }
+
+    @Test
+    public void testNewResponse() throws IOException {
+        write(new File(file.getPath() + ".gz"), 40);
+        HttpResponse response = HttpPrecompressedFile.select(file, "gzip")
+                .newResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        assertEquals("40", response.headers().get(HttpHeaderNames.CONTENT_LENGTH));
+        assertEquals("gzip", response.headers().get(HttpHeaderNames.CONTENT_ENCODING));
+        assertEquals("accept-encoding", response.headers().get(HttpHeaderNames.VARY));
+    }
+
+    @Test
+    public void testUncompressedFileIsNotCompressed() {
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpContentCompressor());
+        FullHttpRequest req = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
+        req.headers().set(HttpHeaderNames.ACCEPT_ENCODING, "gzip");
+        assertTrue(ch.writeInbound(req));
+        ch.releaseInbound();
+
+        HttpResponse response = HttpPrecompressedFile.select(file, "gzip")
+                .newResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        assertFalse(response.headers().contains(HttpHeaderNames.CONTENT_ENCODING));
+        assertTrue(ch.writeOutbound(response, LastHttpContent.EMPTY_LAST_CONTENT));
+        assertSame(response, ch.readOutbound());
+        assertFalse(response.headers().contains(HttpHeaderNames.CONTENT_ENCODING));
+        assertEquals("100", response.headers().get(HttpHeaderNames.CONTENT_LENGTH));
+        assertSame(LastHttpContent.EMPTY_LAST_CONTENT, ch.readOutbound());
+        assertFalse(ch.finish());
+    }
+
+    private void assertSelected(String acceptEncoding, String suffix, String contentEncoding, long length) {
+        HttpPrecompressedFile selected = HttpPrecompressedFile.select(file, acceptEncoding);
+        assertEquals(new File(file.getPath() + suffix), selected.file());
+        assertEquals(contentEncoding, selected.contentEncoding());
+        assertEquals(length, selected.length());
+    }
+
+    private static void write(File file, int length) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[length]);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -15,11 +15,14 @@
  */
 package io.netty.handler.codec.http.multipart;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
 import org.junit.Test;
 
 import java.io.IOException;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -77,4 +80,23 @@ public class DiskFileUploadTest {
         assertEquals(2, f.getFile().length());
         f.delete();
     }
+
+    @Test
+    public void testAddCompositeContent() throws IOException {
+        DiskFileUpload f =
+                new DiskFileUpload("d1", "d1", "application/json", null, null, 0);
+        CompositeByteBuf composite = Unpooled.compositeBuffer();
+        composite.addComponent(true, Unpooled.directBuffer().writeBytes(new byte[] { 1, 2 }));
+        composite.addComponent(true, Unpooled.wrappedBuffer(new byte[] { 3, 4, 5 }));
+        ByteBuf direct = Unpooled.directBuffer().writeBytes(new byte[] { 6 });
+
+        f.addContent(composite, false);
+        f.addContent(direct, true);
+
+        assertEquals(0, composite.refCnt());
+        assertEquals(0, direct.refCnt());
+        assertEquals(6, f.length());
+        assertArrayEquals(new byte[] { 1, 2, 3, 4, 5, 6 }, f.get());
+        f.delete();
+    }
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.multipart;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HttpPostMultipartStreamDecoderTest {
+
+    private static final String BOUNDARY = "dLV9Wyq26L_-JQxk6ferf-RT153LhOO";
+    private static final String BODY = "preamble\r\n" +
+            "--" + BOUNDARY + "\r\n" +
+            "Content-Disposition: form-data; name=\"field\"\r\n" +
+            "\r\n" +
+            "value\r\n" +
+            "--" + BOUNDARY + "  \r\n" +
+            "Content-Disposition: form-data; name=\"file\"; filename=\"a b.txt\"\r\n" +
+            "Content-Type: text/plain\r\n" +
+            "\r\n" +
+            "line 1\r\n--" + BOUNDARY.substring(0, 10) + "\r\nline 2\r\n" +
+            "--" + BOUNDARY + "\r\n" +
+            "Content-Disposition: form-data; name=\"empty\"\r\n" +
+            "\r\n" +
+            "\r\n" +
+            "--" + BOUNDARY + "--\r\n" +
+            "epilogue";
+
+    @Test
+    public void testDecodeInChunksOfAnySize() {
+        byte[] body = BODY.getBytes(CharsetUtil.UTF_8);
+        for (int chunkSize = 1; chunkSize <= body.length; chunkSize++) {
+            EmbeddedChannel ch = new EmbeddedChannel(new HttpPostMultipartStreamDecoder());
+            assertTrue(ch.writeInbound(newRequest()));
+            for (int i = 0; i < body.length; i += chunkSize) {
+                ByteBuf chunk = Unpooled.wrappedBuffer(body, i, Math.min(chunkSize, body.length - i));
+                ch.writeInbound(i + chunkSize >= body.length ?
+                        new DefaultLastHttpContent(chunk) : new DefaultHttpContent(chunk));
+            }
+            assertParts(ch);
+            assertFalse(ch.finish());
+        }
+    }
+
+    @Test
+    public void testDecodeFullRequest() {
+        ByteBuf body = Unpooled.copiedBuffer(BODY, CharsetUtil.UTF_8);
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload", body);
+        request.headers().set(HttpHeaderNames.CONTENT_TYPE, "multipart/form-data; boundary=" + BOUNDARY);
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpPostMultipartStreamDecoder());
+        assertTrue(ch.writeInbound(request));
+
+        HttpRequest decoded = ch.readInbound();
+        assertFalse(decoded instanceof FullHttpRequest);
+        assertEquals("/upload", decoded.uri());
+        HttpPostMultipartPart part = ch.readInbound();
+        assertEquals("field", part.name());
+        HttpPostMultipartContent content = ch.readInbound();
+        // The content is a slice of the received buffer.
+        assertSame(body, content.content().unwrap());
+        assertEquals("value", content.content().toString(CharsetUtil.UTF_8));
+        content.release();
+        assertTrue(ch.finishAndReleaseAll());
+        assertEquals(0, body.refCnt());
+    }
+
+    @Test
+    public void testPassThroughOtherRequests() {
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpPostMultipartStreamDecoder());
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/");
+        request.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json");
+        LastHttpContent last = new DefaultLastHttpContent(Unpooled.copiedBuffer("{}", CharsetUtil.UTF_8));
+        assertTrue(ch.writeInbound(request, last));
+        assertSame(request, ch.readInbound());
+        assertSame(last, ch.readInbound());
+        last.release();
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testTooLargeHeaders() {
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpPostMultipartStreamDecoder(32));
+        assertTrue(ch.writeInbound(newRequest()));
+        assertTrue(ch.readInbound() instanceof HttpRequest);
+        try {
+            ch.writeInbound(new DefaultHttpContent(Unpooled.copiedBuffer(BODY, CharsetUtil.UTF_8)));
+            fail();
+        } catch (DecoderException expected) {
+            // expected
+        }
+        assertFalse(ch.writeInbound(new DefaultLastHttpContent(Unpooled.copiedBuffer("x", CharsetUtil.UTF_8))));
+
+        // The next request is decoded again.
+        String body = "--" + BOUNDARY + "\r\nContent-Type: text/plain\r\n\r\nvalue\r\n--" + BOUNDARY + "--";
+        assertTrue(ch.writeInbound(newRequest(),
+                new DefaultLastHttpContent(Unpooled.copiedBuffer(body, CharsetUtil.UTF_8))));
+        assertTrue(ch.readInbound() instanceof HttpRequest);
+        assertEquals("text/plain", ((HttpPostMultipartPart) ch.readInbound()).contentType());
+        assertEquals("value", readContent(ch));
+        assertSame(LastHttpContent.EMPTY_LAST_CONTENT, ch.readInbound());
+        assertFalse(ch.finish());
+    }
+
+    @Test(expected = DecoderException.class)
+    public void testUnterminatedBody() {
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpPostMultipartStreamDecoder());
+        try {
+            ch.writeInbound(newRequest(), new DefaultLastHttpContent(
+                    Unpooled.copiedBuffer(BODY.substring(0, BODY.length() - 20), CharsetUtil.UTF_8)));
+        } finally {
+            ch.finishAndReleaseAll();
+        }
+    }
+
+    @Test
+    public void testInvalidCharset() {
+        EmbeddedChannel ch = new EmbeddedChannel(new HttpPostMultipartStreamDecoder());
+        for (String charset : new String[] { "no charset", "x-unsupported" }) {
+            HttpRequest request = newRequest();
+            request.headers().set(HttpHeaderNames.CONTENT_TYPE,
+                    "multipart/form-data; boundary=" + BOUNDARY + "; charset=" + charset);
+            try {
+                ch.writeInbound(request);
+                fail();
+            } catch (HttpPostRequestDecoder.ErrorDataDecoderException expected) {
+                // expected
+            }
+            // The rest of the request is discarded.
+            assertFalse(ch.writeInbound(new DefaultLastHttpContent(Unpooled.copiedBuffer(BODY, CharsetUtil.UTF_8))));
+        }
+        assertFalse(ch.finish());
+    }
+
+    private static HttpRequest newRequest() {
+        HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/upload");
+        request.headers().set(HttpHeaderNames.CONTENT_TYPE, "multipart/form-data; boundary=\"" + BOUNDARY + '"');
+        return request;
+    }
+
+    private static void assertParts(EmbeddedChannel ch) {
+        assertTrue(ch.readInbound() instanceof HttpRequest);
+
+        HttpPostMultipartPart part = ch.readInbound();
+        assertEquals("field", part.name());
+        assertFalse(part.isFileUpload());
+        assertEquals("value", readContent(ch));
+
+        part = ch.readInbound();
+        assertEquals("file", part.name());
+        assertEquals("a b.txt", part.filename());
+        assertEquals("text/plain", part.contentType());
+        assertEquals("line 1\r\n--" + BOUNDARY.substring(0, 10) + "\r\nline 2", readContent(ch));
+
+        part = ch.readInbound();
+        assertEquals("empty", part.name());
+        assertEquals("", readContent(ch));
+
+        assertSame(LastHttpContent.EMPTY_LAST_CONTENT, ch.readInbound());
+        assertNull(ch.readInbound());
+    }
+
+    private static String readContent(EmbeddedChannel ch) {
+        StringBuilder sb = new StringBuilder();
+        for (;;) {
+            HttpPostMultipartContent content = ch.readInbound();
+            sb.append(content.content().toString(CharsetUtil.UTF_8));
+            content.release();
+            if (content.isLast()) {
+                return sb.toString();
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http.websocketx;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.DefaultChannelId;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtension;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PreEncodedWebSocketFrameTest {
+
+    @Test
+    public void testEncodedLikeRegularFrames() {
+        for (int length : new int[] { 0, 125, 126, 0xFFFF, 0x10000 }) {
+            byte[] payload = new byte[length];
+            new Random(length).nextBytes(payload);
+            assertEncodedLikeRegularFrame(new BinaryWebSocketFrame(Unpooled.wrappedBuffer(payload)));
+        }
+        assertEncodedLikeRegularFrame(new TextWebSocketFrame(false, WebSocketExtension.RSV2, "fragment"));
+        assertEncodedLikeRegularFrame(new PingWebSocketFrame(Unpooled.wrappedBuffer(new byte[] { 1, 2 })));
+    }
+
+    private static void assertEncodedLikeRegularFrame(WebSocketFrame frame) {
+        EmbeddedChannel regular = new EmbeddedChannel(new WebSocket08FrameEncoder(false));
+        EmbeddedChannel preEncoded = new EmbeddedChannel(new WebSocket08FrameEncoder(false));
+        PreEncodedWebSocketFrame encoded = PreEncodedWebSocketFrame.encode(
+                ByteBufAllocator.DEFAULT, frame.retainedDuplicate());
+        assertEquals(frame.isFinalFragment(), encoded.isFinalFragment());
+        assertEquals(frame.rsv(), encoded.rsv());
+        assertEquals(0, encoded.deflateWindowBits());
+
+        assertTrue(regular.writeOutbound(frame));
+        assertTrue(preEncoded.writeOutbound(encoded));
+        ByteBuf expected = readAll(regular);
+        ByteBuf actual = readAll(preEncoded);
+        assertEquals(expected, actual);
+        expected.release();
+        actual.release();
+        assertEquals(0, encoded.refCnt());
+    }
+
+    @Test
+    public void testMaskingEncoderRejectsPreEncodedFrame() {
+        EmbeddedChannel ch = new EmbeddedChannel(new WebSocket08FrameEncoder(true));
+        PreEncodedWebSocketFrame encoded = PreEncodedWebSocketFrame.encode(
+                ByteBufAllocator.DEFAULT, new TextWebSocketFrame("text"));
+        try {
+            ch.writeOutbound(encoded);
+            fail();
+        } catch (EncoderException expected) {
+            assertTrue(expected.getCause() instanceof UnsupportedOperationException);
+        }
+        assertEquals(0, encoded.refCnt());
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testBroadcast() {
+        ChannelGroup group = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+        EmbeddedChannel[] channels = new EmbeddedChannel[3];
+        for (int i = 0; i < channels.length; i++) {
+            channels[i] = new EmbeddedChannel(DefaultChannelId.newInstance(), new WebSocket08FrameEncoder(false));
+            group.add(channels[i]);
+        }
+        TextWebSocketFrame frame = new TextWebSocketFrame("broadcast");
+        assertTrue(new WebSocketBroadcaster(group, 6, 15).broadcast(frame).isSuccess());
+        assertEquals(0, frame.refCnt());
+
+        for (EmbeddedChannel ch : channels) {
+            ByteBuf encoded = ch.readOutbound();
+            assertEquals(2 + 9, encoded.readableBytes());
+            assertEquals(0x81, encoded.getUnsignedByte(0));
+            encoded.release();
+            assertFalse(ch.finish());
+        }
+        group.close();
+    }
+
+    private static ByteBuf readAll(EmbeddedChannel ch) {
+        ByteBuf all = Unpooled.buffer();
+        for (;;) {
+            ByteBuf buf = ch.readOutbound();
+            if (buf == null) {
+                return all;
+            }
+            all.writeBytes(buf);
+            buf.release();
+        }
+    }
+}
@@ -15,8 +15,13 @@
  */
 package io.netty.handler.codec.http.websocketx;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import org.junit.Test;
 
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class WebSocketUtilTest {
@@ -40,4 +45,43 @@ public class WebSocketUtilTest {
         }
     }
 
+    @Test
+    public void testMask() {
+        testMask(Unpooled.buffer(64), Unpooled.buffer(64));
+        testMask(Unpooled.directBuffer(64), Unpooled.directBuffer(64));
+        testMask(Unpooled.buffer(64), Unpooled.directBuffer(64));
+        testMask(Unpooled.buffer(64).order(ByteOrder.LITTLE_ENDIAN), Unpooled.buffer(64));
+        testMask(Unpooled.directBuffer(64).order(ByteOrder.LITTLE_ENDIAN),
+                Unpooled.directBuffer(64).order(ByteOrder.LITTLE_ENDIAN));
+    }
+
+    private static void testMask(ByteBuf src, ByteBuf dst) {
+        byte[] key = { 0x12, (byte) 0x9A, 0x3F, (byte) 0xE1 };
+        int mask = (key[0] & 0xFF) << 24 | (key[1] & 0xFF) << 16 | (key[2] & 0xFF) << 8 | key[3] & 0xFF;
+        try {
+            for (int length = 0; length <= 20; length++) {
+                for (int offset = 0; offset < 4; offset++) {
+                    src.clear();
+                    for (int i = 0; i < offset + length; i++) {
+                        src.writeByte(i * 31);
+                    }
+                    dst.clear().writeZero(dst.capacity());
+
+                    WebSocketUtil.mask(mask, src, offset, dst, offset + 1, length);
+                    for (int i = 0; i < length; i++) {
+                        assertEquals(src.getByte(offset + i) ^ key[i % 4], dst.getByte(offset + 1 + i));
+                    }
+
+                    // Masking in place twice restores the bytes.
+                    WebSocketUtil.mask(mask, dst, offset + 1, dst, offset + 1, length);
+                    for (int i = 0; i < length; i++) {
+                        assertEquals(src.getByte(offset + i), dst.getByte(offset + 1 + i));
+                    }
+                }
+            }
+        } finally {
+            src.release();
+            dst.release();
+        }
+    }
 }
@@ -121,4 +121,40 @@ public class PerMessageDeflateClientExtensionHandshakerTest {
         // test
         assertNull(extension);
     }
+
+    @Test
+    public void testClientParametersApplyToEncoder() {
+        PerMessageDeflateClientExtensionHandshaker handshaker =
+                new PerMessageDeflateClientExtensionHandshaker(6, true, MAX_WINDOW_SIZE, true, false);
+
+        // The client compresses with client_max_window_bits and client_no_context_takeover.
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(CLIENT_MAX_WINDOW, "12");
+        parameters.put(CLIENT_NO_CONTEXT, null);
+        WebSocketClientExtension extension = handshaker.handshakeExtension(
+                new WebSocketExtensionData(PERMESSAGE_DEFLATE_EXTENSION, parameters));
+        assertNotNull(extension);
+        PerMessageDeflateEncoder encoder = (PerMessageDeflateEncoder) extension.newExtensionEncoder();
+        assertEquals(12, encoder.windowSize());
+        assertTrue(encoder.noContext());
+        assertFalse(((PerMessageDeflateDecoder) extension.newExtensionDecoder()).noContext());
+    }
+
+    @Test
+    public void testServerParametersApplyToDecoder() {
+        PerMessageDeflateClientExtensionHandshaker handshaker =
+                new PerMessageDeflateClientExtensionHandshaker(6, true, 10, true, true);
+
+        // The client decompresses with server_no_context_takeover, its own context is taken over.
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(SERVER_MAX_WINDOW, "10");
+        parameters.put(SERVER_NO_CONTEXT, null);
+        WebSocketClientExtension extension = handshaker.handshakeExtension(
+                new WebSocketExtensionData(PERMESSAGE_DEFLATE_EXTENSION, parameters));
+        assertNotNull(extension);
+        PerMessageDeflateEncoder encoder = (PerMessageDeflateEncoder) extension.newExtensionEncoder();
+        assertEquals(MAX_WINDOW_SIZE, encoder.windowSize());
+        assertFalse(encoder.noContext());
+        assertTrue(((PerMessageDeflateDecoder) extension.newExtensionDecoder()).noContext());
+    }
 }
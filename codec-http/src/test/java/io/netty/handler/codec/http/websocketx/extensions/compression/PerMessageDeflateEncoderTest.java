@@ -17,12 +17,17 @@ package io.netty.handler.codec.http.websocketx.extensions.compression;
 
 import static org.junit.Assert.*;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.compression.ZlibCodecFactory;
 import io.netty.handler.codec.compression.ZlibWrapper;
 import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
 import io.netty.handler.codec.http.websocketx.ContinuationWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.PreEncodedWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocket08FrameDecoder;
+import io.netty.handler.codec.http.websocketx.WebSocket08FrameEncoder;
 import io.netty.handler.codec.http.websocketx.extensions.WebSocketExtension;
 
 import java.util.Arrays;
@@ -157,4 +162,124 @@ public class PerMessageDeflateEncoderTest {
         assertTrue(Arrays.equals(finalPayload3, payload3));
         uncompressedPayload3.release();
     }
+
+    @Test
+    public void testPreEncodedFrame() {
+        String text = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+        PreEncodedWebSocketFrame frame = PreEncodedWebSocketFrame.encode(
+                ByteBufAllocator.DEFAULT, new TextWebSocketFrame(text), 6, 15);
+        assertEquals(15, frame.deflateWindowBits());
+
+        // Encoders with context takeover or a smaller window send the uncompressed frame.
+        assertSame(frame, writeOutbound(new PerMessageDeflateEncoder(9, 15, false), frame.retain()));
+        assertSame(frame, writeOutbound(new PerMessageDeflateEncoder(9, 10, true), frame.retain()));
+
+        PreEncodedWebSocketFrame deflated = writeOutbound(new PerMessageDeflateEncoder(9, 15, true), frame);
+        assertNotSame(frame, deflated);
+        assertEquals(WebSocketExtension.RSV1, deflated.rsv());
+
+        EmbeddedChannel encoder = new EmbeddedChannel(new WebSocket08FrameEncoder(false));
+        assertTrue(encoder.writeOutbound(deflated));
+        ByteBuf encoded = encoder.readOutbound();
+        assertTrue(encoded.readableBytes() < text.length());
+        assertFalse(encoder.finish());
+
+        EmbeddedChannel decoder = new EmbeddedChannel(
+                new WebSocket08FrameDecoder(false, true, 65536), new PerMessageDeflateDecoder(false));
+        assertTrue(decoder.writeInbound(encoded));
+        TextWebSocketFrame decoded = decoder.readInbound();
+        assertEquals(text, decoded.text());
+        decoded.release();
+        assertFalse(decoder.finish());
+    }
+
+    @Test
+    public void testPooledCompressors() {
+        DeflateCodecPool pool = new DeflateCodecPool(6, 1);
+        testPooledCompressors(pool, 15);
+        testPooledCompressors(pool, 10);
+    }
+
+    @Test
+    public void testPoolsAreShared() {
+        DeflateCodecPool pool1 = new DeflateCodecPool(5, 1);
+        DeflateCodecPool pool2 = new DeflateCodecPool(5, 1);
+        DeflateCodecPool.Compressor compressor = pool1.borrowCompressor(15);
+        pool1.release(compressor);
+        assertSame(compressor, pool2.borrowCompressor(15));
+        DeflateCodecPool.Compressor otherLevel = new DeflateCodecPool(4, 1).borrowCompressor(15);
+        assertNotSame(compressor, otherLevel);
+        otherLevel.end();
+        pool2.release(compressor);
+
+        DeflateCodecPool.Decompressor decompressor = pool1.borrowDecompressor();
+        pool1.release(decompressor);
+        assertSame(decompressor, pool2.borrowDecompressor());
+        pool2.release(decompressor);
+    }
+
+    private static void testPooledCompressors(DeflateCodecPool pool, int windowSize) {
+        EmbeddedChannel encoderChannel = new EmbeddedChannel(new PerMessageDeflateEncoder(pool, windowSize));
+        EmbeddedChannel decoderChannel = new EmbeddedChannel(new PerMessageDeflateDecoder(pool));
+        EmbeddedChannel zlibDecoderChannel = new EmbeddedChannel(ZlibCodecFactory.newZlibDecoder(ZlibWrapper.NONE));
+
+        // Every message is compressed on its own, also if it is fragmented.
+        for (int i = 0; i < 3; i++) {
+            byte[] payload1 = new byte[100];
+            random.nextBytes(payload1);
+            byte[] payload2 = new byte[1000];
+            Arrays.fill(payload2, (byte) i);
+
+            assertTrue(encoderChannel.writeOutbound(new BinaryWebSocketFrame(false, 0,
+                    Unpooled.wrappedBuffer(payload1))));
+            assertTrue(encoderChannel.writeOutbound(new ContinuationWebSocketFrame(true, 0,
+                    Unpooled.wrappedBuffer(payload2))));
+            BinaryWebSocketFrame compressedFrame1 = encoderChannel.readOutbound();
+            ContinuationWebSocketFrame compressedFrame2 = encoderChannel.readOutbound();
+            assertEquals(WebSocketExtension.RSV1, compressedFrame1.rsv());
+            assertEquals(0, compressedFrame2.rsv());
+            assertTrue(compressedFrame2.content().readableBytes() < payload2.length);
+
+            // The messages are understood by any decoder.
+            zlibDecoderChannel.writeInbound(compressedFrame1.content().retainedDuplicate());
+            zlibDecoderChannel.writeInbound(compressedFrame2.content().retainedDuplicate());
+            zlibDecoderChannel.writeInbound(Unpooled.wrappedBuffer(DeflateDecoder.FRAME_TAIL));
+            ByteBuf uncompressed = Unpooled.buffer();
+            for (;;) {
+                ByteBuf part = zlibDecoderChannel.readInbound();
+                if (part == null) {
+                    break;
+                }
+                uncompressed.writeBytes(part);
+                part.release();
+            }
+            assertEquals(Unpooled.wrappedBuffer(payload1, payload2), uncompressed);
+            uncompressed.release();
+
+            assertTrue(decoderChannel.writeInbound(compressedFrame1));
+            assertTrue(decoderChannel.writeInbound(compressedFrame2));
+            BinaryWebSocketFrame frame1 = decoderChannel.readInbound();
+            ContinuationWebSocketFrame frame2 = decoderChannel.readInbound();
+            assertEquals(Unpooled.wrappedBuffer(payload1), frame1.content());
+            assertEquals(Unpooled.wrappedBuffer(payload2), frame2.content());
+            frame1.release();
+            frame2.release();
+        }
+
+        assertFalse(encoderChannel.finish());
+        assertFalse(decoderChannel.finish());
+        zlibDecoderChannel.finishAndReleaseAll();
+    }
+
+    private static PreEncodedWebSocketFrame writeOutbound(PerMessageDeflateEncoder encoder,
+                                                          PreEncodedWebSocketFrame frame) {
+        EmbeddedChannel ch = new EmbeddedChannel(encoder);
+        assertTrue(ch.writeOutbound(frame));
+        PreEncodedWebSocketFrame written = ch.readOutbound();
+        assertFalse(ch.finish());
+        if (written == frame) {
+            frame.release();
+        }
+        return written;
+    }
 }
@@ -169,4 +169,85 @@ public class PerMessageDeflateServerExtensionHandshakerTest {
         assertEquals(PERMESSAGE_DEFLATE_EXTENSION, data.name());
         assertTrue(data.parameters().isEmpty());
     }
+
+    @Test
+    public void testServerParametersApplyToEncoder() {
+        PerMessageDeflateServerExtensionHandshaker handshaker =
+                new PerMessageDeflateServerExtensionHandshaker(6, true, 12, false, true);
+
+        // The server compresses with server_max_window_bits and decompresses with client_no_context_takeover.
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(CLIENT_MAX_WINDOW, null);
+        parameters.put(SERVER_MAX_WINDOW, "10");
+        parameters.put(CLIENT_NO_CONTEXT, null);
+        WebSocketServerExtension extension = handshaker.handshakeExtension(
+                new WebSocketExtensionData(PERMESSAGE_DEFLATE_EXTENSION, parameters));
+        assertNotNull(extension);
+        PerMessageDeflateEncoder encoder = (PerMessageDeflateEncoder) extension.newExtensionEncoder();
+        assertEquals(10, encoder.windowSize());
+        assertFalse(encoder.noContext());
+        assertTrue(((PerMessageDeflateDecoder) extension.newExtensionDecoder()).noContext());
+        assertEquals("12", extension.newReponseData().parameters().get(CLIENT_MAX_WINDOW));
+    }
+
+    @Test
+    public void testPooledHandshake() {
+        PerMessageDeflateServerExtensionHandshaker handshaker =
+                new PerMessageDeflateServerExtensionHandshaker(6, 12, 10, 16);
+
+        // The server disables its context takeover and limits its window, even if not requested.
+        WebSocketServerExtension extension = handshaker.handshakeExtension(
+                new WebSocketExtensionData(PERMESSAGE_DEFLATE_EXTENSION, Collections.<String, String>emptyMap()));
+        assertNotNull(extension);
+        PerMessageDeflateEncoder encoder = (PerMessageDeflateEncoder) extension.newExtensionEncoder();
+        assertTrue(encoder.noContext());
+        assertEquals(12, encoder.windowSize());
+        WebSocketExtensionData data = extension.newReponseData();
+        assertEquals(2, data.parameters().size());
+        assertTrue(data.parameters().containsKey(SERVER_NO_CONTEXT));
+        assertEquals("12", data.parameters().get(SERVER_MAX_WINDOW));
+
+        // The client may request an even smaller window, and disable its context takeover.
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(CLIENT_MAX_WINDOW, null);
+        parameters.put(SERVER_MAX_WINDOW, "9");
+        parameters.put(CLIENT_NO_CONTEXT, null);
+        extension = handshaker.handshakeExtension(
+                new WebSocketExtensionData(PERMESSAGE_DEFLATE_EXTENSION, parameters));
+        assertNotNull(extension);
+        encoder = (PerMessageDeflateEncoder) extension.newExtensionEncoder();
+        assertTrue(encoder.noContext());
+        assertEquals(9, encoder.windowSize());
+        data = extension.newReponseData();
+        assertEquals(4, data.parameters().size());
+        assertTrue(data.parameters().containsKey(SERVER_NO_CONTEXT));
+        assertTrue(data.parameters().containsKey(CLIENT_NO_CONTEXT));
+        assertEquals("9", data.parameters().get(SERVER_MAX_WINDOW));
+        assertEquals("10", data.parameters().get(CLIENT_MAX_WINDOW));
+    }
+
+    @Test
+    public void testPooledHandshakeWithoutJZlib() {
+        // Without JZlib only the window size of the JDK is supported.
+        try {
+            new PerMessageDeflateServerExtensionHandshaker(6, 12, 10, 16, MAX_WINDOW_SIZE);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+        PerMessageDeflateServerExtensionHandshaker handshaker =
+                new PerMessageDeflateServerExtensionHandshaker(6, MAX_WINDOW_SIZE, 10, 16, MAX_WINDOW_SIZE);
+
+        // An offer for a smaller server window is declined.
+        WebSocketServerExtension extension = handshaker.handshakeExtension(new WebSocketExtensionData(
+                PERMESSAGE_DEFLATE_EXTENSION, Collections.singletonMap(SERVER_MAX_WINDOW, "10")));
+        assertNull(extension);
+
+        extension = handshaker.handshakeExtension(new WebSocketExtensionData(
+                PERMESSAGE_DEFLATE_EXTENSION, Collections.singletonMap(SERVER_MAX_WINDOW, "15")));
+        assertNotNull(extension);
+        PerMessageDeflateEncoder encoder = (PerMessageDeflateEncoder) extension.newExtensionEncoder();
+        assertTrue(encoder.noContext());
+        assertEquals(MAX_WINDOW_SIZE, encoder.windowSize());
+    }
 }
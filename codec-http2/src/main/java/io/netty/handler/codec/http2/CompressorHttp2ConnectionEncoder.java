@@ -20,23 +20,41 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.ChannelHandler;
 import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.compression.Brotli;
+import io.netty.handler.codec.compression.BrotliOptions;
+import io.netty.handler.codec.compression.CompressionOptions;
+import io.netty.handler.codec.compression.DeflateOptions;
+import io.netty.handler.codec.compression.GzipOptions;
+import io.netty.handler.codec.compression.StandardCompressionOptions;
 import io.netty.handler.codec.compression.ZlibCodecFactory;
 import io.netty.handler.codec.compression.ZlibWrapper;
+import io.netty.handler.codec.compression.Zstd;
+import io.netty.handler.codec.compression.ZstdOptions;
+import io.netty.handler.codec.http.HttpCompressionPolicy;
+import io.netty.handler.codec.http.HttpUtil;
 import io.netty.util.concurrent.PromiseCombiner;
 import io.netty.util.internal.UnstableApi;
 
 import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_ENCODING;
 import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_LENGTH;
+import static io.netty.handler.codec.http.HttpHeaderNames.CONTENT_TYPE;
+import static io.netty.handler.codec.http.HttpHeaderValues.BR;
 import static io.netty.handler.codec.http.HttpHeaderValues.DEFLATE;
 import static io.netty.handler.codec.http.HttpHeaderValues.GZIP;
 import static io.netty.handler.codec.http.HttpHeaderValues.IDENTITY;
 import static io.netty.handler.codec.http.HttpHeaderValues.X_DEFLATE;
 import static io.netty.handler.codec.http.HttpHeaderValues.X_GZIP;
+import static io.netty.handler.codec.http.HttpHeaderValues.ZSTD;
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
 
 /**
  * A decorating HTTP2 encoder that will compress data frames according to the {@code content-encoding} header for each
  * stream. The compression provided by this class will be applied to the data for the entire stream.
+ * <p>
+ * If a {@link HttpCompressionPolicy} is given, streams whose data it does not consider compressible are sent
+ * uncompressed without {@code content-encoding} header. The route of a stream is its content type.
  */
 @UnstableApi
 public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionEncoder {
@@ -44,32 +62,72 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
     public static final int DEFAULT_WINDOW_BITS = 15;
     public static final int DEFAULT_MEM_LEVEL = 8;
 
-    private final int compressionLevel;
-    private final int windowBits;
-    private final int memLevel;
+    private final GzipOptions gzipOptions;
+    private final DeflateOptions deflateOptions;
+    private final ZstdOptions zstdOptions;
+    private final BrotliOptions brotliOptions;
+    private final HttpCompressionPolicy policy;
     private final Http2Connection.PropertyKey propertyKey;
+    private final Http2Connection.PropertyKey statsKey;
 
     public CompressorHttp2ConnectionEncoder(Http2ConnectionEncoder delegate) {
         this(delegate, DEFAULT_COMPRESSION_LEVEL, DEFAULT_WINDOW_BITS, DEFAULT_MEM_LEVEL);
     }
 
+    /**
+     * Creates a new instance which only compresses {@code gzip} and {@code deflate}. The data of streams with any other
+     * {@code content-encoding}, e.g. content the application compressed itself, is passed through.
+     */
     public CompressorHttp2ConnectionEncoder(Http2ConnectionEncoder delegate, int compressionLevel, int windowBits,
                                             int memLevel) {
+        this(delegate, StandardCompressionOptions.gzip(compressionLevel, windowBits, memLevel),
+             StandardCompressionOptions.deflate(compressionLevel, windowBits, memLevel));
+    }
+
+    /**
+     * Creates a new instance which only compresses the encodings of the given {@link CompressionOptions}.
+     */
+    public CompressorHttp2ConnectionEncoder(Http2ConnectionEncoder delegate,
+                                            CompressionOptions... compressionOptions) {
+        this(delegate, null, compressionOptions);
+    }
+
+    /**
+     * Creates a new instance which only compresses the encodings of the given {@link CompressionOptions}, and only
+     * the streams the given {@link HttpCompressionPolicy} considers compressible.
+     *
+     * @param policy    the policy, which may be shared by many encoders, or {@code null} to compress all streams.
+     */
+    public CompressorHttp2ConnectionEncoder(Http2ConnectionEncoder delegate, HttpCompressionPolicy policy,
+                                            CompressionOptions... compressionOptions) {
         super(delegate);
-        if (compressionLevel < 0 || compressionLevel > 9) {
-            throw new IllegalArgumentException("compressionLevel: " + compressionLevel + " (expected: 0-9)");
-        }
-        if (windowBits < 9 || windowBits > 15) {
-            throw new IllegalArgumentException("windowBits: " + windowBits + " (expected: 9-15)");
-        }
-        if (memLevel < 1 || memLevel > 9) {
-            throw new IllegalArgumentException("memLevel: " + memLevel + " (expected: 1-9)");
+        checkNotNull(compressionOptions, "compressionOptions");
+        GzipOptions gzipOptions = null;
+        DeflateOptions deflateOptions = null;
+        ZstdOptions zstdOptions = null;
+        BrotliOptions brotliOptions = null;
+        for (CompressionOptions options : compressionOptions) {
+            if (options instanceof GzipOptions) {
+                gzipOptions = (GzipOptions) options;
+            } else if (options instanceof DeflateOptions) {
+                deflateOptions = (DeflateOptions) options;
+            } else if (options instanceof ZstdOptions) {
+                zstdOptions = (ZstdOptions) options;
+            } else if (options instanceof BrotliOptions) {
+                brotliOptions = (BrotliOptions) options;
+            } else {
+                throw new IllegalArgumentException("unsupported " + CompressionOptions.class.getSimpleName() +
+                        ": " + options);
+            }
         }
-        this.compressionLevel = compressionLevel;
-        this.windowBits = windowBits;
-        this.memLevel = memLevel;
+        this.gzipOptions = gzipOptions;
+        this.deflateOptions = deflateOptions;
+        this.zstdOptions = zstdOptions;
+        this.brotliOptions = brotliOptions;
+        this.policy = policy;
 
         propertyKey = connection().newKey();
+        statsKey = policy == null ? null : connection().newKey();
         connection().addListener(new Http2ConnectionAdapter() {
             @Override
             public void onStreamRemoved(Http2Stream stream) {
@@ -91,17 +149,23 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
             return super.writeData(ctx, streamId, data, padding, endOfStream, promise);
         }
 
+        final CompressionStats stats = statsKey == null ? null : (CompressionStats) stream.getProperty(statsKey);
         try {
             // The channel will release the buffer after being written
-            channel.writeOutbound(data);
+            writeOutbound(channel, data, stats);
             ByteBuf buf = nextReadableBuf(channel);
             if (buf == null) {
                 if (endOfStream) {
-                    if (channel.finish()) {
+                    if (finish(channel, stats)) {
                         buf = nextReadableBuf(channel);
                     }
-                    return super.writeData(ctx, streamId, buf == null ? Unpooled.EMPTY_BUFFER : buf, padding,
-                            true, promise);
+                    if (buf == null) {
+                        buf = Unpooled.EMPTY_BUFFER;
+                    }
+                    if (stats != null) {
+                        stats.compressedBytes += buf.readableBytes();
+                    }
+                    return super.writeData(ctx, streamId, buf, padding, true, promise);
                 }
                 // END_STREAM is not set and the assumption is data is still forthcoming.
                 promise.setSuccess();
@@ -112,10 +176,13 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
             for (;;) {
                 ByteBuf nextBuf = nextReadableBuf(channel);
                 boolean compressedEndOfStream = nextBuf == null && endOfStream;
-                if (compressedEndOfStream && channel.finish()) {
+                if (compressedEndOfStream && finish(channel, stats)) {
                     nextBuf = nextReadableBuf(channel);
                     compressedEndOfStream = nextBuf == null;
                 }
+                if (stats != null) {
+                    stats.compressedBytes += buf.readableBytes();
+                }
 
                 ChannelPromise bufPromise = ctx.newPromise();
                 combiner.add(bufPromise);
@@ -132,12 +199,42 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
             promise.tryFailure(cause);
         } finally {
             if (endOfStream) {
+                if (stats != null) {
+                    policy.record(stats.route, stats.uncompressedBytes, stats.compressedBytes,
+                            stats.compressionNanos);
+                }
                 cleanup(stream, channel);
             }
         }
         return promise;
     }
 
+    private static void writeOutbound(EmbeddedChannel channel, ByteBuf data, CompressionStats stats) {
+        if (stats == null) {
+            channel.writeOutbound(data);
+            return;
+        }
+        stats.uncompressedBytes += data.readableBytes();
+        long start = System.nanoTime();
+        try {
+            channel.writeOutbound(data);
+        } finally {
+            stats.compressionNanos += System.nanoTime() - start;
+        }
+    }
+
+    private static boolean finish(EmbeddedChannel channel, CompressionStats stats) {
+        if (stats == null) {
+            return channel.finish();
+        }
+        long start = System.nanoTime();
+        try {
+            return channel.finish();
+        } finally {
+            stats.compressionNanos += System.nanoTime() - start;
+        }
+    }
+
     @Override
     public ChannelFuture writeHeaders(ChannelHandlerContext ctx, int streamId, Http2Headers headers, int padding,
             boolean endStream, ChannelPromise promise) {
@@ -149,7 +246,7 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
             ChannelFuture future = super.writeHeaders(ctx, streamId, headers, padding, endStream, promise);
 
             // After the stream object has been created, then attach the compressor as a property for data compression.
-            bindCompressorToStream(compressor, streamId);
+            bindCompressorToStream(compressor, streamId, headers);
 
             return future;
         } catch (Throwable e) {
@@ -171,7 +268,7 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
                                                       padding, endOfStream, promise);
 
             // After the stream object has been created, then attach the compressor as a property for data compression.
-            bindCompressorToStream(compressor, streamId);
+            bindCompressorToStream(compressor, streamId, headers);
 
             return future;
         } catch (Throwable e) {
@@ -192,11 +289,20 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
      */
     protected EmbeddedChannel newContentCompressor(ChannelHandlerContext ctx, CharSequence contentEncoding)
             throws Http2Exception {
-        if (GZIP.contentEqualsIgnoreCase(contentEncoding) || X_GZIP.contentEqualsIgnoreCase(contentEncoding)) {
-            return newCompressionChannel(ctx, ZlibWrapper.GZIP);
+        if (gzipOptions != null &&
+                (GZIP.contentEqualsIgnoreCase(contentEncoding) || X_GZIP.contentEqualsIgnoreCase(contentEncoding))) {
+            return newCompressionChannel(ctx, ZlibWrapper.GZIP, gzipOptions);
         }
-        if (DEFLATE.contentEqualsIgnoreCase(contentEncoding) || X_DEFLATE.contentEqualsIgnoreCase(contentEncoding)) {
-            return newCompressionChannel(ctx, ZlibWrapper.ZLIB);
+        if (deflateOptions != null &&
+                (DEFLATE.contentEqualsIgnoreCase(contentEncoding) ||
+                 X_DEFLATE.contentEqualsIgnoreCase(contentEncoding))) {
+            return newCompressionChannel(ctx, ZlibWrapper.ZLIB, deflateOptions);
+        }
+        if (brotliOptions != null && BR.contentEqualsIgnoreCase(contentEncoding) && Brotli.isAvailable()) {
+            return newCompressionChannel(ctx, brotliOptions.newEncoder());
+        }
+        if (zstdOptions != null && ZSTD.contentEqualsIgnoreCase(contentEncoding) && Zstd.isAvailable()) {
+            return newCompressionChannel(ctx, zstdOptions.newEncoder());
         }
         // 'identity' or unsupported
         return null;
@@ -218,11 +324,17 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
      * Generate a new instance of an {@link EmbeddedChannel} capable of compressing data
      * @param ctx the context.
      * @param wrapper Defines what type of encoder should be used
+     * @param options the options of the encoder
      */
-    private EmbeddedChannel newCompressionChannel(final ChannelHandlerContext ctx, ZlibWrapper wrapper) {
+    private static EmbeddedChannel newCompressionChannel(final ChannelHandlerContext ctx, ZlibWrapper wrapper,
+                                                         DeflateOptions options) {
+        return newCompressionChannel(ctx, ZlibCodecFactory.newZlibEncoder(wrapper, options.compressionLevel(),
+                options.windowBits(), options.memLevel()));
+    }
+
+    private static EmbeddedChannel newCompressionChannel(final ChannelHandlerContext ctx, ChannelHandler encoder) {
         return new EmbeddedChannel(ctx.channel().id(), ctx.channel().metadata().hasDisconnect(),
-                ctx.channel().config(), ZlibCodecFactory.newZlibEncoder(wrapper, compressionLevel, windowBits,
-                memLevel));
+                ctx.channel().config(), encoder);
     }
 
     /**
@@ -245,6 +357,13 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
         if (encoding == null) {
             encoding = IDENTITY;
         }
+        if (policy != null && isEnabled(encoding) &&
+                !policy.isCompressible(route(headers), headers.get(CONTENT_TYPE),
+                        headers.getLong(CONTENT_LENGTH, -1))) {
+            // Send the data as it is.
+            headers.remove(CONTENT_ENCODING);
+            return null;
+        }
         final EmbeddedChannel compressor = newContentCompressor(ctx, encoding);
         if (compressor != null) {
             CharSequence targetContentEncoding = getTargetContentEncoding(encoding);
@@ -263,16 +382,42 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
         return compressor;
     }
 
+    private boolean isEnabled(CharSequence contentEncoding) {
+        if (GZIP.contentEqualsIgnoreCase(contentEncoding) || X_GZIP.contentEqualsIgnoreCase(contentEncoding)) {
+            return gzipOptions != null;
+        }
+        if (DEFLATE.contentEqualsIgnoreCase(contentEncoding) || X_DEFLATE.contentEqualsIgnoreCase(contentEncoding)) {
+            return deflateOptions != null;
+        }
+        if (BR.contentEqualsIgnoreCase(contentEncoding)) {
+            return brotliOptions != null && Brotli.isAvailable();
+        }
+        if (ZSTD.contentEqualsIgnoreCase(contentEncoding)) {
+            return zstdOptions != null && Zstd.isAvailable();
+        }
+        return false;
+    }
+
+    private static String route(Http2Headers headers) {
+        CharSequence contentType = headers.get(CONTENT_TYPE);
+        CharSequence mimeType = contentType == null ? null : HttpUtil.getMimeType(contentType);
+        return mimeType == null ? null : mimeType.toString();
+    }
+
     /**
      * Called after the super class has written the headers and created any associated stream objects.
      * @param compressor The compressor associated with the stream identified by {@code streamId}.
      * @param streamId The stream id for which the headers were written.
+     * @param headers The headers which were written.
      */
-    private void bindCompressorToStream(EmbeddedChannel compressor, int streamId) {
+    private void bindCompressorToStream(EmbeddedChannel compressor, int streamId, Http2Headers headers) {
         if (compressor != null) {
             Http2Stream stream = connection().stream(streamId);
             if (stream != null) {
                 stream.setProperty(propertyKey, compressor);
+                if (statsKey != null) {
+                    stream.setProperty(statsKey, new CompressionStats(route(headers)));
+                }
             }
         }
     }
@@ -295,6 +440,9 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
             }
         }
         stream.removeProperty(propertyKey);
+        if (statsKey != null) {
+            stream.removeProperty(statsKey);
+        }
     }
 
     /**
@@ -316,4 +464,19 @@ public class CompressorHttp2ConnectionEncoder extends DecoratingHttp2ConnectionE
             return buf;
         }
     }
+
+    /**
+     * The statistics of the compression of a stream, which are recorded by the {@link HttpCompressionPolicy} when the
+     * stream ends.
+     */
+    private static final class CompressionStats {
+        final String route;
+        long uncompressedBytes;
+        long compressedBytes;
+        long compressionNanos;
+
+        CompressionStats(String route) {
+            this.route = route;
+        }
+    }
 }
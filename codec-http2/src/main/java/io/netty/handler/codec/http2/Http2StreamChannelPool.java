@@ -0,0 +1,481 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http2;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.ThrowableUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.io.Closeable;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * Hands out {@link Http2StreamChannel}s which are multiplexed over a set of HTTP/2 connections.
+ * <p>
+ * The connections are created with the given {@link Bootstrap}, whose handler must add a {@link Http2MultiplexCodec}
+ * to the {@link io.netty.channel.ChannelPipeline}. A new {@link Http2StreamChannel} is always opened on the connection
+ * with the fewest streams which were acquired from this pool and are not closed yet. A connection is not used once the
+ * number of its streams reaches the {@code SETTINGS_MAX_CONCURRENT_STREAMS} of the remote peer, or the configured
+ * maximum if this is lower. If all connections are saturated a new connection is opened, until the maximal number of
+ * connections is reached. After that acquires are delayed until a stream is closed.
+ * <p>
+ * Once a {@code GOAWAY} is received for a connection no new streams are opened on it and it is closed as soon as its
+ * last stream was closed. Such a draining connection does not count towards the maximal number of connections.
+ * <p>
+ * There is no need to release an acquired {@link Http2StreamChannel}, it is returned to the pool by closing it.
+ */
+@UnstableApi
+public class Http2StreamChannelPool implements Closeable {
+    // RFC 7540 recommends that this value is no smaller than 100, so assume it until the SETTINGS are received.
+    private static final int DEFAULT_MAX_CONCURRENT_STREAMS = 100;
+
+    private static final IllegalStateException FULL_EXCEPTION = ThrowableUtil.unknownStackTrace(
+            new IllegalStateException("Too many outstanding acquire operations"),
+            Http2StreamChannelPool.class, "acquire0(...)");
+    private static final IllegalStateException POOL_CLOSED_ON_ACQUIRE_EXCEPTION = ThrowableUtil.unknownStackTrace(
+            new IllegalStateException("Http2StreamChannelPool was closed"),
+            Http2StreamChannelPool.class, "acquire0(...)");
+    private static final ClosedChannelException CONNECTION_CLOSED_EXCEPTION = ThrowableUtil.unknownStackTrace(
+            new ClosedChannelException(), Http2StreamChannelPool.class, "connectionClosed(...)");
+
+    private final Bootstrap bootstrap;
+    private final ChannelHandler streamHandler;
+    private final int maxConnections;
+    private final int maxStreamsPerConnection;
+    private final int maxPendingAcquires;
+    private final EventExecutor executor;
+
+    // There is no need to worry about synchronization as everything that modifies these is done by the above
+    // EventExecutor.
+    private final List<Connection> connections = new ArrayList<Connection>();
+    private final Queue<Promise<Http2StreamChannel>> pendingAcquires = new ArrayDeque<Promise<Http2StreamChannel>>();
+    private int usableConnections;
+    private boolean closed;
+
+    // Only modified by the above EventExecutor.
+    private volatile int connectionCount;
+    private volatile int streamCount;
+
+    /**
+     * Creates a new instance which does not limit the number of streams per connection itself.
+     *
+     * @param bootstrap         the {@link Bootstrap} that is used for connections, its handler must add a
+     *                          {@link Http2MultiplexCodec}.
+     * @param streamHandler     the {@link ChannelHandler.Sharable} {@link ChannelHandler} which is added to each
+     *                          {@link Http2StreamChannel}.
+     * @param maxConnections    the number of maximal connections which are used to open new streams.
+     */
+    public Http2StreamChannelPool(Bootstrap bootstrap, ChannelHandler streamHandler, int maxConnections) {
+        this(bootstrap, streamHandler, maxConnections, Integer.MAX_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param bootstrap                 the {@link Bootstrap} that is used for connections, its handler must add a
+     *                                  {@link Http2MultiplexCodec}.
+     * @param streamHandler             the {@link ChannelHandler.Sharable} {@link ChannelHandler} which is added to
+     *                                  each {@link Http2StreamChannel}.
+     * @param maxConnections            the number of maximal connections which are used to open new streams.
+     * @param maxStreamsPerConnection   the number of maximal streams per connection. The
+     *                                  {@code SETTINGS_MAX_CONCURRENT_STREAMS} of the remote peer is used instead if
+     *                                  it is lower.
+     * @param maxPendingAcquires        the maximum number of pending acquires. Once this is exceed acquire tries will
+     *                                  be failed.
+     */
+    public Http2StreamChannelPool(Bootstrap bootstrap, ChannelHandler streamHandler, int maxConnections,
+                                  int maxStreamsPerConnection, int maxPendingAcquires) {
+        this.bootstrap = checkNotNull(bootstrap, "bootstrap").clone();
+        this.streamHandler = checkNotNull(streamHandler, "streamHandler");
+        this.maxConnections = checkPositive(maxConnections, "maxConnections");
+        this.maxStreamsPerConnection = checkPositive(maxStreamsPerConnection, "maxStreamsPerConnection");
+        this.maxPendingAcquires = checkPositive(maxPendingAcquires, "maxPendingAcquires");
+        if (bootstrap.config().group() == null) {
+            throw new IllegalArgumentException("bootstrap has no EventLoopGroup set");
+        }
+        executor = bootstrap.config().group().next();
+    }
+
+    /**
+     * Returns the number of open connections, including the ones which are still connecting or draining.
+     */
+    public int connectionCount() {
+        return connectionCount;
+    }
+
+    /**
+     * Returns the number of {@link Http2StreamChannel}s which were acquired from this pool and are not closed yet.
+     */
+    public int streamCount() {
+        return streamCount;
+    }
+
+    /**
+     * Acquire a new {@link Http2StreamChannel}. The returned {@link Future} is notified once the
+     * {@link Http2StreamChannel} was opened and failed otherwise.
+     */
+    public Future<Http2StreamChannel> acquire() {
+        return acquire(executor.<Http2StreamChannel>newPromise());
+    }
+
+    /**
+     * Acquire a new {@link Http2StreamChannel}. The given {@link Promise} is notified once the
+     * {@link Http2StreamChannel} was opened and failed otherwise.
+     */
+    public Future<Http2StreamChannel> acquire(final Promise<Http2StreamChannel> promise) {
+        checkNotNull(promise, "promise");
+        if (executor.inEventLoop()) {
+            acquire0(promise);
+        } else {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    acquire0(promise);
+                }
+            });
+        }
+        return promise;
+    }
+
+    private void acquire0(Promise<Http2StreamChannel> promise) {
+        assert executor.inEventLoop();
+        if (closed) {
+            promise.tryFailure(POOL_CLOSED_ON_ACQUIRE_EXCEPTION);
+            return;
+        }
+        if (promise.isDone() || tryAcquire(promise)) {
+            return;
+        }
+        if (pendingAcquires.size() >= maxPendingAcquires) {
+            promise.tryFailure(FULL_EXCEPTION);
+        } else {
+            pendingAcquires.add(promise);
+        }
+    }
+
+    private boolean tryAcquire(Promise<Http2StreamChannel> promise) {
+        Connection best = null;
+        for (int i = 0; i < connections.size(); i++) {
+            Connection connection = connections.get(i);
+            if (!connection.draining && connection.streams < connection.maxStreams &&
+                    (best == null || connection.streams < best.streams)) {
+                best = connection;
+            }
+        }
+        if (best == null) {
+            if (usableConnections >= maxConnections) {
+                return false;
+            }
+            best = connect();
+        }
+        best.streams++;
+        streamCount++;
+        if (best.streamBootstrap == null) {
+            // Still connecting, open the stream once connected.
+            best.waiters.add(promise);
+        } else {
+            best.openStream(promise);
+        }
+        return true;
+    }
+
+    private void runPendingAcquires() {
+        assert executor.inEventLoop();
+        for (;;) {
+            Promise<Http2StreamChannel> promise = pendingAcquires.peek();
+            if (promise == null) {
+                break;
+            }
+            if (!promise.isDone() && !tryAcquire(promise)) {
+                break;
+            }
+            pendingAcquires.remove();
+        }
+    }
+
+    private Connection connect() {
+        final Connection connection = new Connection(Math.min(DEFAULT_MAX_CONCURRENT_STREAMS, maxStreamsPerConnection));
+        connections.add(connection);
+        usableConnections++;
+        connectionCount++;
+
+        final ChannelFuture future;
+        try {
+            future = bootstrap.connect();
+        } catch (Throwable cause) {
+            connection.failed(cause);
+            return connection;
+        }
+        future.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                if (future.isSuccess()) {
+                    connection.init(future.channel());
+                } else {
+                    connection.failed(future.cause());
+                }
+            }
+        });
+        return connection;
+    }
+
+    private void execute(Runnable task) {
+        if (executor.inEventLoop()) {
+            task.run();
+        } else {
+            executor.execute(task);
+        }
+    }
+
+    /**
+     * Closes all connections, and fails all pending acquires.
+     */
+    @Override
+    public void close() {
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                for (;;) {
+                    Promise<Http2StreamChannel> promise = pendingAcquires.poll();
+                    if (promise == null) {
+                        break;
+                    }
+                    promise.tryFailure(POOL_CLOSED_ON_ACQUIRE_EXCEPTION);
+                }
+                for (Connection connection: new ArrayList<Connection>(connections)) {
+                    connection.close();
+                }
+            }
+        });
+    }
+
+    private final class Connection {
+        // Everything is only accessed by the EventExecutor of the pool.
+        private final Queue<Promise<Http2StreamChannel>> waiters = new ArrayDeque<Promise<Http2StreamChannel>>();
+        private Channel channel;
+        private Http2StreamChannelBootstrap streamBootstrap;
+        private int maxStreams;
+        private int streams;
+        private boolean draining;
+        private boolean removed;
+
+        Connection(int maxStreams) {
+            this.maxStreams = maxStreams;
+        }
+
+        /**
+         * Called from the {@link io.netty.channel.EventLoop} of the connection once it is connected.
+         */
+        void init(final Channel channel) {
+            ChannelHandlerContext ctx = channel.pipeline().context(Http2MultiplexCodec.class);
+            if (ctx == null) {
+                channel.close();
+                failed(new IllegalStateException(StringUtil.simpleClassName(Http2MultiplexCodec.class) +
+                        " must be in the ChannelPipeline of Channel " + channel));
+                return;
+            }
+            ((Http2MultiplexCodec) ctx.handler()).connection().addListener(new Http2ConnectionAdapter() {
+                @Override
+                public void onGoAwayReceived(int lastStreamId, long errorCode, ByteBuf debugData) {
+                    execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            goAwayReceived();
+                        }
+                    });
+                }
+            });
+            channel.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                @Override
+                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                    if (msg instanceof Http2SettingsFrame) {
+                        final Long maxConcurrentStreams = ((Http2SettingsFrame) msg).settings().maxConcurrentStreams();
+                        if (maxConcurrentStreams != null) {
+                            execute(new Runnable() {
+                                @Override
+                                public void run() {
+                                    settingsReceived(maxConcurrentStreams);
+                                }
+                            });
+                        }
+                    }
+                    ctx.fireChannelRead(msg);
+                }
+            });
+            channel.closeFuture().addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) {
+                    execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            remove(CONNECTION_CLOSED_EXCEPTION);
+                        }
+                    });
+                }
+            });
+            final Http2StreamChannelBootstrap streamBootstrap = new Http2StreamChannelBootstrap(channel)
+                    .handler(streamHandler);
+            execute(new Runnable() {
+                @Override
+                public void run() {
+                    connected(channel, streamBootstrap);
+                }
+            });
+        }
+
+        private void connected(Channel channel, Http2StreamChannelBootstrap streamBootstrap) {
+            this.channel = channel;
+            this.streamBootstrap = streamBootstrap;
+            if (removed) {
+                channel.close();
+                return;
+            }
+            for (;;) {
+                Promise<Http2StreamChannel> promise = waiters.poll();
+                if (promise == null) {
+                    break;
+                }
+                openStream(promise);
+            }
+        }
+
+        void failed(final Throwable cause) {
+            // Always delay the removal, as the caller of connect() did not add its waiter yet if it failed directly.
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    remove(cause);
+                }
+            });
+        }
+
+        void openStream(final Promise<Http2StreamChannel> promise) {
+            streamBootstrap.open().addListener(new FutureListener<Http2StreamChannel>() {
+                @Override
+                public void operationComplete(Future<Http2StreamChannel> future) {
+                    if (future.isSuccess()) {
+                        Http2StreamChannel streamChannel = future.getNow();
+                        streamChannel.closeFuture().addListener(new ChannelFutureListener() {
+                            @Override
+                            public void operationComplete(ChannelFuture future) {
+                                execute(new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        streamClosed();
+                                    }
+                                });
+                            }
+                        });
+                        if (!promise.trySuccess(streamChannel)) {
+                            // Promise was completed in the meantime (like cancelled), just close the stream again.
+                            streamChannel.close();
+                        }
+                    } else {
+                        promise.tryFailure(future.cause());
+                        execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                streamClosed();
+                            }
+                        });
+                    }
+                }
+            });
+        }
+
+        private void streamClosed() {
+            streams--;
+            streamCount--;
+            if (draining && streams == 0) {
+                channel.close();
+            }
+            runPendingAcquires();
+        }
+
+        private void settingsReceived(long maxConcurrentStreams) {
+            maxStreams = (int) Math.min(maxConcurrentStreams, maxStreamsPerConnection);
+            runPendingAcquires();
+        }
+
+        private void goAwayReceived() {
+            if (draining) {
+                return;
+            }
+            draining = true;
+            if (!removed) {
+                usableConnections--;
+            }
+            if (streams == 0) {
+                channel.close();
+            }
+            // Let the pending acquires open a new connection.
+            runPendingAcquires();
+        }
+
+        private void remove(Throwable cause) {
+            if (removed) {
+                return;
+            }
+            removed = true;
+            connections.remove(this);
+            if (!draining) {
+                usableConnections--;
+            }
+            connectionCount--;
+            streamCount -= waiters.size();
+            streams -= waiters.size();
+            for (;;) {
+                Promise<Http2StreamChannel> promise = waiters.poll();
+                if (promise == null) {
+                    break;
+                }
+                promise.tryFailure(cause);
+            }
+            runPendingAcquires();
+        }
+
+        void close() {
+            if (channel != null) {
+                channel.close();
+            } else {
+                remove(POOL_CLOSED_ON_ACQUIRE_EXCEPTION);
+            }
+        }
+    }
+}
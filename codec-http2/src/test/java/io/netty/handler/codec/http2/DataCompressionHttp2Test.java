@@ -19,16 +19,24 @@ import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.compression.Brotli;
+import io.netty.handler.codec.compression.BrotliEncoder;
+import io.netty.handler.codec.compression.CompressionOptions;
+import io.netty.handler.codec.compression.StandardCompressionOptions;
+import io.netty.handler.codec.compression.Zstd;
+import io.netty.handler.codec.compression.ZstdEncoder;
 import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http2.Http2TestUtil.Http2Runnable;
 import io.netty.util.AsciiString;
@@ -55,6 +63,7 @@ import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyBoolean;
 import static org.mockito.Mockito.anyInt;
@@ -87,6 +96,11 @@ public class DataCompressionHttp2Test {
     private Http2Connection clientConnection;
     private Http2ConnectionHandler clientHandler;
     private ByteArrayOutputStream serverOut;
+    // The encodings the client compresses, or null to use the constructor without CompressionOptions.
+    private CompressionOptions[] clientCompressionOptions = {
+            StandardCompressionOptions.gzip(), StandardCompressionOptions.deflate(),
+            StandardCompressionOptions.brotli(), StandardCompressionOptions.zstd()
+    };
 
     @Before
     public void setup() throws InterruptedException, Http2Exception {
@@ -207,6 +221,104 @@ public class DataCompressionHttp2Test {
         }
     }
 
+    @Test
+    public void zstdEncodingSingleMessage() throws Exception {
+        assumeTrue(Zstd.isAvailable());
+        final String text = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaabbbbbbbbbbbbbbbbbbbbbbbbbbbbbccccccccccccccccccccccc";
+        final ByteBuf data = Unpooled.copiedBuffer(text.getBytes());
+        bootstrapEnv(data.readableBytes());
+        try {
+            final Http2Headers headers = new DefaultHttp2Headers().method(POST).path(PATH)
+                    .set(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.ZSTD);
+
+            runInChannel(clientChannel, new Http2Runnable() {
+                @Override
+                public void run() throws Http2Exception {
+                    clientEncoder.writeHeaders(ctxClient(), 3, headers, 0, false, newPromiseClient());
+                    clientEncoder.writeData(ctxClient(), 3, data.retain(), 0, true, newPromiseClient());
+                    clientHandler.flush(ctxClient());
+                }
+            });
+            awaitServer();
+            assertEquals(text, serverOut.toString(CharsetUtil.UTF_8.name()));
+        } finally {
+            data.release();
+        }
+    }
+
+    @Test
+    public void zstdEncodedDataIsNotCompressedAgainByDefault() throws Exception {
+        assumeTrue(Zstd.isAvailable());
+        testEncodedDataIsNotCompressedAgainByDefault(new ZstdEncoder(), HttpHeaderValues.ZSTD);
+    }
+
+    @Test
+    public void brotliEncodedDataIsNotCompressedAgainByDefault() throws Exception {
+        assumeTrue("Brotli is unavailable: " + Brotli.unavailabilityCause(), Brotli.isAvailable());
+        testEncodedDataIsNotCompressedAgainByDefault(new BrotliEncoder(), HttpHeaderValues.BR);
+    }
+
+    private void testEncodedDataIsNotCompressedAgainByDefault(ChannelHandler encoder, AsciiString contentEncoding)
+            throws Exception {
+        final String text = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaabbbbbbbbbbbbbbbbbbbbbbbbbbbbbccccccccccccccccccccccc";
+        EmbeddedChannel encoderChannel = new EmbeddedChannel(encoder);
+        assertTrue(encoderChannel.writeOutbound(Unpooled.copiedBuffer(text, CharsetUtil.UTF_8)));
+        encoderChannel.finish();
+        final ByteBuf data = Unpooled.buffer();
+        for (;;) {
+            ByteBuf buf = encoderChannel.readOutbound();
+            if (buf == null) {
+                break;
+            }
+            data.writeBytes(buf);
+            buf.release();
+        }
+        clientCompressionOptions = null;
+        bootstrapEnv(text.length());
+        try {
+            final Http2Headers headers = new DefaultHttp2Headers().method(POST).path(PATH)
+                    .set(HttpHeaderNames.CONTENT_ENCODING, contentEncoding);
+
+            runInChannel(clientChannel, new Http2Runnable() {
+                @Override
+                public void run() throws Http2Exception {
+                    clientEncoder.writeHeaders(ctxClient(), 3, headers, 0, false, newPromiseClient());
+                    clientEncoder.writeData(ctxClient(), 3, data.retain(), 0, true, newPromiseClient());
+                    clientHandler.flush(ctxClient());
+                }
+            });
+            awaitServer();
+            assertEquals(text, serverOut.toString(CharsetUtil.UTF_8.name()));
+        } finally {
+            data.release();
+        }
+    }
+
+    @Test
+    public void brotliEncodingSingleMessage() throws Exception {
+        assumeTrue("Brotli is unavailable: " + Brotli.unavailabilityCause(), Brotli.isAvailable());
+        final String text = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaabbbbbbbbbbbbbbbbbbbbbbbbbbbbbccccccccccccccccccccccc";
+        final ByteBuf data = Unpooled.copiedBuffer(text.getBytes());
+        bootstrapEnv(data.readableBytes());
+        try {
+            final Http2Headers headers = new DefaultHttp2Headers().method(POST).path(PATH)
+                    .set(HttpHeaderNames.CONTENT_ENCODING, HttpHeaderValues.BR);
+
+            runInChannel(clientChannel, new Http2Runnable() {
+                @Override
+                public void run() throws Http2Exception {
+                    clientEncoder.writeHeaders(ctxClient(), 3, headers, 0, false, newPromiseClient());
+                    clientEncoder.writeData(ctxClient(), 3, data.retain(), 0, true, newPromiseClient());
+                    clientHandler.flush(ctxClient());
+                }
+            });
+            awaitServer();
+            assertEquals(text, serverOut.toString(CharsetUtil.UTF_8.name()));
+        } finally {
+            data.release();
+        }
+    }
+
     @Test
     public void gzipEncodingMultipleMessages() throws Exception {
         final String text1 = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaabbbbbbbbbbbbbbbbbbbbbbbbbbbbbccccccccccccccccccccccc";
@@ -333,8 +445,9 @@ public class DataCompressionHttp2Test {
                         new DefaultHttp2RemoteFlowController(clientConnection));
                 clientConnection.local().flowController(
                         new DefaultHttp2LocalFlowController(clientConnection).frameWriter(frameWriter));
-                clientEncoder = new CompressorHttp2ConnectionEncoder(
-                        new DefaultHttp2ConnectionEncoder(clientConnection, frameWriter));
+                Http2ConnectionEncoder delegate = new DefaultHttp2ConnectionEncoder(clientConnection, frameWriter);
+                clientEncoder = clientCompressionOptions == null ? new CompressorHttp2ConnectionEncoder(delegate) :
+                        new CompressorHttp2ConnectionEncoder(delegate, clientCompressionOptions);
 
                 Http2ConnectionDecoder decoder =
                         new DefaultHttp2ConnectionDecoder(clientConnection, clientEncoder,
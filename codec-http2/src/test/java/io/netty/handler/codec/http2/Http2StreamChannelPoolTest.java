@@ -0,0 +1,218 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.http2;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class Http2StreamChannelPoolTest {
+
+    private static EventLoopGroup group;
+
+    private final BlockingQueue<Channel> serverConnections = new LinkedBlockingQueue<Channel>();
+    private final BlockingQueue<Http2HeadersFrame> serverHeaders = new LinkedBlockingQueue<Http2HeadersFrame>();
+    private Channel serverChannel;
+    private Http2StreamChannelPool pool;
+
+    @BeforeClass
+    public static void init() {
+        group = new DefaultEventLoop();
+    }
+
+    @AfterClass
+    public static void shutdown() {
+        group.shutdownGracefully(0, 5, SECONDS);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (pool != null) {
+            pool.close();
+        }
+        if (serverChannel != null) {
+            serverChannel.close().syncUninterruptibly();
+        }
+        for (Channel ch: serverConnections) {
+            ch.close().syncUninterruptibly();
+        }
+    }
+
+    private Bootstrap start(final Http2Settings serverSettings) throws Exception {
+        LocalAddress serverAddress = new LocalAddress(getClass().getName());
+        ServerBootstrap sb = new ServerBootstrap()
+                .channel(LocalServerChannel.class)
+                .group(group)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        serverConnections.add(ch);
+                        ch.pipeline().addLast(Http2MultiplexCodecBuilder.forServer(new ServerStreamHandler())
+                                .initialSettings(serverSettings).gracefulShutdownTimeoutMillis(0).build());
+                    }
+                });
+        serverChannel = sb.bind(serverAddress).sync().channel();
+
+        return new Bootstrap()
+                .channel(LocalChannel.class)
+                .group(group)
+                .remoteAddress(serverAddress)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(
+                                Http2MultiplexCodecBuilder.forClient(new ClientStreamHandler())
+                                        .gracefulShutdownTimeoutMillis(0).build());
+                    }
+                });
+    }
+
+    private Http2StreamChannel acquireAndSendHeaders() throws Exception {
+        Http2StreamChannel stream = pool.acquire().syncUninterruptibly().getNow();
+        stream.writeAndFlush(new DefaultHttp2HeadersFrame(new DefaultHttp2Headers()));
+        assertNotNull(serverHeaders.poll(5, SECONDS));
+        return stream;
+    }
+
+    @Test
+    public void testBalancesAndOpensNewConnectionsWhenSaturated() throws Exception {
+        pool = new Http2StreamChannelPool(start(Http2Settings.defaultSettings()),
+                new ClientStreamHandler(), 2, 2, Integer.MAX_VALUE);
+
+        Http2StreamChannel stream1 = acquireAndSendHeaders();
+        Http2StreamChannel stream2 = acquireAndSendHeaders();
+        Http2StreamChannel stream3 = acquireAndSendHeaders();
+        Http2StreamChannel stream4 = acquireAndSendHeaders();
+        assertEquals(2, pool.connectionCount());
+        assertEquals(4, pool.streamCount());
+        // A new connection is only opened once the first one is saturated.
+        assertSame(stream1.parent(), stream2.parent());
+        assertNotSame(stream1.parent(), stream3.parent());
+        assertSame(stream3.parent(), stream4.parent());
+
+        // All connections are saturated and no new one may be opened.
+        Future<Http2StreamChannel> pending = pool.acquire();
+        assertFalse(pending.await(100));
+
+        stream2.close();
+        assertTrue(pending.await(5, SECONDS));
+        assertSame(stream2.parent(), pending.getNow().parent());
+        assertEquals(2, pool.connectionCount());
+
+        stream1.close();
+        stream3.close();
+        stream4.close();
+        pending.getNow().close().syncUninterruptibly();
+    }
+
+    @Test
+    public void testRespectsMaxConcurrentStreams() throws Exception {
+        pool = new Http2StreamChannelPool(start(Http2Settings.defaultSettings().maxConcurrentStreams(1)),
+                new ClientStreamHandler(), 4);
+
+        // Once the server received the HEADERS frame the SETTINGS of the server were received as well.
+        Http2StreamChannel stream1 = acquireAndSendHeaders();
+        Http2StreamChannel stream2 = acquireAndSendHeaders();
+        assertNotSame(stream1.parent(), stream2.parent());
+        assertEquals(2, pool.connectionCount());
+
+        stream1.close();
+        stream2.close();
+    }
+
+    @Test
+    public void testDrainsOnGoAway() throws Exception {
+        pool = new Http2StreamChannelPool(start(Http2Settings.defaultSettings()),
+                new ClientStreamHandler(), 1);
+
+        Http2StreamChannel stream1 = acquireAndSendHeaders();
+        Channel serverConnection = serverConnections.take();
+        serverConnection.writeAndFlush(new DefaultHttp2GoAwayFrame(Http2Error.NO_ERROR).setExtraStreamIds(1))
+                .syncUninterruptibly();
+
+        // The connection which received the GOAWAY is not used anymore, even if the limit is reached.
+        Http2StreamChannel stream2 = acquireAndSendHeaders();
+        assertNotSame(stream1.parent(), stream2.parent());
+        assertEquals(2, pool.connectionCount());
+
+        // Once the last stream of the draining connection is closed the connection is closed as well.
+        stream1.close();
+        stream1.parent().closeFuture().syncUninterruptibly();
+        stream2.close().syncUninterruptibly();
+    }
+
+    @Test
+    public void testCloseFailsPendingAcquires() throws Exception {
+        pool = new Http2StreamChannelPool(start(Http2Settings.defaultSettings()),
+                new ClientStreamHandler(), 1, 1, Integer.MAX_VALUE);
+
+        Http2StreamChannel stream = acquireAndSendHeaders();
+        Future<Http2StreamChannel> pending = pool.acquire();
+        assertFalse(pending.await(100));
+
+        pool.close();
+        assertTrue(pending.await(5, SECONDS));
+        assertTrue(pending.cause() instanceof IllegalStateException);
+        stream.parent().closeFuture().syncUninterruptibly();
+        assertFalse(pool.acquire().awaitUninterruptibly().isSuccess());
+    }
+
+    @Sharable
+    private static final class ClientStreamHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ReferenceCountUtil.release(msg);
+        }
+    }
+
+    @Sharable
+    private final class ServerStreamHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof Http2HeadersFrame) {
+                serverHeaders.add((Http2HeadersFrame) msg);
+            } else {
+                ReferenceCountUtil.release(msg);
+            }
+        }
+    }
+}
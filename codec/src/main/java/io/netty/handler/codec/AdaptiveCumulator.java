@@ -0,0 +1,221 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.handler.codec.ByteToMessageDecoder.Cumulator;
+import io.netty.util.internal.UnstableApi;
+
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
+
+/**
+ * A {@link Cumulator} which chooses between merging (like {@link ByteToMessageDecoder#MERGE_CUMULATOR}) and
+ * composing (like {@link ByteToMessageDecoder#COMPOSITE_CUMULATOR}) based on the amount of bytes it observes
+ * being accumulated.
+ * <p>
+ * While only small amounts of bytes are waiting to be decoded, which is the case for decoders of small frames, the
+ * bytes are copied into a single buffer as this keeps the indexing in the decoder cheap. Once large amounts of bytes
+ * are accumulated, which is the case while a large frame is received, incoming buffers are added as components of a
+ * {@link CompositeByteBuf} so the already received bytes are not copied over and over again while the cumulation
+ * grows.
+ * <p>
+ * When merging, the bytes are written into the existing cumulation whenever it has enough writable space, and
+ * already decoded bytes are discarded first if this makes enough room, so that the cumulation only needs to be
+ * reallocated if it is really too small.
+ * <p>
+ * An instance keeps state and statistics about the decoder it is used by, and so <strong>MUST NOT</strong> be shared
+ * between multiple {@link ByteToMessageDecoder}s.
+ */
+@UnstableApi
+public final class AdaptiveCumulator implements Cumulator {
+
+    private static final int DEFAULT_COMPOSITE_THRESHOLD = 64 * 1024;
+    private static final int DEFAULT_MIN_COMPONENT_SIZE = 4 * 1024;
+
+    private final int compositeThreshold;
+    private final int minComponentSize;
+
+    // Moving average of the number of bytes which are accumulated when cumulate(...) is called.
+    private int averageCumulationSize;
+
+    private long mergeCumulations;
+    private long compositeCumulations;
+    private long copiedBytes;
+    private long expansions;
+    private long discardedBytes;
+
+    /**
+     * Creates a new instance which starts composing once about {@code 64KiB} are accumulated on average.
+     */
+    public AdaptiveCumulator() {
+        this(DEFAULT_COMPOSITE_THRESHOLD, DEFAULT_MIN_COMPONENT_SIZE);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param compositeThreshold the average number of accumulated bytes from which on a {@link CompositeByteBuf}
+     *                           is used.
+     * @param minComponentSize   the minimum number of readable bytes a {@link ByteBuf} must have to be added as a
+     *                           component. Smaller buffers are always copied.
+     */
+    public AdaptiveCumulator(int compositeThreshold, int minComponentSize) {
+        this.compositeThreshold = checkPositive(compositeThreshold, "compositeThreshold");
+        this.minComponentSize = checkPositiveOrZero(minComponentSize, "minComponentSize");
+    }
+
+    @Override
+    public ByteBuf cumulate(ByteBufAllocator alloc, ByteBuf cumulation, ByteBuf in) {
+        final int pending = cumulation.readableBytes();
+        final int incoming = in.readableBytes();
+        final int cumulationSize = pending + incoming;
+        averageCumulationSize += (cumulationSize - averageCumulationSize) >> 3;
+
+        if (pending == 0 && cumulation.refCnt() == 1) {
+            // Nothing left over from the previous decode, so just swap the buffers and not copy anything.
+            cumulation.release();
+            return in;
+        }
+
+        if (cumulation.refCnt() == 1) {
+            if (cumulation instanceof CompositeByteBuf) {
+                // Keep composing while large frames are received or too many bytes are pending to copy them cheaply.
+                if (averageCumulationSize >= compositeThreshold || pending >= minComponentSize) {
+                    return compose(alloc, cumulation, in);
+                }
+            } else if (incoming >= minComponentSize && averageCumulationSize >= compositeThreshold) {
+                return compose(alloc, cumulation, in);
+            }
+        }
+        return merge(alloc, cumulation, in);
+    }
+
+    private ByteBuf merge(ByteBufAllocator alloc, ByteBuf cumulation, ByteBuf in) {
+        try {
+            final int incoming = in.readableBytes();
+            final ByteBuf buffer;
+            if (cumulation.refCnt() > 1 || cumulation.isReadOnly() || cumulation instanceof CompositeByteBuf) {
+                // Someone else holds a reference (e.g. via slice().retain()) or we stop composing, so replace it.
+                buffer = expand(alloc, cumulation, incoming);
+            } else if (cumulation.writableBytes() >= incoming) {
+                buffer = cumulation;
+            } else if (cumulation.capacity() - cumulation.readableBytes() >= incoming &&
+                    cumulation.readableBytes() <= cumulation.readerIndex()) {
+                // Discarding the decoded bytes makes enough room and moves fewer bytes than they occupy.
+                discardedBytes += cumulation.readerIndex();
+                copiedBytes += cumulation.readableBytes();
+                cumulation.discardReadBytes();
+                buffer = cumulation;
+            } else if (cumulation.maxCapacity() - cumulation.writerIndex() >= incoming) {
+                // Let the buffer grow by itself, which allows the allocator to reuse the memory it already has.
+                expansions++;
+                copiedBytes += cumulation.writerIndex();
+                buffer = cumulation;
+            } else {
+                buffer = expand(alloc, cumulation, incoming);
+            }
+            buffer.writeBytes(in);
+            copiedBytes += incoming;
+            mergeCumulations++;
+            return buffer;
+        } finally {
+            // We must release in in all cases as otherwise it may produce a leak if writeBytes(...) throw
+            // for whatever release (for example because of OutOfMemoryError).
+            in.release();
+        }
+    }
+
+    private ByteBuf compose(ByteBufAllocator alloc, ByteBuf cumulation, ByteBuf in) {
+        final CompositeByteBuf composite;
+        if (cumulation instanceof CompositeByteBuf) {
+            composite = (CompositeByteBuf) cumulation;
+            final int readerIndex = composite.readerIndex();
+            if (readerIndex > 0) {
+                // Free fully decoded components before adding new ones.
+                composite.discardReadComponents();
+                discardedBytes += readerIndex - composite.readerIndex();
+            }
+        } else {
+            composite = alloc.compositeBuffer(Integer.MAX_VALUE);
+            composite.addComponent(true, cumulation);
+        }
+        // Ownership of in is transferred to the composite, which releases it if it can not be added.
+        composite.addComponent(true, in);
+        compositeCumulations++;
+        return composite;
+    }
+
+    private ByteBuf expand(ByteBufAllocator alloc, ByteBuf cumulation, int incoming) {
+        expansions++;
+        copiedBytes += cumulation.readableBytes();
+        return ByteToMessageDecoder.expandCumulation(alloc, cumulation, incoming);
+    }
+
+    /**
+     * Returns the moving average of the number of bytes which were accumulated when new bytes arrived.
+     */
+    public int averageCumulationSize() {
+        return averageCumulationSize;
+    }
+
+    /**
+     * Returns how often received bytes were copied into the cumulation.
+     */
+    public long mergeCumulations() {
+        return mergeCumulations;
+    }
+
+    /**
+     * Returns how often received bytes were added to the cumulation as a component of a {@link CompositeByteBuf}.
+     */
+    public long compositeCumulations() {
+        return compositeCumulations;
+    }
+
+    /**
+     * Returns the number of bytes which were copied while cumulating.
+     */
+    public long copiedBytes() {
+        return copiedBytes;
+    }
+
+    /**
+     * Returns how often the cumulation had to be reallocated to make room for received bytes.
+     */
+    public long expansions() {
+        return expansions;
+    }
+
+    /**
+     * Returns the number of already decoded bytes which were discarded to make room for received bytes.
+     */
+    public long discardedBytes() {
+        return discardedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveCumulator(averageCumulationSize: " + averageCumulationSize +
+                ", mergeCumulations: " + mergeCumulations +
+                ", compositeCumulations: " + compositeCumulations +
+                ", copiedBytes: " + copiedBytes +
+                ", expansions: " + expansions +
+                ", discardedBytes: " + discardedBytes + ')';
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+/**
+ * Checks if the <a href="https://github.com/hyperxpro/Brotli4j">Brotli4j</a> library which is used by the
+ * {@link BrotliEncoder} and {@link BrotliDecoder} is available.
+ */
+@UnstableApi
+public final class Brotli {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(Brotli.class);
+    private static final Throwable UNAVAILABILITY_CAUSE;
+
+    static {
+        Throwable cause = null;
+        try {
+            Class.forName("com.aayushatharva.brotli4j.Brotli4jLoader", false,
+                    PlatformDependent.getClassLoader(Brotli.class));
+        } catch (ClassNotFoundException t) {
+            cause = t;
+            logger.debug("brotli4j not in the classpath; Brotli support will be unavailable.");
+        }
+
+        if (cause == null) {
+            cause = Brotli4jLoader.getUnavailabilityCause();
+            if (cause != null) {
+                logger.debug("Failed to load the native library of brotli4j; Brotli support will be unavailable.",
+                        cause);
+            }
+        }
+        UNAVAILABILITY_CAUSE = cause;
+    }
+
+    private Brotli() { }
+
+    /**
+     * Returns {@code true} if and only if brotli4j and its native library are available.
+     */
+    public static boolean isAvailable() {
+        return UNAVAILABILITY_CAUSE == null;
+    }
+
+    /**
+     * Ensures that brotli4j and its native library are available.
+     *
+     * @throws UnsatisfiedLinkError if unavailable
+     */
+    public static void ensureAvailability() {
+        if (UNAVAILABILITY_CAUSE != null) {
+            throw (Error) new UnsatisfiedLinkError(
+                    "failed to load brotli4j").initCause(UNAVAILABILITY_CAUSE);
+        }
+    }
+
+    /**
+     * Returns the cause of unavailability of brotli4j, or {@code null} if it is available.
+     */
+    public static Throwable unavailabilityCause() {
+        return UNAVAILABILITY_CAUSE;
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import com.aayushatharva.brotli4j.decoder.DecoderJNI;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.util.internal.UnstableApi;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Decompresses a {@link ByteBuf} encoded with the <a href="https://tools.ietf.org/html/rfc7932">Brotli</a> format,
+ * as produced by the {@link BrotliEncoder}. The stream may be split across several {@link ByteBuf}s, and any input
+ * after its end is discarded.
+ * <p>
+ * This requires <a href="https://github.com/hyperxpro/Brotli4j">Brotli4j</a>, see {@link Brotli#isAvailable()}.
+ */
+@UnstableApi
+public class BrotliDecoder extends ByteToMessageDecoder {
+
+    private static final int DEFAULT_INPUT_BUFFER_SIZE = 8 * 1024;
+
+    private final int inputBufferSize;
+    private DecoderJNI.Wrapper decoder;
+    private boolean destroyed;
+
+    /**
+     * Creates a new decoder with an input buffer of {@code 8192} bytes.
+     */
+    public BrotliDecoder() {
+        this(DEFAULT_INPUT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a new decoder.
+     *
+     * @param inputBufferSize   the size of the native buffer the input is copied to.
+     */
+    public BrotliDecoder(int inputBufferSize) {
+        Brotli.ensureAvailability();
+        if (inputBufferSize <= 0) {
+            throw new IllegalArgumentException("inputBufferSize: " + inputBufferSize + " (expected: > 0)");
+        }
+        this.inputBufferSize = inputBufferSize;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        decoder = new DecoderJNI.Wrapper(inputBufferSize);
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        if (destroyed) {
+            // The stream has ended or is corrupted.
+            in.skipBytes(in.readableBytes());
+            return;
+        }
+        if (!in.isReadable()) {
+            return;
+        }
+        try {
+            for (;;) {
+                switch (decoder.getStatus()) {
+                case DONE:
+                    destroy();
+                    in.skipBytes(in.readableBytes());
+                    return;
+                case OK:
+                    decoder.push(0);
+                    break;
+                case NEEDS_MORE_INPUT:
+                    if (decoder.hasOutput()) {
+                        pull(ctx, out);
+                    }
+                    if (!in.isReadable()) {
+                        return;
+                    }
+                    ByteBuffer inputBuffer = decoder.getInputBuffer();
+                    inputBuffer.clear();
+                    int length = Math.min(in.readableBytes(), inputBuffer.remaining());
+                    inputBuffer.limit(length);
+                    in.readBytes(inputBuffer);
+                    decoder.push(length);
+                    break;
+                case NEEDS_MORE_OUTPUT:
+                    pull(ctx, out);
+                    break;
+                default:
+                    destroy();
+                    in.skipBytes(in.readableBytes());
+                    throw new DecompressionException("Brotli stream corrupted");
+                }
+            }
+        } catch (DecompressionException e) {
+            throw e;
+        } catch (Exception e) {
+            destroy();
+            throw new DecompressionException(e);
+        }
+    }
+
+    private void pull(ChannelHandlerContext ctx, List<Object> out) {
+        // The returned buffer is only valid until the next call to the decoder, so it needs to be copied.
+        ByteBuffer nativeBuffer = decoder.pull();
+        ByteBuf buf = ctx.alloc().buffer(nativeBuffer.remaining());
+        buf.writeBytes(nativeBuffer);
+        out.add(buf);
+    }
+
+    private void destroy() {
+        if (!destroyed) {
+            destroyed = true;
+            decoder.destroy();
+        }
+    }
+
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        try {
+            destroy();
+        } finally {
+            super.handlerRemoved0(ctx);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import com.aayushatharva.brotli4j.encoder.BrotliEncoderChannel;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.ChannelPromiseNotifier;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.internal.UnstableApi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compresses a {@link ByteBuf} using the <a href="https://tools.ietf.org/html/rfc7932">Brotli</a> format. All
+ * messages are compressed into a single stream and every message is flushed, so it can be decompressed as soon as it
+ * is received. The stream is finished when the encoder is closed.
+ * <p>
+ * This requires <a href="https://github.com/hyperxpro/Brotli4j">Brotli4j</a>, see {@link Brotli#isAvailable()}.
+ */
+@UnstableApi
+public class BrotliEncoder extends MessageToByteEncoder<ByteBuf> {
+
+    // How long closing the channel waits for the end of the stream to be written.
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private final Encoder.Parameters parameters;
+
+    private final Writer writer = new Writer();
+    private BrotliEncoderChannel encoder;
+    private volatile boolean finished;
+    private volatile ChannelHandlerContext ctx;
+
+    /**
+     * Creates a new encoder with quality {@code 4} and a window of {@code 2^22} bytes.
+     */
+    public BrotliEncoder() {
+        this(BrotliOptions.DEFAULT_QUALITY, BrotliOptions.DEFAULT_WINDOW);
+    }
+
+    /**
+     * Creates a new encoder.
+     *
+     * @param quality   {@code 0} yields the fastest and {@code 11} the best compression.
+     * @param window    the base two logarithm of the size of the window, which is also the memory the decoder needs,
+     *                  in the range {@code 10} to {@code 24}.
+     */
+    public BrotliEncoder(int quality, int window) {
+        super(false);
+        Brotli.ensureAvailability();
+        BrotliOptions.checkParameters(quality, window);
+        parameters = new Encoder.Parameters().setQuality(quality).setWindow(window);
+    }
+
+    @Override
+    protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, ByteBuf msg, boolean preferDirect) {
+        // A flushed block is usually smaller than the input, and the buffer grows otherwise.
+        return ctx.alloc().buffer(Math.max(64, msg.readableBytes() >>> 1));
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ByteBuf in, ByteBuf out) throws Exception {
+        if (finished) {
+            out.writeBytes(in);
+            return;
+        }
+        if (!in.isReadable()) {
+            return;
+        }
+        BrotliEncoderChannel encoder = encoder();
+        writer.out = out;
+        try {
+            for (ByteBuffer src : in.nioBuffers()) {
+                while (src.hasRemaining()) {
+                    encoder.write(src);
+                }
+            }
+            encoder.flush();
+            in.skipBytes(in.readableBytes());
+        } catch (IOException e) {
+            throw new EncoderException(e);
+        } finally {
+            writer.out = null;
+        }
+    }
+
+    private BrotliEncoderChannel encoder() throws IOException {
+        BrotliEncoderChannel encoder = this.encoder;
+        if (encoder == null) {
+            encoder = new BrotliEncoderChannel(writer, parameters);
+            this.encoder = encoder;
+        }
+        return encoder;
+    }
+
+    /**
+     * Returns {@code true} if and only if the compressed stream has been finished.
+     */
+    public boolean isClosed() {
+        return finished;
+    }
+
+    /**
+     * Close this {@link BrotliEncoder} and so finish the encoding.
+     *
+     * The returned {@link ChannelFuture} will be notified once the operation completes.
+     */
+    public ChannelFuture close() {
+        return close(ctx().newPromise());
+    }
+
+    /**
+     * Close this {@link BrotliEncoder} and so finish the encoding.
+     * The given {@link ChannelFuture} will be notified once the operation
+     * completes and will also be returned.
+     */
+    public ChannelFuture close(final ChannelPromise promise) {
+        ChannelHandlerContext ctx = ctx();
+        EventExecutor executor = ctx.executor();
+        if (executor.inEventLoop()) {
+            return finishEncode(ctx, promise);
+        } else {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ChannelFuture f = finishEncode(ctx(), promise);
+                    f.addListener(new ChannelPromiseNotifier(promise));
+                }
+            });
+            return promise;
+        }
+    }
+
+    @Override
+    public void close(final ChannelHandlerContext ctx, final ChannelPromise promise) throws Exception {
+        ChannelFuture f = finishEncode(ctx, ctx.newPromise());
+        f.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture f) throws Exception {
+                ctx.close(promise);
+            }
+        });
+
+        if (!f.isDone()) {
+            // Ensure the channel is closed even if the write operation completes in time.
+            ctx.executor().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    ctx.close(promise);
+                }
+            }, CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private ChannelFuture finishEncode(final ChannelHandlerContext ctx, ChannelPromise promise) {
+        if (finished) {
+            promise.setSuccess();
+            return promise;
+        }
+        finished = true;
+
+        ByteBuf footer = ctx.alloc().buffer(16);
+        writer.out = footer;
+        try {
+            // Closing writes the last block and frees the native encoder.
+            encoder().close();
+        } catch (Throwable cause) {
+            footer.release();
+            promise.setFailure(cause);
+            return promise;
+        } finally {
+            writer.out = null;
+            encoder = null;
+        }
+        return ctx.writeAndFlush(footer, promise);
+    }
+
+    private ChannelHandlerContext ctx() {
+        ChannelHandlerContext ctx = this.ctx;
+        if (ctx == null) {
+            throw new IllegalStateException("not added to a pipeline");
+        }
+        return ctx;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        super.handlerRemoved(ctx);
+        BrotliEncoderChannel encoder = this.encoder;
+        if (encoder != null) {
+            this.encoder = null;
+            // The output is discarded as the writer has no buffer.
+            encoder.close();
+        }
+    }
+
+    /**
+     * Receives the output of the {@link BrotliEncoderChannel} and writes it to the current buffer.
+     */
+    private static final class Writer implements WritableByteChannel {
+        ByteBuf out;
+
+        @Override
+        public int write(ByteBuffer src) {
+            int length = src.remaining();
+            if (out != null) {
+                out.writeBytes(src);
+            } else {
+                src.position(src.limit());
+            }
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            // NOOP
+        }
+    }
+}
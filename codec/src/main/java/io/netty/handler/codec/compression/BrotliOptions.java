@@ -0,0 +1,69 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * {@link CompressionOptions} of the Brotli algorithm, see {@link BrotliEncoder}.
+ */
+@UnstableApi
+public final class BrotliOptions implements CompressionOptions {
+
+    static final int DEFAULT_QUALITY = 4;
+    static final int DEFAULT_WINDOW = 22;
+
+    static final BrotliOptions DEFAULT = new BrotliOptions(DEFAULT_QUALITY, DEFAULT_WINDOW);
+
+    private final int quality;
+    private final int window;
+
+    BrotliOptions(int quality, int window) {
+        checkParameters(quality, window);
+        this.quality = quality;
+        this.window = window;
+    }
+
+    static void checkParameters(int quality, int window) {
+        if (quality < 0 || quality > 11) {
+            throw new IllegalArgumentException("quality: " + quality + " (expected: 0-11)");
+        }
+        if (window < 10 || window > 24) {
+            throw new IllegalArgumentException("window: " + window + " (expected: 10-24)");
+        }
+    }
+
+    /**
+     * Returns the quality, from {@code 0} (fastest) to {@code 11} (best compression).
+     */
+    public int quality() {
+        return quality;
+    }
+
+    /**
+     * Returns the base two logarithm of the window size.
+     */
+    public int window() {
+        return window;
+    }
+
+    /**
+     * Creates a new {@link BrotliEncoder} with these options.
+     */
+    public BrotliEncoder newEncoder() {
+        return new BrotliEncoder(quality, window);
+    }
+}
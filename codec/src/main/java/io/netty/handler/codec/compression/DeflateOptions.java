@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * {@link CompressionOptions} of the {@code deflate} algorithm, see {@link ZlibCodecFactory}.
+ */
+@UnstableApi
+public class DeflateOptions implements CompressionOptions {
+
+    static final DeflateOptions DEFAULT = new DeflateOptions(6, 15, 8);
+
+    private final int compressionLevel;
+    private final int windowBits;
+    private final int memLevel;
+
+    DeflateOptions(int compressionLevel, int windowBits, int memLevel) {
+        if (compressionLevel < 0 || compressionLevel > 9) {
+            throw new IllegalArgumentException("compressionLevel: " + compressionLevel + " (expected: 0-9)");
+        }
+        if (windowBits < 9 || windowBits > 15) {
+            throw new IllegalArgumentException("windowBits: " + windowBits + " (expected: 9-15)");
+        }
+        if (memLevel < 1 || memLevel > 9) {
+            throw new IllegalArgumentException("memLevel: " + memLevel + " (expected: 1-9)");
+        }
+        this.compressionLevel = compressionLevel;
+        this.windowBits = windowBits;
+        this.memLevel = memLevel;
+    }
+
+    /**
+     * Returns the compression level, from {@code 0} (no compression) to {@code 9} (best compression).
+     */
+    public int compressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Returns the base two logarithm of the size of the history buffer, from {@code 9} to {@code 15}.
+     */
+    public int windowBits() {
+        return windowBits;
+    }
+
+    /**
+     * Returns how much memory is allocated for the internal compression state, from {@code 1} to {@code 9}.
+     */
+    public int memLevel() {
+        return memLevel;
+    }
+}
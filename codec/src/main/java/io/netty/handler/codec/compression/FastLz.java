@@ -30,7 +30,7 @@ final class FastLz {
     private static final int MAX_FARDISTANCE = 65535 + MAX_DISTANCE - 1;
 
     private static final int HASH_LOG = 13;
-    private static final int HASH_SIZE = 1 << HASH_LOG; // 8192
+    static final int HASH_SIZE = 1 << HASH_LOG; // 8192
     private static final int HASH_MASK = HASH_SIZE - 1;
 
     private static final int MAX_COPY = 32;
@@ -90,9 +90,20 @@ final class FastLz {
      *
      * If the input is not compressible, the return value might be larger than length (input buffer size).
      */
-    @SuppressWarnings("IdentityBinaryExpression")
     static int compress(final byte[] input, final int inOffset, final int inLength,
                         final byte[] output, final int outOffset, final int proposedLevel) {
+        return compress(input, inOffset, inLength, output, outOffset, proposedLevel,
+                new GenerationalHashTable(HASH_SIZE));
+    }
+
+    /**
+     * Compress a block of data like {@link #compress(byte[], int, int, byte[], int, int)}, but reuses the given hash
+     * table of {@link #HASH_SIZE} entries instead of allocating a new one.
+     */
+    @SuppressWarnings("IdentityBinaryExpression")
+    static int compress(final byte[] input, final int inOffset, final int inLength,
+                        final byte[] output, final int outOffset, final int proposedLevel,
+                        final GenerationalHashTable htab) {
         final int level;
         if (proposedLevel == LEVEL_AUTO) {
             level = inLength < MIN_RECOMENDED_LENGTH_FOR_LEVEL_2 ? LEVEL_1 : LEVEL_2;
@@ -106,8 +117,6 @@ final class FastLz {
 
         int op = 0;
 
-        // const flzuint8* htab[HASH_SIZE];
-        int[] htab = new int[HASH_SIZE];
         // const flzuint8** hslot;
         int hslot;
         // flzuint32 hval;
@@ -133,11 +142,8 @@ final class FastLz {
         }
 
         /* initializes hash table */
-        //  for (hslot = htab; hslot < htab + HASH_SIZE; hslot++)
-        for (hslot = 0; hslot < HASH_SIZE; hslot++) {
-            //*hslot = ip;
-            htab[hslot] = ip;
-        }
+        // All entries are ip which is 0, so starting a new generation is enough.
+        htab.reset();
 
         /* we start with literal copy */
         copy = 2;
@@ -183,14 +189,14 @@ final class FastLz {
                 // hslot = htab + hval;
                 hslot = hval;
                 // ref = htab[hval];
-                ref = htab[hval];
+                ref = htab.get(hval);
 
                 /* calculate distance to the match */
                 distance = anchor - ref;
 
                 /* update hash table */
                 //*hslot = anchor;
-                htab[hslot] = anchor;
+                htab.put(hslot, anchor);
 
                 /* is this a match? check the first 3 bytes */
                 if (distance == 0
@@ -362,11 +368,11 @@ final class FastLz {
             /* update the hash at match boundary */
             //HASH_FUNCTION(hval,ip);
             hval = hashFunction(input, inOffset + ip);
-            htab[hval] = ip++;
+            htab.put(hval, ip++);
 
             //HASH_FUNCTION(hval,ip);
             hval = hashFunction(input, inOffset + ip);
-            htab[hval] = ip++;
+            htab.put(hval, ip++);
 
             /* assuming literal copy */
             output[outOffset + op++] = MAX_COPY - 1;
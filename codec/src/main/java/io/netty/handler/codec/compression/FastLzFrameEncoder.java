@@ -40,6 +40,16 @@ public class FastLzFrameEncoder extends MessageToByteEncoder<ByteBuf> {
      */
     private final Checksum checksum;
 
+    /**
+     * Hash table which is reused for every block.
+     */
+    private final GenerationalHashTable hashTable = new GenerationalHashTable(HASH_SIZE);
+
+    /**
+     * Reused to copy the input if it is not backed by an array, allocated lazily.
+     */
+    private byte[] inputCopy;
+
     /**
      * Creates a FastLZ encoder without checksum calculator and with auto detection of compression level.
      */
@@ -125,8 +135,8 @@ public class FastLzFrameEncoder extends MessageToByteEncoder<ByteBuf> {
                         input = in.array();
                         inputPtr = in.arrayOffset() + idx;
                     } else {
-                        input = new byte[length];
-                        in.getBytes(idx, input);
+                        input = inputCopy(length);
+                        in.getBytes(idx, input, 0, length);
                         inputPtr = 0;
                     }
 
@@ -147,8 +157,8 @@ public class FastLzFrameEncoder extends MessageToByteEncoder<ByteBuf> {
                     input = in.array();
                     inputPtr = in.arrayOffset() + idx;
                 } else {
-                    input = new byte[length];
-                    in.getBytes(idx, input);
+                    input = inputCopy(length);
+                    in.getBytes(idx, input, 0, length);
                     inputPtr = 0;
                 }
 
@@ -162,7 +172,8 @@ public class FastLzFrameEncoder extends MessageToByteEncoder<ByteBuf> {
                 out.ensureWritable(outputOffset + 4 + maxOutputLength);
                 final byte[] output = out.array();
                 final int outputPtr = out.arrayOffset() + outputOffset + 4;
-                final int compressedLength = compress(input, inputPtr, length, output, outputPtr, level);
+                final int compressedLength = compress(input, inputPtr, length, output, outputPtr, level,
+                        hashTable);
                 if (compressedLength < length) {
                     blockType = BLOCK_TYPE_COMPRESSED;
                     chunkLength = compressedLength;
@@ -183,4 +194,13 @@ public class FastLzFrameEncoder extends MessageToByteEncoder<ByteBuf> {
             in.skipBytes(length);
         }
     }
+
+    private byte[] inputCopy(int length) {
+        byte[] inputCopy = this.inputCopy;
+        if (inputCopy == null || inputCopy.length < length) {
+            inputCopy = new byte[length];
+            this.inputCopy = inputCopy;
+        }
+        return inputCopy;
+    }
 }
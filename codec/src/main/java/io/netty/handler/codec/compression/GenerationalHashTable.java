@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import java.util.Arrays;
+
+/**
+ * Hash table of 16 bit positions which is reused by an encoder for every block it compresses. Every entry is tagged
+ * with the generation in which it was stored, and {@link #reset()} starts a new generation, so the table behaves as
+ * if all entries were {@code 0} without the need to clear it for every block.
+ */
+final class GenerationalHashTable {
+
+    private static final int MAX_GENERATION = 0xFFFF;
+
+    private final int[] table;
+    private int generation = 1;
+
+    GenerationalHashTable(int size) {
+        table = new int[size];
+    }
+
+    /**
+     * Returns the number of entries.
+     */
+    int size() {
+        return table.length;
+    }
+
+    /**
+     * Invalidates all entries.
+     */
+    void reset() {
+        if (generation == MAX_GENERATION) {
+            // Clear the table once the generations are used up, so no stale entry can match a generation again.
+            Arrays.fill(table, 0);
+            generation = 1;
+        } else {
+            generation++;
+        }
+    }
+
+    /**
+     * Returns the position stored for the given hash, or {@code 0} if none was stored since the last
+     * {@link #reset()}.
+     */
+    int get(int hash) {
+        int entry = table[hash];
+        return entry >>> 16 == generation ? entry & 0xFFFF : 0;
+    }
+
+    /**
+     * Stores the lower 16 bits of the given position for the given hash.
+     */
+    void put(int hash, int position) {
+        table[hash] = generation << 16 | position & 0xFFFF;
+    }
+}
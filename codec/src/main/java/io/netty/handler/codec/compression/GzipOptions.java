@@ -0,0 +1,31 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * {@link CompressionOptions} of the {@code gzip} format, which uses the {@code deflate} algorithm.
+ */
+@UnstableApi
+public final class GzipOptions extends DeflateOptions {
+
+    static final GzipOptions DEFAULT = new GzipOptions(6, 15, 8);
+
+    GzipOptions(int compressionLevel, int windowBits, int memLevel) {
+        super(compressionLevel, windowBits, memLevel);
+    }
+}
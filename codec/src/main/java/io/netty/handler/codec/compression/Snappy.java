@@ -16,6 +16,7 @@
 package io.netty.handler.codec.compression;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.util.internal.PlatformDependent;
 
 /**
  * Uncompresses an input {@link ByteBuf} encoded with Snappy compression into an
@@ -38,10 +39,20 @@ public final class Snappy {
     private static final int COPY_2_BYTE_OFFSET = 2;
     private static final int COPY_4_BYTE_OFFSET = 3;
 
+    private static final boolean UNSAFE_ACCESS = PlatformDependent.hasUnsafe() && PlatformDependent.isUnaligned();
+
     private State state = State.READY;
     private byte tag;
     private int written;
 
+    // Reused for every call of encode(...).
+    private GenerationalHashTable table;
+
+    // Only set while encoding, if the input can be accessed without bounds checks.
+    private byte[] inArray;
+    private int inArrayOffset;
+    private long inAddress;
+
     private enum State {
         READY,
         READING_PREAMBLE,
@@ -71,8 +82,30 @@ public final class Snappy {
         int inIndex = in.readerIndex();
         final int baseIndex = inIndex;
 
-        final short[] table = getHashTable(length);
-        final int shift = Integer.numberOfLeadingZeros(table.length) + 1;
+        final int tableSize = hashTableSize(length);
+        final GenerationalHashTable table = hashTable(tableSize);
+        final int shift = Integer.numberOfLeadingZeros(tableSize) + 1;
+
+        // The positions in the hash table are only 15 bits, so make sure all indexes are in bounds before bypassing
+        // the bounds checks.
+        if (UNSAFE_ACCESS && length <= Short.MAX_VALUE && length <= in.writerIndex()) {
+            if (in.hasArray()) {
+                inArray = in.array();
+                inArrayOffset = in.arrayOffset();
+            } else if (in.hasMemoryAddress()) {
+                inAddress = in.memoryAddress();
+            }
+        }
+        try {
+            encode0(in, out, length, inIndex, baseIndex, table, shift);
+        } finally {
+            inArray = null;
+            inAddress = 0;
+        }
+    }
+
+    private void encode0(ByteBuf in, ByteBuf out, int length, int inIndex, int baseIndex,
+                         GenerationalHashTable table, int shift) {
 
         int nextEmit = inIndex;
 
@@ -96,11 +129,11 @@ public final class Snappy {
 
                     nextHash = hash(in, nextIndex, shift);
 
-                    candidate = baseIndex + table[hash];
+                    candidate = baseIndex + (short) table.get(hash);
 
-                    table[hash] = (short) (inIndex - baseIndex);
+                    table.put(hash, inIndex - baseIndex);
                 }
-                while (in.getInt(inIndex) != in.getInt(candidate));
+                while (getInt(in, inIndex) != getInt(in, candidate));
 
                 encodeLiteral(in, out, inIndex - nextEmit);
 
@@ -119,12 +152,12 @@ public final class Snappy {
                     }
 
                     int prevHash = hash(in, insertTail, shift);
-                    table[prevHash] = (short) (inIndex - baseIndex - 1);
+                    table.put(prevHash, inIndex - baseIndex - 1);
                     int currentHash = hash(in, insertTail + 1, shift);
-                    candidate = baseIndex + table[currentHash];
-                    table[currentHash] = (short) (inIndex - baseIndex);
+                    candidate = baseIndex + (short) table.get(currentHash);
+                    table.put(currentHash, inIndex - baseIndex);
                 }
-                while (in.getInt(insertTail + 1) == in.getInt(candidate));
+                while (getInt(in, insertTail + 1) == getInt(in, candidate));
 
                 nextHash = hash(in, insertTail + 2, shift);
                 ++inIndex;
@@ -147,22 +180,66 @@ public final class Snappy {
      *     withing the range of our hash table size
      * @return A 32-bit hash of 4 bytes located at index
      */
-    private static int hash(ByteBuf in, int index, int shift) {
-        return in.getInt(index) * 0x1e35a7bd >>> shift;
+    private int hash(ByteBuf in, int index, int shift) {
+        return getInt(in, index) * 0x1e35a7bd >>> shift;
+    }
+
+    /**
+     * Reads the big-endian int at the given index, without bounds checks if possible.
+     */
+    private int getInt(ByteBuf in, int index) {
+        final int value;
+        if (inArray != null) {
+            value = PlatformDependent.getInt(inArray, inArrayOffset + index);
+        } else if (inAddress != 0) {
+            value = PlatformDependent.getInt(inAddress + index);
+        } else {
+            return in.getInt(index);
+        }
+        return PlatformDependent.BIG_ENDIAN_NATIVE_ORDER ? value : Integer.reverseBytes(value);
     }
 
     /**
-     * Creates an appropriately sized hashtable for the given input size
+     * Reads the big-endian long at the given index, without bounds checks if possible.
+     */
+    private long getLong(ByteBuf in, int index) {
+        final long value;
+        if (inArray != null) {
+            value = PlatformDependent.getLong(inArray, inArrayOffset + index);
+        } else if (inAddress != 0) {
+            value = PlatformDependent.getLong(inAddress + index);
+        } else {
+            return in.getLong(index);
+        }
+        return PlatformDependent.BIG_ENDIAN_NATIVE_ORDER ? value : Long.reverseBytes(value);
+    }
+
+    /**
+     * Calculates an appropriate hashtable size for the given input size
      *
      * @param inputSize The size of our input, ie. the number of bytes we need to encode
-     * @return An appropriately sized empty hashtable
+     * @return An appropriate hashtable size
      */
-    private static short[] getHashTable(int inputSize) {
+    private static int hashTableSize(int inputSize) {
         int htSize = 256;
         while (htSize < MAX_HT_SIZE && htSize < inputSize) {
             htSize <<= 1;
         }
-        return new short[htSize];
+        return htSize;
+    }
+
+    /**
+     * Returns the reused hashtable with at least the given size, which behaves as if it was empty.
+     */
+    private GenerationalHashTable hashTable(int htSize) {
+        GenerationalHashTable table = this.table;
+        if (table == null || table.size() < htSize) {
+            table = new GenerationalHashTable(htSize);
+            this.table = table;
+        } else {
+            table.reset();
+        }
+        return table;
     }
 
     /**
@@ -176,11 +253,21 @@ public final class Snappy {
      * @param maxIndex The length of our input buffer
      * @return The number of bytes for which our candidate copy is a repeat of
      */
-    private static int findMatchingLength(ByteBuf in, int minIndex, int inIndex, int maxIndex) {
+    private int findMatchingLength(ByteBuf in, int minIndex, int inIndex, int maxIndex) {
         int matched = 0;
 
+        while (inIndex <= maxIndex - 8) {
+            long diff = getLong(in, inIndex) ^ getLong(in, minIndex + matched);
+            if (diff != 0) {
+                // The values are big-endian, so the leading zero bytes are the ones which matched.
+                return matched + (Long.numberOfLeadingZeros(diff) >>> 3);
+            }
+            inIndex += 8;
+            matched += 8;
+        }
+
         while (inIndex <= maxIndex - 4 &&
-                in.getInt(inIndex) == in.getInt(minIndex + matched)) {
+                getInt(in, inIndex) == getInt(in, minIndex + matched)) {
             inIndex += 4;
             matched += 4;
         }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * Creates the {@link CompressionOptions} of the supported algorithms.
+ */
+@UnstableApi
+public final class StandardCompressionOptions {
+
+    private StandardCompressionOptions() { }
+
+    /**
+     * Returns the {@link GzipOptions} with compression level {@code 6}, window bits {@code 15} and memory level
+     * {@code 8}.
+     */
+    public static GzipOptions gzip() {
+        return GzipOptions.DEFAULT;
+    }
+
+    /**
+     * Returns {@link GzipOptions} with the given parameters, see {@link DeflateOptions} for their ranges.
+     */
+    public static GzipOptions gzip(int compressionLevel, int windowBits, int memLevel) {
+        return new GzipOptions(compressionLevel, windowBits, memLevel);
+    }
+
+    /**
+     * Returns the {@link DeflateOptions} with compression level {@code 6}, window bits {@code 15} and memory level
+     * {@code 8}.
+     */
+    public static DeflateOptions deflate() {
+        return DeflateOptions.DEFAULT;
+    }
+
+    /**
+     * Returns {@link DeflateOptions} with the given parameters, see {@link DeflateOptions} for their ranges.
+     */
+    public static DeflateOptions deflate(int compressionLevel, int windowBits, int memLevel) {
+        return new DeflateOptions(compressionLevel, windowBits, memLevel);
+    }
+
+    /**
+     * Returns the {@link ZstdOptions} with compression level {@code 3}, a window size which depends on it and no
+     * dictionary.
+     */
+    public static ZstdOptions zstd() {
+        return ZstdOptions.DEFAULT;
+    }
+
+    /**
+     * Returns {@link ZstdOptions} with the given parameters, see {@link ZstdEncoder} for their ranges.
+     */
+    public static ZstdOptions zstd(int compressionLevel, int windowLog, ZstdDictionary dictionary) {
+        return new ZstdOptions(compressionLevel, windowLog, dictionary);
+    }
+
+    /**
+     * Returns the {@link BrotliOptions} with quality {@code 4} and a window of {@code 2^22} bytes.
+     */
+    public static BrotliOptions brotli() {
+        return BrotliOptions.DEFAULT;
+    }
+
+    /**
+     * Returns {@link BrotliOptions} with the given parameters, see {@link BrotliEncoder} for their ranges.
+     */
+    public static BrotliOptions brotli(int quality, int window) {
+        return new BrotliOptions(quality, window);
+    }
+}
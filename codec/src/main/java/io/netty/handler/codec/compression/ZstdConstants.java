@@ -0,0 +1,56 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+final class ZstdConstants {
+
+    /**
+     * The default compression level, which is also the one of the zstd command line tool.
+     */
+    static final int DEFAULT_COMPRESSION_LEVEL = 3;
+
+    static final int MIN_COMPRESSION_LEVEL = 1;
+    static final int MAX_COMPRESSION_LEVEL = 22;
+
+    /**
+     * Lets zstd choose the window size depending on the compression level.
+     */
+    static final int DEFAULT_WINDOW_LOG = 0;
+
+    static final int MIN_WINDOW_LOG = 10;
+    static final int MAX_WINDOW_LOG = 31;
+
+    /**
+     * The maximum size of a block, which the output buffers of the {@link ZstdDecoder} grow to at most.
+     */
+    static final int MAX_BLOCK_SIZE = 1 << 17;
+
+    static void checkCompressionLevel(int compressionLevel) {
+        if (compressionLevel < MIN_COMPRESSION_LEVEL || compressionLevel > MAX_COMPRESSION_LEVEL) {
+            throw new IllegalArgumentException("compressionLevel: " + compressionLevel +
+                    " (expected: " + MIN_COMPRESSION_LEVEL + '-' + MAX_COMPRESSION_LEVEL + ')');
+        }
+    }
+
+    static void checkWindowLog(int windowLog) {
+        if (windowLog != DEFAULT_WINDOW_LOG && (windowLog < MIN_WINDOW_LOG || windowLog > MAX_WINDOW_LOG)) {
+            throw new IllegalArgumentException("windowLog: " + windowLog +
+                    " (expected: 0 or " + MIN_WINDOW_LOG + '-' + MAX_WINDOW_LOG + ')');
+        }
+    }
+
+    private ZstdConstants() { }
+}
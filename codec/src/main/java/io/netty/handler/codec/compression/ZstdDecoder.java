@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import com.github.luben.zstd.ZstdDecompressCtx;
+import com.github.luben.zstd.ZstdException;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.util.internal.UnstableApi;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static io.netty.handler.codec.compression.ZstdConstants.MAX_BLOCK_SIZE;
+
+/**
+ * Decompresses a {@link ByteBuf} encoded with the <a href="https://facebook.github.io/zstd/">Zstandard</a> format,
+ * as produced by the {@link ZstdEncoder}. The input may contain any number of frames, which may be split across
+ * several {@link ByteBuf}s.
+ * <p>
+ * This requires <a href="https://github.com/luben/zstd-jni">zstd-jni</a>, see {@link Zstd#isAvailable()}.
+ */
+@UnstableApi
+public class ZstdDecoder extends ByteToMessageDecoder {
+
+    private static final int MIN_OUTPUT_SIZE = 4096;
+
+    private final ZstdDictionary dictionary;
+
+    private ZstdDecompressCtx decompressor;
+    private boolean corrupted;
+
+    /**
+     * Creates a new decoder without dictionary.
+     */
+    public ZstdDecoder() {
+        this(null);
+    }
+
+    /**
+     * Creates a new decoder.
+     *
+     * @param dictionary    the dictionary the input was compressed with, or {@code null}.
+     */
+    public ZstdDecoder(ZstdDictionary dictionary) {
+        Zstd.ensureAvailability();
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        if (corrupted) {
+            in.skipBytes(in.readableBytes());
+            return;
+        }
+        int readable = in.readableBytes();
+        if (readable == 0) {
+            return;
+        }
+        ByteBuf copy = null;
+        try {
+            final ByteBuffer src;
+            if (in.isDirect() && in.nioBufferCount() == 1) {
+                src = in.nioBuffer();
+            } else {
+                copy = ctx.alloc().directBuffer(readable);
+                copy.writeBytes(in, in.readerIndex(), readable);
+                src = copy.nioBuffer();
+            }
+            decompress(ctx, src, out);
+            // All input is buffered by the decompressor if it can not be decompressed yet.
+            in.skipBytes(readable);
+        } catch (ZstdException e) {
+            corrupted = true;
+            throw new DecompressionException(e);
+        } finally {
+            if (copy != null) {
+                copy.release();
+            }
+        }
+    }
+
+    private void decompress(ChannelHandlerContext ctx, ByteBuffer src, List<Object> out) {
+        ZstdDecompressCtx decompressor = decompressor();
+        // Start with a guess of the compression ratio, and use blocks of the maximum size if it does not fit.
+        int outputSize = Math.min(MAX_BLOCK_SIZE, Math.max(MIN_OUTPUT_SIZE, src.remaining() << 2));
+        for (;;) {
+            ByteBuf buf = ctx.alloc().directBuffer(outputSize);
+            boolean full;
+            try {
+                ByteBuffer dst = buf.internalNioBuffer(0, outputSize);
+                int position = dst.position();
+                decompressor.decompressDirectByteBufferStream(dst, src);
+                int written = dst.position() - position;
+                buf.writerIndex(written);
+                full = written == outputSize;
+            } catch (RuntimeException e) {
+                buf.release();
+                throw e;
+            }
+            if (buf.isReadable()) {
+                out.add(buf);
+            } else {
+                buf.release();
+            }
+            // If the output is full the decompressor may hold more data even if all input was consumed.
+            if (!full && !src.hasRemaining()) {
+                return;
+            }
+            outputSize = MAX_BLOCK_SIZE;
+        }
+    }
+
+    private ZstdDecompressCtx decompressor() {
+        ZstdDecompressCtx decompressor = this.decompressor;
+        if (decompressor == null) {
+            decompressor = new ZstdDecompressCtx();
+            if (dictionary != null) {
+                decompressor.loadDict(dictionary.decompressDictionary());
+            }
+            this.decompressor = decompressor;
+        }
+        return decompressor;
+    }
+
+    @Override
+    protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
+        if (decompressor != null) {
+            decompressor.close();
+            decompressor = null;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.concurrent.ConcurrentMap;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * A pre-trained Zstandard dictionary, as created by {@code zstd --train}, which improves the compression of small
+ * messages that are similar to the ones it was trained with. The dictionary is only digested once per compression
+ * level, so a single instance should be shared by all {@link ZstdEncoder}s and {@link ZstdDecoder}s, for example of
+ * all connections of a server. Encoder and decoder must use the same dictionary.
+ */
+@UnstableApi
+public final class ZstdDictionary {
+
+    private final byte[] dictionary;
+    private final ConcurrentMap<Integer, ZstdDictCompress> compressDictionaries =
+            PlatformDependent.newConcurrentHashMap();
+    private volatile ZstdDictDecompress decompressDictionary;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param dictionary    the content of the dictionary.
+     */
+    public ZstdDictionary(byte[] dictionary) {
+        checkNotNull(dictionary, "dictionary");
+        if (dictionary.length == 0) {
+            throw new IllegalArgumentException("dictionary must not be empty");
+        }
+        this.dictionary = dictionary.clone();
+    }
+
+    /**
+     * Returns the dictionary digested for compression at the given level.
+     */
+    ZstdDictCompress compressDictionary(int compressionLevel) {
+        Integer key = compressionLevel;
+        ZstdDictCompress dict = compressDictionaries.get(key);
+        if (dict == null) {
+            dict = new ZstdDictCompress(dictionary, compressionLevel);
+            ZstdDictCompress old = compressDictionaries.putIfAbsent(key, dict);
+            if (old != null) {
+                dict.close();
+                dict = old;
+            }
+        }
+        return dict;
+    }
+
+    /**
+     * Returns the dictionary digested for decompression.
+     */
+    ZstdDictDecompress decompressDictionary() {
+        ZstdDictDecompress dict = decompressDictionary;
+        if (dict == null) {
+            synchronized (this) {
+                dict = decompressDictionary;
+                if (dict == null) {
+                    dict = new ZstdDictDecompress(dictionary);
+                    decompressDictionary = dict;
+                }
+            }
+        }
+        return dict;
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import com.github.luben.zstd.EndDirective;
+import com.github.luben.zstd.ZstdCompressCtx;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.ChannelPromiseNotifier;
+import io.netty.handler.codec.EncoderException;
+import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.internal.UnstableApi;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.handler.codec.compression.ZstdConstants.DEFAULT_COMPRESSION_LEVEL;
+import static io.netty.handler.codec.compression.ZstdConstants.DEFAULT_WINDOW_LOG;
+import static io.netty.handler.codec.compression.ZstdConstants.checkCompressionLevel;
+import static io.netty.handler.codec.compression.ZstdConstants.checkWindowLog;
+
+/**
+ * Compresses a {@link ByteBuf} using the <a href="https://facebook.github.io/zstd/">Zstandard</a> streaming format.
+ * All messages are compressed into a single frame and every message is flushed, so it can be decompressed as soon as
+ * it is received. The frame is finished when the encoder is closed.
+ * <p>
+ * This requires <a href="https://github.com/luben/zstd-jni">zstd-jni</a>, see {@link Zstd#isAvailable()}.
+ */
+@UnstableApi
+public class ZstdEncoder extends MessageToByteEncoder<ByteBuf> {
+
+    // How long closing the channel waits for the end of the stream to be written.
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    // zstd-jni only accepts direct buffers, this one is never modified as it has no capacity.
+    private static final ByteBuffer EMPTY_DIRECT_BUFFER = ByteBuffer.allocateDirect(0);
+
+    private final int compressionLevel;
+    private final int windowLog;
+    private final ZstdDictionary dictionary;
+
+    private ZstdCompressCtx compressor;
+    private volatile boolean finished;
+    private volatile ChannelHandlerContext ctx;
+
+    /**
+     * Creates a new encoder with the default compression level and window size.
+     */
+    public ZstdEncoder() {
+        this(DEFAULT_COMPRESSION_LEVEL);
+    }
+
+    /**
+     * Creates a new encoder with the given compression level and the default window size.
+     *
+     * @param compressionLevel  {@code 1} yields the fastest and {@code 22} the best compression, the default is
+     *                          {@code 3}.
+     */
+    public ZstdEncoder(int compressionLevel) {
+        this(compressionLevel, DEFAULT_WINDOW_LOG, null);
+    }
+
+    /**
+     * Creates a new encoder.
+     *
+     * @param compressionLevel  {@code 1} yields the fastest and {@code 22} the best compression, the default is
+     *                          {@code 3}.
+     * @param windowLog         the base two logarithm of the size of the window, which is also the memory the
+     *                          decoder needs, in the range {@code 10} to {@code 31}. {@code 0} lets zstd choose the
+     *                          size depending on the compression level.
+     * @param dictionary        the dictionary to compress with, or {@code null}.
+     */
+    public ZstdEncoder(int compressionLevel, int windowLog, ZstdDictionary dictionary) {
+        super(true);
+        Zstd.ensureAvailability();
+        checkCompressionLevel(compressionLevel);
+        checkWindowLog(windowLog);
+        this.compressionLevel = compressionLevel;
+        this.windowLog = windowLog;
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, ByteBuf msg, boolean preferDirect) {
+        // The output must be direct, and a flushed block usually fits into the bound of the input.
+        return ctx.alloc().directBuffer(
+                (int) Math.min(Integer.MAX_VALUE, com.github.luben.zstd.Zstd.compressBound(msg.readableBytes())));
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ByteBuf in, ByteBuf out) throws Exception {
+        if (finished) {
+            if (!out.isWritable(in.readableBytes())) {
+                // out should be big enough as it was allocated via allocateBuffer(...).
+                throw new EncoderException("encoder finished");
+            }
+            out.writeBytes(in);
+            return;
+        }
+        if (!in.isReadable()) {
+            return;
+        }
+        ByteBuf copy = null;
+        try {
+            final ByteBuffer src;
+            if (in.isDirect() && in.nioBufferCount() == 1) {
+                src = in.nioBuffer();
+            } else {
+                copy = ctx.alloc().directBuffer(in.readableBytes());
+                copy.writeBytes(in, in.readerIndex(), in.readableBytes());
+                src = copy.nioBuffer();
+            }
+            compress(out, src, EndDirective.FLUSH);
+            in.skipBytes(in.readableBytes());
+        } finally {
+            if (copy != null) {
+                copy.release();
+            }
+        }
+    }
+
+    private void compress(ByteBuf out, ByteBuffer src, EndDirective directive) {
+        ZstdCompressCtx compressor = compressor();
+        for (;;) {
+            // Make room for at least a small block, the output is written in the next iteration if it is not enough.
+            out.ensureWritable(64);
+            ByteBuffer dst = out.internalNioBuffer(out.writerIndex(), out.writableBytes());
+            int position = dst.position();
+            boolean done = compressor.compressDirectByteBufferStream(dst, src, directive);
+            out.writerIndex(out.writerIndex() + dst.position() - position);
+            if (done) {
+                return;
+            }
+        }
+    }
+
+    private ZstdCompressCtx compressor() {
+        ZstdCompressCtx compressor = this.compressor;
+        if (compressor == null) {
+            compressor = new ZstdCompressCtx();
+            if (dictionary != null) {
+                compressor.loadDict(dictionary.compressDictionary(compressionLevel));
+            }
+            compressor.setLevel(compressionLevel);
+            if (windowLog != DEFAULT_WINDOW_LOG) {
+                compressor.setWindowLog(windowLog);
+            }
+            this.compressor = compressor;
+        }
+        return compressor;
+    }
+
+    /**
+     * Returns {@code true} if and only if the compressed stream has been finished.
+     */
+    public boolean isClosed() {
+        return finished;
+    }
+
+    /**
+     * Close this {@link ZstdEncoder} and so finish the encoding.
+     *
+     * The returned {@link ChannelFuture} will be notified once the operation completes.
+     */
+    public ChannelFuture close() {
+        return close(ctx().newPromise());
+    }
+
+    /**
+     * Close this {@link ZstdEncoder} and so finish the encoding.
+     * The given {@link ChannelFuture} will be notified once the operation
+     * completes and will also be returned.
+     */
+    public ChannelFuture close(final ChannelPromise promise) {
+        ChannelHandlerContext ctx = ctx();
+        EventExecutor executor = ctx.executor();
+        if (executor.inEventLoop()) {
+            return finishEncode(ctx, promise);
+        } else {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ChannelFuture f = finishEncode(ctx(), promise);
+                    f.addListener(new ChannelPromiseNotifier(promise));
+                }
+            });
+            return promise;
+        }
+    }
+
+    @Override
+    public void close(final ChannelHandlerContext ctx, final ChannelPromise promise) throws Exception {
+        ChannelFuture f = finishEncode(ctx, ctx.newPromise());
+        f.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture f) throws Exception {
+                ctx.close(promise);
+            }
+        });
+
+        if (!f.isDone()) {
+            // Ensure the channel is closed even if the write operation completes in time.
+            ctx.executor().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    ctx.close(promise);
+                }
+            }, CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private ChannelFuture finishEncode(final ChannelHandlerContext ctx, ChannelPromise promise) {
+        if (finished) {
+            promise.setSuccess();
+            return promise;
+        }
+        finished = true;
+
+        ByteBuf footer = ctx.alloc().directBuffer(64);
+        try {
+            compress(footer, EMPTY_DIRECT_BUFFER, EndDirective.END);
+        } catch (Throwable cause) {
+            footer.release();
+            promise.setFailure(cause);
+            return promise;
+        } finally {
+            freeCompressor();
+        }
+        return ctx.writeAndFlush(footer, promise);
+    }
+
+    private ChannelHandlerContext ctx() {
+        ChannelHandlerContext ctx = this.ctx;
+        if (ctx == null) {
+            throw new IllegalStateException("not added to a pipeline");
+        }
+        return ctx;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        super.handlerRemoved(ctx);
+        freeCompressor();
+    }
+
+    private void freeCompressor() {
+        if (compressor != null) {
+            compressor.close();
+            compressor = null;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.util.internal.UnstableApi;
+
+import static io.netty.handler.codec.compression.ZstdConstants.DEFAULT_COMPRESSION_LEVEL;
+import static io.netty.handler.codec.compression.ZstdConstants.DEFAULT_WINDOW_LOG;
+import static io.netty.handler.codec.compression.ZstdConstants.checkCompressionLevel;
+import static io.netty.handler.codec.compression.ZstdConstants.checkWindowLog;
+
+/**
+ * {@link CompressionOptions} of the Zstandard algorithm, see {@link ZstdEncoder}.
+ */
+@UnstableApi
+public final class ZstdOptions implements CompressionOptions {
+
+    static final ZstdOptions DEFAULT = new ZstdOptions(DEFAULT_COMPRESSION_LEVEL, DEFAULT_WINDOW_LOG, null);
+
+    private final int compressionLevel;
+    private final int windowLog;
+    private final ZstdDictionary dictionary;
+
+    ZstdOptions(int compressionLevel, int windowLog, ZstdDictionary dictionary) {
+        checkCompressionLevel(compressionLevel);
+        checkWindowLog(windowLog);
+        this.compressionLevel = compressionLevel;
+        this.windowLog = windowLog;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Returns the compression level, from {@code 1} (fastest) to {@code 22} (best compression).
+     */
+    public int compressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Returns the base two logarithm of the window size, or {@code 0} if it depends on the compression level.
+     */
+    public int windowLog() {
+        return windowLog;
+    }
+
+    /**
+     * Returns the dictionary to compress with, or {@code null}.
+     */
+    public ZstdDictionary dictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Creates a new {@link ZstdEncoder} with these options.
+     */
+    public ZstdEncoder newEncoder() {
+        return new ZstdEncoder(compressionLevel, windowLog, dictionary);
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AdaptiveCumulatorTest {
+
+    @Test
+    public void testMergeSmallBuffersInPlace() {
+        AdaptiveCumulator cumulator = new AdaptiveCumulator();
+        ByteBuf cumulation = Unpooled.buffer(16, 16).writeByte(1);
+        cumulation = cumulator.cumulate(ByteBufAllocator.DEFAULT, cumulation, Unpooled.wrappedBuffer(new byte[] { 2 }));
+        assertFalse(cumulation instanceof CompositeByteBuf);
+        assertEquals(2, cumulation.readableBytes());
+        assertEquals(1, cumulator.mergeCumulations());
+        assertEquals(0, cumulator.expansions());
+        cumulation.release();
+    }
+
+    @Test
+    public void testDiscardReadBytesInsteadOfExpanding() {
+        AdaptiveCumulator cumulator = new AdaptiveCumulator();
+        ByteBuf cumulation = Unpooled.buffer(8, 8).writeLong(1);
+        cumulation.skipBytes(6);
+        ByteBuf in = Unpooled.buffer(4).writeInt(2);
+        cumulation = cumulator.cumulate(ByteBufAllocator.DEFAULT, cumulation, in);
+        assertEquals(6, cumulation.readableBytes());
+        assertEquals(0, cumulator.expansions());
+        assertEquals(6, cumulator.discardedBytes());
+        assertEquals(0, in.refCnt());
+        cumulation.release();
+    }
+
+    @Test
+    public void testExpandSharedCumulation() {
+        AdaptiveCumulator cumulator = new AdaptiveCumulator();
+        ByteBuf cumulation = Unpooled.buffer(16).writeByte(1);
+        ByteBuf retained = cumulation.retainedSlice();
+        ByteBuf newCumulation = cumulator.cumulate(ByteBufAllocator.DEFAULT, cumulation,
+                                                   Unpooled.wrappedBuffer(new byte[] { 2 }));
+        assertNotSame(cumulation, newCumulation);
+        assertEquals(1, cumulator.expansions());
+        assertEquals(1, retained.readableBytes());
+        retained.release();
+        newCumulation.release();
+        assertEquals(0, cumulation.refCnt());
+    }
+
+    @Test
+    public void testComposeLargeBuffers() {
+        AdaptiveCumulator cumulator = new AdaptiveCumulator(1024, 128);
+        ByteBuf cumulation = Unpooled.buffer().writeBytes(new byte[512]);
+        for (int i = 0; i < 16; i++) {
+            cumulation = cumulator.cumulate(ByteBufAllocator.DEFAULT, cumulation,
+                                            Unpooled.buffer().writeBytes(new byte[512]));
+        }
+        assertTrue(cumulation instanceof CompositeByteBuf);
+        assertEquals(17 * 512, cumulation.readableBytes());
+        assertTrue(cumulator.compositeCumulations() > 0);
+        cumulation.release();
+    }
+
+    @Test
+    public void testDecodeWithLengthFieldBasedFrameDecoder() {
+        for (int frameSize : new int[] { 64, 4096, 256 * 1024 }) {
+            AdaptiveCumulator cumulator = new AdaptiveCumulator();
+            LengthFieldBasedFrameDecoder decoder = new LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, 4, 0, 4);
+            decoder.setCumulator(cumulator);
+            EmbeddedChannel channel = new EmbeddedChannel(decoder);
+
+            int frames = 8;
+            ByteBuf data = Unpooled.buffer();
+            for (int i = 0; i < frames; i++) {
+                data.writeInt(frameSize);
+                for (int j = 0; j < frameSize; j++) {
+                    data.writeByte(i + j);
+                }
+            }
+            // Write in chunks which do not line up with the frames.
+            while (data.isReadable()) {
+                channel.writeInbound(data.readBytes(Math.min(data.readableBytes(), 7001)));
+            }
+            data.release();
+
+            for (int i = 0; i < frames; i++) {
+                ByteBuf frame = channel.readInbound();
+                assertEquals(frameSize, frame.readableBytes());
+                for (int j = 0; j < frameSize; j++) {
+                    assertEquals((byte) (i + j), frame.readByte());
+                }
+                frame.release();
+            }
+            assertFalse(channel.finish());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BrotliIntegrationTest extends AbstractIntegrationTest {
+
+    @BeforeClass
+    public static void checkAvailability() {
+        Assume.assumeTrue("Brotli is unavailable: " + Brotli.unavailabilityCause(), Brotli.isAvailable());
+    }
+
+    @Override
+    protected EmbeddedChannel createEncoder() {
+        return new EmbeddedChannel(new BrotliEncoder());
+    }
+
+    @Override
+    protected EmbeddedChannel createDecoder() {
+        return new EmbeddedChannel(new BrotliDecoder());
+    }
+
+    @Test
+    public void testMessagesCanBeDecodedBeforeTheStreamIsFinished() {
+        byte[] data = "Netty is an asynchronous event-driven network application framework"
+                .getBytes(CharsetUtil.US_ASCII);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(encoder.writeOutbound(Unpooled.wrappedBuffer(data)));
+            ByteBuf compressed = encoder.readOutbound();
+            assertTrue(decoder.writeInbound(compressed));
+
+            CompositeByteBuf decompressed = Unpooled.compositeBuffer();
+            ByteBuf msg;
+            while ((msg = decoder.readInbound()) != null) {
+                decompressed.addComponent(true, msg);
+            }
+            assertEquals(Unpooled.wrappedBuffer(data), decompressed);
+            decompressed.release();
+        }
+    }
+
+    @Test(expected = DecompressionException.class)
+    public void testCorruptedInput() {
+        encoder.finishAndReleaseAll();
+        decoder.writeInbound(Unpooled.wrappedBuffer(new byte[] { -1, -1, -1, -1, -1, -1, -1, -1 }));
+    }
+}
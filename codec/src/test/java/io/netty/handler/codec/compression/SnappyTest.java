@@ -148,6 +148,38 @@ public class SnappyTest {
         expected.release();
     }
 
+    @Test
+    public void encodeWithReusedHashTableAndDirectBuffer() throws Exception {
+        byte[] data = new byte[8192];
+        for (int i = 0; i < data.length; i++) {
+            // Compressible, but with matches of varying length.
+            data[i] = (byte) (i % 251 < 128 ? i % 7 : i * 31 >>> 3);
+        }
+        ByteBuf expected = Unpooled.buffer();
+        new Snappy().encode(Unpooled.wrappedBuffer(data), expected, data.length);
+
+        for (int i = 0; i < 3; i++) {
+            ByteBuf heap = Unpooled.buffer();
+            snappy.encode(Unpooled.wrappedBuffer(data), heap, data.length);
+            assertEquals(expected, heap);
+            heap.release();
+
+            ByteBuf in = Unpooled.directBuffer(data.length).writeBytes(data);
+            ByteBuf direct = Unpooled.buffer();
+            snappy.encode(in, direct, data.length);
+            assertEquals(expected, direct);
+            in.release();
+
+            ByteBuf decoded = Unpooled.buffer();
+            snappy.decode(direct, decoded);
+            assertEquals(Unpooled.wrappedBuffer(data), decoded);
+            snappy.reset();
+            direct.release();
+            decoded.release();
+        }
+        expected.release();
+    }
+
     @Test
     public void encodeAndDecodeLongTextUsesCopy() throws Exception {
         String srcStr = "Netty has been designed carefully with the experiences " +
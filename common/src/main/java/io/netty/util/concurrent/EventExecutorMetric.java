@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * Metrics of a {@link SingleThreadEventExecutor}, which includes the {@code EventLoop}s of all transports.
+ * <p>
+ * The thread of the {@link SingleThreadEventExecutor} is either idle, which means it is blocked while waiting for
+ * I/O or tasks (like in {@code Selector.select(...)} or {@code epoll_wait}), or it is busy. An iteration starts every
+ * time the thread stops being idle. The busy time is spent running tasks or, for an {@code EventLoop}, processing I/O.
+ * <p>
+ * The counters are cumulative since the metrics were enabled, so rates over an interval can be computed from their
+ * deltas. The values which can not be computed from deltas (maximums and percentiles) are tracked over a rolling window
+ * which covers the last {@value #WINDOW_SECONDS} to {@code 2 * }{@value #WINDOW_SECONDS} seconds.
+ * <p>
+ * All values are updated by the thread of the {@link SingleThreadEventExecutor}, so reading them from another thread
+ * gives a best effort view.
+ */
+@UnstableApi
+public interface EventExecutorMetric {
+
+    /**
+     * The length of a window of the rolling values in seconds.
+     */
+    int WINDOW_SECONDS = 10;
+
+    /**
+     * Returns the time in nanoseconds the thread was idle.
+     */
+    long idleTimeNanos();
+
+    /**
+     * Returns the time in nanoseconds the thread was busy.
+     */
+    long busyTimeNanos();
+
+    /**
+     * Returns the fraction of time the thread was busy, between {@code 0} and {@code 1}.
+     */
+    double busyRatio();
+
+    /**
+     * Returns the time in nanoseconds which was spent running tasks.
+     */
+    long taskTimeNanos();
+
+    /**
+     * Returns the number of tasks which were run.
+     */
+    long tasks();
+
+    /**
+     * Returns the number of iterations, which is the number of times the thread stopped being idle.
+     */
+    long iterations();
+
+    /**
+     * Returns the maximal number of tasks which were run in a single iteration during the rolling window.
+     */
+    long maxTasksPerIteration();
+
+    /**
+     * Returns the duration of the longest task in nanoseconds during the rolling window.
+     */
+    long longestTaskNanos();
+
+    /**
+     * Returns the time in nanoseconds which is not exceeded by the given percentile of the tasks during the rolling
+     * window, between the submission of a task via {@link SingleThreadEventExecutor#execute(Runnable)} and the start of
+     * its execution, or {@code 0} if there are no samples. The histogram uses buckets whose bounds are powers of two,
+     * so the returned value is the (inclusive) upper bound of the bucket in which the percentile falls.
+     *
+     * @param percentile    the percentile between {@code 0} and {@code 100}.
+     */
+    long taskQueueLatencyNanos(double percentile);
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.Random;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * {@link EventExecutorChooserFactory} which uses the power of two choices: it picks two {@link EventExecutor}s at
+ * random and chooses the one which is less loaded according to a {@link LoadEstimator}.
+ * <p>
+ * In contrast to the round-robin of the {@link DefaultEventExecutorChooserFactory} this keeps the
+ * {@link EventExecutor}s balanced even if the work which is assigned to them differs a lot, for example because some
+ * connections are long-lived and others are not, while it only needs to look at two {@link EventExecutor}s per
+ * choice.
+ */
+@UnstableApi
+public final class LoadAwareEventExecutorChooserFactory implements EventExecutorChooserFactory {
+
+    /**
+     * Estimates the load of an {@link EventExecutor}.
+     */
+    @UnstableApi
+    public interface LoadEstimator {
+
+        /**
+         * Returns the load of the given {@link EventExecutor}, where a lower value means less loaded. This method may
+         * be called from any thread, so it must not block and a best effort estimation is enough.
+         */
+        long load(EventExecutor executor);
+    }
+
+    /**
+     * {@link LoadEstimator} which uses the number of pending tasks of a {@link SingleThreadEventExecutor}.
+     */
+    public static final LoadEstimator PENDING_TASKS = new LoadEstimator() {
+        @Override
+        public long load(EventExecutor executor) {
+            return executor instanceof SingleThreadEventExecutor ?
+                    ((SingleThreadEventExecutor) executor).pendingTasks() : 0;
+        }
+    };
+
+    /**
+     * {@link LoadEstimator} which uses the busy ratio of the {@link EventExecutorMetric} of a
+     * {@link SingleThreadEventExecutor}. The metrics are enabled the first time the load is estimated.
+     */
+    public static final LoadEstimator BUSY_RATIO = new LoadEstimator() {
+        @Override
+        public long load(EventExecutor executor) {
+            return executor instanceof SingleThreadEventExecutor ?
+                    (long) (((SingleThreadEventExecutor) executor).enableMetric().busyRatio() * 1000000) : 0;
+        }
+    };
+
+    /**
+     * Instance which uses {@link #PENDING_TASKS}.
+     */
+    public static final LoadAwareEventExecutorChooserFactory INSTANCE =
+            new LoadAwareEventExecutorChooserFactory(PENDING_TASKS);
+
+    private final LoadEstimator estimator;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param estimator     the {@link LoadEstimator} which is used to compare the {@link EventExecutor}s.
+     */
+    public LoadAwareEventExecutorChooserFactory(LoadEstimator estimator) {
+        this.estimator = checkNotNull(estimator, "estimator");
+    }
+
+    @Override
+    public EventExecutorChooser newChooser(EventExecutor[] executors) {
+        if (executors.length == 1) {
+            return DefaultEventExecutorChooserFactory.INSTANCE.newChooser(executors);
+        }
+        return new PowerOfTwoChoicesEventExecutorChooser(executors, estimator);
+    }
+
+    private static final class PowerOfTwoChoicesEventExecutorChooser implements EventExecutorChooser {
+        private final EventExecutor[] executors;
+        private final LoadEstimator estimator;
+
+        PowerOfTwoChoicesEventExecutorChooser(EventExecutor[] executors, LoadEstimator estimator) {
+            this.executors = executors;
+            this.estimator = estimator;
+        }
+
+        @Override
+        public EventExecutor next() {
+            Random random = PlatformDependent.threadLocalRandom();
+            int first = random.nextInt(executors.length);
+            // Choose a second index which differs from the first one.
+            int second = random.nextInt(executors.length - 1);
+            if (second >= first) {
+                second++;
+            }
+            EventExecutor a = executors[first];
+            EventExecutor b = executors[second];
+            return estimator.load(b) < estimator.load(a) ? b : a;
+        }
+    }
+}
@@ -78,6 +78,9 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
     private static final AtomicReferenceFieldUpdater<SingleThreadEventExecutor, ThreadProperties> PROPERTIES_UPDATER =
             AtomicReferenceFieldUpdater.newUpdater(
                     SingleThreadEventExecutor.class, ThreadProperties.class, "threadProperties");
+    private static final AtomicReferenceFieldUpdater<SingleThreadEventExecutor, SingleThreadEventExecutorMetric>
+            METRIC_UPDATER = AtomicReferenceFieldUpdater.newUpdater(
+                    SingleThreadEventExecutor.class, SingleThreadEventExecutorMetric.class, "metric");
 
     private final Queue<Runnable> taskQueue;
 
@@ -86,6 +89,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
     private volatile ThreadProperties threadProperties;
     private final Executor executor;
     private volatile boolean interrupted;
+    private volatile SingleThreadEventExecutorMetric metric;
 
     private final Semaphore threadLock = new Semaphore(0);
     private final Set<Runnable> shutdownHooks = new LinkedHashSet<Runnable>();
@@ -234,6 +238,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
             ScheduledFutureTask<?> scheduledTask = peekScheduledTask();
             if (scheduledTask == null) {
                 Runnable task = null;
+                recordIdleStart();
                 try {
                     task = taskQueue.take();
                     if (task == WAKEUP_TASK) {
@@ -241,17 +246,22 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                     }
                 } catch (InterruptedException e) {
                     // Ignore
+                } finally {
+                    recordIdleEnd();
                 }
                 return task;
             } else {
                 long delayNanos = scheduledTask.delayNanos();
                 Runnable task = null;
                 if (delayNanos > 0) {
+                    recordIdleStart();
                     try {
                         task = taskQueue.poll(delayNanos, TimeUnit.NANOSECONDS);
                     } catch (InterruptedException e) {
                         // Waken up.
                         return null;
+                    } finally {
+                        recordIdleEnd();
                     }
                 }
                 if (task == null) {
@@ -377,7 +387,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
             return false;
         }
         for (;;) {
-            safeExecute(task);
+            runTask(task);
             task = pollTaskFrom(taskQueue);
             if (task == null) {
                 return true;
@@ -401,7 +411,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         long runTasks = 0;
         long lastExecutionTime;
         for (;;) {
-            safeExecute(task);
+            runTask(task);
 
             runTasks ++;
 
@@ -426,6 +436,64 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         return true;
     }
 
+    private void runTask(Runnable task) {
+        SingleThreadEventExecutorMetric metric = this.metric;
+        if (metric == null) {
+            safeExecute(task);
+        } else {
+            metric.safeExecute(task);
+        }
+    }
+
+    /**
+     * Enables the collection of {@link EventExecutorMetric}s for this executor, if not done yet, and returns them.
+     * Until this is called there is no overhead except for checking if the metrics are enabled.
+     */
+    @UnstableApi
+    public final EventExecutorMetric enableMetric() {
+        for (;;) {
+            SingleThreadEventExecutorMetric metric = this.metric;
+            if (metric != null) {
+                return metric;
+            }
+            METRIC_UPDATER.compareAndSet(this, null, new SingleThreadEventExecutorMetric());
+        }
+    }
+
+    /**
+     * Returns the {@link EventExecutorMetric}s of this executor, or {@code null} if {@link #enableMetric()} was not
+     * called.
+     */
+    @UnstableApi
+    public final EventExecutorMetric metric() {
+        return metric;
+    }
+
+    /**
+     * Must be called by implementations right before the thread blocks to wait for I/O or tasks, so the
+     * {@link EventExecutorMetric}s can distinguish the idle from the busy time.
+     */
+    @UnstableApi
+    protected final void recordIdleStart() {
+        SingleThreadEventExecutorMetric metric = this.metric;
+        if (metric != null) {
+            metric.recordIdleStart();
+        }
+    }
+
+    /**
+     * Must be called by implementations right after the thread stopped waiting for I/O or tasks.
+     *
+     * @see #recordIdleStart()
+     */
+    @UnstableApi
+    protected final void recordIdleEnd() {
+        SingleThreadEventExecutorMetric metric = this.metric;
+        if (metric != null) {
+            metric.recordIdleEnd();
+        }
+    }
+
     /**
      * Invoked before returning from {@link #runAllTasks()} and {@link #runAllTasks(long)}.
      */
@@ -775,10 +843,12 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
         }
 
         boolean inEventLoop = inEventLoop();
-        addTask(task);
+        SingleThreadEventExecutorMetric metric = this.metric;
+        Runnable queuedTask = metric == null ? task : metric.newTask(task);
+        addTask(queuedTask);
         if (!inEventLoop) {
             startThread();
-            if (isShutdown() && removeTask(task)) {
+            if (isShutdown() && removeTask(queuedTask)) {
                 reject();
             }
         }
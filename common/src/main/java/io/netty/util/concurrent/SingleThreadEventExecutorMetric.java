@@ -0,0 +1,236 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.StringUtil;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link EventExecutorMetric} of a {@link SingleThreadEventExecutor}. All record methods must only be called by the
+ * thread of the {@link SingleThreadEventExecutor}.
+ */
+final class SingleThreadEventExecutorMetric implements EventExecutorMetric {
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(WINDOW_SECONDS);
+    // Bucket i contains the values in [2^(i-1), 2^i - 1].
+    private static final int BUCKETS = 64;
+
+    // Only modified by the thread of the SingleThreadEventExecutor.
+    private volatile long idleTimeNanos;
+    private volatile long busyTimeNanos;
+    private volatile long taskTimeNanos;
+    private volatile long tasks;
+    private volatile long iterations;
+    private volatile Window current = new Window();
+    private volatile Window previous = new Window();
+
+    // Only accessed by the thread of the SingleThreadEventExecutor.
+    private long lastTransition;
+    private long windowStart;
+    private long tasksInIteration;
+
+    SingleThreadEventExecutorMetric() {
+        lastTransition = windowStart = System.nanoTime();
+    }
+
+    /**
+     * Wraps a task which is submitted via {@link SingleThreadEventExecutor#execute(Runnable)}, so the time it is
+     * queued can be measured.
+     */
+    Runnable newTask(Runnable task) {
+        return new MeasuredTask(task, System.nanoTime());
+    }
+
+    /**
+     * Runs the given task via {@link AbstractEventExecutor#safeExecute(Runnable)} and measures it if it was not
+     * wrapped via {@link #newTask(Runnable)}.
+     */
+    void safeExecute(Runnable task) {
+        if (task instanceof MeasuredTask) {
+            AbstractEventExecutor.safeExecute(task);
+            return;
+        }
+        long start = System.nanoTime();
+        AbstractEventExecutor.safeExecute(task);
+        recordTask(start, System.nanoTime());
+    }
+
+    void recordIdleStart() {
+        long now = System.nanoTime();
+        busyTimeNanos += now - lastTransition;
+        lastTransition = now;
+    }
+
+    void recordIdleEnd() {
+        long now = System.nanoTime();
+        idleTimeNanos += now - lastTransition;
+        lastTransition = now;
+        iterations++;
+        Window current = rotateIfNeeded(now);
+        if (tasksInIteration > current.maxTasksPerIteration) {
+            current.maxTasksPerIteration = tasksInIteration;
+        }
+        tasksInIteration = 0;
+    }
+
+    private void recordTask(long start, long end) {
+        long duration = end - start;
+        taskTimeNanos += duration;
+        tasks++;
+        tasksInIteration++;
+        Window current = rotateIfNeeded(end);
+        if (duration > current.longestTaskNanos) {
+            current.longestTaskNanos = duration;
+        }
+    }
+
+    private Window rotateIfNeeded(long now) {
+        Window current = this.current;
+        if (now - windowStart >= WINDOW_NANOS) {
+            windowStart = now;
+            Window previous = this.previous;
+            previous.clear();
+            this.previous = current;
+            this.current = previous;
+            return previous;
+        }
+        return current;
+    }
+
+    private static int bucket(long value) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, value)));
+    }
+
+    @Override
+    public long idleTimeNanos() {
+        return idleTimeNanos;
+    }
+
+    @Override
+    public long busyTimeNanos() {
+        return busyTimeNanos;
+    }
+
+    @Override
+    public double busyRatio() {
+        long busy = busyTimeNanos;
+        long total = busy + idleTimeNanos;
+        return total == 0 ? 0 : (double) busy / total;
+    }
+
+    @Override
+    public long taskTimeNanos() {
+        return taskTimeNanos;
+    }
+
+    @Override
+    public long tasks() {
+        return tasks;
+    }
+
+    @Override
+    public long iterations() {
+        return iterations;
+    }
+
+    @Override
+    public long maxTasksPerIteration() {
+        return Math.max(current.maxTasksPerIteration, previous.maxTasksPerIteration);
+    }
+
+    @Override
+    public long longestTaskNanos() {
+        return Math.max(current.longestTaskNanos, previous.longestTaskNanos);
+    }
+
+    @Override
+    public long taskQueueLatencyNanos(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile: " + percentile + " (expected: 0-100)");
+        }
+        AtomicLongArray current = this.current.queueLatencies;
+        AtomicLongArray previous = this.previous.queueLatencies;
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = current.get(i) + previous.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS - 1; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return (1L << i) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return StringUtil.simpleClassName(this) + "(busyRatio: " + busyRatio() + ", tasks: " + tasks +
+                ", iterations: " + iterations + ", maxTasksPerIteration: " + maxTasksPerIteration() +
+                ", longestTaskNanos: " + longestTaskNanos() + ", p99 taskQueueLatencyNanos: " +
+                taskQueueLatencyNanos(99) + ')';
+    }
+
+    private static final class Window {
+        final AtomicLongArray queueLatencies = new AtomicLongArray(BUCKETS);
+        volatile long maxTasksPerIteration;
+        volatile long longestTaskNanos;
+
+        void clear() {
+            for (int i = 0; i < BUCKETS; i++) {
+                queueLatencies.lazySet(i, 0);
+            }
+            maxTasksPerIteration = 0;
+            longestTaskNanos = 0;
+        }
+    }
+
+    private final class MeasuredTask implements Runnable {
+        private final Runnable task;
+        private final long submitTime;
+
+        MeasuredTask(Runnable task, long submitTime) {
+            this.task = task;
+            this.submitTime = submitTime;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            AtomicLongArray queueLatencies = rotateIfNeeded(start).queueLatencies;
+            int bucket = bucket(start - submitTime);
+            queueLatencies.lazySet(bucket, queueLatencies.get(bucket) + 1);
+            try {
+                task.run();
+            } finally {
+                recordTask(start, System.nanoTime());
+            }
+        }
+
+        @Override
+        public String toString() {
+            return task.toString();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.internal;
+
+import io.netty.util.concurrent.FastThreadLocal;
+
+/**
+ * Holds the NUMA node of the current thread, which is only known if the thread was pinned to a CPU. This allows
+ * to prefer resources, like the arenas of the {@code PooledByteBufAllocator}, which are used by threads of the same
+ * NUMA node.
+ */
+public final class ThreadNumaNode {
+
+    private static final FastThreadLocal<Integer> NODE = new FastThreadLocal<Integer>() {
+        @Override
+        protected Integer initialValue() {
+            return -1;
+        }
+    };
+
+    private static volatile int nodeCount = 1;
+    private static boolean nodeCountInitialized;
+
+    private ThreadNumaNode() { }
+
+    /**
+     * Returns the NUMA node of the current thread, or {@code -1} if it is unknown.
+     */
+    public static int node() {
+        return NODE.get();
+    }
+
+    /**
+     * Returns the number of NUMA nodes, which is {@code 1} until it was initialized via {@link #initNodeCount(int)}.
+     */
+    public static int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Initializes the number of NUMA nodes of the system, which can only be done once.
+     *
+     * @return {@code true} if the number was initialized by this call, {@code false} if it had been before.
+     */
+    public static synchronized boolean initNodeCount(int nodeCount) {
+        ObjectUtil.checkPositive(nodeCount, "nodeCount");
+        if (nodeCountInitialized) {
+            return false;
+        }
+        nodeCountInitialized = true;
+        ThreadNumaNode.nodeCount = nodeCount;
+        return true;
+    }
+
+    /**
+     * Sets the NUMA node of the current thread, which must be smaller than {@link #nodeCount()}.
+     */
+    public static void set(int node) {
+        int nodeCount = ThreadNumaNode.nodeCount;
+        if (node < 0 || node >= nodeCount) {
+            throw new IllegalArgumentException("node: " + node + " (expected: 0-" + (nodeCount - 1) + ')');
+        }
+        NODE.set(node);
+    }
+}
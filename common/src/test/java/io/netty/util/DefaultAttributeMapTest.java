@@ -96,4 +96,46 @@ public class DefaultAttributeMapTest {
         assertSame(2, attr2.get());
         assertSame(attr, attr2);
     }
+
+    @Test
+    public void testManyAttributes() {
+        AttributeKey<?>[] keys = new AttributeKey<?>[32];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = AttributeKey.valueOf(DefaultAttributeMapTest.class, "testManyAttributes" + i);
+        }
+        // Insert in reverse and interleaved order to exercise the sorted insertion.
+        for (int i = keys.length - 1; i >= 0; i -= 2) {
+            map.attr(keys[i]);
+        }
+        for (int i = 0; i < keys.length; i += 2) {
+            map.attr(keys[i]);
+        }
+        for (AttributeKey<?> key : keys) {
+            assertTrue(map.hasAttr(key));
+            assertSame(key, map.attr(key).key());
+            assertSame(map.attr(key), map.attr(key));
+        }
+    }
+
+    @Test
+    public void testHasAttrAfterRemove() {
+        AttributeKey<Integer> key = AttributeKey.valueOf("testHasAttrAfterRemove");
+        AttributeKey<Integer> other = AttributeKey.valueOf("testHasAttrAfterRemoveOther");
+
+        map.attr(other).set(2);
+        Attribute<Integer> attr = map.attr(key);
+        attr.set(1);
+        assertTrue(map.hasAttr(key));
+
+        attr.remove();
+        assertFalse(map.hasAttr(key));
+        assertTrue(map.hasAttr(other));
+        assertEquals(Integer.valueOf(2), map.attr(other).get());
+
+        // Removing twice must not remove a newly created attribute for the same key.
+        Attribute<Integer> attr2 = map.attr(key);
+        attr.remove();
+        assertTrue(map.hasAttr(key));
+        assertSame(attr2, map.attr(key));
+    }
 }
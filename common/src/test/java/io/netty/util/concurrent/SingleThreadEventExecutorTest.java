@@ -100,6 +100,50 @@ public class SingleThreadEventExecutorTest {
         executor.shutdownGracefully();
     }
 
+    @Test(timeout = 10000)
+    public void testMetric() throws Exception {
+        DefaultEventExecutor executor = new DefaultEventExecutor();
+        try {
+            Assert.assertNull(executor.metric());
+            EventExecutorMetric metric = executor.enableMetric();
+            Assert.assertSame(metric, executor.enableMetric());
+            Assert.assertSame(metric, executor.metric());
+
+            // Let the thread start and wait for tasks.
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    // Noop.
+                }
+            }).sync();
+            Thread.sleep(20);
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException ignore) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }).sync();
+
+            // The metric of a task is recorded after its future was completed.
+            while (metric.tasks() < 2) {
+                Thread.sleep(10);
+            }
+            Assert.assertTrue(metric.longestTaskNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+            Assert.assertTrue(metric.taskTimeNanos() >= metric.longestTaskNanos());
+            Assert.assertTrue(metric.taskQueueLatencyNanos(99) > 0);
+            Assert.assertTrue(metric.idleTimeNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+            Assert.assertTrue(metric.iterations() >= 2);
+            Assert.assertTrue(metric.maxTasksPerIteration() >= 1);
+            Assert.assertTrue(metric.busyRatio() >= 0 && metric.busyRatio() <= 1);
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+    }
+
     @Test(expected = RejectedExecutionException.class, timeout = 3000)
     public void testInvokeAnyInEventLoop() {
         testInvokeInEventLoop(true, false);
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.traffic;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.FastThreadLocal;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A hashed wheel of {@link Entry}s which is driven by a single scheduled task on its {@link EventExecutor}, so
+ * delaying a {@link io.netty.channel.Channel} does not require to schedule a task for it. The task is only scheduled
+ * while the wheel is not empty.
+ * <p>
+ * This class is not thread-safe and must only be used from its {@link EventExecutor}.
+ */
+final class ShapingTimerWheel implements Runnable {
+    static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(AbstractTrafficShapingHandler.MINIMAL_WAIT);
+    private static final int WHEEL_SIZE = 512;
+    private static final int MASK = WHEEL_SIZE - 1;
+
+    private static final FastThreadLocal<ShapingTimerWheel> WHEELS = new FastThreadLocal<ShapingTimerWheel>();
+
+    private final EventExecutor executor;
+    private final Entry[] wheel = new Entry[WHEEL_SIZE];
+    private final long origin = System.nanoTime();
+    private long processedTick;
+    private int size;
+    private boolean scheduled;
+
+    /**
+     * Returns the {@link ShapingTimerWheel} which is shared by all users of the given {@link EventExecutor}. Must be
+     * called from the {@link EventExecutor}.
+     */
+    static ShapingTimerWheel get(EventExecutor executor) {
+        assert executor.inEventLoop();
+        ShapingTimerWheel wheel = WHEELS.get();
+        if (wheel == null) {
+            wheel = new ShapingTimerWheel(executor);
+            WHEELS.set(wheel);
+        } else if (wheel.executor != executor) {
+            // Multiple EventExecutors share the same Thread (like EmbeddedEventLoop), use a wheel which is not shared.
+            wheel = new ShapingTimerWheel(executor);
+        }
+        return wheel;
+    }
+
+    private ShapingTimerWheel(EventExecutor executor) {
+        this.executor = executor;
+    }
+
+    private long tick(long nanoTime) {
+        return (nanoTime - origin) / TICK_NANOS;
+    }
+
+    /**
+     * Schedule the given {@link Entry} to expire after the given delay, rounded up to the next tick. If it was
+     * scheduled before the old deadline is replaced.
+     */
+    void schedule(Entry entry, long delayNanos) {
+        assert executor.inEventLoop();
+        cancel(entry);
+        long now = System.nanoTime();
+        if (!scheduled) {
+            // Do not process the ticks which elapsed while the wheel was empty.
+            processedTick = Math.max(processedTick, tick(now));
+        }
+        long deadlineTick = Math.max(processedTick + 1, tick(now + delayNanos + TICK_NANOS - 1));
+        entry.deadlineTick = deadlineTick;
+        entry.state = Entry.SCHEDULED;
+        int index = (int) (deadlineTick & MASK);
+        Entry head = wheel[index];
+        entry.next = head;
+        if (head != null) {
+            head.prev = entry;
+        }
+        wheel[index] = entry;
+        if (++size == 1 && !scheduled) {
+            scheduled = true;
+            executor.schedule(this, TICK_NANOS, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Cancel the given {@link Entry} if it was scheduled and did not expire yet.
+     */
+    void cancel(Entry entry) {
+        assert executor.inEventLoop();
+        if (entry.state == Entry.SCHEDULED) {
+            unlink(entry);
+        }
+        entry.state = Entry.IDLE;
+    }
+
+    private void unlink(Entry entry) {
+        Entry prev = entry.prev;
+        Entry next = entry.next;
+        if (prev == null) {
+            wheel[(int) (entry.deadlineTick & MASK)] = next;
+        } else {
+            prev.next = next;
+        }
+        if (next != null) {
+            next.prev = prev;
+        }
+        entry.prev = null;
+        entry.next = null;
+        size--;
+    }
+
+    @Override
+    public void run() {
+        long targetTick = tick(System.nanoTime());
+        // If more ticks elapsed than the wheel has slots every slot needs to be processed once.
+        long lastTick = Math.min(targetTick, processedTick + WHEEL_SIZE);
+        Entry expired = null;
+        for (long tick = processedTick + 1; tick <= lastTick; tick++) {
+            Entry entry = wheel[(int) (tick & MASK)];
+            while (entry != null) {
+                Entry next = entry.next;
+                if (entry.deadlineTick <= targetTick) {
+                    unlink(entry);
+                    entry.state = Entry.EXPIRING;
+                    entry.nextExpired = expired;
+                    expired = entry;
+                }
+                entry = next;
+            }
+        }
+        processedTick = Math.max(processedTick, targetTick);
+
+        // Notify the entries only after the wheel is consistent again as they may schedule themselves again.
+        while (expired != null) {
+            Entry entry = expired;
+            expired = entry.nextExpired;
+            entry.nextExpired = null;
+            // The entry may have been cancelled or rescheduled by an entry which expired before.
+            if (entry.state == Entry.EXPIRING) {
+                entry.state = Entry.IDLE;
+                entry.expire();
+            }
+        }
+
+        if (size == 0) {
+            scheduled = false;
+        } else {
+            executor.schedule(this, TICK_NANOS, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Something which can be scheduled on a {@link ShapingTimerWheel}. An instance can only be scheduled once at a
+     * time, so it can be reused without creating garbage.
+     */
+    abstract static class Entry {
+        static final int IDLE = 0;
+        static final int SCHEDULED = 1;
+        static final int EXPIRING = 2;
+
+        Entry prev;
+        Entry next;
+        Entry nextExpired;
+        long deadlineTick;
+        int state;
+
+        /**
+         * Called from the {@link EventExecutor} once the deadline was reached.
+         */
+        abstract void expire();
+    }
+}
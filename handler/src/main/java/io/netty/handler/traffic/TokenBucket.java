@@ -0,0 +1,162 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.traffic;
+
+import io.netty.util.internal.UnstableApi;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
+
+/**
+ * A thread-safe token bucket which limits the bandwidth to a number of bytes per second, while allowing bursts of up
+ * to a given number of bytes.
+ * <p>
+ * There is no task which refills the bucket periodically. Instead the bucket is refilled lazily each time
+ * {@link #reserve(long)} is called, based on the time which elapsed since the last call. Internally the bucket only
+ * tracks the point in time at which it will be full again, so a reservation is a single CAS operation.
+ * <p>
+ * Buckets can be nested by passing a parent to the constructor, like a global bucket which is the parent of a bucket
+ * per tenant which in turn is the parent of a bucket per {@link io.netty.channel.Channel}. Reserving bytes on a
+ * bucket always reserves them on all of its ancestors as well, so each level enforces its own limit.
+ */
+@UnstableApi
+public final class TokenBucket {
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final TokenBucket parent;
+    // The point in time (in System.nanoTime()) at which all reserved bytes were "sent" at the configured rate.
+    private final AtomicLong fullTime;
+    private volatile long bytesPerSecond;
+    private volatile long burstBytes;
+    private volatile double nanosPerByte;
+    private volatile long burstNanos;
+
+    /**
+     * Creates a new top-level instance which allows bursts of one tenth of a second of traffic.
+     *
+     * @param bytesPerSecond    the limit in bytes/s, or {@code 0} for no limitation.
+     */
+    public TokenBucket(long bytesPerSecond) {
+        this(bytesPerSecond, Math.max(1, bytesPerSecond / 10), null);
+    }
+
+    /**
+     * Creates a new top-level instance.
+     *
+     * @param bytesPerSecond    the limit in bytes/s, or {@code 0} for no limitation.
+     * @param burstBytes        the number of bytes which can be sent at once after the bucket was idle long enough.
+     */
+    public TokenBucket(long bytesPerSecond, long burstBytes) {
+        this(bytesPerSecond, burstBytes, null);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param bytesPerSecond    the limit in bytes/s, or {@code 0} for no limitation.
+     * @param burstBytes        the number of bytes which can be sent at once after the bucket was idle long enough.
+     * @param parent            the parent {@link TokenBucket} whose limit must be respected as well, or
+     *                          {@code null}.
+     */
+    public TokenBucket(long bytesPerSecond, long burstBytes, TokenBucket parent) {
+        this.parent = parent;
+        fullTime = new AtomicLong(System.nanoTime());
+        configure(bytesPerSecond, burstBytes);
+    }
+
+    /**
+     * Change the limit and the allowed burst.
+     * <p>Note the change will be taken as best effort, meaning that already reserved bytes will not be changed, but
+     * only new reservations are affected.</p>
+     *
+     * @param bytesPerSecond    the limit in bytes/s, or {@code 0} for no limitation.
+     * @param burstBytes        the number of bytes which can be sent at once after the bucket was idle long enough.
+     */
+    public void configure(long bytesPerSecond, long burstBytes) {
+        checkPositiveOrZero(bytesPerSecond, "bytesPerSecond");
+        checkPositiveOrZero(burstBytes, "burstBytes");
+        double nanosPerByte = bytesPerSecond == 0 ? 0 : (double) NANOS_PER_SECOND / bytesPerSecond;
+        this.nanosPerByte = nanosPerByte;
+        burstNanos = (long) (burstBytes * nanosPerByte);
+        this.bytesPerSecond = bytesPerSecond;
+        this.burstBytes = burstBytes;
+    }
+
+    /**
+     * Returns the limit in bytes/s, or {@code 0} if there is no limitation.
+     */
+    public long bytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Returns the number of bytes which can be sent at once after the bucket was idle long enough.
+     */
+    public long burstBytes() {
+        return burstBytes;
+    }
+
+    /**
+     * Returns the parent {@link TokenBucket} or {@code null} if this is a top-level bucket.
+     */
+    public TokenBucket parent() {
+        return parent;
+    }
+
+    /**
+     * Reserves the given number of bytes on this bucket and all of its ancestors, even if there are not enough tokens
+     * left.
+     *
+     * @return the number of nanoseconds to wait before the bytes should be sent (or the next bytes should be read),
+     *         so all limits are respected. {@code 0} if the bytes can be sent directly.
+     */
+    public long reserve(long bytes) {
+        return reserve(bytes, System.nanoTime());
+    }
+
+    long reserve(long bytes, long now) {
+        checkPositiveOrZero(bytes, "bytes");
+        long wait = 0;
+        for (TokenBucket bucket = this; bucket != null; bucket = bucket.parent) {
+            wait = Math.max(wait, bucket.reserve0(bytes, now));
+        }
+        return wait;
+    }
+
+    private long reserve0(long bytes, long now) {
+        double nanosPerByte = this.nanosPerByte;
+        if (nanosPerByte == 0 || bytes == 0) {
+            return 0;
+        }
+        long cost = (long) (bytes * nanosPerByte);
+        for (;;) {
+            long fullTime = this.fullTime.get();
+            // If the bucket was full in the past it can not hold more than the burst, so start from now.
+            long newFullTime = (fullTime - now < 0 ? now : fullTime) + cost;
+            if (this.fullTime.compareAndSet(fullTime, newFullTime)) {
+                return Math.max(0, newFullTime - now - burstNanos);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TokenBucket(bytesPerSecond: " + bytesPerSecond + ", burstBytes: " + burstBytes +
+                (parent == null ? ")" : ", parent: " + parent + ')');
+    }
+}
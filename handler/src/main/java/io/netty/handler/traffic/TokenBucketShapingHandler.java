@@ -0,0 +1,309 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.traffic;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.ThrowableUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * Traffic shaping for a single {@link io.netty.channel.Channel} which is based on {@link TokenBucket}s.
+ * <p>
+ * Compared to the {@link AbstractTrafficShapingHandler} implementations this handler does not need a
+ * {@link TrafficCounter} with a periodic monitor task, and it does not schedule a task for each delayed write or read
+ * suspension. Instead all delayed {@link io.netty.channel.Channel}s of an {@link io.netty.channel.EventLoop} share a
+ * single timer wheel, which is only active while at least one {@link io.netty.channel.Channel} is delayed.
+ * <p>
+ * Hierarchical limits are expressed by the {@link TokenBucket}s themselves: for example a global bucket can be the
+ * parent of a bucket per tenant, which in turn is the parent of the bucket which is passed to this handler:
+ * <pre>
+ * TokenBucket global = new TokenBucket(100 * 1024 * 1024);
+ * TokenBucket tenant = new TokenBucket(10 * 1024 * 1024, 1024 * 1024, global);
+ * ...
+ * pipeline.addLast(new TokenBucketShapingHandler(
+ *         new TokenBucket(1024 * 1024, 64 * 1024, tenant), new TokenBucket(1024 * 1024, 64 * 1024, tenant)));
+ * </pre>
+ * <p><b>Note that this handler has a Pipeline Coverage of "one" which means a new handler must be created
+ * for each new channel, while the parents of the {@link TokenBucket}s can be shared.</b></p>
+ * <p>Note the index used in {@code OutboundBuffer.setUserDefinedWritability(index, boolean)} is <b>4</b>.</p>
+ */
+@UnstableApi
+public class TokenBucketShapingHandler extends ChannelDuplexHandler {
+    private static final int USER_DEFINED_WRITABILITY_INDEX = 4;
+    private static final long MINIMAL_WAIT_NANOS = ShapingTimerWheel.TICK_NANOS;
+    private static final ClosedChannelException CLOSED_CHANNEL_EXCEPTION = ThrowableUtil.unknownStackTrace(
+            new ClosedChannelException(), TokenBucketShapingHandler.class, "handlerRemoved(...)");
+
+    private final TokenBucket readBucket;
+    private final TokenBucket writeBucket;
+    private final ArrayDeque<ToSend> messagesQueue = new ArrayDeque<ToSend>();
+    private final ShapingTimerWheel.Entry readTimer = new ShapingTimerWheel.Entry() {
+        @Override
+        void expire() {
+            resumeRead();
+        }
+    };
+    private final ShapingTimerWheel.Entry writeTimer = new ShapingTimerWheel.Entry() {
+        @Override
+        void expire() {
+            sendAllValid();
+        }
+    };
+
+    private volatile long maxWriteDelay = TimeUnit.MILLISECONDS.toNanos(4 * AbstractTrafficShapingHandler
+            .DEFAULT_CHECK_INTERVAL);
+    private volatile long maxWriteSize = AbstractTrafficShapingHandler.DEFAULT_MAX_SIZE;
+
+    private ChannelHandlerContext ctx;
+    private ShapingTimerWheel wheel;
+    private long queueSize;
+    private boolean readSuspended;
+
+    /**
+     * Create a new instance.
+     *
+     * @param readBucket    the {@link TokenBucket} which is used to limit reads, or {@code null} for no limitation.
+     * @param writeBucket   the {@link TokenBucket} which is used to limit writes, or {@code null} for no limitation.
+     */
+    public TokenBucketShapingHandler(TokenBucket readBucket, TokenBucket writeBucket) {
+        this.readBucket = readBucket;
+        this.writeBucket = writeBucket;
+    }
+
+    /**
+     * @return the {@link TokenBucket} which is used to limit reads, or {@code null}.
+     */
+    public TokenBucket readBucket() {
+        return readBucket;
+    }
+
+    /**
+     * @return the {@link TokenBucket} which is used to limit writes, or {@code null}.
+     */
+    public TokenBucket writeBucket() {
+        return writeBucket;
+    }
+
+    /**
+     * @return the maximum write delay in ms before the {@link io.netty.channel.Channel} is marked as not writable.
+     */
+    public long getMaxWriteDelay() {
+        return TimeUnit.NANOSECONDS.toMillis(maxWriteDelay);
+    }
+
+    /**
+     * @param maxWriteDelay the maximum write delay in ms before the {@link io.netty.channel.Channel} is marked as not
+     *                      writable. Must be positive.
+     */
+    public void setMaxWriteDelay(long maxWriteDelay) {
+        this.maxWriteDelay = TimeUnit.MILLISECONDS.toNanos(checkPositive(maxWriteDelay, "maxWriteDelay"));
+    }
+
+    /**
+     * @return the maximum number of delayed bytes before the {@link io.netty.channel.Channel} is marked as not
+     *         writable, default being {@value AbstractTrafficShapingHandler#DEFAULT_MAX_SIZE} bytes.
+     */
+    public long getMaxWriteSize() {
+        return maxWriteSize;
+    }
+
+    /**
+     * @param maxWriteSize the maximum number of delayed bytes before the {@link io.netty.channel.Channel} is marked
+     *                     as not writable.
+     */
+    public void setMaxWriteSize(long maxWriteSize) {
+        this.maxWriteSize = maxWriteSize;
+    }
+
+    /**
+     * @return current size in bytes of the delayed writes.
+     */
+    public long queueSize() {
+        return queueSize;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+        wheel = ShapingTimerWheel.get(ctx.executor());
+        super.handlerAdded(ctx);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        wheel.cancel(readTimer);
+        wheel.cancel(writeTimer);
+        if (!messagesQueue.isEmpty()) {
+            boolean active = ctx.channel().isActive();
+            for (;;) {
+                ToSend toSend = messagesQueue.poll();
+                if (toSend == null) {
+                    break;
+                }
+                if (active) {
+                    ctx.write(toSend.msg, toSend.promise);
+                } else {
+                    ReferenceCountUtil.release(toSend.msg);
+                    toSend.promise.tryFailure(CLOSED_CHANNEL_EXCEPTION);
+                }
+            }
+            queueSize = 0;
+            if (active) {
+                ctx.flush();
+            }
+        }
+        setUserDefinedWritability(true);
+        if (readSuspended) {
+            readSuspended = false;
+            ctx.channel().config().setAutoRead(true);
+        }
+        super.handlerRemoved(ctx);
+    }
+
+    @Override
+    public void channelRegistered(ChannelHandlerContext ctx) throws Exception {
+        setUserDefinedWritability(true);
+        super.channelRegistered(ctx);
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (readBucket != null) {
+            long size = calculateSize(msg);
+            if (size > 0) {
+                long wait = readBucket.reserve(size);
+                if (wait >= MINIMAL_WAIT_NANOS && !readSuspended && ctx.channel().config().isAutoRead()) {
+                    // Stop reading until enough tokens are available again. If autoRead was turned off by the user
+                    // there is nothing to do.
+                    readSuspended = true;
+                    ctx.channel().config().setAutoRead(false);
+                    wheel.schedule(readTimer, wait);
+                }
+            }
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void read(ChannelHandlerContext ctx) {
+        if (!readSuspended) {
+            ctx.read();
+        }
+    }
+
+    private void resumeRead() {
+        if (readSuspended) {
+            readSuspended = false;
+            // This will also trigger a read.
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        long size = writeBucket == null ? 0 : Math.max(0, calculateSize(msg));
+        long wait = size > 0 ? writeBucket.reserve(size) : 0;
+        if (messagesQueue.isEmpty() && wait < MINIMAL_WAIT_NANOS) {
+            ctx.write(msg, promise);
+            return;
+        }
+        // Keep the order of the writes, even if this message could be written directly.
+        long now = System.nanoTime();
+        messagesQueue.add(new ToSend(now + wait, msg, size, promise));
+        queueSize += size;
+        if (queueSize > maxWriteSize || wait > maxWriteDelay) {
+            setUserDefinedWritability(false);
+        }
+        if (messagesQueue.size() == 1) {
+            wheel.schedule(writeTimer, wait);
+        }
+    }
+
+    private void sendAllValid() {
+        long now = System.nanoTime();
+        for (;;) {
+            ToSend toSend = messagesQueue.peek();
+            if (toSend == null) {
+                setUserDefinedWritability(true);
+                break;
+            }
+            if (toSend.sendTime - now > 0) {
+                wheel.schedule(writeTimer, toSend.sendTime - now);
+                break;
+            }
+            messagesQueue.remove();
+            queueSize -= toSend.size;
+            ctx.write(toSend.msg, toSend.promise);
+        }
+        ctx.flush();
+    }
+
+    private void setUserDefinedWritability(boolean writable) {
+        ChannelOutboundBuffer cob = ctx.channel().unsafe().outboundBuffer();
+        if (cob != null) {
+            cob.setUserDefinedWritability(USER_DEFINED_WRITABILITY_INDEX, writable);
+        }
+    }
+
+    /**
+     * Calculate the size of the given {@link Object}.
+     *
+     * This implementation supports {@link ByteBuf} and {@link ByteBufHolder}. Sub-classes may override this.
+     * @param msg the msg for which the size should be calculated.
+     * @return size the size of the msg or {@code -1} if unknown.
+     */
+    protected long calculateSize(Object msg) {
+        if (msg instanceof ByteBuf) {
+            return ((ByteBuf) msg).readableBytes();
+        }
+        if (msg instanceof ByteBufHolder) {
+            return ((ByteBufHolder) msg).content().readableBytes();
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "TokenBucketShapingHandler(readBucket: " + readBucket + ", writeBucket: " + writeBucket +
+                ", queueSize: " + queueSize + ')';
+    }
+
+    private static final class ToSend {
+        final long sendTime;
+        final Object msg;
+        final long size;
+        final ChannelPromise promise;
+
+        ToSend(long sendTime, Object msg, long size, ChannelPromise promise) {
+            this.sendTime = sendTime;
+            this.msg = msg;
+            this.size = size;
+            this.promise = promise;
+        }
+    }
+}
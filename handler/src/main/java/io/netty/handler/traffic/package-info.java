@@ -32,6 +32,11 @@
  * implementations: see {@link io.netty.handler.traffic.ChannelTrafficShapingHandler} and
  * {@link io.netty.handler.traffic.GlobalTrafficShapingHandler} respectively for Channel traffic shaping and
  * global traffic shaping.</li>
+ *
+ * <li> <tt>{@link io.netty.handler.traffic.TokenBucketShapingHandler}</tt>: a per channel handler which is based on
+ * {@link io.netty.handler.traffic.TokenBucket}s, which are refilled lazily and can be nested to express hierarchical
+ * limits (like global, per tenant and per channel). Delayed channels share a timer per event loop instead of
+ * scheduling a task for each delayed read or write.</li>
  * </ul></p>
  *
  * <p>Both inbound and outbound traffic can be shaped independently.  This is done by either passing in
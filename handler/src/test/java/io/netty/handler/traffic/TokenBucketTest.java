@@ -0,0 +1,136 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.traffic;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class TokenBucketTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testBurstAndRefill() {
+        // 1000 bytes/s, so every byte costs 1ms.
+        TokenBucket bucket = new TokenBucket(1000, 100);
+        long now = System.nanoTime();
+        assertEquals(0, bucket.reserve(100, now));
+        assertEquals(50 * MS, bucket.reserve(50, now));
+        assertEquals(100 * MS, bucket.reserve(50, now));
+
+        // After 150ms there are enough tokens for 50 bytes again.
+        assertEquals(0, bucket.reserve(50, now + 150 * MS));
+        assertEquals(50 * MS, bucket.reserve(50, now + 150 * MS));
+
+        // The bucket can not hold more than the burst, even after a long time.
+        assertEquals(0, bucket.reserve(100, now + 10000 * MS));
+        assertEquals(MS, bucket.reserve(1, now + 10000 * MS));
+    }
+
+    @Test
+    public void testUnlimited() {
+        TokenBucket bucket = new TokenBucket(0);
+        assertEquals(0, bucket.reserve(Integer.MAX_VALUE));
+        bucket.configure(1000, 0);
+        assertEquals(1000 * MS, bucket.reserve(1000, System.nanoTime()), 10 * MS);
+    }
+
+    @Test
+    public void testHierarchical() {
+        TokenBucket global = new TokenBucket(1000, 0);
+        TokenBucket tenant = new TokenBucket(2000, 0, global);
+        TokenBucket channel1 = new TokenBucket(4000, 0, tenant);
+        TokenBucket channel2 = new TokenBucket(4000, 0, tenant);
+        long now = System.nanoTime();
+
+        // The global limit is the lowest, so it decides the delay.
+        assertEquals(100 * MS, channel1.reserve(100, now));
+        // The global bucket is shared, so the second channel has to wait for the first as well.
+        assertEquals(200 * MS, channel2.reserve(100, now));
+        assertSame(tenant, channel1.parent());
+    }
+
+    @Test
+    public void testHandlerDelaysWrites() throws Exception {
+        TokenBucketShapingHandler handler = new TokenBucketShapingHandler(null, new TokenBucket(1000, 100));
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        assertTrue(channel.writeOutbound(Unpooled.wrappedBuffer(new byte[100])));
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[100]));
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[1]));
+        assertEquals(101, handler.queueSize());
+        assertTrue(channel.releaseOutbound());
+        assertNull(channel.readOutbound());
+
+        Thread.sleep(150);
+        channel.runPendingTasks();
+        assertEquals(0, handler.queueSize());
+        assertEquals(2, channel.outboundMessages().size());
+        assertTrue(channel.isWritable());
+        assertTrue(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    public void testHandlerMarksChannelNotWritable() {
+        TokenBucketShapingHandler handler = new TokenBucketShapingHandler(null, new TokenBucket(1000, 0));
+        handler.setMaxWriteSize(10);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[100]));
+        assertFalse(channel.isWritable());
+
+        // Queued messages are written once the handler is removed.
+        channel.pipeline().remove(handler);
+        assertTrue(channel.isWritable());
+        assertTrue(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    public void testHandlerSuspendsRead() throws Exception {
+        TokenBucketShapingHandler handler = new TokenBucketShapingHandler(new TokenBucket(1000, 100), null);
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        assertTrue(channel.writeInbound(Unpooled.wrappedBuffer(new byte[100])));
+        assertTrue(channel.config().isAutoRead());
+        assertTrue(channel.writeInbound(Unpooled.wrappedBuffer(new byte[100])));
+        assertFalse(channel.config().isAutoRead());
+
+        Thread.sleep(150);
+        channel.runPendingTasks();
+        assertTrue(channel.config().isAutoRead());
+        assertTrue(channel.finishAndReleaseAll());
+    }
+
+    @Test
+    public void testHandlerFailsDelayedWritesOnClose() {
+        TokenBucketShapingHandler handler = new TokenBucketShapingHandler(null, new TokenBucket(1000, 0));
+        EmbeddedChannel channel = new EmbeddedChannel(handler);
+
+        ChannelFuture future = channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[100]));
+        assertFalse(future.isDone());
+        channel.close();
+        assertTrue(future.cause() instanceof ClosedChannelException);
+        assertEquals(0, handler.queueSize());
+        assertNull(channel.readOutbound());
+    }
+}
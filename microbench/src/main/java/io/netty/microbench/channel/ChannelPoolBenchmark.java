@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.channel.pool.AbstractChannelPoolHandler;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.channel.pool.FixedChannelPool;
+import io.netty.channel.pool.PartitionedChannelPool;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.Promise;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the latency of acquiring a {@link Channel} from a {@link ChannelPool} and releasing it again when called
+ * from the {@link EventLoop}s of the local transport, as a client would do for every request.
+ */
+@State(Scope.Benchmark)
+public class ChannelPoolBenchmark extends AbstractMicrobenchmark {
+
+    public enum PoolType {
+        FIXED, PARTITIONED
+    }
+
+    private static final LocalAddress ADDRESS = new LocalAddress("ChannelPoolBenchmark");
+
+    @Param
+    public PoolType poolType;
+
+    @Param({ "4" })
+    public int eventLoops;
+
+    private EventLoopGroup group;
+    private EventLoop[] loops;
+    private Channel serverChannel;
+    private ChannelPool pool;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        group = new DefaultEventLoopGroup(eventLoops);
+        loops = new EventLoop[eventLoops];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = group.next();
+        }
+        serverChannel = new ServerBootstrap()
+                .group(group)
+                .channel(LocalServerChannel.class)
+                .childHandler(new ChannelInboundHandlerAdapter())
+                .bind(ADDRESS)
+                .sync()
+                .channel();
+
+        Bootstrap bootstrap = new Bootstrap()
+                .group(group)
+                .channel(LocalChannel.class)
+                .remoteAddress(ADDRESS);
+        AbstractChannelPoolHandler handler = new AbstractChannelPoolHandler() {
+            @Override
+            public void channelCreated(Channel ch) {
+                // NOOP
+            }
+        };
+        int maxConnections = eventLoops * 2;
+        if (poolType == PoolType.FIXED) {
+            pool = new FixedChannelPool(bootstrap, handler, maxConnections);
+        } else {
+            pool = new PartitionedChannelPool(bootstrap, handler, maxConnections);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        pool.close();
+        serverChannel.close().sync();
+        group.shutdownGracefully().sync();
+    }
+
+    @Benchmark
+    public Object acquireAndRelease() throws Exception {
+        EventLoop loop = loops[next++ % loops.length];
+        final Promise<Void> done = loop.newPromise();
+        loop.execute(new Runnable() {
+            @Override
+            public void run() {
+                pool.acquire().addListener(new FutureListener<Channel>() {
+                    @Override
+                    public void operationComplete(Future<Channel> future) {
+                        if (!future.isSuccess()) {
+                            done.setFailure(future.cause());
+                            return;
+                        }
+                        pool.release(future.getNow()).addListener(new FutureListener<Void>() {
+                            @Override
+                            public void operationComplete(Future<Void> future) {
+                                done.setSuccess(null);
+                            }
+                        });
+                    }
+                });
+            }
+        });
+        return done.sync();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures how fast events propagate through a deep {@link ChannelPipeline} in which most handlers only forward
+ * the events they are not interested in.
+ */
+@State(Scope.Benchmark)
+public class DefaultChannelPipelineBenchmark extends AbstractMicrobenchmark {
+
+    private static final Object MESSAGE = new Object();
+
+    @Param({ "4", "16" })
+    public int depth;
+
+    private EmbeddedChannel channel;
+    private ChannelPipeline pipeline;
+
+    @Setup
+    public void setup() {
+        channel = new EmbeddedChannel();
+        pipeline = channel.pipeline();
+        for (int i = 0; i < depth; i++) {
+            pipeline.addLast(newHandler(i));
+        }
+        pipeline.addLast(new ConsumingHandler());
+    }
+
+    private static ChannelHandler newHandler(int i) {
+        switch (i % 4) {
+            case 0:
+                // Does not override anything and so only forwards inbound events.
+                return new ChannelInboundHandlerAdapter() { };
+            case 1:
+                // Does not override anything and so only forwards outbound events.
+                return new ChannelOutboundHandlerAdapter() { };
+            case 2:
+                // Only interested in user events.
+                return new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+                        ctx.fireUserEventTriggered(evt);
+                    }
+                };
+            default:
+                // Interested in reads in both directions.
+                return new ChannelDuplexHandler() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        ctx.fireChannelRead(msg);
+                    }
+
+                    @Override
+                    public void read(ChannelHandlerContext ctx) {
+                        ctx.read();
+                    }
+                };
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+    }
+
+    @Benchmark
+    public void propagateChannelRead() {
+        pipeline.fireChannelRead(MESSAGE);
+    }
+
+    @Benchmark
+    public void propagateChannelReadComplete() {
+        pipeline.fireChannelReadComplete();
+    }
+
+    @Benchmark
+    public void propagateChannelWritabilityChanged() {
+        pipeline.fireChannelWritabilityChanged();
+    }
+
+    @Benchmark
+    public void propagateRead() {
+        pipeline.read();
+    }
+
+    private static final class ConsumingHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            // NOOP
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            // NOOP
+        }
+
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+            // NOOP
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.unix.AffinityThreadFactory;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the allocation and echo throughput of {@link EventLoop}s which are pinned to CPUs via the
+ * {@link AffinityThreadFactory}, and so use the arenas of their NUMA node, with {@link EventLoop}s which are not.
+ */
+public class EpollAffinityBenchmark extends AbstractMicrobenchmark {
+
+    private static final int ALLOCATIONS = 256;
+
+    @Param({ "false", "true" })
+    public boolean pinned;
+
+    @Param({ "1024" })
+    public int size;
+
+    private PooledByteBufAllocator allocator;
+    private EpollEventLoopGroup group;
+    private EventLoop allocLoop;
+    private Callable<Integer> allocTask;
+    private Channel serverChan;
+    private Channel chan;
+    private ByteBuf abyte;
+
+    @Setup
+    public void setup() throws Exception {
+        Epoll.ensureAvailability();
+        // Use a dedicated allocator, so its arenas are only used by the threads of the group.
+        allocator = new PooledByteBufAllocator(true);
+        ThreadFactory threadFactory = pinned ?
+                new AffinityThreadFactory(EpollAffinityBenchmark.class) :
+                new DefaultThreadFactory(EpollAffinityBenchmark.class);
+        group = new EpollEventLoopGroup(2, threadFactory);
+        allocLoop = group.next();
+        final ByteBuf[] buffers = new ByteBuf[ALLOCATIONS];
+        allocTask = new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                int sum = 0;
+                for (int i = 0; i < buffers.length; i++) {
+                    ByteBuf buf = allocator.directBuffer(size);
+                    buf.writerIndex(size);
+                    buffers[i] = buf;
+                }
+                for (int i = 0; i < buffers.length; i++) {
+                    sum += buffers[i].getByte(i % size);
+                    buffers[i].release();
+                    buffers[i] = null;
+                }
+                return sum;
+            }
+        };
+
+        serverChan = new ServerBootstrap()
+            .channel(EpollServerSocketChannel.class)
+            .group(group)
+            .childOption(ChannelOption.ALLOCATOR, allocator)
+            .childHandler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) {
+                    ch.pipeline().addLast(new ChannelDuplexHandler() {
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            if (msg instanceof ByteBuf) {
+                                ctx.writeAndFlush(msg, ctx.voidPromise());
+                            } else {
+                                throw new AssertionError();
+                            }
+                        }
+                    });
+                }
+            })
+            .bind(0)
+            .sync()
+            .channel();
+        chan = new Bootstrap()
+            .channel(EpollSocketChannel.class)
+            .option(ChannelOption.ALLOCATOR, allocator)
+            .handler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) {
+                    ch.pipeline().addLast(new ChannelDuplexHandler() {
+
+                        private ChannelPromise lastWritePromise;
+                        private int received;
+
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            if (msg instanceof ByteBuf) {
+                                ByteBuf buf = (ByteBuf) msg;
+                                try {
+                                    received += buf.readableBytes();
+                                    if (received == size) {
+                                        received = 0;
+                                        lastWritePromise.trySuccess();
+                                        lastWritePromise = null;
+                                    } else if (received > size) {
+                                        throw new AssertionError();
+                                    }
+                                } finally {
+                                    buf.release();
+                                }
+                            } else {
+                                throw new AssertionError();
+                            }
+                        }
+
+                        @Override
+                        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
+                                throws Exception {
+                            if (lastWritePromise != null) {
+                                throw new IllegalStateException();
+                            }
+                            lastWritePromise = promise;
+                            super.write(ctx, msg, ctx.voidPromise());
+                        }
+                    });
+                }
+            })
+            .group(group)
+            .connect(serverChan.localAddress())
+            .sync()
+            .channel();
+
+        abyte = allocator.directBuffer(size);
+        abyte.writerIndex(size);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        chan.close().sync();
+        serverChan.close().sync();
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        abyte.release();
+    }
+
+    @Benchmark
+    public Object allocate() throws Exception {
+        return allocLoop.submit(allocTask).sync().getNow();
+    }
+
+    @Benchmark
+    public Object pingPong() throws Exception {
+        return chan.pipeline().writeAndFlush(abyte.retainedSlice()).sync();
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.epoll.EpollSpliceProxy;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Promise;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of a local TCP proxy which forwards to an echo server, either by using
+ * {@link EpollSpliceProxy} or by reading into {@link ByteBuf}s and writing these to the other side.
+ */
+@State(Scope.Benchmark)
+public class EpollSpliceProxyBenchmark extends AbstractMicrobenchmark {
+
+    public enum ProxyType {
+        SPLICE, BYTEBUF
+    }
+
+    @Param({ "1024", "65536", "1048576" })
+    public int size;
+
+    @Param
+    public ProxyType proxyType;
+
+    private EpollEventLoopGroup group;
+    private Channel echoServer;
+    private Channel proxyServer;
+    private Channel client;
+    private ByteBuf payload;
+    private volatile Promise<Void> echoed;
+    private int received;
+
+    @Setup
+    public void setup() throws Exception {
+        group = new EpollEventLoopGroup(1);
+        echoServer = new ServerBootstrap()
+            .channel(EpollServerSocketChannel.class)
+            .group(group)
+            .childHandler(new ChannelInboundHandlerAdapter() {
+                @Override
+                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                    ctx.write(msg);
+                }
+
+                @Override
+                public void channelReadComplete(ChannelHandlerContext ctx) {
+                    ctx.flush();
+                }
+            })
+            .bind(0)
+            .sync()
+            .channel();
+
+        proxyServer = new ServerBootstrap()
+            .channel(EpollServerSocketChannel.class)
+            .group(group)
+            .childOption(ChannelOption.AUTO_READ, false)
+            .childHandler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(final Channel inbound) {
+                    new Bootstrap()
+                        .channel(EpollSocketChannel.class)
+                        .group(inbound.eventLoop())
+                        .option(ChannelOption.AUTO_READ, false)
+                        .handler(new ChannelInboundHandlerAdapter())
+                        .connect(echoServer.localAddress())
+                        .addListener(new ChannelFutureListener() {
+                            @Override
+                            public void operationComplete(ChannelFuture future) {
+                                if (!future.isSuccess()) {
+                                    inbound.close();
+                                    return;
+                                }
+                                Channel outbound = future.channel();
+                                if (proxyType == ProxyType.SPLICE) {
+                                    new EpollSpliceProxy((EpollSocketChannel) inbound, (EpollSocketChannel) outbound)
+                                            .start();
+                                } else {
+                                    inbound.pipeline().addLast(new RelayHandler(outbound));
+                                    outbound.pipeline().addLast(new RelayHandler(inbound));
+                                    inbound.config().setAutoRead(true);
+                                    outbound.config().setAutoRead(true);
+                                }
+                            }
+                        });
+                }
+            })
+            .bind(0)
+            .sync()
+            .channel();
+
+        client = new Bootstrap()
+            .channel(EpollSocketChannel.class)
+            .group(group)
+            .handler(new ChannelInboundHandlerAdapter() {
+                @Override
+                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                    received += ((ByteBuf) msg).readableBytes();
+                    ReferenceCountUtil.release(msg);
+                    if (received == size) {
+                        received = 0;
+                        echoed.setSuccess(null);
+                    }
+                }
+            })
+            .connect(proxyServer.localAddress())
+            .sync()
+            .channel();
+
+        payload = client.alloc().directBuffer(size);
+        payload.writeZero(size);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        client.close().sync();
+        proxyServer.close().sync();
+        echoServer.close().sync();
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        payload.release();
+    }
+
+    @Benchmark
+    public Object roundTrip() throws Exception {
+        echoed = client.eventLoop().newPromise();
+        client.writeAndFlush(payload.retainedDuplicate());
+        return echoed.sync();
+    }
+
+    private static final class RelayHandler extends ChannelInboundHandlerAdapter {
+        private final Channel other;
+
+        RelayHandler(Channel other) {
+            this.other = other;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            other.write(msg);
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            other.flush();
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            other.close();
+        }
+    }
+}
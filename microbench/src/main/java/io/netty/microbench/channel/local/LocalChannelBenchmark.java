@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel.local;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalChannelOption;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.Promise;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of a single message and the throughput of bursts of messages which are echoed between two
+ * {@link LocalChannel}s, which are either on the same or on different {@code EventLoop}s.
+ */
+public class LocalChannelBenchmark extends AbstractMicrobenchmark {
+
+    private static final LocalAddress ADDRESS = new LocalAddress(LocalChannelBenchmark.class.getName());
+
+    @Param({ "false", "true" })
+    public boolean sameEventLoop;
+
+    @Param({ "false", "true" })
+    public boolean backpressure;
+
+    @Param({ "64" })
+    public int burst;
+
+    private EventLoopGroup group;
+    private Channel serverChan;
+    private Channel chan;
+    private ByteBuf abyte;
+    private ClientHandler clientHandler;
+
+    @Setup
+    public void setup() throws Exception {
+        group = new DefaultEventLoopGroup(sameEventLoop ? 1 : 2);
+        serverChan = new ServerBootstrap()
+            .channel(LocalServerChannel.class)
+            .group(group)
+            .childOption(LocalChannelOption.BACKPRESSURE, backpressure)
+            .childHandler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) {
+                    ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            ctx.write(msg, ctx.voidPromise());
+                        }
+
+                        @Override
+                        public void channelReadComplete(ChannelHandlerContext ctx) {
+                            ctx.flush();
+                        }
+                    });
+                }
+            })
+            .bind(ADDRESS)
+            .sync()
+            .channel();
+        clientHandler = new ClientHandler();
+        chan = new Bootstrap()
+            .channel(LocalChannel.class)
+            .group(group)
+            .option(LocalChannelOption.BACKPRESSURE, backpressure)
+            .handler(clientHandler)
+            .connect(ADDRESS)
+            .sync()
+            .channel();
+        abyte = Unpooled.directBuffer(1).writeByte('a');
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        chan.close().sync();
+        serverChan.close().sync();
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        abyte.release();
+    }
+
+    @Benchmark
+    public Object pingPong() throws Exception {
+        return echo(1);
+    }
+
+    @Benchmark
+    public Object burst() throws Exception {
+        return echo(burst);
+    }
+
+    private Object echo(int messages) throws Exception {
+        Promise<Void> promise = chan.eventLoop().newPromise();
+        clientHandler.expect(messages, promise);
+        for (int i = 0; i < messages; i++) {
+            chan.write(abyte.retainedDuplicate(), chan.voidPromise());
+        }
+        chan.flush();
+        return promise.sync();
+    }
+
+    private static final class ClientHandler extends ChannelInboundHandlerAdapter {
+        private volatile Promise<Void> promise;
+        private int remaining;
+
+        void expect(int messages, Promise<Void> promise) {
+            remaining = messages;
+            this.promise = promise;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ((ByteBuf) msg).release();
+            if (--remaining == 0) {
+                promise.setSuccess(null);
+            }
+        }
+    }
+}
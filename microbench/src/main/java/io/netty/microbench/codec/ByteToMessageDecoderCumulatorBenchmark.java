@@ -0,0 +1,98 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.AdaptiveCumulator;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Compares the {@link ByteToMessageDecoder.Cumulator}s when decoding frames with a
+ * {@link LengthFieldBasedFrameDecoder} from reads which do not line up with the frame boundaries.
+ */
+@State(Scope.Benchmark)
+public class ByteToMessageDecoderCumulatorBenchmark extends AbstractMicrobenchmark {
+
+    private static final int READ_SIZE = 16 * 1024;
+
+    @Param({ "64", "4096", "1048576" })
+    public int frameSize;
+
+    @Param({ "MERGE", "COMPOSITE", "ADAPTIVE" })
+    public String cumulatorType;
+
+    private ByteBuf data;
+    private EmbeddedChannel channel;
+    private ByteBufAllocator alloc;
+
+    @Setup
+    public void setup() {
+        alloc = PooledByteBufAllocator.DEFAULT;
+        // Enough frames to span multiple reads even for the smallest frames.
+        int frames = Math.max(1, 4 * 1024 * 1024 / (frameSize + 4));
+        data = alloc.directBuffer(frames * (frameSize + 4));
+        for (int i = 0; i < frames; i++) {
+            data.writeInt(frameSize);
+            data.writeZero(frameSize);
+        }
+
+        LengthFieldBasedFrameDecoder decoder = new LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, 4, 0, 4);
+        if ("MERGE".equals(cumulatorType)) {
+            decoder.setCumulator(ByteToMessageDecoder.MERGE_CUMULATOR);
+        } else if ("COMPOSITE".equals(cumulatorType)) {
+            decoder.setCumulator(ByteToMessageDecoder.COMPOSITE_CUMULATOR);
+        } else {
+            decoder.setCumulator(new AdaptiveCumulator());
+        }
+        channel = new EmbeddedChannel(decoder, new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                ReferenceCountUtil.release(msg);
+            }
+        });
+        channel.config().setAllocator(alloc);
+    }
+
+    @TearDown
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+        data.release();
+    }
+
+    @Benchmark
+    public void decode() {
+        final ByteBuf data = this.data;
+        for (int i = data.readerIndex(), end = data.writerIndex(); i < end; i += READ_SIZE) {
+            // Simulate what a transport does: each read ends up in a newly allocated buffer.
+            int length = Math.min(READ_SIZE, end - i);
+            channel.writeInbound(alloc.directBuffer(length).writeBytes(data, i, length));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.FastLzFrameEncoder;
+import io.netty.handler.codec.compression.Lz4FrameEncoder;
+import io.netty.handler.codec.compression.LzfEncoder;
+import io.netty.handler.codec.compression.SnappyFrameEncoder;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the throughput of the compression encoders for {@link CompressionPayload}s of different sizes.
+ */
+@State(Scope.Benchmark)
+public class CompressionEncoderBenchmark extends AbstractMicrobenchmark {
+
+    public enum Codec {
+        SNAPPY {
+            @Override
+            ChannelHandler newEncoder() {
+                return new SnappyFrameEncoder();
+            }
+        },
+        FASTLZ {
+            @Override
+            ChannelHandler newEncoder() {
+                return new FastLzFrameEncoder();
+            }
+        },
+        LZ4 {
+            @Override
+            ChannelHandler newEncoder() {
+                return new Lz4FrameEncoder();
+            }
+        },
+        LZF {
+            @Override
+            ChannelHandler newEncoder() {
+                return new LzfEncoder();
+            }
+        };
+
+        abstract ChannelHandler newEncoder();
+    }
+
+    @Param
+    public Codec codec;
+
+    @Param
+    public CompressionPayload payload;
+
+    @Param({ "256", "4096", "65536" })
+    public int size;
+
+    @Param({ "false", "true" })
+    public boolean direct;
+
+    private ByteBuf data;
+    private EmbeddedChannel channel;
+
+    @Setup
+    public void setup() {
+        byte[] bytes = payload.generate(size);
+        data = direct ? PooledByteBufAllocator.DEFAULT.directBuffer(size)
+                      : PooledByteBufAllocator.DEFAULT.heapBuffer(size);
+        data.writeBytes(bytes);
+        channel = new EmbeddedChannel(codec.newEncoder());
+        channel.config().setAllocator(PooledByteBufAllocator.DEFAULT);
+    }
+
+    @TearDown
+    public void teardown() {
+        channel.finishAndReleaseAll();
+        data.release();
+    }
+
+    @Benchmark
+    public int encode() {
+        channel.writeOutbound(data.retainedDuplicate());
+        int compressed = 0;
+        for (;;) {
+            ByteBuf buf = channel.readOutbound();
+            if (buf == null) {
+                return compressed;
+            }
+            compressed += buf.readableBytes();
+            buf.release();
+        }
+    }
+}
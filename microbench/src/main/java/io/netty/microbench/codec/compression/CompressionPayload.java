@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.codec.compression;
+
+import io.netty.util.CharsetUtil;
+
+import java.util.Random;
+
+/**
+ * Payloads of different compressibility which resemble real traffic. The content only depends on the size, so every
+ * run of a benchmark compresses the same bytes.
+ */
+public enum CompressionPayload {
+    /**
+     * English-like text, which compresses well.
+     */
+    TEXT {
+        @Override
+        public byte[] generate(int size) {
+            Random random = new Random(size);
+            StringBuilder sb = new StringBuilder(size + 128);
+            while (sb.length() < size) {
+                sb.append(WORDS[random.nextInt(WORDS.length)]);
+                sb.append(random.nextInt(12) == 0 ? ". " : " ");
+            }
+            return ascii(sb, size);
+        }
+    },
+    /**
+     * JSON records with repeated keys and varying values.
+     */
+    JSON {
+        @Override
+        public byte[] generate(int size) {
+            Random random = new Random(size);
+            StringBuilder sb = new StringBuilder(size + 128);
+            while (sb.length() < size) {
+                sb.append("{\"id\":").append(random.nextInt(1000000))
+                  .append(",\"name\":\"").append(WORDS[random.nextInt(WORDS.length)])
+                  .append("\",\"active\":").append(random.nextBoolean())
+                  .append(",\"score\":").append(random.nextInt(10000) / 100.0)
+                  .append(",\"tags\":[\"").append(WORDS[random.nextInt(WORDS.length)])
+                  .append("\",\"").append(WORDS[random.nextInt(WORDS.length)]).append("\"]},");
+            }
+            return ascii(sb, size);
+        }
+    },
+    /**
+     * Random bytes, which do not compress at all.
+     */
+    RANDOM {
+        @Override
+        public byte[] generate(int size) {
+            byte[] bytes = new byte[size];
+            new Random(size).nextBytes(bytes);
+            return bytes;
+        }
+    };
+
+    private static final String[] WORDS = {
+            "the", "of", "and", "to", "in", "is", "that", "for", "it", "as", "was", "with", "be", "by", "on",
+            "not", "he", "this", "are", "or", "his", "from", "at", "which", "but", "have", "an", "had", "they",
+            "netty", "channel", "pipeline", "buffer", "handler", "event", "loop", "future", "promise", "codec",
+            "compression", "request", "response", "header", "content", "stream", "frame", "message", "server"
+    };
+
+    /**
+     * Returns a payload of the given size.
+     */
+    public abstract byte[] generate(int size);
+
+    private static byte[] ascii(StringBuilder sb, int size) {
+        sb.setLength(size);
+        return sb.toString().getBytes(CharsetUtil.US_ASCII);
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.handler.traffic;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.handler.traffic.GlobalChannelTrafficShapingHandler;
+import io.netty.handler.traffic.TokenBucket;
+import io.netty.handler.traffic.TokenBucketShapingHandler;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Promise;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Writes a few messages to each of many shaped {@link Channel}s of the same {@link EventLoop}, so most of the writes
+ * are delayed, and measures how long it takes until all of them were written.
+ */
+@State(Scope.Benchmark)
+public class TrafficShapingBenchmark extends AbstractMicrobenchmark {
+
+    public enum ShapingType {
+        GLOBAL_CHANNEL, TOKEN_BUCKET
+    }
+
+    private static final LocalAddress ADDRESS = new LocalAddress("TrafficShapingBenchmark");
+    private static final int MESSAGE_SIZE = 1024;
+    private static final int MESSAGES_PER_CHANNEL = 4;
+    // Every message after the first one of a Channel is delayed by 16ms.
+    private static final long CHANNEL_LIMIT = 64 * MESSAGE_SIZE;
+
+    @Param
+    public ShapingType shapingType;
+
+    @Param({ "100", "1000" })
+    public int channelCount;
+
+    private EventLoopGroup group;
+    private EventLoop loop;
+    private Channel serverChannel;
+    private Channel[] channels;
+    private ByteBuf message;
+
+    @Setup
+    public void setup() throws Exception {
+        group = new DefaultEventLoopGroup(1);
+        loop = group.next();
+        message = Unpooled.directBuffer(MESSAGE_SIZE).writeZero(MESSAGE_SIZE);
+        serverChannel = new ServerBootstrap()
+                .group(group)
+                .channel(LocalServerChannel.class)
+                .childHandler(new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        ReferenceCountUtil.release(msg);
+                    }
+                })
+                .bind(ADDRESS)
+                .sync()
+                .channel();
+
+        final GlobalChannelTrafficShapingHandler globalChannelHandler = shapingType == ShapingType.GLOBAL_CHANNEL ?
+                new GlobalChannelTrafficShapingHandler(loop, 0, 0, CHANNEL_LIMIT, 0, 100) : null;
+        // Use a hierarchy to include the cost of the parent bucket.
+        final TokenBucket globalBucket = new TokenBucket(0);
+        Bootstrap bootstrap = new Bootstrap()
+                .group(group)
+                .channel(LocalChannel.class)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        if (globalChannelHandler != null) {
+                            ch.pipeline().addLast(globalChannelHandler);
+                        } else {
+                            ch.pipeline().addLast(new TokenBucketShapingHandler(
+                                    null, new TokenBucket(CHANNEL_LIMIT, MESSAGE_SIZE, globalBucket)));
+                        }
+                    }
+                });
+        channels = new Channel[channelCount];
+        for (int i = 0; i < channels.length; i++) {
+            channels[i] = bootstrap.connect(ADDRESS).sync().channel();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        for (Channel channel: channels) {
+            channel.close().sync();
+        }
+        serverChannel.close().sync();
+        group.shutdownGracefully().sync();
+        message.release();
+    }
+
+    @Benchmark
+    public Object writeShaped() throws Exception {
+        final Promise<Void> done = loop.newPromise();
+        loop.execute(new Runnable() {
+            @Override
+            public void run() {
+                ChannelFutureListener listener = new ChannelFutureListener() {
+                    private int remaining = channels.length * MESSAGES_PER_CHANNEL;
+
+                    @Override
+                    public void operationComplete(ChannelFuture future) {
+                        if (!future.isSuccess()) {
+                            done.tryFailure(future.cause());
+                        } else if (--remaining == 0) {
+                            done.setSuccess(null);
+                        }
+                    }
+                };
+                for (int i = 0; i < MESSAGES_PER_CHANNEL; i++) {
+                    for (Channel channel: channels) {
+                        channel.writeAndFlush(message.retainedDuplicate()).addListener(listener);
+                    }
+                }
+            }
+        });
+        return done.sync();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.http.websocketx;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.websocketx.BinaryWebSocketFrame;
+import io.netty.handler.codec.http.websocketx.WebSocket08FrameDecoder;
+import io.netty.handler.codec.http.websocketx.WebSocket08FrameEncoder;
+import io.netty.microbench.channel.EmbeddedChannelWriteReleaseHandlerContext;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class WebSocketFrameCodecBenchmark extends AbstractMicrobenchmark {
+    private static final ByteBufAllocator ALLOC = PooledByteBufAllocator.DEFAULT;
+
+    private WebSocket08FrameEncoder serverEncoder;
+    private WebSocket08FrameEncoder clientEncoder;
+    private WebSocket08FrameDecoder serverDecoder;
+    private ChannelHandlerContext serverEncoderContext;
+    private ChannelHandlerContext clientEncoderContext;
+    private ChannelHandlerContext serverDecoderContext;
+    private ByteBuf content;
+    private ByteBuf maskedFrame;
+
+    @Param({ "64", "1024", "16384" })
+    public int payloadSize;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        byte[] bytes = new byte[payloadSize];
+        new Random(42).nextBytes(bytes);
+        content = Unpooled.unreleasableBuffer(ALLOC.directBuffer(payloadSize).writeBytes(bytes));
+
+        EmbeddedChannel channel = new EmbeddedChannel(new WebSocket08FrameEncoder(true));
+        channel.writeOutbound(new BinaryWebSocketFrame(content.duplicate()));
+        ByteBuf encoded = channel.readOutbound();
+        maskedFrame = Unpooled.directBuffer(encoded.readableBytes()).writeBytes(encoded);
+        encoded.release();
+        channel.finishAndReleaseAll();
+
+        serverEncoder = new WebSocket08FrameEncoder(false);
+        clientEncoder = new WebSocket08FrameEncoder(true);
+        serverDecoder = new WebSocket08FrameDecoder(true, false, payloadSize);
+        serverEncoderContext = newContext(serverEncoder);
+        clientEncoderContext = newContext(clientEncoder);
+        serverDecoderContext = newContext(serverDecoder);
+    }
+
+    private EmbeddedChannelWriteReleaseHandlerContext newContext(ChannelHandler handler) {
+        return new EmbeddedChannelWriteReleaseHandlerContext(ALLOC, handler) {
+            @Override
+            protected void handleException(Throwable t) {
+                handleUnexpectedException(t);
+            }
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() {
+        ((ByteBuf) content.unwrap()).release();
+        maskedFrame.release();
+    }
+
+    @Benchmark
+    public void encodeUnmasked() throws Exception {
+        serverEncoder.write(serverEncoderContext, new BinaryWebSocketFrame(content.duplicate()),
+                serverEncoderContext.voidPromise());
+    }
+
+    @Benchmark
+    public void encodeMasked() throws Exception {
+        clientEncoder.write(clientEncoderContext, new BinaryWebSocketFrame(content.duplicate()),
+                clientEncoderContext.voidPromise());
+    }
+
+    @Benchmark
+    public void decodeMasked() throws Exception {
+        // Every read gets a new buffer, like the ones of a socket, as the payload is unmasked in place.
+        ByteBuf in = ALLOC.directBuffer(maskedFrame.readableBytes())
+                .writeBytes(maskedFrame, maskedFrame.readerIndex(), maskedFrame.readableBytes());
+        serverDecoder.channelRead(serverDecoderContext, in);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.util;
+
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import io.netty.util.DefaultAttributeMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Benchmarks {@link DefaultAttributeMap} lookups and insertions with a varying number of attributes.
+ */
+@State(Scope.Benchmark)
+public class DefaultAttributeMapBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "1", "8", "32" })
+    public int keyCount;
+
+    private AttributeKey<Integer>[] keys;
+    private DefaultAttributeMap map;
+
+    @SuppressWarnings("unchecked")
+    @Setup
+    public void setup() {
+        keys = new AttributeKey[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = AttributeKey.valueOf(DefaultAttributeMapBenchmark.class, Integer.toString(i));
+        }
+        map = new DefaultAttributeMap();
+        for (AttributeKey<Integer> key : keys) {
+            map.attr(key).set(key.id());
+        }
+    }
+
+    @Benchmark
+    @Threads(3)
+    public int lookupAll() {
+        int sum = 0;
+        for (AttributeKey<Integer> key : keys) {
+            sum += map.attr(key).get();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @Threads(3)
+    public boolean hasAttrLast() {
+        return map.hasAttr(keys[keys.length - 1]);
+    }
+
+    @Benchmark
+    public DefaultAttributeMap createAndFill() {
+        DefaultAttributeMap map = new DefaultAttributeMap();
+        for (AttributeKey<Integer> key : keys) {
+            map.attr(key);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public Attribute<Integer> addAndRemoveLast() {
+        Attribute<Integer> attr = map.attr(keys[keys.length - 1]);
+        attr.remove();
+        return attr;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.resolver.dns;
+
+import io.netty.util.internal.UnstableApi;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Statistics which are collected for a single DNS server by {@link LatencyAwareDnsServerAddressStreamProvider}.
+ */
+@UnstableApi
+public interface DnsServerMetric {
+
+    /**
+     * Returns the address of the DNS server.
+     */
+    InetSocketAddress address();
+
+    /**
+     * Returns the exponentially weighted moving average of the round-trip time in nanoseconds or {@code -1} if no
+     * query was answered yet.
+     */
+    long smoothedRttNanos();
+
+    /**
+     * Returns the number of queries which were written to the DNS server.
+     */
+    long queries();
+
+    /**
+     * Returns the number of queries which timed out.
+     */
+    long timeouts();
+
+    /**
+     * Returns the number of queries which failed for any other reason than a timeout.
+     */
+    long failures();
+
+    /**
+     * Returns the number of queries which failed in a row since the last successful one.
+     */
+    int consecutiveFailures();
+
+    /**
+     * Returns {@code true} if the DNS server is currently preferred, {@code false} if it was demoted because of
+     * too many consecutive failures and is only probed from time to time.
+     */
+    boolean isHealthy();
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.resolver.dns;
+
+import io.netty.channel.ChannelFuture;
+import io.netty.handler.codec.dns.DnsQuestion;
+import io.netty.handler.codec.dns.DnsResponseCode;
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * A {@link DnsServerAddressStreamProvider} which orders the DNS servers by their observed latency.
+ * <p>
+ * The round-trip time and the number of failures of each DNS server are tracked via the
+ * {@link DnsQueryLifecycleObserver}s created by this instance, so it must also be set as the
+ * {@link DnsQueryLifecycleObserverFactory} of the {@link DnsNameResolver}:
+ * <pre>
+ * LatencyAwareDnsServerAddressStreamProvider provider = new LatencyAwareDnsServerAddressStreamProvider(servers);
+ * DnsNameResolver resolver = new DnsNameResolverBuilder(eventLoop)
+ *         .nameServerProvider(provider)
+ *         .dnsQueryLifecycleObserverFactory(provider)
+ *         ...
+ *         .build();
+ * </pre>
+ * Each {@link DnsServerAddressStream} returned by {@link #nameServerAddressStream(String)} yields the healthy DNS
+ * servers first, ordered by their smoothed round-trip time, followed by the DNS servers which were demoted because
+ * of too many consecutive failures. A demoted DNS server is moved to the front of a single stream once per probe
+ * interval so it can recover once it becomes responsive again.
+ */
+@UnstableApi
+public final class LatencyAwareDnsServerAddressStreamProvider
+        implements DnsServerAddressStreamProvider, DnsQueryLifecycleObserverFactory {
+
+    private static final double DEFAULT_SMOOTHING_FACTOR = 0.2;
+    private static final int DEFAULT_MAX_CONSECUTIVE_FAILURES = 3;
+    private static final long DEFAULT_PROBE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final ServerEntry[] servers;
+    private final List<DnsServerMetric> metrics;
+
+    /**
+     * Creates a new instance which uses the default settings.
+     *
+     * @param addresses the addresses of the DNS servers to use.
+     */
+    public LatencyAwareDnsServerAddressStreamProvider(Iterable<? extends InetSocketAddress> addresses) {
+        this(addresses, DEFAULT_SMOOTHING_FACTOR, DEFAULT_MAX_CONSECUTIVE_FAILURES,
+             DEFAULT_PROBE_INTERVAL_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param addresses the addresses of the DNS servers to use.
+     * @param smoothingFactor the weight ({@code (0, 1]}) of a new round-trip time sample in the moving average.
+     * @param maxConsecutiveFailures the number of failed queries in a row after which a DNS server is demoted.
+     * @param probeInterval the interval in which a demoted DNS server is tried first again.
+     * @param unit the {@link TimeUnit} of {@code probeInterval}.
+     */
+    public LatencyAwareDnsServerAddressStreamProvider(Iterable<? extends InetSocketAddress> addresses,
+                                                      double smoothingFactor, int maxConsecutiveFailures,
+                                                      long probeInterval, TimeUnit unit) {
+        checkNotNull(addresses, "addresses");
+        checkNotNull(unit, "unit");
+        if (!(smoothingFactor > 0 && smoothingFactor <= 1)) {
+            throw new IllegalArgumentException("smoothingFactor: " + smoothingFactor + " (expected: (0, 1])");
+        }
+        checkPositive(maxConsecutiveFailures, "maxConsecutiveFailures");
+        long probeIntervalNanos = unit.toNanos(checkPositive(probeInterval, "probeInterval"));
+
+        List<ServerEntry> entries = new ArrayList<ServerEntry>();
+        for (InetSocketAddress address : addresses) {
+            if (address == null) {
+                break;
+            }
+            if (address.isUnresolved()) {
+                throw new IllegalArgumentException("cannot use an unresolved DNS server address: " + address);
+            }
+            entries.add(new ServerEntry(address, entries.size(), smoothingFactor, maxConsecutiveFailures,
+                                        probeIntervalNanos));
+        }
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("empty addresses");
+        }
+        servers = entries.toArray(new ServerEntry[0]);
+        metrics = Collections.<DnsServerMetric>unmodifiableList(entries);
+    }
+
+    /**
+     * Returns the {@link DnsServerMetric} of all DNS servers, in the order they were specified.
+     */
+    public List<DnsServerMetric> metrics() {
+        return metrics;
+    }
+
+    @Override
+    public DnsServerAddressStream nameServerAddressStream(String hostname) {
+        final ServerEntry[] servers = this.servers;
+        if (servers.length == 1) {
+            return new SequentialDnsServerAddressStream(Collections.singletonList(servers[0].address), 0);
+        }
+
+        final long now = System.nanoTime();
+        final ServerSnapshot[] snapshots = new ServerSnapshot[servers.length];
+        ServerEntry probe = null;
+        for (int i = 0; i < servers.length; i++) {
+            ServerEntry server = servers[i];
+            boolean healthy = server.isHealthy();
+            if (!healthy && probe == null && server.tryProbe(now)) {
+                probe = server;
+            }
+            snapshots[i] = new ServerSnapshot(server, healthy);
+        }
+        Arrays.sort(snapshots);
+
+        final List<InetSocketAddress> addresses = new ArrayList<InetSocketAddress>(servers.length);
+        if (probe != null) {
+            addresses.add(probe.address);
+        }
+        for (ServerSnapshot snapshot : snapshots) {
+            if (snapshot.server != probe) {
+                addresses.add(snapshot.server.address);
+            }
+        }
+        return new SequentialDnsServerAddressStream(addresses, 0);
+    }
+
+    @Override
+    public DnsQueryLifecycleObserver newDnsQueryLifecycleObserver(DnsQuestion question) {
+        return new LatencyObserver();
+    }
+
+    private ServerEntry server(InetSocketAddress address) {
+        // The number of DNS servers is usually small, so a linear scan is cheaper than a hash lookup.
+        for (ServerEntry server : servers) {
+            if (server.address.equals(address)) {
+                return server;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyAwareDnsServerAddressStreamProvider" + metrics;
+    }
+
+    private static final class ServerSnapshot implements Comparable<ServerSnapshot> {
+        final ServerEntry server;
+        final boolean healthy;
+        final long rttNanos;
+
+        ServerSnapshot(ServerEntry server, boolean healthy) {
+            this.server = server;
+            this.healthy = healthy;
+            // Prefer DNS servers which were not queried yet so we learn their round-trip time.
+            rttNanos = Math.max(0, server.smoothedRttNanos());
+        }
+
+        @Override
+        public int compareTo(ServerSnapshot o) {
+            if (healthy != o.healthy) {
+                return healthy ? -1 : 1;
+            }
+            if (rttNanos != o.rttNanos) {
+                return rttNanos < o.rttNanos ? -1 : 1;
+            }
+            return server.index - o.server.index;
+        }
+    }
+
+    private static final class ServerEntry implements DnsServerMetric {
+        private static final AtomicLongFieldUpdater<ServerEntry> RTT_UPDATER =
+                AtomicLongFieldUpdater.newUpdater(ServerEntry.class, "smoothedRttNanos");
+        private static final AtomicLongFieldUpdater<ServerEntry> LAST_PROBE_UPDATER =
+                AtomicLongFieldUpdater.newUpdater(ServerEntry.class, "lastProbeNanos");
+        private static final AtomicIntegerFieldUpdater<ServerEntry> FAILURES_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(ServerEntry.class, "consecutiveFailures");
+
+        final InetSocketAddress address;
+        final int index;
+        private final double smoothingFactor;
+        private final int maxConsecutiveFailures;
+        private final long probeIntervalNanos;
+        private final LongCounter queries = PlatformDependent.newLongCounter();
+        private final LongCounter timeouts = PlatformDependent.newLongCounter();
+        private final LongCounter failures = PlatformDependent.newLongCounter();
+
+        private volatile long smoothedRttNanos = -1;
+        private volatile long lastProbeNanos = System.nanoTime();
+        private volatile int consecutiveFailures;
+
+        ServerEntry(InetSocketAddress address, int index, double smoothingFactor, int maxConsecutiveFailures,
+                    long probeIntervalNanos) {
+            this.address = address;
+            this.index = index;
+            this.smoothingFactor = smoothingFactor;
+            this.maxConsecutiveFailures = maxConsecutiveFailures;
+            this.probeIntervalNanos = probeIntervalNanos;
+        }
+
+        void queryWritten() {
+            queries.increment();
+        }
+
+        void querySucceed(long rttNanos) {
+            updateRtt(rttNanos);
+            consecutiveFailures = 0;
+        }
+
+        void queryFailed(long elapsedNanos, boolean timeout) {
+            if (timeout) {
+                timeouts.increment();
+                // Account the time we waited so a DNS server which times out a lot also gets a high average.
+                updateRtt(elapsedNanos);
+            } else {
+                failures.increment();
+            }
+            if (FAILURES_UPDATER.incrementAndGet(this) == maxConsecutiveFailures) {
+                // Just demoted, so give the DNS server a full probe interval before trying it first again.
+                lastProbeNanos = System.nanoTime();
+            }
+        }
+
+        boolean tryProbe(long now) {
+            long lastProbe = lastProbeNanos;
+            return now - lastProbe >= probeIntervalNanos && LAST_PROBE_UPDATER.compareAndSet(this, lastProbe, now);
+        }
+
+        private void updateRtt(long sampleNanos) {
+            for (;;) {
+                long oldRtt = smoothedRttNanos;
+                long newRtt = oldRtt < 0 ? sampleNanos :
+                        oldRtt + (long) (smoothingFactor * (sampleNanos - oldRtt));
+                if (RTT_UPDATER.compareAndSet(this, oldRtt, newRtt)) {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public InetSocketAddress address() {
+            return address;
+        }
+
+        @Override
+        public long smoothedRttNanos() {
+            return smoothedRttNanos;
+        }
+
+        @Override
+        public long queries() {
+            return queries.value();
+        }
+
+        @Override
+        public long timeouts() {
+            return timeouts.value();
+        }
+
+        @Override
+        public long failures() {
+            return failures.value();
+        }
+
+        @Override
+        public int consecutiveFailures() {
+            return consecutiveFailures;
+        }
+
+        @Override
+        public boolean isHealthy() {
+            return consecutiveFailures < maxConsecutiveFailures;
+        }
+
+        @Override
+        public String toString() {
+            return "DnsServerMetric(address: " + address +
+                    ", smoothedRttNanos: " + smoothedRttNanos() +
+                    ", queries: " + queries() +
+                    ", timeouts: " + timeouts() +
+                    ", failures: " + failures() +
+                    ", consecutiveFailures: " + consecutiveFailures() + ')';
+        }
+    }
+
+    private final class LatencyObserver implements DnsQueryLifecycleObserver {
+        private ServerEntry server;
+        private long writtenNanos;
+
+        @Override
+        public void queryWritten(InetSocketAddress dnsServerAddress, ChannelFuture future) {
+            server = server(dnsServerAddress);
+            if (server != null) {
+                writtenNanos = System.nanoTime();
+                server.queryWritten();
+            }
+        }
+
+        @Override
+        public void queryCancelled(int queriesRemaining) {
+            server = null;
+        }
+
+        @Override
+        public DnsQueryLifecycleObserver queryRedirected(List<InetSocketAddress> nameServers) {
+            // The DNS server responded, which is all we care about.
+            querySucceed();
+            return newDnsQueryLifecycleObserver(null);
+        }
+
+        @Override
+        public DnsQueryLifecycleObserver queryCNAMEd(DnsQuestion cnameQuestion) {
+            querySucceed();
+            return newDnsQueryLifecycleObserver(cnameQuestion);
+        }
+
+        @Override
+        public DnsQueryLifecycleObserver queryNoAnswer(DnsResponseCode code) {
+            querySucceed();
+            return newDnsQueryLifecycleObserver(null);
+        }
+
+        @Override
+        public void queryFailed(Throwable cause) {
+            if (!(cause instanceof DnsNameResolverException)) {
+                // The DNS server responded but the response did not progress the resolution.
+                querySucceed();
+                return;
+            }
+            ServerEntry server = this.server;
+            if (server != null) {
+                this.server = null;
+                server.queryFailed(System.nanoTime() - writtenNanos, cause instanceof DnsNameResolverTimeoutException);
+            }
+        }
+
+        @Override
+        public void querySucceed() {
+            ServerEntry server = this.server;
+            if (server != null) {
+                this.server = null;
+                server.querySucceed(System.nanoTime() - writtenNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.resolver.dns;
+
+import io.netty.handler.codec.dns.DefaultDnsQuestion;
+import io.netty.handler.codec.dns.DnsQuestion;
+import io.netty.handler.codec.dns.DnsRecordType;
+import io.netty.util.NetUtil;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LatencyAwareDnsServerAddressStreamProviderTest {
+
+    private static final InetSocketAddress ADDR1 = new InetSocketAddress(NetUtil.LOCALHOST, 1);
+    private static final InetSocketAddress ADDR2 = new InetSocketAddress(NetUtil.LOCALHOST, 2);
+    private static final InetSocketAddress ADDR3 = new InetSocketAddress(NetUtil.LOCALHOST, 3);
+    private static final DnsQuestion QUESTION = new DefaultDnsQuestion("netty.io", DnsRecordType.A);
+
+    @Test
+    public void testInitialOrder() {
+        LatencyAwareDnsServerAddressStreamProvider provider =
+                new LatencyAwareDnsServerAddressStreamProvider(Arrays.asList(ADDR1, ADDR2, ADDR3));
+        assertStream(provider.nameServerAddressStream(""), ADDR1, ADDR2, ADDR3);
+    }
+
+    @Test
+    public void testPrefersFasterServer() throws Exception {
+        LatencyAwareDnsServerAddressStreamProvider provider =
+                new LatencyAwareDnsServerAddressStreamProvider(Arrays.asList(ADDR1, ADDR2, ADDR3));
+
+        DnsQueryLifecycleObserver slow = written(provider, ADDR1);
+        DnsQueryLifecycleObserver fast = written(provider, ADDR2);
+        fast.querySucceed();
+        Thread.sleep(10);
+        slow.querySucceed();
+        written(provider, ADDR3).querySucceed();
+
+        DnsServerMetric metric1 = provider.metrics().get(0);
+        DnsServerMetric metric2 = provider.metrics().get(1);
+        assertEquals(1, metric1.queries());
+        assertTrue(metric1.smoothedRttNanos() > metric2.smoothedRttNanos());
+        assertEquals(ADDR2, provider.nameServerAddressStream("").next());
+    }
+
+    @Test
+    public void testDemotesAndProbesFailingServer() {
+        LatencyAwareDnsServerAddressStreamProvider provider = new LatencyAwareDnsServerAddressStreamProvider(
+                Arrays.asList(ADDR1, ADDR2, ADDR3), 0.5, 2, 1, TimeUnit.HOURS);
+
+        timeout(provider, ADDR1);
+        DnsServerMetric metric = provider.metrics().get(0);
+        assertTrue(metric.isHealthy());
+        timeout(provider, ADDR1);
+        assertFalse(metric.isHealthy());
+        assertEquals(2, metric.timeouts());
+        assertEquals(2, metric.consecutiveFailures());
+        assertStream(provider.nameServerAddressStream(""), ADDR2, ADDR3, ADDR1);
+
+        // A successful probe makes the server healthy again.
+        written(provider, ADDR1).querySucceed();
+        assertTrue(metric.isHealthy());
+        assertEquals(0, metric.consecutiveFailures());
+    }
+
+    @Test
+    public void testProbeDemotedServerFirst() {
+        LatencyAwareDnsServerAddressStreamProvider provider = new LatencyAwareDnsServerAddressStreamProvider(
+                Arrays.asList(ADDR1, ADDR2, ADDR3), 0.5, 1, 1, TimeUnit.NANOSECONDS);
+
+        timeout(provider, ADDR2);
+        assertFalse(provider.metrics().get(1).isHealthy());
+        assertEquals(ADDR2, provider.nameServerAddressStream("").next());
+    }
+
+    @Test
+    public void testResponseFailureIsNotServerFailure() {
+        LatencyAwareDnsServerAddressStreamProvider provider =
+                new LatencyAwareDnsServerAddressStreamProvider(Arrays.asList(ADDR1, ADDR2));
+
+        written(provider, ADDR1).queryFailed(new RuntimeException("NXDOMAIN"));
+        DnsServerMetric metric = provider.metrics().get(0);
+        assertEquals(0, metric.failures());
+        assertTrue(metric.smoothedRttNanos() >= 0);
+
+        written(provider, ADDR1).queryFailed(new DnsNameResolverException(ADDR1, QUESTION, "I/O error"));
+        assertEquals(1, metric.failures());
+        assertEquals(0, metric.timeouts());
+    }
+
+    private static DnsQueryLifecycleObserver written(
+            LatencyAwareDnsServerAddressStreamProvider provider, InetSocketAddress address) {
+        DnsQueryLifecycleObserver observer = provider.newDnsQueryLifecycleObserver(QUESTION);
+        observer.queryWritten(address, null);
+        return observer;
+    }
+
+    private static void timeout(LatencyAwareDnsServerAddressStreamProvider provider, InetSocketAddress address) {
+        written(provider, address).queryFailed(new DnsNameResolverTimeoutException(address, QUESTION, "timeout"));
+    }
+
+    private static void assertStream(DnsServerAddressStream stream, InetSocketAddress... expected) {
+        assertEquals(expected.length, stream.size());
+        for (InetSocketAddress address : expected) {
+            assertEquals(address, stream.next());
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.testsuite.transport.socket;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultSelectStrategyFactory;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.RegisteredChannelsLoadEstimator;
+import io.netty.channel.SingleThreadEventLoop;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.NetUtil;
+import io.netty.util.concurrent.DefaultEventExecutorChooserFactory;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.EventExecutorChooserFactory;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.channels.spi.SelectorProvider;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.Assert.*;
+
+/**
+ * Demonstrates how the {@link EventExecutorChooserFactory} of the child {@link EventLoopGroup} balances accepted
+ * {@link Channel}s whose lifetimes are skewed: every long-lived connection is followed by a short-lived one.
+ */
+public class SocketLoadAwareChooserTest {
+
+    private static final int LONG_LIVED = 20;
+
+    @Test(timeout = 30000)
+    public void testRoundRobinIsImbalanced() throws Throwable {
+        // All the long-lived connections end up on the same EventLoop.
+        assertEquals(LONG_LIVED, imbalance(DefaultEventExecutorChooserFactory.INSTANCE));
+    }
+
+    @Test(timeout = 30000)
+    public void testLoadAwareIsBalanced() throws Throwable {
+        assertTrue(imbalance(RegisteredChannelsLoadEstimator.CHOOSER_FACTORY) <= 1);
+    }
+
+    /**
+     * Returns the difference between the number of {@link Channel}s which are registered with the most and the least
+     * loaded child {@link io.netty.channel.EventLoop}.
+     */
+    private static int imbalance(EventExecutorChooserFactory chooserFactory) throws Throwable {
+        EventLoopGroup bossGroup = new NioEventLoopGroup(1);
+        EventLoopGroup childGroup = new NioEventLoopGroup(2, (Executor) null, chooserFactory,
+                SelectorProvider.provider(), DefaultSelectStrategyFactory.INSTANCE);
+        EventLoopGroup clientGroup = new NioEventLoopGroup(1);
+        final BlockingQueue<Channel> accepted = new LinkedBlockingQueue<Channel>();
+        List<Channel> clients = new ArrayList<Channel>();
+        Channel serverChannel = null;
+        try {
+            serverChannel = new ServerBootstrap()
+                    .group(bossGroup, childGroup)
+                    .channel(NioServerSocketChannel.class)
+                    .childHandler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            accepted.add(ch);
+                        }
+                    })
+                    .bind(new InetSocketAddress(NetUtil.LOCALHOST, 0)).syncUninterruptibly().channel();
+            Bootstrap cb = new Bootstrap()
+                    .group(clientGroup)
+                    .channel(NioSocketChannel.class)
+                    .handler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            // Noop.
+                        }
+                    });
+
+            for (int i = 0; i < LONG_LIVED; i++) {
+                clients.add(cb.connect(serverChannel.localAddress()).syncUninterruptibly().channel());
+                accepted.take();
+                awaitRegisteredChannels(childGroup, i + 1);
+
+                Channel shortLived = cb.connect(serverChannel.localAddress()).syncUninterruptibly().channel();
+                accepted.take();
+                awaitRegisteredChannels(childGroup, i + 2);
+                shortLived.close().syncUninterruptibly();
+                awaitRegisteredChannels(childGroup, i + 1);
+            }
+
+            int min = Integer.MAX_VALUE;
+            int max = 0;
+            for (EventExecutor executor : childGroup) {
+                int registered = ((SingleThreadEventLoop) executor).registeredChannels();
+                min = Math.min(min, registered);
+                max = Math.max(max, registered);
+            }
+            return max - min;
+        } finally {
+            for (Channel client : clients) {
+                client.close().syncUninterruptibly();
+            }
+            if (serverChannel != null) {
+                serverChannel.close().syncUninterruptibly();
+            }
+            bossGroup.shutdownGracefully();
+            childGroup.shutdownGracefully();
+            clientGroup.shutdownGracefully();
+        }
+    }
+
+    private static void awaitRegisteredChannels(EventLoopGroup group, int expected) throws InterruptedException {
+        for (;;) {
+            int registered = 0;
+            for (EventExecutor executor : group) {
+                registered += ((SingleThreadEventLoop) executor).registeredChannels();
+            }
+            if (registered == expected) {
+                return;
+            }
+            Thread.sleep(1);
+        }
+    }
+}
@@ -27,6 +27,7 @@
 #include <netinet/in.h>
 #include <sys/sendfile.h>
 #include <linux/tcp.h> // TCP_NOTSENT_LOWAT is a linux specific define
+#include <linux/filter.h>
 
 #include "netty_epoll_linuxsocket.h"
 #include "netty_unix_errors.h"
@@ -55,6 +56,16 @@
 #define SO_BUSY_POLL 46
 #endif
 
+// SO_ATTACH_REUSEPORT_CBPF is defined in linux 4.5. We define this here so older kernels can compile.
+#ifndef SO_ATTACH_REUSEPORT_CBPF
+#define SO_ATTACH_REUSEPORT_CBPF 51
+#endif
+
+// BPF_MOD is defined in linux 3.7. We define this here so older kernels can compile.
+#ifndef BPF_MOD
+#define BPF_MOD 0x90
+#endif
+
 static jclass peerCredentialsClass = NULL;
 static jmethodID peerCredentialsMethodId = NULL;
 
@@ -120,6 +131,19 @@ static void netty_epoll_linuxsocket_setSoBusyPoll(JNIEnv* env, jclass clazz, jin
     netty_unix_socket_setOption(env, fd, SOL_SOCKET, SO_BUSY_POLL, &optval, sizeof(optval));
 }
 
+static void netty_epoll_linuxsocket_setReusePortCpuSteering(JNIEnv* env, jclass clazz, jint fd, jint groupSize) {
+    // Select the socket of the SO_REUSEPORT group by the CPU which handles the packet: cpu % groupSize.
+    struct sock_filter code[] = {
+        { BPF_LD  | BPF_W   | BPF_ABS, 0, 0, SKF_AD_OFF + SKF_AD_CPU },
+        { BPF_ALU | BPF_MOD | BPF_K,   0, 0, (__u32) groupSize },
+        { BPF_RET | BPF_A,             0, 0, 0 }
+    };
+    struct sock_fprog prog;
+    prog.len = sizeof(code) / sizeof(code[0]);
+    prog.filter = code;
+    netty_unix_socket_setOption(env, fd, SOL_SOCKET, SO_ATTACH_REUSEPORT_CBPF, &prog, sizeof(prog));
+}
+
 static void netty_epoll_linuxsocket_setTcpMd5Sig(JNIEnv* env, jclass clazz, jint fd, jbyteArray address, jint scopeId, jbyteArray key) {
     struct sockaddr_storage addr;
     socklen_t addrSize;
@@ -359,6 +383,7 @@ static jlong netty_epoll_linuxsocket_sendFile(JNIEnv* env, jclass clazz, jint fd
 static const JNINativeMethod fixed_method_table[] = {
   { "setTcpCork", "(II)V", (void *) netty_epoll_linuxsocket_setTcpCork },
   { "setSoBusyPoll", "(II)V", (void *) netty_epoll_linuxsocket_setSoBusyPoll },
+  { "setReusePortCpuSteering", "(II)V", (void *) netty_epoll_linuxsocket_setReusePortCpuSteering },
   { "setTcpQuickAck", "(II)V", (void *) netty_epoll_linuxsocket_setTcpQuickAck },
   { "setTcpDeferAccept", "(II)V", (void *) netty_epoll_linuxsocket_setTcpDeferAccept },
   { "setTcpNotSentLowAt", "(II)V", (void *) netty_epoll_linuxsocket_setTcpNotSentLowAt },
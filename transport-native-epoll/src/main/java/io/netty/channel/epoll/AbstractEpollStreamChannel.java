@@ -233,6 +233,19 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         return promise;
     }
 
+    /**
+     * Splice everything which is received by this channel via the given {@link EpollSpliceProxy.Forwarder} until
+     * the {@link ChannelPromise} is notified.
+     */
+    final void spliceForward(EpollSpliceProxy.Forwarder forwarder, ChannelPromise promise) {
+        if (!isOpen()) {
+            promise.tryFailure(SPLICE_TO_CLOSED_CHANNEL_EXCEPTION);
+        } else {
+            addToSpliceQueue(new SpliceForwardTask(forwarder, promise));
+            failSpliceIfClosed(promise);
+        }
+    }
+
     private void failSpliceIfClosed(ChannelPromise promise) {
         if (!isOpen()) {
             // Seems like the Channel was closed in the meantime try to fail the promise to prevent any
@@ -491,6 +504,12 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             }
             in.remove();
             return 1;
+        } else if (msg instanceof EpollSpliceProxy.Forwarder) {
+            if (!((EpollSpliceProxy.Forwarder) msg).spliceOut()) {
+                return WRITE_STATUS_SNDBUF_FULL;
+            }
+            in.remove();
+            return 1;
         } else {
             // Should never reach here.
             throw new Error();
@@ -533,7 +552,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             return UnixChannelUtil.isBufferCopyNeededForWrite(buf)? newDirectBuffer(buf): buf;
         }
 
-        if (msg instanceof FileRegion || msg instanceof SpliceOutTask) {
+        if (msg instanceof FileRegion || msg instanceof SpliceOutTask || msg instanceof EpollSpliceProxy.Forwarder) {
             return msg;
         }
 
@@ -987,6 +1006,34 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         }
     }
 
+    private final class SpliceForwardTask extends SpliceInTask {
+        private final EpollSpliceProxy.Forwarder forwarder;
+
+        SpliceForwardTask(EpollSpliceProxy.Forwarder forwarder, ChannelPromise promise) {
+            super(Integer.MAX_VALUE, promise);
+            this.forwarder = forwarder;
+        }
+
+        @Override
+        public boolean spliceIn(RecvByteBufAllocator.Handle handle) {
+            assert eventLoop().inEventLoop();
+            if (promise.isDone()) {
+                // The forwarding was cancelled.
+                return true;
+            }
+            try {
+                if (forwarder.spliceIn(socket, (EpollRecvByteAllocatorHandle) handle)) {
+                    promise.setSuccess();
+                    return true;
+                }
+                return false;
+            } catch (Throwable cause) {
+                promise.tryFailure(cause);
+                return true;
+            }
+        }
+    }
+
     private final class SpliceFdTask extends SpliceInTask {
         private final FileDescriptor fd;
         private final ChannelPromise promise;
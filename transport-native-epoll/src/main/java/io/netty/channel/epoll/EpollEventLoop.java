@@ -266,7 +266,12 @@ final class EpollEventLoop extends SingleThreadEventLoop {
                     case SelectStrategy.CONTINUE:
                         continue;
                     case SelectStrategy.SELECT:
-                        strategy = epollWait(WAKEN_UP_UPDATER.getAndSet(this, 0) == 1);
+                        recordIdleStart();
+                        try {
+                            strategy = epollWait(WAKEN_UP_UPDATER.getAndSet(this, 0) == 1);
+                        } finally {
+                            recordIdleEnd();
+                        }
 
                         // 'wakenUp.compareAndSet(false, true)' is always evaluated
                         // before calling 'selector.wakeup()' to reduce the wake-up
@@ -27,8 +27,11 @@ import java.io.IOException;
 import java.net.InetAddress;
 import java.util.Map;
 
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
 public final class EpollServerSocketChannelConfig extends EpollServerChannelConfig
         implements ServerSocketChannelConfig {
+    private volatile int reusePortCpuSteering;
 
     EpollServerSocketChannelConfig(EpollServerSocketChannel channel) {
         super(channel);
@@ -42,7 +45,8 @@ public final class EpollServerSocketChannelConfig extends EpollServerChannelConf
     @Override
     public Map<ChannelOption<?>, Object> getOptions() {
         return getOptions(super.getOptions(), EpollChannelOption.SO_REUSEPORT, EpollChannelOption.IP_FREEBIND,
-            EpollChannelOption.IP_TRANSPARENT, EpollChannelOption.TCP_DEFER_ACCEPT);
+            EpollChannelOption.IP_TRANSPARENT, EpollChannelOption.TCP_DEFER_ACCEPT,
+            EpollChannelOption.SO_ATTACH_REUSEPORT_CBPF);
     }
 
     @SuppressWarnings("unchecked")
@@ -60,6 +64,9 @@ public final class EpollServerSocketChannelConfig extends EpollServerChannelConf
         if (option == EpollChannelOption.TCP_DEFER_ACCEPT) {
             return (T) Integer.valueOf(getTcpDeferAccept());
         }
+        if (option == EpollChannelOption.SO_ATTACH_REUSEPORT_CBPF) {
+            return (T) Integer.valueOf(getReusePortCpuSteering());
+        }
         return super.getOption(option);
     }
 
@@ -79,6 +86,8 @@ public final class EpollServerSocketChannelConfig extends EpollServerChannelConf
             setTcpMd5Sig(m);
         } else if (option == EpollChannelOption.TCP_DEFER_ACCEPT) {
             setTcpDeferAccept((Integer) value);
+        } else if (option == EpollChannelOption.SO_ATTACH_REUSEPORT_CBPF) {
+            setReusePortCpuSteering((Integer) value);
         } else {
             return super.setOption(option, value);
         }
@@ -213,6 +222,35 @@ public final class EpollServerSocketChannelConfig extends EpollServerChannelConf
         }
     }
 
+    /**
+     * Returns the size of the SO_REUSEPORT group which was set via {@link #setReusePortCpuSteering(int)}, or
+     * {@code 0} if it was not set.
+     */
+    public int getReusePortCpuSteering() {
+        return reusePortCpuSteering;
+    }
+
+    /**
+     * Attach a classic BPF program via SO_ATTACH_REUSEPORT_CBPF to the SO_REUSEPORT group of the underlying Channel,
+     * which selects the socket by the CPU that handles the incoming connection: {@code cpu % groupSize}. The sockets
+     * of a group are numbered in the order they were bound, so {@code groupSize} must be the number of sockets which
+     * are bound, like the number of {@link io.netty.channel.EventLoop}s which are used by a
+     * {@link io.netty.channel.unix.ReusePortServerBootstrap}. This needs linux 4.5 or newer.
+     *
+     * Be aware this method needs be called after {@link #setReusePort(boolean)} and before
+     * {@link EpollServerSocketChannel#bind(java.net.SocketAddress)} to have any affect.
+     */
+    public EpollServerSocketChannelConfig setReusePortCpuSteering(int groupSize) {
+        checkPositive(groupSize, "groupSize");
+        try {
+            channel.socket.setReusePortCpuSteering(groupSize);
+            reusePortCpuSteering = groupSize;
+            return this;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
     /**
      * Returns {@code true} if <a href="http://man7.org/linux/man-pages/man7/ip.7.html">IP_FREEBIND</a> is enabled,
      * {@code false} otherwise.
@@ -0,0 +1,420 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.socket.ChannelInputShutdownEvent;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+
+import static io.netty.channel.unix.FileDescriptor.pipe;
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * Forwards all bytes received by one {@link EpollSocketChannel} to another {@link EpollSocketChannel} and the other
+ * way around by using {@code splice(...)}, which moves the bytes through a pipe in kernel space so they never need to
+ * be copied into a {@link ByteBuf}. This is useful to build TCP proxies.
+ * <p>
+ * Please note:
+ * <ul>
+ *   <li>both channels need to be registered to the same {@link io.netty.channel.EventLoop}, otherwise an
+ *   {@link IllegalArgumentException} is thrown.</li>
+ *   <li>once {@link #start()} was called the proxy takes over {@link EpollChannelConfig#isAutoRead()} of both
+ *   channels to apply backpressure, and switches both to {@link EpollMode#LEVEL_TRIGGERED} and
+ *   {@link EpollSocketChannelConfig#isAllowHalfClosure() half-closure}.</li>
+ *   <li>if one side shuts down its output, the output of the other side is shut down as soon as all bytes received
+ *   before were forwarded. Once both directions are shut down, or one of the channels is closed, both channels are
+ *   closed.</li>
+ * </ul>
+ */
+@UnstableApi
+public final class EpollSpliceProxy {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(EpollSpliceProxy.class);
+
+    // The default capacity of a pipe on Linux.
+    private static final int PIPE_CAPACITY = 64 * 1024;
+
+    private final EpollSocketChannel first;
+    private final EpollSocketChannel second;
+    private final Forwarder firstToSecond;
+    private final Forwarder secondToFirst;
+    private final Promise<Void> terminationPromise;
+
+    private boolean started;
+    private int shutdownDirections;
+    private int closedChannels;
+    private Throwable cause;
+
+    /**
+     * Creates a new instance which forwards between the given channels once {@link #start()} is called.
+     */
+    public EpollSpliceProxy(EpollSocketChannel first, EpollSocketChannel second) {
+        this.first = checkNotNull(first, "first");
+        this.second = checkNotNull(second, "second");
+        if (first == second) {
+            throw new IllegalArgumentException("Can not forward a channel to itself.");
+        }
+        if (first.eventLoop() != second.eventLoop()) {
+            throw new IllegalArgumentException("EventLoops are not the same.");
+        }
+        firstToSecond = new Forwarder(first, second);
+        secondToFirst = new Forwarder(second, first);
+        terminationPromise = first.eventLoop().newPromise();
+    }
+
+    /**
+     * Starts forwarding in both directions.
+     *
+     * @return the {@link Future} which is notified once both channels are closed, see {@link #terminationFuture()}.
+     */
+    public Future<Void> start() {
+        if (first.eventLoop().inEventLoop()) {
+            start0();
+        } else {
+            first.eventLoop().execute(new Runnable() {
+                @Override
+                public void run() {
+                    start0();
+                }
+            });
+        }
+        return terminationPromise;
+    }
+
+    private void start0() {
+        if (started) {
+            return;
+        }
+        started = true;
+
+        for (EpollSocketChannel ch: new EpollSocketChannel[] { first, second }) {
+            EpollSocketChannelConfig config = ch.config();
+            config.setAutoRead(false);
+            config.setEpollMode(EpollMode.LEVEL_TRIGGERED);
+            config.setAllowHalfClosure(true);
+            ch.closeFuture().addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) {
+                    channelClosed();
+                }
+            });
+        }
+        first.pipeline().addLast(new ProxyHandler(firstToSecond, secondToFirst));
+        second.pipeline().addLast(new ProxyHandler(secondToFirst, firstToSecond));
+
+        firstToSecond.start();
+        secondToFirst.start();
+    }
+
+    /**
+     * Returns the {@link Future} which is notified once both channels are closed. It is failed if forwarding
+     * stopped because of an error.
+     */
+    public Future<Void> terminationFuture() {
+        return terminationPromise;
+    }
+
+    /**
+     * Returns the number of bytes which were forwarded from the first to the second channel.
+     */
+    public long firstToSecondBytes() {
+        return firstToSecond.forwardedBytes;
+    }
+
+    /**
+     * Returns the number of bytes which were forwarded from the second to the first channel.
+     */
+    public long secondToFirstBytes() {
+        return secondToFirst.forwardedBytes;
+    }
+
+    /**
+     * Returns the number of forwarded bytes which could not be spliced and so were read into a {@link ByteBuf}.
+     * This only happens while reading the last bytes once a peer shut down its output.
+     */
+    public long copiedBytes() {
+        return firstToSecond.copiedBytes + secondToFirst.copiedBytes;
+    }
+
+    private void fail(Throwable t) {
+        if (cause == null) {
+            cause = t;
+        }
+        first.close();
+        second.close();
+    }
+
+    private void directionShutdown() {
+        if (++shutdownDirections == 2) {
+            first.close();
+            second.close();
+        }
+    }
+
+    private void channelClosed() {
+        if (++closedChannels < 2) {
+            // Close the other channel as well, after everything which is pending was written.
+            EpollSocketChannel other = first.isOpen() ? first : second;
+            other.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
+            return;
+        }
+        // Only close the pipes once both channels are closed, as only then they can not be used anymore.
+        firstToSecond.closePipe();
+        secondToFirst.closePipe();
+        if (cause == null) {
+            terminationPromise.trySuccess(null);
+        } else {
+            terminationPromise.tryFailure(cause);
+        }
+    }
+
+    /**
+     * Moves the bytes in one direction. It is used as splice task of the source channel and written to the target
+     * channel whenever bytes are in the pipe which need to be spliced out.
+     */
+    final class Forwarder implements ChannelFutureListener {
+        private final AbstractEpollStreamChannel source;
+        private final AbstractEpollStreamChannel target;
+        private FileDescriptor pipeIn;
+        private FileDescriptor pipeOut;
+        // The number of bytes which are in the pipe.
+        private int pipeBytes;
+        private boolean writeQueued;
+        private boolean paused;
+        private boolean shutdown;
+
+        // Only modified from within the EventLoop.
+        volatile long forwardedBytes;
+        volatile long copiedBytes;
+
+        Forwarder(AbstractEpollStreamChannel source, AbstractEpollStreamChannel target) {
+            this.source = source;
+            this.target = target;
+        }
+
+        void start() {
+            try {
+                FileDescriptor[] pipe = pipe();
+                pipeIn = pipe[0];
+                pipeOut = pipe[1];
+            } catch (Throwable t) {
+                fail(t);
+                return;
+            }
+            source.spliceForward(this, source.newPromise().addListener(this));
+            source.config().setAutoRead(true);
+        }
+
+        /**
+         * Called by the source channel once it is readable.
+         *
+         * @return {@code true} if the source channel should not splice via this {@link Forwarder} anymore.
+         */
+        boolean spliceIn(LinuxSocket socket, EpollRecvByteAllocatorHandle handle) throws IOException {
+            int length = Math.min(handle.guess(), PIPE_CAPACITY - pipeBytes);
+            int splicedIn = 0;
+            while (splicedIn < length) {
+                int localSplicedIn = Native.splice(socket.intValue(), -1, pipeOut.intValue(), -1,
+                        length - splicedIn);
+                if (localSplicedIn == 0) {
+                    break;
+                }
+                splicedIn += localSplicedIn;
+            }
+            if (splicedIn > 0) {
+                pipeBytes += splicedIn;
+                spliceOut0();
+            }
+
+            if (handle.isReceivedRdHup()) {
+                // The peer shut down its output, which means only the bytes which are left in the receive buffer are
+                // to be read. Let the channel read them as usual, so the end of the stream is detected and they are
+                // forwarded by the ProxyHandler even if they do not fit into the pipe anymore.
+                return true;
+            }
+            if (pipeBytes >= PIPE_CAPACITY || splicedIn == 0 && pipeBytes > 0 || !target.isWritable()) {
+                // The pipe is full or the target can not keep up, so stop reading until it is drained.
+                pause();
+            }
+            return false;
+        }
+
+        private void spliceOut0() {
+            if (!writeQueued) {
+                writeQueued = true;
+                // Just call unsafe().write(...) and flush() as we not want to traverse the whole pipeline for this
+                // case.
+                target.unsafe().write(this, target.newPromise().addListener(this));
+            }
+            target.unsafe().flush();
+        }
+
+        /**
+         * Called by the target channel to splice the bytes out of the pipe.
+         *
+         * @return {@code true} if the pipe is empty now.
+         */
+        boolean spliceOut() throws IOException {
+            assert target.eventLoop().inEventLoop();
+            int splicedOut = Native.splice(pipeIn.intValue(), -1, target.socket.intValue(), -1, pipeBytes);
+            pipeBytes -= splicedOut;
+            forwardedBytes += splicedOut;
+            if (pipeBytes == 0) {
+                writeQueued = false;
+                resume();
+                return true;
+            }
+            return false;
+        }
+
+        void forward(ByteBuf buf) {
+            int readable = buf.readableBytes();
+            forwardedBytes += readable;
+            copiedBytes += readable;
+            target.write(buf).addListener(this);
+            if (!target.isWritable()) {
+                pause();
+            }
+        }
+
+        void flush() {
+            target.flush();
+        }
+
+        void pause() {
+            if (!paused) {
+                paused = true;
+                source.config().setAutoRead(false);
+            }
+        }
+
+        void resume() {
+            if (paused && pipeBytes == 0 && target.isWritable()) {
+                paused = false;
+                source.config().setAutoRead(true);
+            }
+        }
+
+        void shutdown() {
+            if (shutdown) {
+                return;
+            }
+            shutdown = true;
+            // Shutting down the output fails all pending writes, so wait until these are complete.
+            target.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) {
+                    if (!future.isSuccess()) {
+                        return;
+                    }
+                    target.shutdownOutput().addListener(new ChannelFutureListener() {
+                        @Override
+                        public void operationComplete(ChannelFuture future) {
+                            if (future.isSuccess()) {
+                                directionShutdown();
+                            } else {
+                                fail(future.cause());
+                            }
+                        }
+                    });
+                }
+            });
+        }
+
+        @Override
+        public void operationComplete(ChannelFuture future) {
+            // Notified for the splice task of the source channel and the writes to the target channel. Once the channel
+            // was closed these fail anyway, which is not an error.
+            if (!future.isSuccess() && !future.isCancelled() && future.channel().isOpen()) {
+                fail(future.cause());
+            }
+        }
+
+        void closePipe() {
+            safeClosePipe(pipeIn);
+            safeClosePipe(pipeOut);
+        }
+    }
+
+    private static void safeClosePipe(FileDescriptor fd) {
+        if (fd != null) {
+            try {
+                fd.close();
+            } catch (IOException e) {
+                if (logger.isWarnEnabled()) {
+                    logger.warn("Error while closing a pipe", e);
+                }
+            }
+        }
+    }
+
+    private final class ProxyHandler extends ChannelInboundHandlerAdapter {
+        // The direction in which this channel is the source.
+        private final Forwarder inbound;
+        // The direction in which this channel is the target.
+        private final Forwarder outbound;
+
+        ProxyHandler(Forwarder inbound, Forwarder outbound) {
+            this.inbound = inbound;
+            this.outbound = outbound;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof ByteBuf) {
+                inbound.forward((ByteBuf) msg);
+            } else {
+                ReferenceCountUtil.release(msg);
+            }
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            inbound.flush();
+        }
+
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+            outbound.resume();
+            ctx.fireChannelWritabilityChanged();
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+            if (evt == ChannelInputShutdownEvent.INSTANCE) {
+                inbound.shutdown();
+            }
+            ctx.fireUserEventTriggered(evt);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            fail(cause);
+        }
+    }
+}
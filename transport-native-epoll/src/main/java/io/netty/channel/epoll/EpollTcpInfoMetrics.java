@@ -0,0 +1,56 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * Metrics which are collected by an {@link EpollTcpInfoSampler} from the {@link EpollTcpInfo} of either a single
+ * {@link EpollSocketChannel} or of all {@link EpollSocketChannel}s which are registered to it.
+ * <p>
+ * The values are updated by the {@link io.netty.channel.EventLoop}s of the {@link EpollSocketChannel}s, so reading
+ * them from another thread gives a best effort view.
+ */
+@UnstableApi
+public interface EpollTcpInfoMetrics {
+
+    /**
+     * Returns the number of samples in the current and the previous window of the RTT histogram.
+     */
+    long rttSamples();
+
+    /**
+     * Returns the RTT in microseconds which is not exceeded by the given percentile of the samples in the current
+     * and the previous window, or {@code 0} if there are no samples. The histogram uses buckets whose bounds are
+     * powers of two, so the returned value is the (inclusive) upper bound of the bucket in which the percentile falls.
+     *
+     * @param percentile    the percentile between {@code 0} and {@code 100}.
+     */
+    long rttPercentile(double percentile);
+
+    /**
+     * Returns the number of retransmitted segments which were observed since the {@link EpollSocketChannel}s were
+     * registered.
+     */
+    long retransmits();
+
+    /**
+     * Returns the send rate in bytes per second which is estimated from the congestion window, the MSS and the RTT of
+     * the last sample. For aggregated metrics this is the sum of all {@link EpollSocketChannel}s which are currently
+     * registered.
+     */
+    long estimatedSendRate();
+}
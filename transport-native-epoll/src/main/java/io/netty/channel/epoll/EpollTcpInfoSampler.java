@@ -0,0 +1,379 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
+
+/**
+ * Periodically samples the {@code TCP_INFO} of registered {@link EpollSocketChannel}s and collects
+ * {@link EpollTcpInfoMetrics} for each of them, as well as aggregated over all of them.
+ * <p>
+ * Sampling is batched per {@link EventLoop}: there is a single scheduled task per {@link EventLoop} which samples all
+ * registered {@link EpollSocketChannel}s of it, reusing the same {@link EpollTcpInfo}. The RTT histograms are rolling
+ * windows of {@code windowSize} sampling intervals.
+ * <p>
+ * If thresholds are configured an {@link EpollTcpInfoThresholdEvent} is triggered on the
+ * {@link io.netty.channel.ChannelPipeline} of a {@link EpollSocketChannel} when the RTT or the number of
+ * retransmitted segments per interval exceeds its threshold, and again once it is below the threshold again.
+ * <p>
+ * {@link EpollSocketChannel}s are removed automatically once they are closed.
+ */
+@UnstableApi
+public final class EpollTcpInfoSampler {
+    private final long intervalNanos;
+    private final int windowSize;
+    private final long rttThreshold;
+    private final long retransmitsThreshold;
+    private final ConcurrentMap<EventLoop, Batch> batches = PlatformDependent.newConcurrentHashMap();
+    private final ConcurrentMap<Channel, ChannelSample> samples = PlatformDependent.newConcurrentHashMap();
+    // Retransmits of channels which were removed already.
+    private final AtomicLong removedRetransmits = new AtomicLong();
+    private final EpollTcpInfoMetrics aggregatedMetrics = new AggregatedMetrics();
+
+    /**
+     * Creates a new instance without any thresholds.
+     *
+     * @param interval      the interval between two samples of a {@link EpollSocketChannel}.
+     * @param unit          the {@link TimeUnit} of {@code interval}.
+     */
+    public EpollTcpInfoSampler(long interval, TimeUnit unit) {
+        this(interval, unit, 60, 0, 0);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param interval              the interval between two samples of a {@link EpollSocketChannel}.
+     * @param unit                  the {@link TimeUnit} of {@code interval}.
+     * @param windowSize            the number of intervals after which the window of the RTT histograms is rolled.
+     * @param rttThreshold          the RTT in microseconds above which an {@link EpollTcpInfoThresholdEvent} is
+     *                              triggered, or {@code 0} to disable it.
+     * @param retransmitsThreshold  the number of retransmitted segments per interval above which an
+     *                              {@link EpollTcpInfoThresholdEvent} is triggered, or {@code 0} to disable it.
+     */
+    public EpollTcpInfoSampler(long interval, TimeUnit unit, int windowSize, long rttThreshold,
+                               long retransmitsThreshold) {
+        intervalNanos = checkNotNull(unit, "unit").toNanos(checkPositive(interval, "interval"));
+        this.windowSize = checkPositive(windowSize, "windowSize");
+        this.rttThreshold = checkPositiveOrZero(rttThreshold, "rttThreshold");
+        this.retransmitsThreshold = checkPositiveOrZero(retransmitsThreshold, "retransmitsThreshold");
+    }
+
+    /**
+     * Registers the given {@link EpollSocketChannel}, so it is sampled until it is closed or {@link #deregister}ed.
+     */
+    public void register(final EpollSocketChannel channel) {
+        checkNotNull(channel, "channel");
+        final ChannelSample sample = new ChannelSample(channel);
+        if (samples.putIfAbsent(channel, sample) != null) {
+            return;
+        }
+        channel.closeFuture().addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                deregister(channel);
+            }
+        });
+        EventLoop loop = channel.eventLoop();
+        if (loop.inEventLoop()) {
+            batch(loop).add(sample);
+        } else {
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    batch(channel.eventLoop()).add(sample);
+                }
+            });
+        }
+    }
+
+    /**
+     * Deregisters the given {@link EpollSocketChannel}, so it is not sampled anymore.
+     */
+    public void deregister(Channel channel) {
+        final ChannelSample sample = samples.remove(checkNotNull(channel, "channel"));
+        if (sample == null) {
+            return;
+        }
+        EventLoop loop = channel.eventLoop();
+        if (loop.inEventLoop()) {
+            remove(loop, sample);
+        } else {
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    remove(sample.channel.eventLoop(), sample);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns the {@link EpollTcpInfoMetrics} of the given {@link Channel}, or {@code null} if it is not registered.
+     */
+    public EpollTcpInfoMetrics metrics(Channel channel) {
+        return samples.get(checkNotNull(channel, "channel"));
+    }
+
+    /**
+     * Returns the {@link EpollTcpInfoMetrics} which are aggregated over all registered {@link EpollSocketChannel}s.
+     */
+    public EpollTcpInfoMetrics metrics() {
+        return aggregatedMetrics;
+    }
+
+    private Batch batch(EventLoop loop) {
+        Batch batch = batches.get(loop);
+        if (batch == null) {
+            batch = new Batch(loop);
+            Batch old = batches.putIfAbsent(loop, batch);
+            if (old != null) {
+                batch = old;
+            }
+        }
+        return batch;
+    }
+
+    private void remove(EventLoop loop, ChannelSample sample) {
+        Batch batch = batches.get(loop);
+        if (batch != null) {
+            batch.remove(sample);
+        }
+    }
+
+    /**
+     * All registered {@link EpollSocketChannel}s of an {@link EventLoop}. Only accessed by the {@link EventLoop}
+     * except for the aggregated values.
+     */
+    private final class Batch implements Runnable {
+        private final EventLoop loop;
+        private final List<ChannelSample> channels = new ArrayList<ChannelSample>();
+        private final EpollTcpInfo info = new EpollTcpInfo();
+        private final RttHistogram rtt = new RttHistogram();
+        private ScheduledFuture<?> future;
+        private int rounds;
+        private volatile long sendRate;
+
+        Batch(EventLoop loop) {
+            this.loop = loop;
+        }
+
+        void add(ChannelSample sample) {
+            if (sample.index != -1 || samples.get(sample.channel) != sample) {
+                // Deregistered in the meantime.
+                removeIfEmpty();
+                return;
+            }
+            sample.index = channels.size();
+            channels.add(sample);
+            if (future == null) {
+                future = loop.scheduleAtFixedRate(this, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        void remove(ChannelSample sample) {
+            int index = sample.index;
+            if (index == -1) {
+                return;
+            }
+            // Swap with the last one so removal is O(1).
+            ChannelSample last = channels.remove(channels.size() - 1);
+            if (last != sample) {
+                channels.set(index, last);
+                last.index = index;
+            }
+            sample.index = -1;
+            sendRate -= sample.sendRate;
+            removedRetransmits.addAndGet(sample.retransmits);
+            removeIfEmpty();
+        }
+
+        private void removeIfEmpty() {
+            if (channels.isEmpty()) {
+                if (future != null) {
+                    future.cancel(false);
+                    future = null;
+                }
+                // Drop the batch, so EventLoops which do not have registered channels anymore are not retained. As
+                // batches are only added and removed by their EventLoop a new one is created on the next add.
+                batches.remove(loop, this);
+            }
+        }
+
+        @Override
+        public void run() {
+            long sendRate = 0;
+            for (int i = 0; i < channels.size(); i++) {
+                ChannelSample sample = channels.get(i);
+                if (sample.sample(info)) {
+                    rtt.record(info.rtt());
+                }
+                sendRate += sample.sendRate;
+            }
+            this.sendRate = sendRate;
+            if (++rounds == windowSize) {
+                rounds = 0;
+                rtt.rotate();
+            }
+        }
+    }
+
+    private final class ChannelSample implements EpollTcpInfoMetrics {
+        final EpollSocketChannel channel;
+        private final RttHistogram rtt = new RttHistogram();
+        // Only accessed by the EventLoop.
+        int index = -1;
+        private int rounds;
+        private long lastTotalRetrans = -1;
+        private boolean rttExceeded;
+        private boolean retransmitsExceeded;
+        // Only modified by the EventLoop.
+        volatile long retransmits;
+        volatile long sendRate;
+
+        ChannelSample(EpollSocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Updates the metrics from the {@code TCP_INFO} and returns {@code true} if it could be sampled.
+         */
+        boolean sample(EpollTcpInfo info) {
+            if (!channel.isActive()) {
+                return false;
+            }
+            try {
+                channel.socket.getTcpInfo(info);
+            } catch (IOException ignore) {
+                // The socket was closed in the meantime, it will be removed by the close listener.
+                return false;
+            }
+            long rttMicros = info.rtt();
+            rtt.record(rttMicros);
+            if (++rounds == windowSize) {
+                rounds = 0;
+                rtt.rotate();
+            }
+            sendRate = rttMicros == 0 ? 0 :
+                    info.sndCwnd() * info.sndMss() * TimeUnit.SECONDS.toMicros(1) / rttMicros;
+
+            long totalRetrans = info.totalRetrans();
+            long newRetransmits = lastTotalRetrans == -1 ? totalRetrans : Math.max(0, totalRetrans - lastTotalRetrans);
+            lastTotalRetrans = totalRetrans;
+            retransmits += newRetransmits;
+
+            if (rttThreshold > 0 && (rttMicros > rttThreshold) != rttExceeded) {
+                rttExceeded = !rttExceeded;
+                channel.pipeline().fireUserEventTriggered(new EpollTcpInfoThresholdEvent(
+                        EpollTcpInfoThresholdEvent.Type.RTT, rttExceeded, rttMicros, rttThreshold));
+            }
+            if (retransmitsThreshold > 0 && (newRetransmits > retransmitsThreshold) != retransmitsExceeded) {
+                retransmitsExceeded = !retransmitsExceeded;
+                channel.pipeline().fireUserEventTriggered(new EpollTcpInfoThresholdEvent(
+                        EpollTcpInfoThresholdEvent.Type.RETRANSMITS, retransmitsExceeded, newRetransmits,
+                        retransmitsThreshold));
+            }
+            return true;
+        }
+
+        @Override
+        public long rttSamples() {
+            return rtt.count();
+        }
+
+        @Override
+        public long rttPercentile(double percentile) {
+            return rtt.percentile(percentile);
+        }
+
+        @Override
+        public long retransmits() {
+            return retransmits;
+        }
+
+        @Override
+        public long estimatedSendRate() {
+            return sendRate;
+        }
+
+        @Override
+        public String toString() {
+            return "EpollTcpInfoMetrics(channel: " + channel + ", rttSamples: " + rttSamples() + ", p50 rtt: " +
+                    rttPercentile(50) + ", retransmits: " + retransmits + ", estimatedSendRate: " + sendRate + ')';
+        }
+    }
+
+    private final class AggregatedMetrics implements EpollTcpInfoMetrics {
+        @Override
+        public long rttSamples() {
+            long count = 0;
+            for (Batch batch: batches.values()) {
+                count += batch.rtt.count();
+            }
+            return count;
+        }
+
+        @Override
+        public long rttPercentile(double percentile) {
+            long[] counts = new long[RttHistogram.BUCKETS];
+            for (Batch batch: batches.values()) {
+                batch.rtt.addTo(counts);
+            }
+            return RttHistogram.percentile(counts, percentile);
+        }
+
+        @Override
+        public long retransmits() {
+            long retransmits = removedRetransmits.get();
+            for (ChannelSample sample: samples.values()) {
+                retransmits += sample.retransmits;
+            }
+            return retransmits;
+        }
+
+        @Override
+        public long estimatedSendRate() {
+            long sendRate = 0;
+            for (Batch batch: batches.values()) {
+                sendRate += batch.sendRate;
+            }
+            return sendRate;
+        }
+
+        @Override
+        public String toString() {
+            return "EpollTcpInfoMetrics(rttSamples: " + rttSamples() + ", p50 rtt: " + rttPercentile(50) +
+                    ", retransmits: " + retransmits() + ", estimatedSendRate: " + estimatedSendRate() + ')';
+        }
+    }
+}
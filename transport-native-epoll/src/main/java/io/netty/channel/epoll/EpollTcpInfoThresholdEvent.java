@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.UnstableApi;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * User event which is triggered by an {@link EpollTcpInfoSampler} on the {@link io.netty.channel.ChannelPipeline}
+ * of an {@link EpollSocketChannel} once one of the configured thresholds is exceeded, and again once the value is
+ * below the threshold again.
+ */
+@UnstableApi
+public final class EpollTcpInfoThresholdEvent {
+
+    public enum Type {
+        /**
+         * The smoothed RTT in microseconds.
+         */
+        RTT,
+        /**
+         * The number of retransmitted segments during the last sampling interval.
+         */
+        RETRANSMITS
+    }
+
+    private final Type type;
+    private final boolean exceeded;
+    private final long value;
+    private final long threshold;
+
+    EpollTcpInfoThresholdEvent(Type type, boolean exceeded, long value, long threshold) {
+        this.type = checkNotNull(type, "type");
+        this.exceeded = exceeded;
+        this.value = value;
+        this.threshold = threshold;
+    }
+
+    /**
+     * Returns the {@link Type} of the value which crossed the threshold.
+     */
+    public Type type() {
+        return type;
+    }
+
+    /**
+     * Returns {@code true} if the threshold is exceeded now, {@code false} if the value is below the threshold again.
+     */
+    public boolean isExceeded() {
+        return exceeded;
+    }
+
+    /**
+     * Returns the sampled value.
+     */
+    public long value() {
+        return value;
+    }
+
+    /**
+     * Returns the configured threshold.
+     */
+    public long threshold() {
+        return threshold;
+    }
+
+    @Override
+    public String toString() {
+        return StringUtil.simpleClassName(this) + "(type: " + type + ", exceeded: " + exceeded + ", value: " + value +
+                ", threshold: " + threshold + ')';
+    }
+}
@@ -60,6 +60,10 @@ final class LinuxSocket extends Socket {
         setSoBusyPoll(intValue(), loopMicros);
     }
 
+    void setReusePortCpuSteering(int groupSize) throws IOException {
+        setReusePortCpuSteering(intValue(), groupSize);
+    }
+
     void setTcpNotSentLowAt(long tcpNotSentLowAt) throws IOException {
         if (tcpNotSentLowAt < 0 || tcpNotSentLowAt > MAX_UINT32_T) {
             throw new IllegalArgumentException("tcpNotSentLowAt must be a uint32_t");
@@ -215,6 +219,7 @@ final class LinuxSocket extends Socket {
     private static native void setTcpQuickAck(int fd, int quickAck) throws IOException;
     private static native void setTcpCork(int fd, int tcpCork) throws IOException;
     private static native void setSoBusyPoll(int fd, int loopMicros) throws IOException;
+    private static native void setReusePortCpuSteering(int fd, int groupSize) throws IOException;
     private static native void setTcpNotSentLowAt(int fd, int tcpNotSentLowAt) throws IOException;
     private static native void setTcpFastOpen(int fd, int tcpFastopenBacklog) throws IOException;
     private static native void setTcpFastOpenConnect(int fd, int tcpFastOpenConnect) throws IOException;
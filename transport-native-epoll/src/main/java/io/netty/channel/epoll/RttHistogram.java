@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+/**
+ * A rolling histogram with buckets whose bounds are powers of two. Each {@link #rotate()} makes the current window the
+ * previous window and starts a new one, and queries always consider both, so old samples are forgotten without ever
+ * looking at less than one full window.
+ * <p>
+ * Only one thread may record samples, other threads may read a best effort view.
+ */
+final class RttHistogram {
+    // Bucket i contains the values in [2^(i-1), 2^i - 1], the last bucket contains everything which is bigger.
+    static final int BUCKETS = 32;
+
+    private int[] current = new int[BUCKETS];
+    private int[] previous = new int[BUCKETS];
+    private volatile int currentCount;
+    private volatile int previousCount;
+
+    static int bucket(long value) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, value)));
+    }
+
+    static long upperBound(int bucket) {
+        return bucket == BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+
+    void record(long value) {
+        current[bucket(value)]++;
+        currentCount++;
+    }
+
+    void rotate() {
+        int[] tmp = previous;
+        previous = current;
+        previousCount = currentCount;
+        for (int i = 0; i < tmp.length; i++) {
+            tmp[i] = 0;
+        }
+        current = tmp;
+        currentCount = 0;
+    }
+
+    long count() {
+        return currentCount + previousCount;
+    }
+
+    /**
+     * Adds the counts of all buckets to the given array.
+     */
+    void addTo(long[] counts) {
+        int[] current = this.current;
+        int[] previous = this.previous;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += current[i] + previous[i];
+        }
+    }
+
+    long percentile(double percentile) {
+        long[] counts = new long[BUCKETS];
+        addTo(counts);
+        return percentile(counts, percentile);
+    }
+
+    static long percentile(long[] counts, double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile: " + percentile + " (expected: 0-100)");
+        }
+        long total = 0;
+        for (long count: counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(counts.length - 1);
+    }
+}
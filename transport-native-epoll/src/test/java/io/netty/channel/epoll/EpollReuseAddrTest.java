@@ -18,11 +18,16 @@ package io.netty.channel.epoll;
 import io.netty.bootstrap.AbstractBootstrap;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerAdapter;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.unix.ReusePortServerBootstrap;
 import io.netty.util.NetUtil;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.ResourceLeakDetector;
@@ -36,6 +41,11 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketAddress;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -114,6 +124,59 @@ public class EpollReuseAddrTest {
         future2.channel().close().syncUninterruptibly();
     }
 
+    @Test(timeout = 10000)
+    public void testReusePortServerBootstrap() throws Exception {
+        Assume.assumeTrue(versionEqOrGt(3, 9, 0));
+        testReusePortServerBootstrap0(false);
+    }
+
+    @Test(timeout = 10000)
+    public void testReusePortServerBootstrapWithCpuSteering() throws Exception {
+        Assume.assumeTrue(versionEqOrGt(4, 5, 0));
+        testReusePortServerBootstrap0(true);
+    }
+
+    private static void testReusePortServerBootstrap0(boolean cpuSteering) throws Exception {
+        EventLoopGroup group = new EpollEventLoopGroup(2);
+        try {
+            final Set<EventLoop> acceptedBy = Collections.newSetFromMap(new ConcurrentHashMap<EventLoop, Boolean>());
+            final AtomicBoolean wrongEventLoop = new AtomicBoolean();
+            ServerBootstrap bootstrap = new ServerBootstrap()
+                    .group(group)
+                    .channel(EpollServerSocketChannel.class)
+                    .childHandler(new ReusePortTestHandler(acceptedBy, wrongEventLoop));
+            if (cpuSteering) {
+                bootstrap.option(EpollChannelOption.SO_ATTACH_REUSEPORT_CBPF, 2);
+            }
+            ChannelGroup channels = new ReusePortServerBootstrap(bootstrap)
+                    .bind(new InetSocketAddress(NetUtil.LOCALHOST, 0)).syncUninterruptibly().getNow();
+            try {
+                Assert.assertEquals(2, channels.size());
+                Set<SocketAddress> addresses = new HashSet<SocketAddress>();
+                Set<EventLoop> eventLoops = new HashSet<EventLoop>();
+                for (Channel channel : channels) {
+                    addresses.add(channel.localAddress());
+                    eventLoops.add(channel.eventLoop());
+                }
+                Assert.assertEquals(1, addresses.size());
+                Assert.assertEquals(2, eventLoops.size());
+
+                InetSocketAddress address = (InetSocketAddress) addresses.iterator().next();
+                // With the CPU steering all connections may be handled by the same CPU and so the same socket.
+                int expected = cpuSteering ? 1 : 2;
+                while (acceptedBy.size() < expected) {
+                    Socket socket = new Socket(address.getAddress(), address.getPort());
+                    socket.close();
+                }
+                Assert.assertFalse(wrongEventLoop.get());
+            } finally {
+                channels.close().syncUninterruptibly();
+            }
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
     @Test(timeout = 10000)
     @Ignore // TODO: Unignore after making it pass on centos6-1 and debian7-1
     public void testMultipleBindDatagramChannel() throws Exception {
@@ -217,6 +280,27 @@ public class EpollReuseAddrTest {
         }
     }
 
+    @ChannelHandler.Sharable
+    private static final class ReusePortTestHandler extends ChannelInboundHandlerAdapter {
+        private final Set<EventLoop> acceptedBy;
+        private final AtomicBoolean wrongEventLoop;
+
+        ReusePortTestHandler(Set<EventLoop> acceptedBy, AtomicBoolean wrongEventLoop) {
+            this.acceptedBy = acceptedBy;
+            this.wrongEventLoop = wrongEventLoop;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            Channel channel = ctx.channel();
+            if (channel.eventLoop() != channel.parent().eventLoop()) {
+                wrongEventLoop.set(true);
+            }
+            acceptedBy.add(channel.eventLoop());
+            ctx.close();
+        }
+    }
+
     @ChannelHandler.Sharable
     private static class DatagramSocketTestHandler extends ChannelInboundHandlerAdapter {
         private final AtomicBoolean received;
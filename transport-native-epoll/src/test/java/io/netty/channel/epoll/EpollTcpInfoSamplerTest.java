@@ -0,0 +1,131 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class EpollTcpInfoSamplerTest {
+
+    private static EventLoopGroup group;
+
+    @BeforeClass
+    public static void setUp() {
+        Epoll.ensureAvailability();
+        group = new EpollEventLoopGroup(1);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        group.shutdownGracefully();
+    }
+
+    @Test
+    public void testHistogram() {
+        RttHistogram histogram = new RttHistogram();
+        assertEquals(0, histogram.percentile(99));
+        for (int i = 0; i < 90; i++) {
+            histogram.record(100);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(5000);
+        }
+        assertEquals(100, histogram.count());
+        assertEquals(127, histogram.percentile(50));
+        assertEquals(127, histogram.percentile(90));
+        assertEquals(8191, histogram.percentile(99));
+
+        // The previous window is still considered after the first rotation.
+        histogram.rotate();
+        histogram.record(1);
+        assertEquals(101, histogram.count());
+        histogram.rotate();
+        assertEquals(1, histogram.count());
+        assertEquals(1, histogram.percentile(100));
+    }
+
+    @Test(timeout = 10000)
+    public void testSampling() throws Exception {
+        final BlockingQueue<EpollTcpInfoThresholdEvent> events = new LinkedBlockingQueue<EpollTcpInfoThresholdEvent>();
+        Channel serverChannel = new ServerBootstrap()
+                .group(group)
+                .channel(EpollServerSocketChannel.class)
+                .childHandler(new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        ctx.writeAndFlush(msg);
+                    }
+                })
+                .bind(new InetSocketAddress(0)).syncUninterruptibly().channel();
+        EpollSocketChannel channel = (EpollSocketChannel) new Bootstrap()
+                .group(group)
+                .channel(EpollSocketChannel.class)
+                .handler(new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        ReferenceCountUtil.release(msg);
+                    }
+
+                    @Override
+                    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+                        if (evt instanceof EpollTcpInfoThresholdEvent) {
+                            events.add((EpollTcpInfoThresholdEvent) evt);
+                        }
+                    }
+                })
+                .connect(serverChannel.localAddress()).syncUninterruptibly().channel();
+        try {
+            channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[1024])).syncUninterruptibly();
+
+            // Every RTT exceeds 1 microsecond.
+            EpollTcpInfoSampler sampler = new EpollTcpInfoSampler(10, TimeUnit.MILLISECONDS, 10, 1, 0);
+            sampler.register(channel);
+            EpollTcpInfoThresholdEvent event = events.take();
+            assertEquals(EpollTcpInfoThresholdEvent.Type.RTT, event.type());
+            assertTrue(event.isExceeded());
+            assertTrue(event.value() > 1);
+
+            EpollTcpInfoMetrics metrics = sampler.metrics(channel);
+            assertNotNull(metrics);
+            assertTrue(metrics.rttSamples() > 0);
+            assertTrue(metrics.rttPercentile(50) > 0);
+            assertTrue(sampler.metrics().rttSamples() > 0);
+            assertEquals(0, metrics.retransmits());
+
+            sampler.deregister(channel);
+            assertNull(sampler.metrics(channel));
+        } finally {
+            channel.close().syncUninterruptibly();
+            serverChannel.close().syncUninterruptibly();
+        }
+    }
+}
@@ -209,7 +209,12 @@ final class KQueueEventLoop extends SingleThreadEventLoop {
                     case SelectStrategy.CONTINUE:
                         continue;
                     case SelectStrategy.SELECT:
-                        strategy = kqueueWait(WAKEN_UP_UPDATER.getAndSet(this, 0) == 1);
+                        recordIdleStart();
+                        try {
+                            strategy = kqueueWait(WAKEN_UP_UPDATER.getAndSet(this, 0) == 1);
+                        } finally {
+                            recordIdleEnd();
+                        }
 
                         // 'wakenUp.compareAndSet(false, true)' is always evaluated
                         // before calling 'selector.wakeup()' to reduce the wake-up
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.unix;
+
+import io.netty.util.NettyRuntime;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
+
+/**
+ * {@link DefaultThreadFactory} which pins every thread it creates to a CPU via {@link ThreadAffinity}, using the
+ * given CPUs in a round-robin fashion. Passing it to the constructor of an {@code EventLoopGroup} pins every
+ * {@code EventLoop} to a CPU, and as the NUMA node of each thread is known the {@code PooledByteBufAllocator} uses
+ * arenas whose memory is local to it.
+ * <p>
+ * The native library of a transport, like the one of epoll, must be loaded before the threads are started. If a
+ * thread can not be pinned a warning is logged and it runs without affinity.
+ */
+@UnstableApi
+public class AffinityThreadFactory extends DefaultThreadFactory {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(AffinityThreadFactory.class);
+
+    private final int[] cpus;
+    private final AtomicInteger nextCpu = new AtomicInteger();
+
+    /**
+     * Creates a new instance which uses all available CPUs.
+     */
+    public AffinityThreadFactory(String poolName) {
+        this(poolName, allCpus());
+    }
+
+    /**
+     * Creates a new instance which uses the given CPUs.
+     */
+    public AffinityThreadFactory(String poolName, int... cpus) {
+        super(poolName);
+        this.cpus = checkCpus(cpus);
+    }
+
+    /**
+     * Creates a new instance which uses all available CPUs.
+     */
+    public AffinityThreadFactory(Class<?> poolType) {
+        this(poolType, allCpus());
+    }
+
+    /**
+     * Creates a new instance which uses the given CPUs.
+     */
+    public AffinityThreadFactory(Class<?> poolType, int... cpus) {
+        super(poolType);
+        this.cpus = checkCpus(cpus);
+    }
+
+    @Override
+    protected Thread newThread(Runnable r, String name) {
+        int cpu = cpus[Math.abs(nextCpu.getAndIncrement() % cpus.length)];
+        return super.newThread(new PinningRunnable(r, cpu), name);
+    }
+
+    private static int[] allCpus() {
+        int[] cpus = new int[NettyRuntime.availableProcessors()];
+        for (int i = 0; i < cpus.length; i++) {
+            cpus[i] = i;
+        }
+        return cpus;
+    }
+
+    private static int[] checkCpus(int[] cpus) {
+        if (cpus == null || cpus.length == 0) {
+            throw new IllegalArgumentException("cpus must not be empty");
+        }
+        for (int cpu : cpus) {
+            checkPositiveOrZero(cpu, "cpu");
+        }
+        return cpus.clone();
+    }
+
+    private static final class PinningRunnable implements Runnable {
+        private final Runnable r;
+        private final int cpu;
+
+        PinningRunnable(Runnable r, int cpu) {
+            this.r = r;
+            this.cpu = cpu;
+        }
+
+        @Override
+        public void run() {
+            try {
+                ThreadAffinity.pinCurrentThread(cpu);
+            } catch (Throwable t) {
+                logger.warn("Failed to pin thread {} to CPU {}", Thread.currentThread().getName(), cpu, t);
+            }
+            r.run();
+        }
+    }
+}
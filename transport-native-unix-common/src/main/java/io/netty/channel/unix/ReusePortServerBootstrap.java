@@ -0,0 +1,158 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.unix;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.bootstrap.ServerBootstrapConfig;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.internal.UnstableApi;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * Binds one listening socket per {@link EventLoop} of the child {@link EventLoopGroup} of a {@link ServerBootstrap},
+ * all to the same address via {@link UnixChannelOption#SO_REUSEPORT}. The kernel spreads the incoming connections
+ * over the listening sockets, so they are accepted by all {@link EventLoop}s in parallel, and every accepted
+ * {@link Channel} is registered with the {@link EventLoop} of the listening socket which accepted it, so there is no
+ * hand-off between threads.
+ * <p>
+ * The {@link ServerBootstrap} is only used as a template: its {@link ServerBootstrapConfig#group()} is ignored while
+ * all other configuration is copied for every listening socket. The transport must support
+ * {@link UnixChannelOption#SO_REUSEPORT} for its {@link io.netty.channel.ServerChannel}s, like epoll and kqueue do.
+ * Be aware that only some operating systems, like linux since 3.9, balance the connections over the sockets.
+ * <p>
+ * The sockets are bound one after the other in the order of the {@link EventLoop}s, which allows to steer the
+ * connections by the CPU which handles them via {@code EpollChannelOption.SO_ATTACH_REUSEPORT_CBPF}.
+ */
+@UnstableApi
+public final class ReusePortServerBootstrap {
+
+    private final ServerBootstrap bootstrap;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param bootstrap     the {@link ServerBootstrap} whose configuration is used for every listening socket.
+     */
+    public ReusePortServerBootstrap(ServerBootstrap bootstrap) {
+        this.bootstrap = checkNotNull(bootstrap, "bootstrap");
+    }
+
+    /**
+     * Binds the listening sockets to the given port on all addresses.
+     *
+     * @see #bind(SocketAddress)
+     */
+    public Future<ChannelGroup> bind(int inetPort) {
+        return bind(new InetSocketAddress(inetPort));
+    }
+
+    /**
+     * Binds the listening sockets to the given address. If the port is {@code 0} the port which is chosen for the
+     * first socket is used for all others. The returned {@link Future} is completed with a {@link ChannelGroup} which
+     * contains the listening {@link Channel}s once all are bound. If one of them fails to bind, all which were bound
+     * already are closed.
+     */
+    public Future<ChannelGroup> bind(SocketAddress localAddress) {
+        checkNotNull(localAddress, "localAddress");
+        ServerBootstrapConfig config = bootstrap.config();
+        EventLoopGroup childGroup = config.childGroup();
+        if (childGroup == null) {
+            throw new IllegalStateException("childGroup not set");
+        }
+        if (config.channelFactory() == null) {
+            throw new IllegalStateException("channel or channelFactory not set");
+        }
+        if (config.childHandler() == null) {
+            throw new IllegalStateException("childHandler not set");
+        }
+        List<EventLoop> eventLoops = new ArrayList<EventLoop>();
+        for (EventExecutor executor : childGroup) {
+            eventLoops.add((EventLoop) executor);
+        }
+        Promise<ChannelGroup> promise = GlobalEventExecutor.INSTANCE.newPromise();
+        bind(eventLoops, 0, localAddress, new DefaultChannelGroup(GlobalEventExecutor.INSTANCE), promise);
+        return promise;
+    }
+
+    private void bind(final List<EventLoop> eventLoops, final int index, SocketAddress localAddress,
+                      final ChannelGroup channels, final Promise<ChannelGroup> promise) {
+        newBootstrap(eventLoops.get(index)).bind(localAddress).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                if (!future.isSuccess()) {
+                    channels.close();
+                    promise.setFailure(future.cause());
+                    return;
+                }
+                Channel channel = future.channel();
+                channels.add(channel);
+                if (index + 1 == eventLoops.size()) {
+                    promise.setSuccess(channels);
+                } else {
+                    bind(eventLoops, index + 1, channel.localAddress(), channels, promise);
+                }
+            }
+        });
+    }
+
+    @SuppressWarnings({ "unchecked", "deprecation" })
+    private ServerBootstrap newBootstrap(EventLoop eventLoop) {
+        ServerBootstrapConfig config = bootstrap.config();
+        // Use the EventLoop as child group as well, so accepted Channels stay on it.
+        ServerBootstrap b = new ServerBootstrap()
+                .group(eventLoop, eventLoop)
+                .channelFactory(config.channelFactory())
+                .childHandler(config.childHandler())
+                .option(UnixChannelOption.SO_REUSEPORT, true);
+        ChannelHandler handler = config.handler();
+        if (handler != null) {
+            b.handler(handler);
+        }
+        for (Map.Entry<ChannelOption<?>, Object> e : config.options().entrySet()) {
+            b.option((ChannelOption<Object>) e.getKey(), e.getValue());
+        }
+        for (Map.Entry<AttributeKey<?>, Object> e : config.attrs().entrySet()) {
+            b.attr((AttributeKey<Object>) e.getKey(), e.getValue());
+        }
+        for (Map.Entry<ChannelOption<?>, Object> e : config.childOptions().entrySet()) {
+            b.childOption((ChannelOption<Object>) e.getKey(), e.getValue());
+        }
+        for (Map.Entry<AttributeKey<?>, Object> e : config.childAttrs().entrySet()) {
+            b.childAttr((AttributeKey<Object>) e.getKey(), e.getValue());
+        }
+        return b;
+    }
+}
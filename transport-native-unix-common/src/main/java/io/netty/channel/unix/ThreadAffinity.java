@@ -0,0 +1,114 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.unix;
+
+import io.netty.util.internal.ThreadNumaNode;
+import io.netty.util.internal.UnstableApi;
+
+import java.io.File;
+import java.io.IOException;
+
+import static io.netty.channel.unix.Errors.newIOException;
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
+
+/**
+ * Pins threads to CPUs and looks up the NUMA topology. Pinning is only supported on linux and needs the native
+ * library of a transport, like the one of epoll, to be loaded. The NUMA topology is read from {@code sysfs}, and if
+ * it is not available there is assumed to be a single node.
+ */
+@UnstableApi
+public final class ThreadAffinity {
+
+    private static final int NUMA_NODE_COUNT = numaNodeCount0();
+
+    static {
+        ThreadNumaNode.initNodeCount(NUMA_NODE_COUNT);
+    }
+
+    private ThreadAffinity() { }
+
+    /**
+     * Pins the current thread to the given CPU. On success the NUMA node of the CPU is recorded for the current
+     * thread, so the {@code PooledByteBufAllocator} prefers the arenas of that node.
+     *
+     * @throws IOException if the thread can not be pinned.
+     * @throws UnsatisfiedLinkError if the native library was not loaded.
+     */
+    public static void pinCurrentThread(int cpu) throws IOException {
+        checkPositiveOrZero(cpu, "cpu");
+        int res = setCurrentThreadAffinity(cpu);
+        if (res < 0) {
+            throw newIOException("sched_setaffinity", res);
+        }
+        ThreadNumaNode.set(numaNode(cpu));
+    }
+
+    /**
+     * Returns the number of NUMA nodes.
+     */
+    public static int numaNodeCount() {
+        return NUMA_NODE_COUNT;
+    }
+
+    /**
+     * Returns the NUMA node of the given CPU, or {@code 0} if it can not be looked up.
+     */
+    public static int numaNode(int cpu) {
+        checkPositiveOrZero(cpu, "cpu");
+        // The directory of a CPU contains a link to the directory of its node.
+        String[] names = new File("/sys/devices/system/cpu/cpu" + cpu).list();
+        if (names != null) {
+            for (String name : names) {
+                int node = nodeIndex(name);
+                if (node >= 0 && node < NUMA_NODE_COUNT) {
+                    return node;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static int numaNodeCount0() {
+        String[] names = new File("/sys/devices/system/node").list();
+        int count = 0;
+        if (names != null) {
+            for (String name : names) {
+                count = Math.max(count, nodeIndex(name) + 1);
+            }
+        }
+        return Math.max(1, count);
+    }
+
+    /**
+     * Returns the index of the node if the name is {@code node<index>}, or {@code -1} otherwise.
+     */
+    private static int nodeIndex(String name) {
+        if (!name.startsWith("node") || name.length() == 4) {
+            return -1;
+        }
+        int index = 0;
+        for (int i = 4; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9' || index > 1 << 16) {
+                return -1;
+            }
+            index = index * 10 + c - '0';
+        }
+        return index;
+    }
+
+    private static native int setCurrentThreadAffinity(int cpu);
+}
@@ -504,6 +504,9 @@ public abstract class AbstractChannel extends DefaultAttributeMap implements Cha
                 doRegister();
                 neverRegistered = false;
                 registered = true;
+                if (eventLoop instanceof SingleThreadEventLoop) {
+                    ((SingleThreadEventLoop) eventLoop).incrementRegisteredChannels();
+                }
 
                 // Ensure we call handlerAdded(...) before we actually notify the promise. This is needed as the
                 // user may already fire events through the pipeline in the ChannelFutureListener.
@@ -827,6 +830,9 @@ public abstract class AbstractChannel extends DefaultAttributeMap implements Cha
                         // if it was registered.
                         if (registered) {
                             registered = false;
+                            if (eventLoop instanceof SingleThreadEventLoop) {
+                                ((SingleThreadEventLoop) eventLoop).decrementRegisteredChannels();
+                            }
                             pipeline.fireChannelUnregistered();
                         }
                         safeSetSuccess(promise);
@@ -15,6 +15,8 @@
  */
 package io.netty.channel;
 
+import io.netty.channel.ChannelHandlerMask.Skip;
+
 import java.net.SocketAddress;
 
 /**
@@ -32,6 +34,7 @@ public class ChannelDuplexHandler extends ChannelInboundHandlerAdapter implement
      *
      * Sub-classes may override this method to change behavior.
      */
+    @Skip
     @Override
     public void bind(ChannelHandlerContext ctx, SocketAddress localAddress,
                      ChannelPromise promise) throws Exception {
@@ -44,6 +47,7 @@ public class ChannelDuplexHandler extends ChannelInboundHandlerAdapter implement
      *
      * Sub-classes may override this method to change behavior.
      */
+    @Skip
     @Override
     public void connect(ChannelHandlerContext ctx, SocketAddress remoteAddress,
                         SocketAddress localAddress, ChannelPromise promise) throws Exception {
@@ -56,6 +60,7 @@ public class ChannelDuplexHandler extends ChannelInboundHandlerAdapter implement
      *
      * Sub-classes may override this method to change behavior.
      */
+    @Skip
     @Override
     public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise)
             throws Exception {
@@ -68,6 +73,7 @@ public class ChannelDuplexHandler extends ChannelInboundHandlerAdapter implement
      *
      * Sub-classes may override this method to change behavior.
      */
+    @Skip
     @Override
     public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
         ctx.close(promise);
@@ -79,6 +85,7 @@ public class ChannelDuplexHandler extends ChannelInboundHandlerAdapter implement
      *
      * Sub-classes may override this method to change behavior.
      */
+    @Skip
     @Override
     public void deregister(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
         ctx.deregister(promise);
@@ -90,6 +97,7 @@ public class ChannelDuplexHandler extends ChannelInboundHandlerAdapter implement
      *
      * Sub-classes may override this method to change behavior.
      */
+    @Skip
     @Override
     public void read(ChannelHandlerContext ctx) throws Exception {
         ctx.read();
@@ -101,6 +109,7 @@ public class ChannelDuplexHandler extends ChannelInboundHandlerAdapter implement
      *
      * Sub-classes may override this method to change behavior.
      */
+    @Skip
     @Override
     public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
         ctx.write(msg, promise);
@@ -112,6 +121,7 @@ public class ChannelDuplexHandler extends ChannelInboundHandlerAdapter implement
      *
      * Sub-classes may override this method to change behavior.
      */
+    @Skip
     @Override
     public void flush(ChannelHandlerContext ctx) throws Exception {
         ctx.flush();
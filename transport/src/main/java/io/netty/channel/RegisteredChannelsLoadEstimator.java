@@ -0,0 +1,52 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.LoadAwareEventExecutorChooserFactory;
+import io.netty.util.concurrent.LoadAwareEventExecutorChooserFactory.LoadEstimator;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * {@link LoadEstimator} which uses the number of {@link Channel}s which are registered with a
+ * {@link SingleThreadEventLoop}. This is a good fit for the child {@link EventLoopGroup} of a server, whose
+ * {@link EventLoop}s are otherwise assigned to accepted {@link Channel}s in a round-robin fashion no matter how long
+ * the {@link Channel}s live.
+ * <p>
+ * The number of pending tasks is used for other {@link EventExecutor}s.
+ */
+@UnstableApi
+public final class RegisteredChannelsLoadEstimator implements LoadEstimator {
+
+    public static final RegisteredChannelsLoadEstimator INSTANCE = new RegisteredChannelsLoadEstimator();
+
+    /**
+     * {@link LoadAwareEventExecutorChooserFactory} which uses {@link #INSTANCE}, and so can be passed to the
+     * constructors of the {@link MultithreadEventLoopGroup}s.
+     */
+    public static final LoadAwareEventExecutorChooserFactory CHOOSER_FACTORY =
+            new LoadAwareEventExecutorChooserFactory(INSTANCE);
+
+    private RegisteredChannelsLoadEstimator() { }
+
+    @Override
+    public long load(EventExecutor executor) {
+        if (executor instanceof SingleThreadEventLoop) {
+            return ((SingleThreadEventLoop) executor).registeredChannels();
+        }
+        return LoadAwareEventExecutorChooserFactory.PENDING_TASKS.load(executor);
+    }
+}
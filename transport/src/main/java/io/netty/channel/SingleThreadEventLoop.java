@@ -36,6 +36,8 @@ public abstract class SingleThreadEventLoop extends SingleThreadEventExecutor im
             SystemPropertyUtil.getInt("io.netty.eventLoop.maxPendingTasks", Integer.MAX_VALUE));
 
     private final Queue<Runnable> tailTasks;
+    // Only modified by the thread of the EventLoop.
+    private volatile int registeredChannels;
 
     protected SingleThreadEventLoop(EventLoopGroup parent, ThreadFactory threadFactory, boolean addTaskWakesUp) {
         this(parent, threadFactory, addTaskWakesUp, DEFAULT_MAX_PENDING_TASKS, RejectedExecutionHandlers.reject());
@@ -148,6 +150,24 @@ public abstract class SingleThreadEventLoop extends SingleThreadEventExecutor im
         return super.pendingTasks() + tailTasks.size();
     }
 
+    /**
+     * Returns the number of {@link Channel}s which are currently registered with this {@link EventLoop}.
+     */
+    @UnstableApi
+    public int registeredChannels() {
+        return registeredChannels;
+    }
+
+    void incrementRegisteredChannels() {
+        assert inEventLoop();
+        registeredChannels++;
+    }
+
+    void decrementRegisteredChannels() {
+        assert inEventLoop();
+        registeredChannels--;
+    }
+
     /**
      * Marker interface for {@link Runnable} that will not trigger an {@link #wakeup(boolean)} in all cases.
      */
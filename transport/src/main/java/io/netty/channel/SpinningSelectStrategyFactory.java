@@ -0,0 +1,167 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.IntSupplier;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
+
+/**
+ * Factory of {@link SelectStrategy}s which spin before they park: when there is nothing to do, the
+ * {@link EventLoop} keeps polling for I/O without a timeout for the configured spin time, and only then blocks in
+ * the select. This trades CPU for latency, as an {@link EventLoop} which is spinning does not need to be woken up
+ * by the operating system when I/O is ready or a task is submitted.
+ * <p>
+ * A factory is passed to the constructors of the {@code NioEventLoopGroup} and the {@code EpollEventLoopGroup} which
+ * take a {@link SelectStrategyFactory}, so only latency-critical {@link EventLoop}s burn CPU. It can be combined with
+ * {@code EpollChannelOption.SO_BUSY_POLL} to busy poll the device queues of the sockets as well.
+ * <p>
+ * Be aware that scheduled tasks which become due while spinning may be delayed by up to the spin time.
+ */
+@UnstableApi
+public final class SpinningSelectStrategyFactory implements SelectStrategyFactory {
+
+    private static final Ticker SYSTEM_TICKER = new Ticker() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    private final long spinNanos;
+    private final Ticker ticker;
+    private final List<SpinningSelectStrategy> strategies = new CopyOnWriteArrayList<SpinningSelectStrategy>();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param spinTime      the time to spin before parking, {@code 0} disables the spinning.
+     * @param unit          the {@link TimeUnit} of {@code spinTime}.
+     */
+    public SpinningSelectStrategyFactory(long spinTime, TimeUnit unit) {
+        this(spinTime, unit, SYSTEM_TICKER);
+    }
+
+    SpinningSelectStrategyFactory(long spinTime, TimeUnit unit, Ticker ticker) {
+        checkPositiveOrZero(spinTime, "spinTime");
+        spinNanos = checkNotNull(unit, "unit").toNanos(spinTime);
+        this.ticker = checkNotNull(ticker, "ticker");
+    }
+
+    @Override
+    public SelectStrategy newSelectStrategy() {
+        SpinningSelectStrategy strategy = new SpinningSelectStrategy(spinNanos, ticker);
+        strategies.add(strategy);
+        return strategy;
+    }
+
+    /**
+     * Returns the number of polls without timeout which were done while spinning, by all {@link SelectStrategy}s
+     * which were created by this factory.
+     */
+    public long spins() {
+        long spins = 0;
+        for (SpinningSelectStrategy strategy : strategies) {
+            spins += strategy.spins;
+        }
+        return spins;
+    }
+
+    /**
+     * Returns the number of times spinning found I/O which was ready, so parking was avoided, by all
+     * {@link SelectStrategy}s which were created by this factory.
+     */
+    public long spinHits() {
+        long spinHits = 0;
+        for (SpinningSelectStrategy strategy : strategies) {
+            spinHits += strategy.spinHits;
+        }
+        return spinHits;
+    }
+
+    /**
+     * Returns the number of times the spin time was used up and a blocking select followed, by all
+     * {@link SelectStrategy}s which were created by this factory.
+     */
+    public long parks() {
+        long parks = 0;
+        for (SpinningSelectStrategy strategy : strategies) {
+            parks += strategy.parks;
+        }
+        return parks;
+    }
+
+    /**
+     * The clock the spin time is measured with, which is only replaced by tests.
+     */
+    interface Ticker {
+        long nanoTime();
+    }
+
+    private static final class SpinningSelectStrategy implements SelectStrategy {
+        private final long spinNanos;
+        private final Ticker ticker;
+
+        // Only modified by the EventLoop.
+        private volatile long spins;
+        private volatile long spinHits;
+        private volatile long parks;
+
+        private boolean spinning;
+        private long spinDeadline;
+
+        SpinningSelectStrategy(long spinNanos, Ticker ticker) {
+            this.spinNanos = spinNanos;
+            this.ticker = ticker;
+        }
+
+        @Override
+        public int calculateStrategy(IntSupplier selectSupplier, boolean hasTasks) throws Exception {
+            if (hasTasks) {
+                spinning = false;
+                return selectSupplier.get();
+            }
+            if (spinNanos == 0) {
+                parks++;
+                return SELECT;
+            }
+            long now = ticker.nanoTime();
+            if (!spinning) {
+                spinning = true;
+                spinDeadline = now + spinNanos;
+            } else if (now - spinDeadline >= 0) {
+                spinning = false;
+                parks++;
+                return SELECT;
+            }
+            spins++;
+            int ready = selectSupplier.get();
+            if (ready > 0) {
+                spinning = false;
+                spinHits++;
+                return ready;
+            }
+            // Go through the loop again, so new tasks are picked up while spinning.
+            return CONTINUE;
+        }
+    }
+}
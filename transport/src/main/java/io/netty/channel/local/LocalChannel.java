@@ -22,8 +22,9 @@ import io.netty.channel.ChannelMetadata;
 import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
-import io.netty.channel.DefaultChannelConfig;
+import io.netty.channel.DefaultMessageSizeEstimator;
 import io.netty.channel.EventLoop;
+import io.netty.channel.MessageSizeEstimator;
 import io.netty.channel.PreferHeapByteBufAllocator;
 import io.netty.channel.RecvByteBufAllocator;
 import io.netty.channel.SingleThreadEventLoop;
@@ -43,6 +44,8 @@ import java.nio.channels.ClosedChannelException;
 import java.nio.channels.ConnectionPendingException;
 import java.nio.channels.NotYetConnectedException;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
@@ -53,6 +56,14 @@ public class LocalChannel extends AbstractChannel {
     @SuppressWarnings({ "rawtypes" })
     private static final AtomicReferenceFieldUpdater<LocalChannel, Future> FINISH_READ_FUTURE_UPDATER =
             AtomicReferenceFieldUpdater.newUpdater(LocalChannel.class, Future.class, "finishReadFuture");
+    private static final AtomicIntegerFieldUpdater<LocalChannel> FINISH_READ_SCHEDULED_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(LocalChannel.class, "finishReadScheduled");
+    private static final AtomicIntegerFieldUpdater<LocalChannel> WRITE_SUSPENDED_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(LocalChannel.class, "writeSuspended");
+    private static final AtomicLongFieldUpdater<LocalChannel> PENDING_INBOUND_BYTES_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(LocalChannel.class, "pendingInboundBytes");
+    // Stateless, so it can be used by both peers to account for the bytes in the inboundBuffer.
+    private static final MessageSizeEstimator.Handle SIZE_ESTIMATOR = DefaultMessageSizeEstimator.DEFAULT.newHandle();
     private static final ChannelMetadata METADATA = new ChannelMetadata(false);
     private static final int MAX_READER_STACK_DEPTH = 8;
     private static final ClosedChannelException DO_WRITE_CLOSED_CHANNEL_EXCEPTION = ThrowableUtil.unknownStackTrace(
@@ -62,7 +73,7 @@ public class LocalChannel extends AbstractChannel {
 
     private enum State { OPEN, BOUND, CONNECTED, CLOSED }
 
-    private final ChannelConfig config = new DefaultChannelConfig(this);
+    private final LocalChannelConfig config = new LocalChannelConfig(this);
     // To further optimize this we could write our own SPSC queue.
     final Queue<Object> inboundBuffer = PlatformDependent.newSpscQueue();
     private final Runnable readTask = new Runnable() {
@@ -75,6 +86,25 @@ public class LocalChannel extends AbstractChannel {
         }
     };
 
+    // Reused for every batch of writes of the peer, see scheduleFinishRead().
+    private final Runnable finishReadTask = new Runnable() {
+        @Override
+        public void run() {
+            // Reset before reading, so messages added after this point schedule the task again.
+            finishReadScheduled = 0;
+            // Run it as the writing peer would, so on failure both channels are closed.
+            LocalChannel writer = peer;
+            (writer != null ? writer : LocalChannel.this).finishPeerRead0(LocalChannel.this);
+        }
+    };
+
+    private final Runnable resumeWriteTask = new Runnable() {
+        @Override
+        public void run() {
+            ((LocalUnsafe) unsafe()).resumeWrite();
+        }
+    };
+
     private final Runnable shutdownHook = new Runnable() {
         @Override
         public void run() {
@@ -90,6 +120,9 @@ public class LocalChannel extends AbstractChannel {
     private volatile boolean readInProgress;
     private volatile boolean writeInProgress;
     private volatile Future<?> finishReadFuture;
+    private volatile int finishReadScheduled;
+    private volatile int writeSuspended;
+    private volatile long pendingInboundBytes;
 
     public LocalChannel() {
         super(null);
@@ -296,17 +329,37 @@ public class LocalChannel extends AbstractChannel {
         RecvByteBufAllocator.Handle handle = unsafe().recvBufAllocHandle();
         handle.reset(config());
         ChannelPipeline pipeline = pipeline();
-        do {
-            Object received = inboundBuffer.poll();
-            if (received == null) {
-                break;
-            }
-            pipeline.fireChannelRead(received);
-        } while (handle.continueReading());
+        long bytes = 0;
+        try {
+            do {
+                Object received = inboundBuffer.poll();
+                if (received == null) {
+                    break;
+                }
+                bytes += SIZE_ESTIMATOR.size(received);
+                pipeline.fireChannelRead(received);
+            } while (handle.continueReading());
+        } finally {
+            inboundBytesRead(bytes);
+        }
 
         pipeline.fireChannelReadComplete();
     }
 
+    private void inboundBytesRead(long bytes) {
+        long pending = PENDING_INBOUND_BYTES_UPDATER.addAndGet(this, -bytes);
+        LocalChannel peer = this.peer;
+        if (peer != null && peer.writeSuspended != 0 && pending <= peer.config.getWriteBufferLowWaterMark()) {
+            peer.resumeWrite();
+        }
+    }
+
+    private void resumeWrite() {
+        if (WRITE_SUSPENDED_UPDATER.compareAndSet(this, 1, 0)) {
+            eventLoop().execute(resumeWriteTask);
+        }
+    }
+
     @Override
     protected void doBeginRead() throws Exception {
         if (readInProgress) {
@@ -353,6 +406,9 @@ public class LocalChannel extends AbstractChannel {
         }
 
         final LocalChannel peer = this.peer;
+        final long highWaterMark = config.isBackpressure() ? config.getWriteBufferHighWaterMark() : Long.MAX_VALUE;
+        boolean suspended = false;
+        long bytes = 0;
 
         writeInProgress = true;
         try {
@@ -361,11 +417,18 @@ public class LocalChannel extends AbstractChannel {
                 if (msg == null) {
                     break;
                 }
+                if (peer.pendingInboundBytes + bytes >= highWaterMark) {
+                    // Keep the remaining messages in the ChannelOutboundBuffer until the peer catches up.
+                    suspended = true;
+                    break;
+                }
                 try {
                     // It is possible the peer could have closed while we are writing, and in this case we should
                     // simulate real socket behavior and ensure the write operation is failed.
                     if (peer.state == State.CONNECTED) {
+                        int size = SIZE_ESTIMATOR.size(msg);
                         peer.inboundBuffer.add(ReferenceCountUtil.retain(msg));
+                        bytes += size;
                         in.remove();
                     } else {
                         in.remove(DO_WRITE_CLOSED_CHANNEL_EXCEPTION);
@@ -381,6 +444,16 @@ public class LocalChannel extends AbstractChannel {
             // 3. Then the close event will be executed for the peer before the write events, when the write events
             // actually happened before the close event.
             writeInProgress = false;
+            // Account for the whole batch at once, the count is only an estimate while the peer is reading.
+            PENDING_INBOUND_BYTES_UPDATER.addAndGet(peer, bytes);
+        }
+
+        if (suspended) {
+            writeSuspended = 1;
+            // The peer may have read everything before writeSuspended was set, so check again.
+            if (peer.pendingInboundBytes <= config.getWriteBufferLowWaterMark()) {
+                resumeWrite();
+            }
         }
 
         finishPeerRead(peer);
@@ -408,7 +481,7 @@ public class LocalChannel extends AbstractChannel {
             if (peer.writeInProgress) {
                 peer.finishReadFuture = peer.eventLoop().submit(finishPeerReadTask);
             } else {
-                peer.eventLoop().execute(finishPeerReadTask);
+                peer.scheduleFinishRead();
             }
         } catch (Throwable cause) {
             logger.warn("Closing Local channels {}-{} because exception occurred!", this, peer, cause);
@@ -418,6 +491,22 @@ public class LocalChannel extends AbstractChannel {
         }
     }
 
+    /**
+     * Schedules a read of the {@link #inboundBuffer} on the {@link EventLoop}, unless one is scheduled already and
+     * will pick up the messages which were just added. This way the {@link EventLoop} is only woken up for the first
+     * batch of writes while it is busy with others.
+     */
+    private void scheduleFinishRead() {
+        if (FINISH_READ_SCHEDULED_UPDATER.compareAndSet(this, 0, 1)) {
+            try {
+                eventLoop().execute(finishReadTask);
+            } catch (Throwable cause) {
+                finishReadScheduled = 0;
+                PlatformDependent.throwException(cause);
+            }
+        }
+    }
+
     private void releaseInboundBuffers() {
         assert eventLoop() == null || eventLoop().inEventLoop();
         readInProgress = false;
@@ -426,6 +515,7 @@ public class LocalChannel extends AbstractChannel {
         while ((msg = inboundBuffer.poll()) != null) {
             ReferenceCountUtil.release(msg);
         }
+        pendingInboundBytes = 0;
     }
 
     private void finishPeerRead0(LocalChannel peer) {
@@ -449,6 +539,11 @@ public class LocalChannel extends AbstractChannel {
 
     private class LocalUnsafe extends AbstractUnsafe {
 
+        void resumeWrite() {
+            // The messages were flushed already, so only try to write them again.
+            flush0();
+        }
+
         @Override
         public void connect(final SocketAddress remoteAddress,
                 SocketAddress localAddress, final ChannelPromise promise) {
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.local;
+
+import io.netty.channel.ChannelOption;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * {@link ChannelOption}s which are specific to the {@link LocalChannel}.
+ */
+@UnstableApi
+public final class LocalChannelOption<T> extends ChannelOption<T> {
+
+    /**
+     * If {@code true}, a {@link LocalChannel} stops to hand off written messages to its peer as long as the peer has
+     * more bytes pending to be read than the high {@link WriteBufferWaterMark} of the writing {@link LocalChannel}.
+     * The messages stay in the outbound buffer of the writing {@link LocalChannel} in the meantime, so it becomes
+     * unwritable like a socket whose send buffer is full, and they are handed off once the peer read enough of its
+     * pending messages to drop below the low {@link WriteBufferWaterMark}. The default is {@code false}, so all
+     * messages are handed off immediately regardless of how many the peer has pending.
+     */
+    public static final ChannelOption<Boolean> BACKPRESSURE = valueOf(LocalChannelOption.class, "BACKPRESSURE");
+
+    @SuppressWarnings({ "unused", "deprecation" })
+    private LocalChannelOption() {
+        super(null);
+    }
+}
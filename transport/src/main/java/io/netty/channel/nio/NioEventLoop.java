@@ -405,7 +405,12 @@ public final class NioEventLoop extends SingleThreadEventLoop {
                     case SelectStrategy.CONTINUE:
                         continue;
                     case SelectStrategy.SELECT:
-                        select(wakenUp.getAndSet(false));
+                        recordIdleStart();
+                        try {
+                            select(wakenUp.getAndSet(false));
+                        } finally {
+                            recordIdleEnd();
+                        }
 
                         // 'wakenUp.compareAndSet(false, true)' is always evaluated
                         // before calling 'selector.wakeup()' to reduce the wake-up
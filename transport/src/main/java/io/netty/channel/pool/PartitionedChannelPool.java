@@ -0,0 +1,554 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.pool;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.Promise;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.ThrowableUtil;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * {@link ChannelPool} implementation which keeps a partition of idle {@link Channel}s per {@link EventLoop} of the
+ * {@link EventLoopGroup} used by the {@link Bootstrap}, so the acquired {@link Channel} is usually registered to the
+ * same {@link EventLoop} as the caller and writing to it does not need to hop between threads.
+ * <p>
+ * On acquire an idle {@link Channel} of the caller's {@link EventLoop} is used if there is any. Otherwise a new
+ * {@link Channel} is connected on this {@link EventLoop} if the maximal number of connections is not reached yet, and
+ * only if this is not possible an idle {@link Channel} of another {@link EventLoop} is used. If there is none, the
+ * acquire is delayed until a {@link Channel} is released or closed. If the caller is not an {@link EventLoop} of the
+ * group, {@link EventLoopGroup#next()} is used.
+ * <p>
+ * Released {@link Channel}s are always returned to the partition of the {@link EventLoop} they are registered to.
+ * The maximal number of connections is enforced for the whole pool, and counts all open {@link Channel}s which were
+ * created by this pool, no matter if they are acquired or not.
+ */
+@UnstableApi
+public class PartitionedChannelPool implements ChannelPool {
+    private static final AttributeKey<PartitionedChannelPool> POOL_KEY =
+            AttributeKey.newInstance("partitionedChannelPool");
+    private static final IllegalStateException FULL_EXCEPTION = ThrowableUtil.unknownStackTrace(
+            new IllegalStateException("Too many outstanding acquire operations"),
+            PartitionedChannelPool.class, "acquire0(...)");
+    private static final IllegalStateException POOL_CLOSED_ON_ACQUIRE_EXCEPTION = ThrowableUtil.unknownStackTrace(
+            new IllegalStateException("PartitionedChannelPool was closed"),
+            PartitionedChannelPool.class, "acquire0(...)");
+    private static final IllegalStateException POOL_CLOSED_ON_RELEASE_EXCEPTION = ThrowableUtil.unknownStackTrace(
+            new IllegalStateException("PartitionedChannelPool was closed"),
+            PartitionedChannelPool.class, "release0(...)");
+
+    private final Bootstrap bootstrap;
+    private final ChannelPoolHandler handler;
+    private final ChannelHealthChecker healthCheck;
+    private final boolean releaseHealthCheck;
+    private final int maxConnections;
+    private final int maxPendingAcquires;
+    private final Partition[] partitions;
+    // Only modified in the constructor, so safe to access from all threads.
+    private final Map<EventExecutor, Partition> partitionMap = new IdentityHashMap<EventExecutor, Partition>();
+    private final ChannelFutureListener closeListener = new ChannelFutureListener() {
+        @Override
+        public void operationComplete(ChannelFuture future) {
+            connectionClosed(partitionMap.get(future.channel().eventLoop()));
+        }
+    };
+
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final AtomicInteger pendingAcquireCount = new AtomicInteger();
+    private volatile boolean closed;
+
+    /**
+     * Creates a new instance using the {@link ChannelHealthChecker#ACTIVE}.
+     *
+     * @param bootstrap         the {@link Bootstrap} that is used for connections
+     * @param handler           the {@link ChannelPoolHandler} that will be notified for the different pool actions
+     * @param maxConnections    the number of maximal open connections, once this is reached new tries to acquire
+     *                          a {@link Channel} will be delayed until a connection is returned to the pool again.
+     */
+    public PartitionedChannelPool(Bootstrap bootstrap, ChannelPoolHandler handler, int maxConnections) {
+        this(bootstrap, handler, ChannelHealthChecker.ACTIVE, maxConnections, Integer.MAX_VALUE, true);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param bootstrap             the {@link Bootstrap} that is used for connections
+     * @param handler               the {@link ChannelPoolHandler} that will be notified for the different pool actions
+     * @param healthCheck           the {@link ChannelHealthChecker} that will be used to check if a {@link Channel} is
+     *                              still healthy when obtain from the {@link ChannelPool}
+     * @param maxConnections        the number of maximal open connections, once this is reached new tries to
+     *                              acquire a {@link Channel} will be delayed until a connection is returned to the
+     *                              pool again.
+     * @param maxPendingAcquires    the maximum number of pending acquires. Once this is exceed acquire tries will
+     *                              be failed.
+     * @param releaseHealthCheck    will check channel health before offering back if this parameter set to
+     *                              {@code true}; otherwise, channel health is only checked at acquisition time
+     */
+    public PartitionedChannelPool(Bootstrap bootstrap, final ChannelPoolHandler handler,
+                                  ChannelHealthChecker healthCheck, int maxConnections, int maxPendingAcquires,
+                                  boolean releaseHealthCheck) {
+        this.handler = checkNotNull(handler, "handler");
+        this.healthCheck = checkNotNull(healthCheck, "healthCheck");
+        this.maxConnections = checkPositive(maxConnections, "maxConnections");
+        this.maxPendingAcquires = checkPositive(maxPendingAcquires, "maxPendingAcquires");
+        this.releaseHealthCheck = releaseHealthCheck;
+        EventLoopGroup group = checkNotNull(bootstrap, "bootstrap").config().group();
+        if (group == null) {
+            throw new IllegalArgumentException("bootstrap has no EventLoopGroup set");
+        }
+
+        // Clone the original Bootstrap as we want to set our own handler
+        this.bootstrap = bootstrap.clone();
+        this.bootstrap.attr(POOL_KEY, this);
+        this.bootstrap.handler(new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel ch) throws Exception {
+                assert ch.eventLoop().inEventLoop();
+                handler.channelCreated(ch);
+            }
+        });
+
+        List<Partition> partitions = new ArrayList<Partition>();
+        for (EventExecutor executor: group) {
+            if (!(executor instanceof EventLoop)) {
+                throw new IllegalArgumentException("bootstrap group contains no EventLoop: " + executor);
+            }
+            Partition partition = new Partition(partitions.size(), (EventLoop) executor);
+            partitions.add(partition);
+            partitionMap.put(executor, partition);
+        }
+        this.partitions = partitions.toArray(new Partition[0]);
+    }
+
+    /**
+     * Returns the number of open {@link Channel}s which were created by this pool, including the ones which are
+     * still connecting.
+     */
+    public int connectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * Returns the number of {@link Channel}s which are idle in this pool.
+     */
+    public int idleChannelCount() {
+        int count = 0;
+        for (Partition partition: partitions) {
+            count += partition.idleChannels.size();
+        }
+        return count;
+    }
+
+    @Override
+    public final Future<Channel> acquire() {
+        return acquire(callerPartition().loop.<Channel>newPromise());
+    }
+
+    @Override
+    public Future<Channel> acquire(Promise<Channel> promise) {
+        callerPartition().acquire(checkNotNull(promise, "promise"));
+        return promise;
+    }
+
+    private Partition callerPartition() {
+        for (Partition partition: partitions) {
+            if (partition.loop.inEventLoop()) {
+                return partition;
+            }
+        }
+        return partitionMap.get(bootstrap.config().group().next());
+    }
+
+    /**
+     * Bootstrap a new {@link Channel}. The default implementation uses {@link Bootstrap#connect()}, sub-classes may
+     * override this.
+     * <p>
+     * The {@link Bootstrap} that is passed in here is cloned via {@link Bootstrap#clone(EventLoopGroup)} and uses the
+     * {@link EventLoop} of the partition, so it is safe to modify.
+     */
+    protected ChannelFuture connectChannel(Bootstrap bs) {
+        return bs.connect();
+    }
+
+    private boolean reserveConnection() {
+        for (;;) {
+            int count = connectionCount.get();
+            if (count >= maxConnections) {
+                return false;
+            }
+            if (connectionCount.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void connectionClosed(Partition partition) {
+        connectionCount.decrementAndGet();
+        partition.notifyPendingAcquires();
+    }
+
+    @Override
+    public final Future<Void> release(Channel channel) {
+        return release(channel, channel.eventLoop().<Void>newPromise());
+    }
+
+    @Override
+    public Future<Void> release(final Channel channel, final Promise<Void> promise) {
+        checkNotNull(channel, "channel");
+        checkNotNull(promise, "promise");
+        try {
+            EventLoop loop = channel.eventLoop();
+            if (loop.inEventLoop()) {
+                release0(channel, promise);
+            } else {
+                loop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        release0(channel, promise);
+                    }
+                });
+            }
+        } catch (Throwable cause) {
+            closeAndFail(channel, cause, promise);
+        }
+        return promise;
+    }
+
+    private void release0(final Channel channel, final Promise<Void> promise) {
+        assert channel.eventLoop().inEventLoop();
+        // Remove the POOL_KEY attribute from the Channel and check if it was acquired from this pool, if not fail.
+        final Partition partition = partitionMap.get(channel.eventLoop());
+        if (partition == null || channel.attr(POOL_KEY).getAndSet(null) != this) {
+            closeAndFail(channel,
+                         // Better include a stacktrace here as this is an user error.
+                         new IllegalArgumentException(
+                                 "Channel " + channel + " was not acquired from this ChannelPool"),
+                         promise);
+            return;
+        }
+        if (closed) {
+            closeAndFail(channel, POOL_CLOSED_ON_RELEASE_EXCEPTION, promise);
+            return;
+        }
+        try {
+            if (releaseHealthCheck) {
+                Future<Boolean> f = healthCheck.isHealthy(channel);
+                if (f.isDone()) {
+                    partition.releaseIfHealthy(channel, f, promise);
+                } else {
+                    f.addListener(new FutureListener<Boolean>() {
+                        @Override
+                        public void operationComplete(Future<Boolean> future) {
+                            partition.releaseIfHealthy(channel, future, promise);
+                        }
+                    });
+                }
+            } else {
+                partition.release(channel, promise);
+            }
+        } catch (Throwable cause) {
+            closeAndFail(channel, cause, promise);
+        }
+    }
+
+    private static void closeAndFail(Channel channel, Throwable cause, Promise<?> promise) {
+        channel.attr(POOL_KEY).set(null);
+        channel.close();
+        promise.tryFailure(cause);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (final Partition partition: partitions) {
+            partition.loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    partition.failPendingAcquires();
+                }
+            });
+            for (;;) {
+                Channel channel = partition.idleChannels.pollLast();
+                if (channel == null) {
+                    break;
+                }
+                // Just ignore any errors that are reported back from close().
+                channel.close().awaitUninterruptibly();
+            }
+        }
+    }
+
+    private final class Partition {
+        private final int index;
+        final EventLoop loop;
+        final Deque<Channel> idleChannels = PlatformDependent.newConcurrentDeque();
+        // Only accessed from within the EventLoop.
+        private final Queue<Promise<Channel>> pendingAcquires = new ArrayDeque<Promise<Channel>>();
+        // Only modified from within the EventLoop, but read by other partitions.
+        private volatile int pendingAcquireSize;
+        private final Runnable runPendingAcquiresTask = new Runnable() {
+            @Override
+            public void run() {
+                runPendingAcquires();
+            }
+        };
+
+        Partition(int index, EventLoop loop) {
+            this.index = index;
+            this.loop = loop;
+        }
+
+        void acquire(final Promise<Channel> promise) {
+            if (loop.inEventLoop()) {
+                acquire0(promise);
+            } else {
+                loop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        acquire0(promise);
+                    }
+                });
+            }
+        }
+
+        private void acquire0(Promise<Channel> promise) {
+            assert loop.inEventLoop();
+            if (closed) {
+                promise.tryFailure(POOL_CLOSED_ON_ACQUIRE_EXCEPTION);
+                return;
+            }
+            if (promise.isDone() || tryAcquire(promise)) {
+                return;
+            }
+            if (pendingAcquireCount.incrementAndGet() > maxPendingAcquires) {
+                pendingAcquireCount.decrementAndGet();
+                promise.tryFailure(FULL_EXCEPTION);
+            } else {
+                pendingAcquires.add(promise);
+                pendingAcquireSize++;
+                // A Channel may have been released or closed by another EventLoop before the pending acquire was
+                // visible to it, so check again.
+                runPendingAcquires();
+            }
+        }
+
+        /**
+         * Try to acquire a {@link Channel} for the {@link Promise}, returns {@code false} if the acquire needs to be
+         * delayed.
+         */
+        private boolean tryAcquire(Promise<Channel> promise) {
+            Channel ch = idleChannels.pollLast();
+            if (ch != null) {
+                healthCheck(ch, promise);
+                return true;
+            }
+            if (reserveConnection()) {
+                connect(promise);
+                return true;
+            }
+            // Steal from the other partitions, starting with the next one so not always the same is drained first.
+            for (int i = 1; i < partitions.length; i++) {
+                // Take the least recently used Channel of the other partition as the most recently used ones are the
+                // most likely to be acquired by the other partition soon.
+                ch = partitions[(index + i) % partitions.length].idleChannels.pollFirst();
+                if (ch != null) {
+                    healthCheck(ch, promise);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void connect(final Promise<Channel> promise) {
+            final ChannelFuture f;
+            try {
+                f = connectChannel(bootstrap.clone(loop));
+            } catch (Throwable cause) {
+                connectionClosed(this);
+                promise.tryFailure(cause);
+                return;
+            }
+            if (f.isDone()) {
+                notifyConnect(f, promise);
+            } else {
+                f.addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture future) {
+                        notifyConnect(future, promise);
+                    }
+                });
+            }
+        }
+
+        private void notifyConnect(ChannelFuture future, Promise<Channel> promise) {
+            if (future.isSuccess()) {
+                Channel channel = future.channel();
+                channel.closeFuture().addListener(closeListener);
+                if (!promise.trySuccess(channel)) {
+                    // Promise was completed in the meantime (like cancelled), just release the channel again
+                    PartitionedChannelPool.this.release(channel);
+                }
+            } else {
+                connectionClosed(this);
+                promise.tryFailure(future.cause());
+            }
+        }
+
+        private void healthCheck(final Channel ch, final Promise<Channel> promise) {
+            EventLoop channelLoop = ch.eventLoop();
+            if (channelLoop.inEventLoop()) {
+                doHealthCheck(ch, promise);
+            } else {
+                channelLoop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        doHealthCheck(ch, promise);
+                    }
+                });
+            }
+        }
+
+        private void doHealthCheck(final Channel ch, final Promise<Channel> promise) {
+            assert ch.eventLoop().inEventLoop();
+            Future<Boolean> f = healthCheck.isHealthy(ch);
+            if (f.isDone()) {
+                notifyHealthCheck(f, ch, promise);
+            } else {
+                f.addListener(new FutureListener<Boolean>() {
+                    @Override
+                    public void operationComplete(Future<Boolean> future) {
+                        notifyHealthCheck(future, ch, promise);
+                    }
+                });
+            }
+        }
+
+        private void notifyHealthCheck(Future<Boolean> future, Channel ch, Promise<Channel> promise) {
+            assert ch.eventLoop().inEventLoop();
+            if (future.isSuccess() && future.getNow()) {
+                try {
+                    ch.attr(POOL_KEY).set(PartitionedChannelPool.this);
+                    handler.channelAcquired(ch);
+                    if (!promise.trySuccess(ch)) {
+                        // Promise was completed in the meantime (like cancelled), just release the channel again
+                        PartitionedChannelPool.this.release(ch);
+                    }
+                } catch (Throwable cause) {
+                    closeAndFail(ch, cause, promise);
+                }
+            } else {
+                // The close listener will make room for a new connection.
+                ch.close();
+                acquire(promise);
+            }
+        }
+
+        void releaseIfHealthy(Channel channel, Future<Boolean> future, Promise<Void> promise) {
+            try {
+                if (future.isSuccess() && future.getNow()) {
+                    release(channel, promise);
+                } else {
+                    // Channel not healthy, just close it.
+                    channel.close();
+                    handler.channelReleased(channel);
+                    promise.setSuccess(null);
+                }
+            } catch (Throwable cause) {
+                closeAndFail(channel, cause, promise);
+            }
+        }
+
+        void release(Channel channel, Promise<Void> promise) throws Exception {
+            assert loop.inEventLoop();
+            idleChannels.offerLast(channel);
+            handler.channelReleased(channel);
+            promise.setSuccess(null);
+            notifyPendingAcquires();
+        }
+
+        /**
+         * Let the pending acquires run again as a {@link Channel} was released or closed. Prefers the pending acquires
+         * of this partition, as this keeps released {@link Channel}s on their {@link EventLoop}.
+         */
+        void notifyPendingAcquires() {
+            if (pendingAcquireCount.get() == 0) {
+                return;
+            }
+            for (int i = 0; i < partitions.length; i++) {
+                Partition partition = partitions[(index + i) % partitions.length];
+                if (partition.pendingAcquireSize > 0) {
+                    if (partition.loop.inEventLoop()) {
+                        partition.runPendingAcquires();
+                    } else {
+                        partition.loop.execute(partition.runPendingAcquiresTask);
+                    }
+                    return;
+                }
+            }
+        }
+
+        private void runPendingAcquires() {
+            assert loop.inEventLoop();
+            for (;;) {
+                Promise<Channel> promise = pendingAcquires.peek();
+                if (promise == null) {
+                    break;
+                }
+                if (!promise.isDone() && !tryAcquire(promise)) {
+                    break;
+                }
+                pendingAcquires.remove();
+                pendingAcquireSize--;
+                pendingAcquireCount.decrementAndGet();
+            }
+        }
+
+        void failPendingAcquires() {
+            assert loop.inEventLoop();
+            for (;;) {
+                Promise<Channel> promise = pendingAcquires.poll();
+                if (promise == null) {
+                    break;
+                }
+                pendingAcquireSize--;
+                pendingAcquireCount.decrementAndGet();
+                promise.tryFailure(POOL_CLOSED_ON_ACQUIRE_EXCEPTION);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.pool;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.util.internal.UnstableApi;
+
+import java.net.SocketAddress;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * {@link ChannelPoolMap} which creates a {@link PartitionedChannelPool} per remote {@link SocketAddress}, sharing
+ * the {@link Bootstrap} and so the {@link io.netty.channel.EventLoopGroup} between all of them.
+ */
+@UnstableApi
+public class PartitionedChannelPoolMap extends AbstractChannelPoolMap<SocketAddress, PartitionedChannelPool> {
+    private final Bootstrap bootstrap;
+    private final ChannelPoolHandler handler;
+    private final int maxConnections;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param bootstrap         the {@link Bootstrap} that is used for connections, the remote address is set to the
+     *                          key for which the {@link PartitionedChannelPool} is created
+     * @param handler           the {@link ChannelPoolHandler} that will be notified for the different pool actions
+     * @param maxConnections    the number of maximal open connections per remote address
+     */
+    public PartitionedChannelPoolMap(Bootstrap bootstrap, ChannelPoolHandler handler, int maxConnections) {
+        this.bootstrap = checkNotNull(bootstrap, "bootstrap");
+        this.handler = checkNotNull(handler, "handler");
+        this.maxConnections = checkPositive(maxConnections, "maxConnections");
+    }
+
+    @Override
+    protected PartitionedChannelPool newPool(SocketAddress key) {
+        return new PartitionedChannelPool(bootstrap.clone().remoteAddress(key), handler, maxConnections);
+    }
+}
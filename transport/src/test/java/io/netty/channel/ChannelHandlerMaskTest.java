@@ -0,0 +1,151 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.netty.channel.ChannelHandlerMask.*;
+import static org.junit.Assert.*;
+
+public class ChannelHandlerMaskTest {
+
+    @Test
+    public void testAdaptersAreSkipped() {
+        assertEquals(0, mask(ChannelInboundHandlerAdapter.class));
+        assertEquals(0, mask(ChannelOutboundHandlerAdapter.class));
+        assertEquals(0, mask(ChannelDuplexHandler.class));
+    }
+
+    @Test
+    public void testOverriddenMethodsAreNotSkipped() {
+        ChannelHandler handler = new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                ctx.fireChannelRead(msg);
+            }
+        };
+        assertEquals(MASK_CHANNEL_READ, mask(handler.getClass()));
+
+        handler = new ChannelOutboundHandlerAdapter() {
+            @Override
+            public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+                ctx.write(msg, promise);
+            }
+
+            @Override
+            public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+                ctx.fireExceptionCaught(cause);
+            }
+        };
+        assertEquals(MASK_WRITE | MASK_EXCEPTION_CAUGHT, mask(handler.getClass()));
+    }
+
+    @Test
+    public void testHandlersWithoutAdapterAreNotSkipped() {
+        assertEquals(MASK_EXCEPTION_CAUGHT | MASK_ONLY_INBOUND, mask(InboundHandler.class));
+    }
+
+    @Test
+    public void testEventsSkipForwardingHandlers() {
+        final List<String> events = new ArrayList<String>();
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new ChannelInboundHandlerAdapter() { },
+                new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+                        events.add("userEvent");
+                        ctx.fireUserEventTriggered(evt);
+                    }
+                },
+                new ChannelOutboundHandlerAdapter() { },
+                new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        events.add("read");
+                        ctx.fireChannelRead(msg);
+                    }
+                });
+
+        assertTrue(channel.writeInbound("msg"));
+        channel.pipeline().fireUserEventTriggered("evt");
+        assertEquals("msg", channel.readInbound());
+        assertFalse(channel.finish());
+
+        List<String> expected = new ArrayList<String>();
+        expected.add("read");
+        expected.add("userEvent");
+        assertEquals(expected, events);
+    }
+
+    private static final class InboundHandler implements ChannelInboundHandler {
+        @Override
+        public void channelRegistered(ChannelHandlerContext ctx) {
+            ctx.fireChannelRegistered();
+        }
+
+        @Override
+        public void channelUnregistered(ChannelHandlerContext ctx) {
+            ctx.fireChannelUnregistered();
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            ctx.fireChannelActive();
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            ctx.fireChannelInactive();
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.fireChannelRead(msg);
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            ctx.fireChannelReadComplete();
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+            ctx.fireUserEventTriggered(evt);
+        }
+
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+            ctx.fireChannelWritabilityChanged();
+        }
+
+        @Override
+        public void handlerAdded(ChannelHandlerContext ctx) {
+        }
+
+        @Override
+        public void handlerRemoved(ChannelHandlerContext ctx) {
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            ctx.fireExceptionCaught(cause);
+        }
+    }
+}
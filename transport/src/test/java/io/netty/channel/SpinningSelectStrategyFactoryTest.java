@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.util.IntSupplier;
+import org.junit.Test;
+
+import java.nio.channels.spi.SelectorProvider;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SpinningSelectStrategyFactoryTest {
+
+    private static final IntSupplier NOTHING_READY = new IntSupplier() {
+        @Override
+        public int get() {
+            return 0;
+        }
+    };
+
+    @Test
+    public void testSpinThenPark() throws Exception {
+        final long[] now = new long[1];
+        SpinningSelectStrategyFactory factory = new SpinningSelectStrategyFactory(
+                50, TimeUnit.NANOSECONDS, new SpinningSelectStrategyFactory.Ticker() {
+                    @Override
+                    public long nanoTime() {
+                        return now[0];
+                    }
+                });
+        SelectStrategy strategy = factory.newSelectStrategy();
+        assertEquals(SelectStrategy.CONTINUE, strategy.calculateStrategy(NOTHING_READY, false));
+        now[0] = 49;
+        assertEquals(SelectStrategy.CONTINUE, strategy.calculateStrategy(NOTHING_READY, false));
+        assertEquals(2, factory.spins());
+
+        now[0] = 50;
+        assertEquals(SelectStrategy.SELECT, strategy.calculateStrategy(NOTHING_READY, false));
+        assertEquals(1, factory.parks());
+
+        // Spinning starts again after parking.
+        assertEquals(SelectStrategy.CONTINUE, strategy.calculateStrategy(NOTHING_READY, false));
+        assertEquals(3, factory.spins());
+    }
+
+    @Test
+    public void testSpinHit() throws Exception {
+        SpinningSelectStrategyFactory factory = new SpinningSelectStrategyFactory(1, TimeUnit.SECONDS);
+        SelectStrategy strategy = factory.newSelectStrategy();
+        assertEquals(2, strategy.calculateStrategy(new IntSupplier() {
+            @Override
+            public int get() {
+                return 2;
+            }
+        }, false));
+        assertEquals(1, factory.spinHits());
+        assertEquals(0, factory.parks());
+
+        // With tasks the strategy behaves like the default.
+        assertEquals(0, strategy.calculateStrategy(NOTHING_READY, true));
+        assertEquals(1, factory.spins());
+    }
+
+    @Test
+    public void testNoSpinning() throws Exception {
+        SpinningSelectStrategyFactory factory = new SpinningSelectStrategyFactory(0, TimeUnit.SECONDS);
+        assertEquals(SelectStrategy.SELECT, factory.newSelectStrategy().calculateStrategy(NOTHING_READY, false));
+        assertEquals(0, factory.spins());
+        assertEquals(1, factory.parks());
+    }
+
+    @Test(timeout = 10000)
+    public void testEventLoop() throws Exception {
+        SpinningSelectStrategyFactory factory = new SpinningSelectStrategyFactory(1, TimeUnit.MILLISECONDS);
+        EventLoopGroup group = new NioEventLoopGroup(1, (Executor) null, SelectorProvider.provider(), factory);
+        try {
+            // Tasks which are submitted while spinning and while parked are both executed.
+            for (int i = 0; i < 10; i++) {
+                group.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Noop.
+                    }
+                }).sync();
+                Thread.sleep(i % 2 == 0 ? 0 : 5);
+            }
+            assertTrue(factory.spins() > 0);
+            assertTrue(factory.parks() > 0);
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.MILLISECONDS).syncUninterruptibly();
+        }
+    }
+}
@@ -33,6 +33,7 @@ import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.SingleThreadEventLoop;
+import io.netty.channel.WriteBufferWaterMark;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.Promise;
@@ -47,6 +48,7 @@ import java.nio.channels.ClosedChannelException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static java.util.concurrent.TimeUnit.SECONDS;
@@ -854,6 +856,83 @@ public class LocalChannelTest {
         }
     }
 
+    @Test(timeout = 5000)
+    public void testBackpressure() throws Exception {
+        Bootstrap cb = new Bootstrap();
+        ServerBootstrap sb = new ServerBootstrap();
+        final Promise<Channel> accepted = group2.next().newPromise();
+        final AtomicInteger received = new AtomicInteger();
+        final CountDownLatch allReceived = new CountDownLatch(1);
+
+        cb.group(group1)
+                .channel(LocalChannel.class)
+                .option(LocalChannelOption.BACKPRESSURE, true)
+                .option(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(8, 16))
+                .handler(new TestHandler());
+
+        sb.group(group2)
+                .channel(LocalServerChannel.class)
+                .childOption(ChannelOption.AUTO_READ, false)
+                .childHandler(new ChannelInitializer<LocalChannel>() {
+                    @Override
+                    public void initChannel(LocalChannel ch) throws Exception {
+                        ch.pipeline().addLast(new ChannelInboundHandlerAdapter() {
+                            @Override
+                            public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                                if (received.addAndGet(((ByteBuf) msg).readableBytes()) == 64) {
+                                    allReceived.countDown();
+                                }
+                                ReferenceCountUtil.release(msg);
+                            }
+                        });
+                        accepted.setSuccess(ch);
+                    }
+                });
+
+        Channel sc = null;
+        Channel cc = null;
+        try {
+            sc = sb.bind(TEST_ADDRESS).sync().channel();
+            cc = cb.connect(sc.localAddress()).sync().channel();
+            Channel peer = accepted.sync().getNow();
+
+            ChannelFuture[] futures = new ChannelFuture[4];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = cc.write(Unpooled.wrappedBuffer(new byte[16]));
+            }
+            cc.flush();
+            futures[0].sync();
+            // Wait until the flush was processed completely.
+            cc.eventLoop().submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).sync();
+
+            // The peer has 16 bytes pending, so the other messages must stay in the outbound buffer.
+            assertFalse(futures[1].isDone());
+            assertFalse(cc.isWritable());
+
+            // Reading the pending message allows the next one to be handed off.
+            peer.read();
+            futures[1].sync();
+            assertFalse(futures[2].isDone());
+
+            peer.config().setAutoRead(true);
+            futures[3].sync();
+            cc.eventLoop().submit(new Runnable() {
+                @Override
+                public void run() {
+                }
+            }).sync();
+            assertTrue(cc.isWritable());
+            assertTrue(allReceived.await(3, TimeUnit.SECONDS));
+        } finally {
+            closeChannel(cc);
+            closeChannel(sc);
+        }
+    }
+
     @Test(expected = ConnectException.class)
     public void testConnectionRefused() {
         Bootstrap sb = new Bootstrap();
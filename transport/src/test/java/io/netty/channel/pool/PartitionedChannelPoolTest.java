@@ -0,0 +1,232 @@
+/*
+ * Copyright 2018 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.pool;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalEventLoopGroup;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.util.concurrent.Future;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PartitionedChannelPoolTest {
+    private static final LocalAddress ADDR = new LocalAddress("test.partitioned.id");
+
+    private static EventLoopGroup group;
+    private static EventLoop firstLoop;
+    private static EventLoop secondLoop;
+
+    private Channel sc;
+    private Bootstrap cb;
+
+    @BeforeClass
+    public static void createEventLoop() {
+        group = new LocalEventLoopGroup(2);
+        firstLoop = group.next();
+        secondLoop = group.next();
+        assertNotSame(firstLoop, secondLoop);
+    }
+
+    @AfterClass
+    public static void destroyEventLoop() {
+        if (group != null) {
+            group.shutdownGracefully();
+        }
+    }
+
+    @Before
+    public void startServer() {
+        cb = new Bootstrap();
+        cb.remoteAddress(ADDR);
+        cb.group(group)
+          .channel(LocalChannel.class);
+
+        ServerBootstrap sb = new ServerBootstrap();
+        sb.group(group)
+          .channel(LocalServerChannel.class)
+          .childHandler(new ChannelInitializer<LocalChannel>() {
+              @Override
+              public void initChannel(LocalChannel ch) throws Exception {
+                  ch.pipeline().addLast(new ChannelInboundHandlerAdapter());
+              }
+          });
+        sc = sb.bind(ADDR).syncUninterruptibly().channel();
+    }
+
+    @After
+    public void stopServer() {
+        sc.close().syncUninterruptibly();
+    }
+
+    private static Future<Channel> acquire(final ChannelPool pool, EventLoop loop) throws Exception {
+        return loop.submit(new Callable<Future<Channel>>() {
+            @Override
+            public Future<Channel> call() {
+                return pool.acquire();
+            }
+        }).syncUninterruptibly().getNow();
+    }
+
+    @Test
+    public void testAcquireFromCallerEventLoop() throws Exception {
+        CountingChannelPoolHandler handler = new CountingChannelPoolHandler();
+        PartitionedChannelPool pool = new PartitionedChannelPool(cb, handler, 4);
+
+        Channel first = acquire(pool, firstLoop).syncUninterruptibly().getNow();
+        Channel second = acquire(pool, secondLoop).syncUninterruptibly().getNow();
+        assertSame(firstLoop, first.eventLoop());
+        assertSame(secondLoop, second.eventLoop());
+
+        pool.release(first).syncUninterruptibly();
+        pool.release(second).syncUninterruptibly();
+        assertEquals(2, pool.idleChannelCount());
+
+        // Each EventLoop gets back the Channel which is registered to it.
+        assertSame(second, acquire(pool, secondLoop).syncUninterruptibly().getNow());
+        assertSame(first, acquire(pool, firstLoop).syncUninterruptibly().getNow());
+        assertEquals(2, handler.channelCount());
+        assertEquals(2, handler.acquiredCount());
+        assertEquals(2, handler.releasedCount());
+        assertEquals(2, pool.connectionCount());
+
+        pool.release(first).syncUninterruptibly();
+        pool.release(second).syncUninterruptibly();
+        pool.close();
+        assertEquals(0, pool.idleChannelCount());
+    }
+
+    @Test
+    public void testStealFromOtherEventLoop() throws Exception {
+        CountingChannelPoolHandler handler = new CountingChannelPoolHandler();
+        PartitionedChannelPool pool = new PartitionedChannelPool(cb, handler, 1);
+
+        Channel channel = acquire(pool, firstLoop).syncUninterruptibly().getNow();
+        pool.release(channel).syncUninterruptibly();
+
+        // The maximum number of connections is reached, so the idle Channel of the other EventLoop is used.
+        assertSame(channel, acquire(pool, secondLoop).syncUninterruptibly().getNow());
+        assertEquals(1, handler.channelCount());
+
+        pool.release(channel).syncUninterruptibly();
+        pool.close();
+    }
+
+    @Test
+    public void testPendingAcquireCompletesOnRelease() throws Exception {
+        CountingChannelPoolHandler handler = new CountingChannelPoolHandler();
+        PartitionedChannelPool pool = new PartitionedChannelPool(cb, handler, 1);
+
+        Channel channel = acquire(pool, firstLoop).syncUninterruptibly().getNow();
+        Future<Channel> future = acquire(pool, secondLoop);
+        assertFalse(future.isDone());
+
+        pool.release(channel).syncUninterruptibly();
+        assertTrue(future.await(1, TimeUnit.SECONDS));
+        assertSame(channel, future.getNow());
+        assertEquals(1, handler.channelCount());
+
+        pool.release(channel).syncUninterruptibly();
+        pool.close();
+    }
+
+    @Test
+    public void testPendingAcquireCompletesOnClose() throws Exception {
+        CountingChannelPoolHandler handler = new CountingChannelPoolHandler();
+        PartitionedChannelPool pool = new PartitionedChannelPool(cb, handler, 1);
+
+        Channel channel = acquire(pool, firstLoop).syncUninterruptibly().getNow();
+        Future<Channel> future = acquire(pool, secondLoop);
+        assertFalse(future.isDone());
+
+        // Closing the Channel makes room for a new connection.
+        channel.close().syncUninterruptibly();
+        assertTrue(future.await(1, TimeUnit.SECONDS));
+        Channel channel2 = future.getNow();
+        assertNotSame(channel, channel2);
+        assertSame(secondLoop, channel2.eventLoop());
+        assertEquals(2, handler.channelCount());
+        assertEquals(1, pool.connectionCount());
+
+        pool.release(channel2).syncUninterruptibly();
+        pool.close();
+    }
+
+    @Test
+    public void testTooManyPendingAcquires() throws Exception {
+        PartitionedChannelPool pool = new PartitionedChannelPool(
+                cb, new CountingChannelPoolHandler(), ChannelHealthChecker.ACTIVE, 1, 1, true);
+
+        Channel channel = acquire(pool, firstLoop).syncUninterruptibly().getNow();
+        Future<Channel> pending = acquire(pool, firstLoop);
+        Future<Channel> failed = acquire(pool, secondLoop);
+        assertTrue(failed.await(1, TimeUnit.SECONDS));
+        assertTrue(failed.cause() instanceof IllegalStateException);
+        assertFalse(pending.isDone());
+
+        pool.close();
+        assertTrue(pending.await(1, TimeUnit.SECONDS));
+        assertTrue(pending.cause() instanceof IllegalStateException);
+
+        // The pool was closed, so the Channel is closed on release.
+        assertFalse(pool.release(channel).awaitUninterruptibly().isSuccess());
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    public void testReleaseChannelOfOtherPool() throws Exception {
+        PartitionedChannelPool pool = new PartitionedChannelPool(cb, new CountingChannelPoolHandler(), 1);
+        PartitionedChannelPool pool2 = new PartitionedChannelPool(cb, new CountingChannelPoolHandler(), 1);
+
+        Channel channel = pool.acquire().syncUninterruptibly().getNow();
+        Future<Void> future = pool2.release(channel).awaitUninterruptibly();
+        assertTrue(future.cause() instanceof IllegalArgumentException);
+        assertFalse(channel.isOpen());
+
+        pool.close();
+        pool2.close();
+    }
+
+    @Test
+    public void testPoolMap() throws Exception {
+        PartitionedChannelPoolMap poolMap = new PartitionedChannelPoolMap(cb, new CountingChannelPoolHandler(), 1);
+        PartitionedChannelPool pool = poolMap.get(ADDR);
+        assertSame(pool, poolMap.get(ADDR));
+
+        Channel channel = pool.acquire().syncUninterruptibly().getNow();
+        assertEquals(ADDR, channel.remoteAddress());
+        pool.release(channel).syncUninterruptibly();
+
+        poolMap.close();
+        assertTrue(poolMap.isEmpty());
+        channel.closeFuture().syncUninterruptibly();
+    }
+}